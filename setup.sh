@@ -40,8 +40,8 @@ echo
 echo "IMPORTANT: Before running the application, please ensure:"
 echo "1. MySQL server is running"
 echo "2. Database 'savora_finance' exists"
-echo "3. Tables are created (run schema.sql)"
-echo "4. Database credentials are correct in DatabaseConnection.java"
+echo "3. Tables are created automatically on first start (db/migration scripts)"
+echo "4. Database credentials are correct in database.properties"
 echo
 
 echo "To run the application:"
@@ -1,20 +1,26 @@
 package com.savora.dao;
 
+import com.savora.model.AccountEvent;
 import com.savora.model.SimulatedAccount;
 import com.savora.util.DatabaseConnection;
+import com.savora.util.DbExecutor;
 
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * DAO for SimulatedAccount operations
  */
 public class AccountDAO {
     private final DatabaseConnection dbConnection;
+    private final AccountEventDAO eventDAO;
     
     public AccountDAO() {
         this.dbConnection = DatabaseConnection.getInstance();
+        this.eventDAO = new AccountEventDAO();
     }
     
     /**
@@ -40,6 +46,28 @@ public class AccountDAO {
         return null;
     }
     
+    /**
+     * Asynchronous version of {@link #findById(int)}
+     */
+    public CompletableFuture<SimulatedAccount> findByIdAsync(int accountId) {
+        return DbExecutor.getInstance().submit(() -> findById(accountId));
+    }
+    
+    /**
+     * Get account by ID and lock its row until the transaction on conn ends
+     */
+    public SimulatedAccount findByIdForUpdate(Connection conn, int accountId) throws SQLException {
+        String sql = "SELECT * FROM simulated_accounts WHERE account_id = ? FOR UPDATE";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, accountId);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? mapResultSetToAccount(rs) : null;
+            }
+        }
+    }
+    
     /**
      * Get all accounts
      */
@@ -62,28 +90,34 @@ public class AccountDAO {
     }
     
     /**
-     * Create new account
+     * Create new account and record its opening balance in the account ledger
      */
     public boolean create(SimulatedAccount account) {
         String sql = "INSERT INTO simulated_accounts (account_name, initial_cash, current_cash) VALUES (?, ?, ?)";
         
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
-            stmt.setString(1, account.getAccountName());
-            stmt.setBigDecimal(2, account.getInitialCash());
-            stmt.setBigDecimal(3, account.getCurrentCash());
-            
-            int affectedRows = stmt.executeUpdate();
-            
-            if (affectedRows > 0) {
-                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        account.setAccountId(generatedKeys.getInt(1));
+        try {
+            return dbConnection.inTransaction(conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                    stmt.setString(1, account.getAccountName());
+                    stmt.setBigDecimal(2, account.getInitialCash());
+                    stmt.setBigDecimal(3, account.getCurrentCash());
+                    
+                    if (stmt.executeUpdate() == 0) {
+                        return false;
                     }
+                    try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                        if (generatedKeys.next()) {
+                            account.setAccountId(generatedKeys.getInt(1));
+                        }
+                    }
+                }
+                eventDAO.append(conn, AccountEvent.accountOpened(account, LocalDate.now()));
+                if (account.getCurrentCash().compareTo(account.getInitialCash()) != 0) {
+                    eventDAO.append(conn, AccountEvent.cashAdjusted(account.getAccountId(),
+                        account.getCurrentCash().subtract(account.getInitialCash()), LocalDate.now()));
                 }
                 return true;
-            }
+            });
         } catch (SQLException e) {
             System.err.println("Error creating account: " + e.getMessage());
             e.printStackTrace();
@@ -92,23 +126,38 @@ public class AccountDAO {
     }
     
     /**
-     * Update account cash balance
+     * Set account cash balance, recording the change as a cash adjustment in the account ledger
      */
     public boolean updateCash(int accountId, java.math.BigDecimal newCash) {
+        try {
+            return dbConnection.inTransaction(conn -> {
+                SimulatedAccount account = findByIdForUpdate(conn, accountId);
+                if (account == null || !updateCash(conn, accountId, newCash)) {
+                    return false;
+                }
+                eventDAO.append(conn, AccountEvent.cashAdjusted(accountId,
+                    newCash.subtract(account.getCurrentCash()), LocalDate.now()));
+                return true;
+            });
+        } catch (SQLException e) {
+            System.err.println("Error updating account cash: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return false;
+    }
+    
+    /**
+     * Update account cash balance on the given connection; the caller records the ledger event
+     */
+    public boolean updateCash(Connection conn, int accountId, java.math.BigDecimal newCash) throws SQLException {
         String sql = "UPDATE simulated_accounts SET current_cash = ? WHERE account_id = ?";
         
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setBigDecimal(1, newCash);
             stmt.setInt(2, accountId);
             
             return stmt.executeUpdate() > 0;
-        } catch (SQLException e) {
-            System.err.println("Error updating account cash: " + e.getMessage());
-            e.printStackTrace();
         }
-        return false;
     }
     
     /**
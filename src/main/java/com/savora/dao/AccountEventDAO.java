@@ -0,0 +1,271 @@
+package com.savora.dao;
+
+import com.savora.model.AccountEvent;
+import com.savora.model.AccountState;
+import com.savora.model.Order;
+import com.savora.model.Position;
+import com.savora.util.DatabaseConnection;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * DAO for the account ledger (account_events) and its snapshots.
+ * Events are only ever appended.
+ */
+public class AccountEventDAO {
+    private static final String INSERT_SQL =
+        "INSERT INTO account_events (account_id, event_type, event_date, order_id, symbol_id, side, " +
+        "quantity, price, cash_delta) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private final DatabaseConnection dbConnection;
+
+    public AccountEventDAO() {
+        this.dbConnection = DatabaseConnection.getInstance();
+    }
+
+    /**
+     * Append an event on the given connection, as part of the transaction that caused it
+     */
+    public void append(Connection conn, AccountEvent event) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+            bindEvent(stmt, event);
+            stmt.executeUpdate();
+
+            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    event.setEventId(generatedKeys.getLong(1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Append many events in one JDBC batch on the given connection; event IDs are not read back
+     */
+    public void appendBatch(Connection conn, List<AccountEvent> events) throws SQLException {
+        if (events.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(INSERT_SQL)) {
+            for (AccountEvent event : events) {
+                bindEvent(stmt, event);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    /**
+     * Get an account's events after an event ID, up to and including a date (null for no limit),
+     * in event ID order
+     */
+    public List<AccountEvent> findAfter(int accountId, long afterEventId, LocalDate upToDate) {
+        try (Connection conn = dbConnection.getConnection()) {
+            return findAfter(conn, accountId, afterEventId, upToDate);
+        } catch (SQLException e) {
+            System.err.println("Error finding account events: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Get an account's events after an event ID on the given connection
+     */
+    public List<AccountEvent> findAfter(Connection conn, int accountId, long afterEventId, LocalDate upToDate)
+            throws SQLException {
+        String sql = "SELECT * FROM account_events WHERE account_id = ? AND event_id > ? " +
+                     (upToDate != null ? "AND event_date <= ? " : "") +
+                     "ORDER BY event_id";
+        List<AccountEvent> events = new ArrayList<>();
+
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, accountId);
+            stmt.setLong(2, afterEventId);
+            if (upToDate != null) {
+                stmt.setDate(3, Date.valueOf(upToDate));
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    events.add(mapResultSetToEvent(rs));
+                }
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Get the newest snapshot of an account dated on or before a date (null for the newest),
+     * or null if there is none
+     */
+    public AccountState findLatestSnapshot(int accountId, LocalDate onOrBefore) {
+        try (Connection conn = dbConnection.getConnection()) {
+            return findLatestSnapshot(conn, accountId, onOrBefore);
+        } catch (SQLException e) {
+            System.err.println("Error finding account snapshot: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * Get the newest snapshot of an account dated on or before a date on the given connection
+     */
+    public AccountState findLatestSnapshot(Connection conn, int accountId, LocalDate onOrBefore)
+            throws SQLException {
+        String sql = "SELECT * FROM account_snapshots WHERE account_id = ? " +
+                     (onOrBefore != null ? "AND snapshot_date <= ? " : "") +
+                     "ORDER BY last_event_id DESC LIMIT 1";
+        String positionsSql = "SELECT * FROM account_snapshot_positions WHERE snapshot_id = ? ORDER BY symbol_id";
+
+        long snapshotId;
+        AccountState state;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, accountId);
+            if (onOrBefore != null) {
+                stmt.setDate(2, Date.valueOf(onOrBefore));
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                snapshotId = rs.getLong("snapshot_id");
+                state = new AccountState(accountId, rs.getLong("last_event_id"),
+                                         rs.getDate("snapshot_date").toLocalDate(), rs.getBigDecimal("cash"));
+            }
+        }
+
+        try (PreparedStatement positionsStmt = conn.prepareStatement(positionsSql)) {
+            positionsStmt.setLong(1, snapshotId);
+            try (ResultSet rs = positionsStmt.executeQuery()) {
+                while (rs.next()) {
+                    int symbolId = rs.getInt("symbol_id");
+                    state.setPosition(symbolId, new Position(accountId, symbolId, rs.getInt("quantity"),
+                                                             rs.getBigDecimal("avg_cost")));
+                }
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Store a snapshot of an account state; a snapshot at the same event is kept as is
+     */
+    public boolean saveSnapshot(AccountState state) {
+        String sql = "INSERT IGNORE INTO account_snapshots (account_id, last_event_id, snapshot_date, cash) " +
+                     "VALUES (?, ?, ?, ?)";
+        String positionsSql = "INSERT INTO account_snapshot_positions (snapshot_id, symbol_id, quantity, avg_cost) " +
+                              "VALUES (?, ?, ?, ?)";
+
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setInt(1, state.getAccountId());
+                stmt.setLong(2, state.getLastEventId());
+                stmt.setDate(3, Date.valueOf(state.getAsOfDate()));
+                stmt.setBigDecimal(4, state.getCash());
+
+                if (stmt.executeUpdate() == 0) {
+                    conn.rollback();
+                    return true; // already snapshotted
+                }
+                long snapshotId;
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    if (!generatedKeys.next()) {
+                        throw new SQLException("No snapshot ID generated");
+                    }
+                    snapshotId = generatedKeys.getLong(1);
+                }
+
+                try (PreparedStatement positionsStmt = conn.prepareStatement(positionsSql)) {
+                    for (Position position : state.getPositions()) {
+                        positionsStmt.setLong(1, snapshotId);
+                        positionsStmt.setInt(2, position.getSymbolId());
+                        positionsStmt.setInt(3, position.getQuantity());
+                        positionsStmt.setBigDecimal(4, position.getAvgCost());
+                        positionsStmt.addBatch();
+                    }
+                    positionsStmt.executeBatch();
+                }
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error saving account snapshot: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    private static void bindEvent(PreparedStatement stmt, AccountEvent event) throws SQLException {
+        stmt.setInt(1, event.getAccountId());
+        stmt.setString(2, event.getType().name());
+        stmt.setDate(3, Date.valueOf(event.getEventDate()));
+        if (event.getOrderId() != null) {
+            stmt.setLong(4, event.getOrderId());
+        } else {
+            stmt.setNull(4, Types.BIGINT);
+        }
+        if (event.getSymbolId() != null) {
+            stmt.setInt(5, event.getSymbolId());
+        } else {
+            stmt.setNull(5, Types.INTEGER);
+        }
+        if (event.getSide() != null) {
+            stmt.setString(6, event.getSide().name());
+        } else {
+            stmt.setNull(6, Types.VARCHAR);
+        }
+        stmt.setInt(7, event.getQuantity());
+        if (event.getPrice() != null) {
+            stmt.setBigDecimal(8, event.getPrice());
+        } else {
+            stmt.setNull(8, Types.DECIMAL);
+        }
+        stmt.setBigDecimal(9, event.getCashDelta());
+    }
+
+    /**
+     * Map ResultSet to AccountEvent
+     */
+    private AccountEvent mapResultSetToEvent(ResultSet rs) throws SQLException {
+        AccountEvent event = new AccountEvent();
+        event.setEventId(rs.getLong("event_id"));
+        event.setAccountId(rs.getInt("account_id"));
+        event.setType(AccountEvent.Type.valueOf(rs.getString("event_type")));
+        event.setEventDate(rs.getDate("event_date").toLocalDate());
+
+        long orderId = rs.getLong("order_id");
+        if (!rs.wasNull()) {
+            event.setOrderId(orderId);
+        }
+        int symbolId = rs.getInt("symbol_id");
+        if (!rs.wasNull()) {
+            event.setSymbolId(symbolId);
+        }
+        String side = rs.getString("side");
+        if (side != null) {
+            event.setSide(Order.Side.valueOf(side));
+        }
+        event.setQuantity(rs.getInt("quantity"));
+        event.setPrice(rs.getBigDecimal("price"));
+
+        BigDecimal cashDelta = rs.getBigDecimal("cash_delta");
+        event.setCashDelta(cashDelta != null ? cashDelta : BigDecimal.ZERO);
+
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        if (createdAt != null) {
+            event.setCreatedAt(createdAt.toLocalDateTime());
+        }
+        return event;
+    }
+}
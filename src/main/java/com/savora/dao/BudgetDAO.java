@@ -2,6 +2,7 @@ package com.savora.dao;
 
 import com.savora.model.Budget;
 import com.savora.util.DatabaseConnection;
+import com.savora.util.DbExecutor;
 
 import java.math.BigDecimal;
 import java.sql.*;
@@ -9,6 +10,7 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Data Access Object for Budget operations
@@ -98,6 +100,13 @@ public class BudgetDAO {
         return executeQuery(sql);
     }
     
+    /**
+     * Asynchronous version of {@link #findActiveBudgets()}
+     */
+    public CompletableFuture<List<Budget>> findActiveBudgetsAsync() {
+        return DbExecutor.getInstance().submit(this::findActiveBudgets);
+    }
+    
     /**
      * Get budgets by category
      */
@@ -151,8 +160,8 @@ public class BudgetDAO {
      * Get total spent amount for a category in current month
      */
     public BigDecimal getSpentAmountForCategory(int categoryId, LocalDate startDate, LocalDate endDate) {
-        String sql = "SELECT COALESCE(SUM(amount), 0) FROM transactions " +
-                    "WHERE category_id = ? AND type = 'expense' AND date BETWEEN ? AND ?";
+        String sql = "SELECT COALESCE(SUM(total), 0) FROM spending_rollup " +
+                    "WHERE category_id = ? AND type = 'expense' AND rollup_date BETWEEN ? AND ?";
         
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
@@ -173,6 +182,13 @@ public class BudgetDAO {
         return BigDecimal.ZERO;
     }
     
+    /**
+     * Asynchronous version of {@link #getSpentAmountForCategory(int, LocalDate, LocalDate)}
+     */
+    public CompletableFuture<BigDecimal> getSpentAmountForCategoryAsync(int categoryId, LocalDate startDate, LocalDate endDate) {
+        return DbExecutor.getInstance().submit(() -> getSpentAmountForCategory(categoryId, startDate, endDate));
+    }
+    
     /**
      * Update budget
      */
@@ -2,11 +2,13 @@ package com.savora.dao;
 
 import com.savora.model.Category;
 import com.savora.util.DatabaseConnection;
+import com.savora.util.DbExecutor;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Data Access Object for Category operations
@@ -101,6 +103,13 @@ public class CategoryDAO {
         return executeQuery(sql);
     }
     
+    /**
+     * Asynchronous version of {@link #findAll()}
+     */
+    public CompletableFuture<List<Category>> findAllAsync() {
+        return DbExecutor.getInstance().submit(this::findAll);
+    }
+    
     /**
      * Get default categories
      */
@@ -0,0 +1,255 @@
+package com.savora.dao;
+
+import com.savora.model.BarInterval;
+import com.savora.model.IntradayBar;
+import com.savora.model.MarketData;
+import com.savora.model.PriceSeries;
+import com.savora.util.DatabaseConnection;
+
+import java.math.BigDecimal;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * DAO for intraday bars.
+ *
+ * intraday_bars is about 390 times larger than market_data, so reads are range
+ * scans over the (symbol_id, bar_interval, bar_time) primary key. The driver
+ * streams the rows instead of buffering them, and one bar object is reused for
+ * every row.
+ */
+public class IntradayBarDAO {
+    private static final int ROWS_PER_INSERT = 500;
+
+    private final DatabaseConnection dbConnection;
+
+    public IntradayBarDAO() {
+        this.dbConnection = DatabaseConnection.getInstance();
+    }
+
+    /**
+     * Insert bars in one transaction, skipping bars that already exist
+     */
+    public int insertBars(List<IntradayBar> bars) {
+        if (bars.isEmpty()) {
+            return 0;
+        }
+        int inserted = 0;
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int from = 0;
+                try (PreparedStatement full = conn.prepareStatement(insertSql(ROWS_PER_INSERT))) {
+                    for (; from + ROWS_PER_INSERT <= bars.size(); from += ROWS_PER_INSERT) {
+                        bindBars(full, bars, from, ROWS_PER_INSERT);
+                        inserted += full.executeUpdate();
+                    }
+                }
+                int remaining = bars.size() - from;
+                if (remaining > 0) {
+                    try (PreparedStatement tail = conn.prepareStatement(insertSql(remaining))) {
+                        bindBars(tail, bars, from, remaining);
+                        inserted += tail.executeUpdate();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                inserted = 0;
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error inserting intraday bars: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return inserted;
+    }
+
+    /**
+     * Delete bars of one interval in [from, to)
+     */
+    public boolean deleteRange(int symbolId, BarInterval interval, LocalDateTime from, LocalDateTime to) {
+        String sql = "DELETE FROM intraday_bars WHERE symbol_id = ? AND bar_interval = ? AND bar_time >= ? AND bar_time < ?";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, symbolId);
+            stmt.setInt(2, interval.getMinutes());
+            stmt.setObject(3, from);
+            stmt.setObject(4, to);
+            stmt.executeUpdate();
+            return true;
+
+        } catch (SQLException e) {
+            System.err.println("Error deleting intraday bars: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Stream bars of one interval in [from, to) in time order.
+     * The handler receives the same IntradayBar instance for every row; copy() it to keep it.
+     * Returns the number of bars read, or -1 on error.
+     */
+    public int scan(int symbolId, BarInterval interval, LocalDateTime from, LocalDateTime to,
+                    Consumer<IntradayBar> handler) {
+        String sql = "SELECT bar_time, open_price, high_price, low_price, close_price, volume FROM intraday_bars " +
+                     "WHERE symbol_id = ? AND bar_interval = ? AND bar_time >= ? AND bar_time < ? ORDER BY bar_time";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setFetchSize(dbConnection.getDialect().getStreamingFetchSize());
+            stmt.setInt(1, symbolId);
+            stmt.setInt(2, interval.getMinutes());
+            stmt.setObject(3, from);
+            stmt.setObject(4, to);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                IntradayBar bar = new IntradayBar();
+                bar.setSymbolId(symbolId);
+                bar.setInterval(interval);
+                int count = 0;
+                while (rs.next()) {
+                    bar.setBarTime(rs.getObject(1, LocalDateTime.class));
+                    bar.setOpenCents(PriceSeries.toCents(rs.getBigDecimal(2)));
+                    bar.setHighCents(PriceSeries.toCents(rs.getBigDecimal(3)));
+                    bar.setLowCents(PriceSeries.toCents(rs.getBigDecimal(4)));
+                    bar.setCloseCents(PriceSeries.toCents(rs.getBigDecimal(5)));
+                    bar.setVolume(rs.getLong(6));
+                    handler.accept(bar);
+                    count++;
+                }
+                return count;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error scanning intraday bars: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return -1;
+    }
+
+    /**
+     * Get bars of one interval in [from, to); use scan() for long ranges
+     */
+    public List<IntradayBar> findBars(int symbolId, BarInterval interval, LocalDateTime from, LocalDateTime to) {
+        List<IntradayBar> bars = new ArrayList<>();
+        scan(symbolId, interval, from, to, bar -> bars.add(bar.copy()));
+        return bars;
+    }
+
+    /**
+     * Aggregate one-minute bars in [from, to) into bars of a longer interval
+     */
+    public List<IntradayBar> rollUp(int symbolId, LocalDateTime from, LocalDateTime to, BarInterval target) {
+        List<IntradayBar> rolled = new ArrayList<>();
+        RollUp rollUp = new RollUp(target, rolled::add);
+        scan(symbolId, BarInterval.ONE_MINUTE, from, to, rollUp::add);
+        rollUp.finish();
+        return rolled;
+    }
+
+    /**
+     * Aggregate one-minute bars into daily market data for dates startDate to endDate
+     */
+    public List<MarketData> rollUpDaily(int symbolId, LocalDate startDate, LocalDate endDate) {
+        List<MarketData> daily = new ArrayList<>();
+        for (IntradayBar bar : rollUp(symbolId, startDate.atStartOfDay(), endDate.plusDays(1).atStartOfDay(),
+                                      BarInterval.ONE_DAY)) {
+            BigDecimal close = bar.getClosePrice();
+            daily.add(new MarketData(symbolId, bar.getBarTime().toLocalDate(), bar.getOpenPrice(),
+                                     bar.getHighPrice(), bar.getLowPrice(), close, close, bar.getVolume()));
+        }
+        return daily;
+    }
+
+    /**
+     * Get count of bars of one interval for a symbol
+     */
+    public long getBarCount(int symbolId, BarInterval interval) {
+        String sql = "SELECT COUNT(*) FROM intraday_bars WHERE symbol_id = ? AND bar_interval = ?";
+
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            stmt.setInt(1, symbolId);
+            stmt.setInt(2, interval.getMinutes());
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getLong(1);
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error counting intraday bars: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return 0;
+    }
+
+    private static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder("INSERT IGNORE INTO intraday_bars (symbol_id, bar_interval, bar_time, " +
+                                              "open_price, high_price, low_price, close_price, volume) VALUES ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "" : ", ").append("(?, ?, ?, ?, ?, ?, ?, ?)");
+        }
+        return sql.toString();
+    }
+
+    private static void bindBars(PreparedStatement stmt, List<IntradayBar> bars, int from, int count)
+            throws SQLException {
+        int p = 1;
+        for (int i = from; i < from + count; i++) {
+            IntradayBar bar = bars.get(i);
+            stmt.setInt(p++, bar.getSymbolId());
+            stmt.setInt(p++, bar.getInterval().getMinutes());
+            stmt.setObject(p++, bar.getBarTime());
+            stmt.setBigDecimal(p++, bar.getOpenPrice());
+            stmt.setBigDecimal(p++, bar.getHighPrice());
+            stmt.setBigDecimal(p++, bar.getLowPrice());
+            stmt.setBigDecimal(p++, bar.getClosePrice());
+            stmt.setLong(p++, bar.getVolume());
+        }
+    }
+
+    /**
+     * Folds time-ordered bars into buckets of a longer interval
+     */
+    static final class RollUp {
+        private final BarInterval target;
+        private final Consumer<IntradayBar> output;
+        private IntradayBar current;
+
+        RollUp(BarInterval target, Consumer<IntradayBar> output) {
+            this.target = target;
+            this.output = output;
+        }
+
+        void add(IntradayBar bar) {
+            LocalDateTime bucket = target.bucketStart(bar.getBarTime());
+            if (current != null && current.getBarTime().equals(bucket)) {
+                current.setHighCents(Math.max(current.getHighCents(), bar.getHighCents()));
+                current.setLowCents(Math.min(current.getLowCents(), bar.getLowCents()));
+                current.setCloseCents(bar.getCloseCents());
+                current.setVolume(current.getVolume() + bar.getVolume());
+                return;
+            }
+            finish();
+            current = new IntradayBar(bar.getSymbolId(), target, bucket, bar.getOpenCents(), bar.getHighCents(),
+                                      bar.getLowCents(), bar.getCloseCents(), bar.getVolume());
+        }
+
+        void finish() {
+            if (current != null) {
+                output.accept(current);
+                current = null;
+            }
+        }
+    }
+}
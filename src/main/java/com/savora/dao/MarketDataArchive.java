@@ -0,0 +1,204 @@
+package com.savora.dao;
+
+import com.savora.model.PriceSeries;
+import com.savora.util.DatabaseConfig;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Binary archive of daily bars, one memory-mapped file per symbol.
+ *
+ * File layout (little-endian), version 1:
+ * <pre>
+ *   header   48 bytes: magic "SVBR", version, symbol id, row count, price scale,
+ *            reserved, first epoch day, last epoch day, ticker (16 bytes ASCII)
+ *   int[n]   trade dates as epoch days, padded to a multiple of 8 bytes
+ *   long[n]  data_id, open, high, low, close, adjusted close (cents), volume
+ * </pre>
+ * Columns are fixed width, so a file is read with a handful of bulk copies
+ * straight out of the mapped region.
+ */
+public class MarketDataArchive {
+    public static final int MAGIC = 0x52425653; // "SVBR" read little-endian
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 48;
+    public static final String FILE_SUFFIX = ".bars";
+
+    private static final int TICKER_BYTES = 16;
+    private static final int LONG_COLUMNS = 7;
+
+    private final Path directory;
+
+    public MarketDataArchive(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Archive configured with db.marketDataArchive, or null if that is not set
+     */
+    public static MarketDataArchive fromConfig(DatabaseConfig config) {
+        String dir = config.getMarketDataArchiveDir();
+        return dir.isEmpty() ? null : new MarketDataArchive(Paths.get(dir));
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public Path fileFor(int symbolId) {
+        return directory.resolve(symbolId + FILE_SUFFIX);
+    }
+
+    public boolean exists(int symbolId) {
+        return Files.isRegularFile(fileFor(symbolId));
+    }
+
+    /**
+     * Read a symbol's bars from its archive file
+     */
+    public PriceSeries read(int symbolId) throws IOException {
+        return read(fileFor(symbolId), symbolId);
+    }
+
+    /**
+     * Read an archive file; expectedSymbolId of -1 accepts any symbol
+     */
+    public static PriceSeries read(Path file, int expectedSymbolId) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE) {
+                throw new IOException(file + " is too small to be a market data archive");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException(file + " is not a market data archive");
+            }
+            int version = buffer.getInt(4);
+            if (version != VERSION) {
+                throw new IOException(file + " has unsupported archive version " + version);
+            }
+            int symbolId = buffer.getInt(8);
+            int rows = buffer.getInt(12);
+            int priceScale = buffer.getInt(16);
+            if (expectedSymbolId >= 0 && symbolId != expectedSymbolId) {
+                throw new IOException(file + " holds symbol " + symbolId + ", expected " + expectedSymbolId);
+            }
+            if (priceScale != PriceSeries.PRICE_SCALE) {
+                throw new IOException(file + " has price scale " + priceScale);
+            }
+            if (rows < 0 || fileSize != fileSize(rows)) {
+                throw new IOException(file + " is truncated or corrupt (" + rows + " rows, " + fileSize + " bytes)");
+            }
+
+            int[] epochDays = new int[rows];
+            buffer.position(HEADER_SIZE);
+            buffer.asIntBuffer().get(epochDays);
+
+            long[][] columns = new long[LONG_COLUMNS][rows];
+            buffer.position(HEADER_SIZE + intColumnBytes(rows));
+            LongBuffer longs = buffer.asLongBuffer();
+            for (long[] column : columns) {
+                longs.get(column);
+            }
+            return PriceSeries.fromColumns(symbolId, epochDays, columns[0], columns[1], columns[2], columns[3],
+                                           columns[4], columns[5], columns[6]);
+        }
+    }
+
+    /**
+     * Read the ticker stored in an archive file's header
+     */
+    public static String readTicker(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            byte[] ticker = new byte[TICKER_BYTES];
+            buffer.position(HEADER_SIZE - TICKER_BYTES);
+            buffer.get(ticker);
+            int length = 0;
+            while (length < TICKER_BYTES && ticker[length] != 0) {
+                length++;
+            }
+            return new String(ticker, 0, length, StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * Write a symbol's bars, replacing any existing file atomically
+     */
+    public void write(PriceSeries series, String ticker) throws IOException {
+        Files.createDirectories(directory);
+        Path target = fileFor(series.getSymbolId());
+        Path temp = directory.resolve(series.getSymbolId() + FILE_SUFFIX + ".tmp");
+
+        int rows = series.size();
+        // Written through a plain buffer: a live mapping would block the rename on Windows
+        ByteBuffer buffer = ByteBuffer.allocate((int) fileSize(rows)).order(ByteOrder.LITTLE_ENDIAN);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(series.getSymbolId());
+            buffer.putInt(rows);
+            buffer.putInt(PriceSeries.PRICE_SCALE);
+            buffer.putInt(0);
+            buffer.putInt(rows > 0 ? series.getEpochDay(0) : 0);
+            buffer.putInt(rows > 0 ? series.getEpochDay(rows - 1) : 0);
+            byte[] tickerBytes = Arrays.copyOf(ticker.getBytes(StandardCharsets.US_ASCII), TICKER_BYTES);
+            buffer.put(tickerBytes);
+
+            for (int i = 0; i < rows; i++) {
+                buffer.putInt(series.getEpochDay(i));
+            }
+            buffer.position(HEADER_SIZE + intColumnBytes(rows));
+            for (int i = 0; i < rows; i++) {
+                buffer.putLong(series.getDataId(i));
+            }
+            for (int i = 0; i < rows; i++) {
+                buffer.putLong(series.getOpenCents(i));
+            }
+            for (int i = 0; i < rows; i++) {
+                buffer.putLong(series.getHighCents(i));
+            }
+            for (int i = 0; i < rows; i++) {
+                buffer.putLong(series.getLowCents(i));
+            }
+            for (int i = 0; i < rows; i++) {
+                buffer.putLong(series.getCloseCents(i));
+            }
+            for (int i = 0; i < rows; i++) {
+                buffer.putLong(series.getAdjustedCloseCents(i));
+            }
+            for (int i = 0; i < rows; i++) {
+                buffer.putLong(series.getVolume(i));
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int intColumnBytes(int rows) {
+        return ((rows + 1) & ~1) * Integer.BYTES;
+    }
+
+    private static long fileSize(int rows) {
+        return HEADER_SIZE + intColumnBytes(rows) + (long) rows * LONG_COLUMNS * Long.BYTES;
+    }
+}
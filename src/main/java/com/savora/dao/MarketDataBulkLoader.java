@@ -0,0 +1,360 @@
+package com.savora.dao;
+
+import com.savora.model.MarketData;
+import com.savora.model.PriceSeries;
+import com.savora.util.DatabaseConnection;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Streams market_data rows into the database in large chunks.
+ *
+ * Rows are buffered in primitive columns and written every CHUNK_ROWS rows, so
+ * a producer never has to build a full list. On MySQL a chunk is sent with
+ * LOAD DATA LOCAL INFILE from an in-memory stream; if that is unavailable
+ * (H2, local_infile off on the server) multi-row INSERT IGNORE statements are
+ * used instead. Like batchInsert, rows for an existing (symbol, date) are skipped.
+ * {@link #replace} swaps a symbol's whole history in one transaction instead.
+ *
+ * The loader keeps one connection, which only it uses. Use it from one thread and close it
+ * when done (try-with-resources).
+ */
+public class MarketDataBulkLoader implements AutoCloseable {
+    public static final int CHUNK_ROWS = 20_000;
+
+    private static final int ROWS_PER_INSERT = 500;
+    private static final String COLUMNS =
+        "(symbol_id, trade_date, open_price, high_price, low_price, close_price, adjusted_close, volume)";
+    private static final String LOAD_DATA_SQL =
+        "LOAD DATA LOCAL INFILE 'market_data.tsv' IGNORE INTO TABLE market_data " +
+        "FIELDS TERMINATED BY '\\t' LINES TERMINATED BY '\\n' " + COLUMNS;
+
+    // MySQL server errors for LOAD DATA LOCAL INFILE when local_infile is off
+    private static final int ER_NOT_ALLOWED_COMMAND = 1148;
+    private static final int ER_CLIENT_LOCAL_FILES_DISABLED = 3948;
+
+    private static volatile boolean localInfileRefused;
+
+    private final DatabaseConnection dbConnection;
+    private final MarketDataCache cache;
+    private final boolean useLocalInfile;
+    private boolean localInfileUnsupported;
+    private Connection connection;
+    private final Set<Integer> symbolIds = new HashSet<>();
+
+    private final int[] symbolColumn = new int[CHUNK_ROWS];
+    private final int[] dayColumn = new int[CHUNK_ROWS];
+    private final long[] openColumn = new long[CHUNK_ROWS];
+    private final long[] highColumn = new long[CHUNK_ROWS];
+    private final long[] lowColumn = new long[CHUNK_ROWS];
+    private final long[] closeColumn = new long[CHUNK_ROWS];
+    private final long[] adjustedCloseColumn = new long[CHUNK_ROWS];
+    private final long[] volumeColumn = new long[CHUNK_ROWS];
+    private int buffered;
+
+    private final long startNanos = System.nanoTime();
+    private long rowsAdded;
+    private long rowsInserted;
+    private long rowsFailed;
+    private int chunks;
+    private String method;
+    private boolean closed;
+
+    MarketDataBulkLoader(DatabaseConnection dbConnection, MarketDataCache cache) {
+        this.dbConnection = dbConnection;
+        this.cache = cache;
+        this.useLocalInfile = dbConnection.getDialect().supportsLoadDataLocalInfile() &&
+                              dbConnection.getConfig().isBulkLoadLocalInfile();
+    }
+
+    /**
+     * Queue one bar
+     */
+    public void add(MarketData data) {
+        add(data.getSymbolId(), (int) data.getTradeDate().toEpochDay(),
+            PriceSeries.toCents(data.getOpenPrice()), PriceSeries.toCents(data.getHighPrice()),
+            PriceSeries.toCents(data.getLowPrice()), PriceSeries.toCents(data.getClosePrice()),
+            PriceSeries.toCents(data.getAdjustedClose()), data.getVolume());
+    }
+
+    /**
+     * Queue one bar given as epoch day and prices in cents
+     */
+    public void add(int symbolId, int epochDay, long openCents, long highCents, long lowCents,
+                    long closeCents, long adjustedCloseCents, long volume) {
+        buffer(symbolId, epochDay, openCents, highCents, lowCents, closeCents, adjustedCloseCents, volume);
+        if (buffered == CHUNK_ROWS) {
+            flush();
+        }
+    }
+
+    /**
+     * Replace every bar of a symbol with a series: the delete and all of its rows are
+     * committed together, so readers never see the symbol half loaded. Rows queued with add
+     * are flushed first. Returns false, leaving the old bars in place, if the load fails.
+     */
+    public boolean replace(int symbolId, PriceSeries series) {
+        flush();
+        int size = series.size();
+        try {
+            Connection conn = connection();
+            try (PreparedStatement delete = conn.prepareStatement("DELETE FROM market_data WHERE symbol_id = ?")) {
+                delete.setInt(1, symbolId);
+                delete.executeUpdate();
+                long inserted = 0;
+                for (int i = 0; i < size; i++) {
+                    buffer(symbolId, series.getEpochDay(i), series.getOpenCents(i), series.getHighCents(i),
+                           series.getLowCents(i), series.getCloseCents(i), series.getAdjustedCloseCents(i),
+                           series.getVolume(i));
+                    if (buffered == CHUNK_ROWS || i == size - 1) {
+                        inserted += writeBuffered(conn);
+                        buffered = 0;
+                    }
+                }
+                conn.commit();
+                rowsInserted += inserted;
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            rowsFailed += size;
+            System.err.println("Error replacing market data for symbol " + symbolId + ": " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        } finally {
+            buffered = 0;
+            cache.invalidate(symbolId);
+        }
+    }
+
+    private void buffer(int symbolId, int epochDay, long openCents, long highCents, long lowCents,
+                        long closeCents, long adjustedCloseCents, long volume) {
+        if (closed) {
+            throw new IllegalStateException("Bulk loader is closed");
+        }
+        int i = buffered++;
+        symbolColumn[i] = symbolId;
+        dayColumn[i] = epochDay;
+        openColumn[i] = openCents;
+        highColumn[i] = highCents;
+        lowColumn[i] = lowCents;
+        closeColumn[i] = closeCents;
+        adjustedCloseColumn[i] = adjustedCloseCents;
+        volumeColumn[i] = volume;
+        rowsAdded++;
+        symbolIds.add(symbolId);
+    }
+
+    /**
+     * Write the buffered rows in one transaction
+     */
+    public void flush() {
+        if (buffered == 0) {
+            return;
+        }
+        try {
+            Connection conn = connection();
+            try {
+                int inserted = writeBuffered(conn);
+                conn.commit();
+                rowsInserted += inserted;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            rowsFailed += buffered;
+            System.err.println("Error bulk loading market data: " + e.getMessage());
+            e.printStackTrace();
+        } finally {
+            buffered = 0;
+        }
+    }
+
+    /**
+     * Flush remaining rows, release the connection and drop cached prices of the loaded symbols
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        try {
+            flush();
+        } finally {
+            closed = true;
+            symbolIds.forEach(cache::invalidate);
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    System.err.println("Error closing bulk load connection: " + e.getMessage());
+                }
+                connection = null;
+            }
+        }
+    }
+
+    public long getRowsAdded() {
+        return rowsAdded;
+    }
+
+    /**
+     * Rows actually written (duplicates of existing bars are skipped)
+     */
+    public long getRowsInserted() {
+        return rowsInserted;
+    }
+
+    public long getRowsFailed() {
+        return rowsFailed;
+    }
+
+    public double getElapsedSeconds() {
+        return (System.nanoTime() - startNanos) / 1_000_000_000.0;
+    }
+
+    public double getRowsPerSecond() {
+        double seconds = getElapsedSeconds();
+        return seconds > 0 ? rowsInserted / seconds : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d rows inserted (%,d added, %,d failed) in %d chunks via %s, %.2fs, %,.0f rows/sec",
+                             rowsInserted, rowsAdded, rowsFailed, chunks, method != null ? method : "-",
+                             getElapsedSeconds(), getRowsPerSecond());
+    }
+
+    /**
+     * The loader's connection, opened on first use with auto-commit off
+     */
+    private Connection connection() throws SQLException {
+        if (connection == null) {
+            Connection conn = dbConnection.getBulkLoadConnection();
+            if (conn == null) {
+                throw new SQLException("No database connection available");
+            }
+            conn.setAutoCommit(false);
+            connection = conn;
+        }
+        return connection;
+    }
+
+    /**
+     * Write the buffered rows without committing; returns the number inserted
+     */
+    private int writeBuffered(Connection conn) throws SQLException {
+        int inserted = useLocalInfile && !localInfileRefused && !localInfileUnsupported
+                       ? loadDataOrInsert(conn) : insertRows(conn);
+        chunks++;
+        return inserted;
+    }
+
+    private int loadDataOrInsert(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            // Connector/J API, called reflectively so the DAO layer does not link against the driver
+            Class<?> mysqlStatementType = Class.forName("com.mysql.cj.jdbc.JdbcStatement");
+            Method setStream = mysqlStatementType.getMethod("setLocalInfileInputStream", InputStream.class);
+            setStream.invoke(stmt.unwrap(mysqlStatementType), new ByteArrayInputStream(encodeChunk()));
+            method = "LOAD DATA LOCAL INFILE";
+            return stmt.executeUpdate(LOAD_DATA_SQL);
+        } catch (ReflectiveOperationException e) {
+            // Not Connector/J 8 or later; this loader's statements can't take a stream
+            localInfileUnsupported = true;
+            System.err.println("LOAD DATA LOCAL INFILE unavailable, using multi-row inserts: " + e.getMessage());
+            return insertRows(conn);
+        } catch (SQLException e) {
+            if (e.getErrorCode() != ER_CLIENT_LOCAL_FILES_DISABLED && e.getErrorCode() != ER_NOT_ALLOWED_COMMAND) {
+                throw e;
+            }
+            // local_infile is off on the server; the failed statement wrote nothing, so carry on with inserts
+            localInfileRefused = true;
+            System.err.println("LOAD DATA LOCAL INFILE disabled on the server, using multi-row inserts: " + e.getMessage());
+            return insertRows(conn);
+        }
+    }
+
+    /**
+     * Tab-separated rows in the column order of LOAD_DATA_SQL
+     */
+    private byte[] encodeChunk() {
+        StringBuilder sb = new StringBuilder(buffered * 72);
+        for (int i = 0; i < buffered; i++) {
+            sb.append(symbolColumn[i]).append('\t')
+              .append(LocalDate.ofEpochDay(dayColumn[i])).append('\t');
+            appendCents(sb, openColumn[i]).append('\t');
+            appendCents(sb, highColumn[i]).append('\t');
+            appendCents(sb, lowColumn[i]).append('\t');
+            appendCents(sb, closeColumn[i]).append('\t');
+            appendCents(sb, adjustedCloseColumn[i]).append('\t')
+              .append(volumeColumn[i]).append('\n');
+        }
+        return sb.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static StringBuilder appendCents(StringBuilder sb, long cents) {
+        if (cents < 0) {
+            sb.append('-');
+            cents = -cents;
+        }
+        long fraction = cents % 100;
+        return sb.append(cents / 100).append('.').append(fraction < 10 ? "0" : "").append(fraction);
+    }
+
+    private int insertRows(Connection conn) throws SQLException {
+        method = "multi-row INSERT";
+        int inserted = 0;
+        int row = 0;
+        try (PreparedStatement full = conn.prepareStatement(insertSql(ROWS_PER_INSERT))) {
+            for (; row + ROWS_PER_INSERT <= buffered; row += ROWS_PER_INSERT) {
+                bindRows(full, row, ROWS_PER_INSERT);
+                inserted += full.executeUpdate();
+            }
+        }
+        int remaining = buffered - row;
+        if (remaining > 0) {
+            try (PreparedStatement tail = conn.prepareStatement(insertSql(remaining))) {
+                bindRows(tail, row, remaining);
+                inserted += tail.executeUpdate();
+            }
+        }
+        return inserted;
+    }
+
+    private static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder("INSERT IGNORE INTO market_data ").append(COLUMNS).append(" VALUES ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "" : ", ").append("(?, ?, ?, ?, ?, ?, ?, ?)");
+        }
+        return sql.toString();
+    }
+
+    private void bindRows(PreparedStatement stmt, int from, int count) throws SQLException {
+        int p = 1;
+        for (int i = from; i < from + count; i++) {
+            stmt.setInt(p++, symbolColumn[i]);
+            stmt.setDate(p++, Date.valueOf(LocalDate.ofEpochDay(dayColumn[i])));
+            stmt.setBigDecimal(p++, BigDecimal.valueOf(openColumn[i], PriceSeries.PRICE_SCALE));
+            stmt.setBigDecimal(p++, BigDecimal.valueOf(highColumn[i], PriceSeries.PRICE_SCALE));
+            stmt.setBigDecimal(p++, BigDecimal.valueOf(lowColumn[i], PriceSeries.PRICE_SCALE));
+            stmt.setBigDecimal(p++, BigDecimal.valueOf(closeColumn[i], PriceSeries.PRICE_SCALE));
+            stmt.setBigDecimal(p++, BigDecimal.valueOf(adjustedCloseColumn[i], PriceSeries.PRICE_SCALE));
+            stmt.setLong(p++, volumeColumn[i]);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.savora.dao;
+
+import com.savora.model.MarketData;
+import com.savora.model.PriceSeries;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+/**
+ * Read-through cache of each symbol's full price history, shared by every MarketDataDAO.
+ *
+ * A symbol is loaded once on first access. Loading runs inside computeIfAbsent,
+ * so an invalidation that arrives during a load waits for it and then drops the
+ * possibly stale result.
+ */
+final class MarketDataCache {
+    private static final MarketDataCache INSTANCE = new MarketDataCache();
+
+    private final Map<Integer, PriceSeries> series = new ConcurrentHashMap<>();
+    private final Set<Integer> written = ConcurrentHashMap.newKeySet();
+
+    private MarketDataCache() {
+    }
+
+    static MarketDataCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Get the cached series, loading it on a miss. Returns null if the load failed.
+     */
+    PriceSeries get(int symbolId, IntFunction<PriceSeries> loader) {
+        return series.computeIfAbsent(symbolId, loader::apply);
+    }
+
+    /**
+     * Get the cached series without loading it, or null if it is not cached
+     */
+    PriceSeries peek(int symbolId) {
+        return series.get(symbolId);
+    }
+
+    /**
+     * Add a newly created bar to a cached series; out-of-order bars drop the series instead
+     */
+    void append(MarketData data) {
+        written.add(data.getSymbolId());
+        series.computeIfPresent(data.getSymbolId(), (symbolId, cached) -> cached.withAppended(data));
+    }
+
+    void invalidate(int symbolId) {
+        written.add(symbolId);
+        series.remove(symbolId);
+    }
+
+    /**
+     * Whether market_data rows of the symbol changed since startup, making an archive copy stale
+     */
+    boolean isWritten(int symbolId) {
+        return written.contains(symbolId);
+    }
+
+    void invalidateAll() {
+        series.clear();
+    }
+}
@@ -1,21 +1,36 @@
 package com.savora.dao;
 
 import com.savora.model.MarketData;
+import com.savora.model.PriceSeries;
 import com.savora.util.DatabaseConnection;
+import com.savora.util.DbExecutor;
 
+import java.io.IOException;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * DAO for MarketData operations
+ * DAO for MarketData operations.
+ * Reads are served from an in-memory columnar cache of each symbol's history.
  */
 public class MarketDataDAO {
     private final DatabaseConnection dbConnection;
+    private final MarketDataCache cache;
+    private final MarketDataArchive archive;
     
     public MarketDataDAO() {
         this.dbConnection = DatabaseConnection.getInstance();
+        this.cache = MarketDataCache.getInstance();
+        this.archive = MarketDataArchive.fromConfig(dbConnection.getConfig());
     }
     
     /**
@@ -45,6 +60,7 @@ public class MarketDataDAO {
                         marketData.setDataId(generatedKeys.getLong(1));
                     }
                 }
+                cache.append(marketData);
                 return true;
             }
         } catch (SQLException e) {
@@ -62,12 +78,14 @@ public class MarketDataDAO {
                      "close_price, adjusted_close, volume) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
         
         int count = 0;
+        Set<Integer> symbolIds = new HashSet<>();
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
             conn.setAutoCommit(false);
             
             for (MarketData data : dataList) {
+                symbolIds.add(data.getSymbolId());
                 stmt.setInt(1, data.getSymbolId());
                 stmt.setDate(2, Date.valueOf(data.getTradeDate()));
                 stmt.setBigDecimal(3, data.getOpenPrice());
@@ -90,82 +108,122 @@ public class MarketDataDAO {
         } catch (SQLException e) {
             System.err.println("Error batch inserting market data: " + e.getMessage());
             e.printStackTrace();
+        } finally {
+            symbolIds.forEach(cache::invalidate);
         }
         return count;
     }
     
+    /**
+     * Open a streaming bulk loader for large imports; close it when done
+     */
+    public MarketDataBulkLoader openBulkLoader() {
+        return new MarketDataBulkLoader(dbConnection, cache);
+    }
+    
     /**
      * Get market data for a symbol on a specific date
      */
     public MarketData findBySymbolAndDate(int symbolId, LocalDate date) {
-        String sql = "SELECT * FROM market_data WHERE symbol_id = ? AND trade_date = ?";
-        
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, symbolId);
-            stmt.setDate(2, Date.valueOf(date));
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToMarketData(rs);
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Error finding market data: " + e.getMessage());
-            e.printStackTrace();
+        PriceSeries series = findSeries(symbolId);
+        if (series == null) {
+            return null;
         }
-        return null;
+        int index = series.indexOf(date);
+        return index >= 0 ? series.toMarketData(index) : null;
     }
     
     /**
      * Get market data for a symbol within date range
      */
     public List<MarketData> findBySymbolAndDateRange(int symbolId, LocalDate startDate, LocalDate endDate) {
-        String sql = "SELECT * FROM market_data WHERE symbol_id = ? AND trade_date BETWEEN ? AND ? " +
-                     "ORDER BY trade_date ASC";
-        List<MarketData> dataList = new ArrayList<>();
-        
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, symbolId);
-            stmt.setDate(2, Date.valueOf(startDate));
-            stmt.setDate(3, Date.valueOf(endDate));
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    dataList.add(mapResultSetToMarketData(rs));
-                }
-            }
-        } catch (SQLException e) {
-            System.err.println("Error finding market data range: " + e.getMessage());
-            e.printStackTrace();
-        }
-        return dataList;
+        PriceSeries series = findSeriesRange(symbolId, startDate, endDate);
+        return series != null ? series.toMarketDataList() : new ArrayList<>();
+    }
+    
+    /**
+     * Get the full price history of a symbol as primitive columns, or null on error
+     */
+    public PriceSeries findSeries(int symbolId) {
+        return cache.get(symbolId, this::loadSeries);
+    }
+    
+    /**
+     * Get a symbol's prices within a date range without materializing MarketData objects
+     */
+    public PriceSeries findSeriesRange(int symbolId, LocalDate startDate, LocalDate endDate) {
+        PriceSeries series = findSeries(symbolId);
+        return series != null ? series.range(startDate, endDate) : null;
+    }
+    
+    /**
+     * Asynchronous version of {@link #findBySymbolAndDateRange(int, LocalDate, LocalDate)}
+     */
+    public CompletableFuture<List<MarketData>> findBySymbolAndDateRangeAsync(int symbolId, LocalDate startDate, LocalDate endDate) {
+        return DbExecutor.getInstance().submit(() -> findBySymbolAndDateRange(symbolId, startDate, endDate));
     }
     
     /**
      * Get latest market data for a symbol
      */
     public MarketData findLatestBySymbol(int symbolId) {
-        String sql = "SELECT * FROM market_data WHERE symbol_id = ? ORDER BY trade_date DESC LIMIT 1";
+        PriceSeries series = findSeries(symbolId);
+        if (series == null || series.isEmpty()) {
+            return null;
+        }
+        return series.toMarketData(series.size() - 1);
+    }
+    
+    /**
+     * Get the latest close in cents of each symbol. Cached histories are used as they are;
+     * the other symbols are read in one query without loading their histories.
+     * Symbols without data are left out.
+     */
+    public Map<Integer, Long> findLatestCloses(Collection<Integer> symbolIds) {
+        Map<Integer, Long> closes = new HashMap<>();
+        List<Integer> uncached = new ArrayList<>();
+        for (int symbolId : new HashSet<>(symbolIds)) {
+            PriceSeries series = cache.peek(symbolId);
+            if (series == null) {
+                uncached.add(symbolId);
+            } else if (!series.isEmpty()) {
+                closes.put(symbolId, series.getCloseCents(series.size() - 1));
+            }
+        }
+        if (uncached.isEmpty()) {
+            return closes;
+        }
+        
+        String placeholders = String.join(", ", Collections.nCopies(uncached.size(), "?"));
+        String sql = "SELECT m.symbol_id, m.close_price FROM market_data m " +
+                     "JOIN (SELECT symbol_id, MAX(trade_date) AS trade_date FROM market_data " +
+                     "WHERE symbol_id IN (" + placeholders + ") GROUP BY symbol_id) latest " +
+                     "ON m.symbol_id = latest.symbol_id AND m.trade_date = latest.trade_date";
         
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setInt(1, symbolId);
+            for (int i = 0; i < uncached.size(); i++) {
+                stmt.setInt(i + 1, uncached.get(i));
+            }
             
             try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return mapResultSetToMarketData(rs);
+                while (rs.next()) {
+                    closes.put(rs.getInt(1), PriceSeries.toCents(rs.getBigDecimal(2)));
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error finding latest market data: " + e.getMessage());
+            System.err.println("Error finding latest closes: " + e.getMessage());
             e.printStackTrace();
         }
-        return null;
+        return closes;
+    }
+    
+    /**
+     * Asynchronous version of {@link #findLatestBySymbol(int)}
+     */
+    public CompletableFuture<MarketData> findLatestBySymbolAsync(int symbolId) {
+        return DbExecutor.getInstance().submit(() -> findLatestBySymbol(symbolId));
     }
     
     /**
@@ -207,23 +265,88 @@ public class MarketDataDAO {
         } catch (SQLException e) {
             System.err.println("Error deleting market data for symbol " + symbolId + ": " + e.getMessage());
             return false;
+        } finally {
+            cache.invalidate(symbolId);
+        }
+    }
+    
+    /**
+     * Load a symbol's history for the cache, from the archive when one is configured and current
+     */
+    private PriceSeries loadSeries(int symbolId) {
+        if (archive != null && !cache.isWritten(symbolId) && archive.exists(symbolId)) {
+            try {
+                PriceSeries series = archive.read(symbolId);
+                if (matchesDatabase(series)) {
+                    return series;
+                }
+                System.out.println("Market data archive for symbol " + symbolId + " is stale; reading the database.");
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Error reading market data archive for symbol " + symbolId + ": " + e.getMessage());
+            }
+        }
+        return findSeriesInDatabase(symbolId);
+    }
+    
+    /**
+     * Whether an archived series still has the row count and last trade date of market_data.
+     * The written set only covers this process; this catches changes made before a restart
+     * or by another process, with one index-only query instead of reading every row.
+     */
+    private boolean matchesDatabase(PriceSeries series) {
+        String sql = "SELECT COUNT(*), MAX(trade_date) FROM market_data WHERE symbol_id = ?";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, series.getSymbolId());
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next() || rs.getInt(1) != series.size()) {
+                    return false;
+                }
+                Date lastDate = rs.getDate(2);
+                return lastDate == null ? series.isEmpty()
+                                        : !series.isEmpty() &&
+                                          series.getEpochDay(series.size() - 1) == lastDate.toLocalDate().toEpochDay();
+            }
+        } catch (SQLException e) {
+            System.err.println("Error checking market data archive for symbol " + series.getSymbolId() + ": " + e.getMessage());
+            e.printStackTrace();
         }
+        return false;
     }
     
     /**
-     * Map ResultSet to MarketData
+     * Read a symbol's full history from market_data, bypassing the cache and archive
      */
-    private MarketData mapResultSetToMarketData(ResultSet rs) throws SQLException {
-        MarketData data = new MarketData();
-        data.setDataId(rs.getLong("data_id"));
-        data.setSymbolId(rs.getInt("symbol_id"));
-        data.setTradeDate(rs.getDate("trade_date").toLocalDate());
-        data.setOpenPrice(rs.getBigDecimal("open_price"));
-        data.setHighPrice(rs.getBigDecimal("high_price"));
-        data.setLowPrice(rs.getBigDecimal("low_price"));
-        data.setClosePrice(rs.getBigDecimal("close_price"));
-        data.setAdjustedClose(rs.getBigDecimal("adjusted_close"));
-        data.setVolume(rs.getLong("volume"));
-        return data;
+    public PriceSeries findSeriesInDatabase(int symbolId) {
+        String sql = "SELECT data_id, trade_date, open_price, high_price, low_price, close_price, " +
+                     "adjusted_close, volume FROM market_data WHERE symbol_id = ? ORDER BY trade_date ASC";
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setInt(1, symbolId);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                PriceSeries.Builder builder = new PriceSeries.Builder(symbolId, 2048);
+                while (rs.next()) {
+                    builder.add(rs.getLong(1),
+                                (int) rs.getDate(2).toLocalDate().toEpochDay(),
+                                PriceSeries.toCents(rs.getBigDecimal(3)),
+                                PriceSeries.toCents(rs.getBigDecimal(4)),
+                                PriceSeries.toCents(rs.getBigDecimal(5)),
+                                PriceSeries.toCents(rs.getBigDecimal(6)),
+                                PriceSeries.toCents(rs.getBigDecimal(7)),
+                                rs.getLong(8));
+                }
+                return builder.build();
+            }
+        } catch (SQLException e) {
+            System.err.println("Error loading market data for symbol " + symbolId + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
     }
 }
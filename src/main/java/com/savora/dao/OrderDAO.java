@@ -2,11 +2,16 @@ package com.savora.dao;
 
 import com.savora.model.Order;
 import com.savora.util.DatabaseConnection;
+import com.savora.util.DbExecutor;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * DAO for Order operations
@@ -22,13 +27,25 @@ public class OrderDAO {
      * Create new order
      */
     public boolean create(Order order) {
+        try (Connection conn = dbConnection.getConnection()) {
+            return create(conn, order);
+        } catch (SQLException e) {
+            System.err.println("Error creating order: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return false;
+    }
+    
+    /**
+     * Create new order on the given connection
+     */
+    public boolean create(Connection conn, Order order) throws SQLException {
         String sql = "INSERT INTO orders (account_id, symbol_id, order_type, side, quantity, limit_price, " +
-                     "status, filled_quantity, filled_price, order_date, filled_date) " +
-                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+                     "stop_price, trail_amount, time_in_force, status, filled_quantity, filled_price, order_date, " +
+                     "filled_date, book_managed) " +
+                     "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
         
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
+        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setInt(1, order.getAccountId());
             stmt.setInt(2, order.getSymbolId());
             stmt.setString(3, order.getOrderType().name());
@@ -41,23 +58,38 @@ public class OrderDAO {
                 stmt.setNull(6, Types.DECIMAL);
             }
             
-            stmt.setString(7, order.getStatus().name());
-            stmt.setInt(8, order.getFilledQuantity());
+            if (order.getStopPrice() != null) {
+                stmt.setBigDecimal(7, order.getStopPrice());
+            } else {
+                stmt.setNull(7, Types.DECIMAL);
+            }
+            
+            if (order.getTrailAmount() != null) {
+                stmt.setBigDecimal(8, order.getTrailAmount());
+            } else {
+                stmt.setNull(8, Types.DECIMAL);
+            }
+            
+            stmt.setString(9, order.getTimeInForce().name());
+            stmt.setString(10, order.getStatus().name());
+            stmt.setInt(11, order.getFilledQuantity());
             
             if (order.getFilledPrice() != null) {
-                stmt.setBigDecimal(9, order.getFilledPrice());
+                stmt.setBigDecimal(12, order.getFilledPrice());
             } else {
-                stmt.setNull(9, Types.DECIMAL);
+                stmt.setNull(12, Types.DECIMAL);
             }
             
-            stmt.setDate(10, Date.valueOf(order.getOrderDate()));
+            stmt.setDate(13, Date.valueOf(order.getOrderDate()));
             
             if (order.getFilledDate() != null) {
-                stmt.setDate(11, Date.valueOf(order.getFilledDate()));
+                stmt.setDate(14, Date.valueOf(order.getFilledDate()));
             } else {
-                stmt.setNull(11, Types.DATE);
+                stmt.setNull(14, Types.DATE);
             }
             
+            stmt.setBoolean(15, order.isBookManaged());
+            
             int affectedRows = stmt.executeUpdate();
             
             if (affectedRows > 0) {
@@ -68,9 +100,6 @@ public class OrderDAO {
                 }
                 return true;
             }
-        } catch (SQLException e) {
-            System.err.println("Error creating order: " + e.getMessage());
-            e.printStackTrace();
         }
         return false;
     }
@@ -80,12 +109,24 @@ public class OrderDAO {
      */
     public boolean updateOrderFilled(long orderId, Order.Status status, int filledQuantity, 
                                      java.math.BigDecimal filledPrice, LocalDate filledDate) {
+        try (Connection conn = dbConnection.getConnection()) {
+            return updateOrderFilled(conn, orderId, status, filledQuantity, filledPrice, filledDate);
+        } catch (SQLException e) {
+            System.err.println("Error updating order: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return false;
+    }
+    
+    /**
+     * Update order status and filled details on the given connection
+     */
+    public boolean updateOrderFilled(Connection conn, long orderId, Order.Status status, int filledQuantity,
+                                     java.math.BigDecimal filledPrice, LocalDate filledDate) throws SQLException {
         String sql = "UPDATE orders SET status = ?, filled_quantity = ?, filled_price = ?, filled_date = ? " +
                      "WHERE order_id = ?";
         
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, status.name());
             stmt.setInt(2, filledQuantity);
             stmt.setBigDecimal(3, filledPrice);
@@ -93,11 +134,53 @@ public class OrderDAO {
             stmt.setLong(5, orderId);
             
             return stmt.executeUpdate() > 0;
-        } catch (SQLException e) {
-            System.err.println("Error updating order: " + e.getMessage());
-            e.printStackTrace();
         }
-        return false;
+    }
+    
+    /**
+     * Get the status of an order and lock its row until the transaction on conn ends
+     */
+    public Order.Status findStatusForUpdate(Connection conn, long orderId) throws SQLException {
+        String sql = "SELECT status FROM orders WHERE order_id = ? FOR UPDATE";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, orderId);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? Order.Status.valueOf(rs.getString("status")) : null;
+            }
+        }
+    }
+    
+    /**
+     * Get orders by ID and lock them in ID order until the transaction on conn ends.
+     * Orders that do not exist are missing from the result.
+     */
+    public Map<Long, Order> findByIdsForUpdate(Connection conn, Collection<Long> orderIds) throws SQLException {
+        Map<Long, Order> orders = new HashMap<>();
+        if (orderIds.isEmpty()) {
+            return orders;
+        }
+        StringBuilder sql = new StringBuilder("SELECT * FROM orders WHERE order_id IN (");
+        for (int i = 0; i < orderIds.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(") ORDER BY order_id FOR UPDATE");
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int p = 1;
+            for (long orderId : orderIds) {
+                stmt.setLong(p++, orderId);
+            }
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Order order = mapOrderColumns(rs);
+                    orders.put(order.getOrderId(), order);
+                }
+            }
+        }
+        return orders;
     }
     
     /**
@@ -129,13 +212,21 @@ public class OrderDAO {
     }
     
     /**
-     * Get pending orders for a date
+     * Asynchronous version of {@link #findByAccount(int)}
+     */
+    public CompletableFuture<List<Order>> findByAccountAsync(int accountId) {
+        return DbExecutor.getInstance().submit(() -> findByAccount(accountId));
+    }
+    
+    /**
+     * Get pending orders for a date, other than order book orders
      */
     public List<Order> findPendingByDate(int accountId, LocalDate date) {
         String sql = "SELECT o.*, s.symbol " +
                      "FROM orders o " +
                      "JOIN stock_symbols s ON o.symbol_id = s.symbol_id " +
-                     "WHERE o.account_id = ? AND o.status = 'PENDING' AND o.order_date <= ? " +
+                     "WHERE o.account_id = ? AND o.status = 'PENDING' AND o.book_managed = FALSE " +
+                     "AND o.order_date <= ? " +
                      "ORDER BY o.order_date, o.created_at";
         List<Order> orders = new ArrayList<>();
         
@@ -157,10 +248,196 @@ public class OrderDAO {
         return orders;
     }
     
+    /**
+     * Get pending order book orders of all accounts in time priority, for rebuilding order books
+     */
+    public List<Order> findOpenBookOrders() {
+        return queryOpenBookOrders(null);
+    }
+    
+    /**
+     * Get pending order book orders of one symbol in time priority
+     */
+    public List<Order> findOpenBookOrders(int symbolId) {
+        return queryOpenBookOrders(symbolId);
+    }
+    
+    private List<Order> queryOpenBookOrders(Integer symbolId) {
+        String sql = "SELECT * FROM orders WHERE status = 'PENDING' AND book_managed = TRUE " +
+                     (symbolId != null ? "AND symbol_id = ? " : "") +
+                     "ORDER BY created_at, order_id";
+        List<Order> orders = new ArrayList<>();
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            if (symbolId != null) {
+                stmt.setInt(1, symbolId);
+            }
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    orders.add(mapOrderColumns(rs));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error finding open book orders: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return orders;
+    }
+    
+    /**
+     * Get IDs of accounts that have pending orders for a date, other than order book orders
+     */
+    public List<Integer> findAccountsWithPendingOrders(LocalDate date) {
+        String sql = "SELECT DISTINCT account_id FROM orders " +
+                     "WHERE status = 'PENDING' AND book_managed = FALSE AND order_date <= ? " +
+                     "ORDER BY account_id";
+        List<Integer> accountIds = new ArrayList<>();
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setDate(1, Date.valueOf(date));
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    accountIds.add(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error finding accounts with pending orders: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return accountIds;
+    }
+    
+    /**
+     * Get IDs of the symbols of all pending orders for a date, other than order book orders
+     */
+    public List<Integer> findSymbolsWithPendingOrders(LocalDate date) {
+        return querySymbolsWithPendingOrders(null, date);
+    }
+    
+    /**
+     * Get IDs of the symbols of an account's pending orders for a date, other than order book orders
+     */
+    public List<Integer> findSymbolsWithPendingOrders(int accountId, LocalDate date) {
+        return querySymbolsWithPendingOrders(accountId, date);
+    }
+    
+    private List<Integer> querySymbolsWithPendingOrders(Integer accountId, LocalDate date) {
+        String sql = "SELECT DISTINCT symbol_id FROM orders " +
+                     "WHERE status = 'PENDING' AND book_managed = FALSE AND order_date <= ? " +
+                     (accountId != null ? "AND account_id = ? " : "") +
+                     "ORDER BY symbol_id";
+        List<Integer> symbolIds = new ArrayList<>();
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            stmt.setDate(1, Date.valueOf(date));
+            if (accountId != null) {
+                stmt.setInt(2, accountId);
+            }
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    symbolIds.add(rs.getInt(1));
+                }
+            }
+        } catch (SQLException e) {
+            System.err.println("Error finding symbols with pending orders: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return symbolIds;
+    }
+    
+    /**
+     * Get pending orders for a date in execution priority order (oldest first) and lock them
+     * until the transaction on conn ends. Symbol details are not loaded. Order book orders are
+     * left out; only MatchingEngine fills them.
+     */
+    public List<Order> findPendingByDateForUpdate(Connection conn, int accountId, LocalDate date) throws SQLException {
+        String sql = "SELECT * FROM orders " +
+                     "WHERE account_id = ? AND status = 'PENDING' AND book_managed = FALSE AND order_date <= ? " +
+                     "ORDER BY order_date, created_at, order_id FOR UPDATE";
+        List<Order> orders = new ArrayList<>();
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, accountId);
+            stmt.setDate(2, Date.valueOf(date));
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    orders.add(mapOrderColumns(rs));
+                }
+            }
+        }
+        return orders;
+    }
+    
+    /**
+     * Write status and filled details of many orders in one JDBC batch on the given connection
+     */
+    public void updateOrdersFilledBatch(Connection conn, List<Order> orders) throws SQLException {
+        String sql = "UPDATE orders SET status = ?, filled_quantity = ?, filled_price = ?, filled_date = ? " +
+                     "WHERE order_id = ?";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Order order : orders) {
+                stmt.setString(1, order.getStatus().name());
+                stmt.setInt(2, order.getFilledQuantity());
+                stmt.setBigDecimal(3, order.getFilledPrice());
+                stmt.setDate(4, Date.valueOf(order.getFilledDate()));
+                stmt.setLong(5, order.getOrderId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+    
+    /**
+     * Write the trigger state of many stop orders (current stop price, triggered date, last bar
+     * checked) in one JDBC batch on the given connection
+     */
+    public void updateTriggersBatch(Connection conn, List<Order> orders) throws SQLException {
+        String sql = "UPDATE orders SET stop_price = ?, triggered_date = ?, trigger_bar_date = ? WHERE order_id = ?";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Order order : orders) {
+                stmt.setBigDecimal(1, order.getStopPrice());
+                if (order.getTriggeredDate() != null) {
+                    stmt.setDate(2, Date.valueOf(order.getTriggeredDate()));
+                } else {
+                    stmt.setNull(2, Types.DATE);
+                }
+                if (order.getTriggerBarDate() != null) {
+                    stmt.setDate(3, Date.valueOf(order.getTriggerBarDate()));
+                } else {
+                    stmt.setNull(3, Types.DATE);
+                }
+                stmt.setLong(4, order.getOrderId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+    
     /**
      * Map ResultSet to Order
      */
     private Order mapResultSetToOrder(ResultSet rs) throws SQLException {
+        Order order = mapOrderColumns(rs);
+        order.setSymbol(rs.getString("symbol"));
+        return order;
+    }
+    
+    /**
+     * Map the orders columns of a ResultSet to Order
+     */
+    private Order mapOrderColumns(ResultSet rs) throws SQLException {
         Order order = new Order();
         order.setOrderId(rs.getLong("order_id"));
         order.setAccountId(rs.getInt("account_id"));
@@ -174,6 +451,21 @@ public class OrderDAO {
             order.setLimitPrice(limitPrice);
         }
         
+        order.setStopPrice(rs.getBigDecimal("stop_price"));
+        order.setTrailAmount(rs.getBigDecimal("trail_amount"));
+        order.setTimeInForce(Order.TimeInForce.valueOf(rs.getString("time_in_force")));
+        
+        Date triggeredDate = rs.getDate("triggered_date");
+        if (triggeredDate != null) {
+            order.setTriggeredDate(triggeredDate.toLocalDate());
+        }
+        
+        Date triggerBarDate = rs.getDate("trigger_bar_date");
+        if (triggerBarDate != null) {
+            order.setTriggerBarDate(triggerBarDate.toLocalDate());
+        }
+        
+        order.setBookManaged(rs.getBoolean("book_managed"));
         order.setStatus(Order.Status.valueOf(rs.getString("status")));
         order.setFilledQuantity(rs.getInt("filled_quantity"));
         
@@ -194,8 +486,6 @@ public class OrderDAO {
             order.setCreatedAt(createdAt.toLocalDateTime());
         }
         
-        order.setSymbol(rs.getString("symbol"));
-        
         return order;
     }
 }
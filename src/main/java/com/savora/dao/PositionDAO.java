@@ -2,15 +2,26 @@ package com.savora.dao;
 
 import com.savora.model.Position;
 import com.savora.util.DatabaseConnection;
+import com.savora.util.DbExecutor;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * DAO for Position operations
  */
 public class PositionDAO {
+    private static final String UPSERT_SQL =
+        "INSERT INTO positions (account_id, symbol_id, quantity, avg_cost, current_value, unrealized_pnl) " +
+        "VALUES (?, ?, ?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE " +
+        "quantity = VALUES(quantity), " +
+        "avg_cost = VALUES(avg_cost), " +
+        "current_value = VALUES(current_value), " +
+        "unrealized_pnl = VALUES(unrealized_pnl)";
+    
     private final DatabaseConnection dbConnection;
     
     public PositionDAO() {
@@ -45,6 +56,34 @@ public class PositionDAO {
         return positions;
     }
     
+    /**
+     * Get the open positions of all accounts, without symbol details
+     */
+    public List<Position> findAllOpen() {
+        String sql = "SELECT * FROM positions WHERE quantity > 0 ORDER BY account_id, symbol_id";
+        List<Position> positions = new ArrayList<>();
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            
+            while (rs.next()) {
+                positions.add(mapPositionColumns(rs));
+            }
+        } catch (SQLException e) {
+            System.err.println("Error finding open positions: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return positions;
+    }
+    
+    /**
+     * Asynchronous version of {@link #findByAccount(int)}
+     */
+    public CompletableFuture<List<Position>> findByAccountAsync(int accountId) {
+        return DbExecutor.getInstance().submit(() -> findByAccount(accountId));
+    }
+    
     /**
      * Get position for a specific symbol and account
      */
@@ -73,20 +112,60 @@ public class PositionDAO {
     }
     
     /**
-     * Create or update position
+     * Get position for a specific symbol and account and lock its row until the transaction on conn ends.
+     * Symbol details are not loaded, so that the stock_symbols row is not locked too.
      */
-    public boolean upsert(Position position) {
-        String sql = "INSERT INTO positions (account_id, symbol_id, quantity, avg_cost, current_value, unrealized_pnl) " +
-                     "VALUES (?, ?, ?, ?, ?, ?) " +
-                     "ON DUPLICATE KEY UPDATE " +
-                     "quantity = VALUES(quantity), " +
-                     "avg_cost = VALUES(avg_cost), " +
-                     "current_value = VALUES(current_value), " +
-                     "unrealized_pnl = VALUES(unrealized_pnl)";
+    public Position findByAccountAndSymbolForUpdate(Connection conn, int accountId, int symbolId) throws SQLException {
+        String sql = "SELECT * FROM positions WHERE account_id = ? AND symbol_id = ? FOR UPDATE";
         
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, accountId);
+            stmt.setInt(2, symbolId);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? mapPositionColumns(rs) : null;
+            }
+        }
+    }
+    
+    /**
+     * Get all positions of an account, including empty ones, and lock them until the
+     * transaction on conn ends. Symbol details are not loaded.
+     */
+    public List<Position> findByAccountForUpdate(Connection conn, int accountId) throws SQLException {
+        String sql = "SELECT * FROM positions WHERE account_id = ? FOR UPDATE";
+        List<Position> positions = new ArrayList<>();
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, accountId);
             
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    positions.add(mapPositionColumns(rs));
+                }
+            }
+        }
+        return positions;
+    }
+    
+    /**
+     * Create or update position
+     */
+    public boolean upsert(Position position) {
+        try (Connection conn = dbConnection.getConnection()) {
+            return upsert(conn, position);
+        } catch (SQLException e) {
+            System.err.println("Error upserting position: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return false;
+    }
+    
+    /**
+     * Create or update position on the given connection
+     */
+    public boolean upsert(Connection conn, Position position) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(UPSERT_SQL)) {
             stmt.setInt(1, position.getAccountId());
             stmt.setInt(2, position.getSymbolId());
             stmt.setInt(3, position.getQuantity());
@@ -95,11 +174,25 @@ public class PositionDAO {
             stmt.setBigDecimal(6, position.getUnrealizedPnl());
             
             return stmt.executeUpdate() > 0;
-        } catch (SQLException e) {
-            System.err.println("Error upserting position: " + e.getMessage());
-            e.printStackTrace();
         }
-        return false;
+    }
+    
+    /**
+     * Create or update many positions in one JDBC batch on the given connection
+     */
+    public void upsertBatch(Connection conn, List<Position> positions) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(UPSERT_SQL)) {
+            for (Position position : positions) {
+                stmt.setInt(1, position.getAccountId());
+                stmt.setInt(2, position.getSymbolId());
+                stmt.setInt(3, position.getQuantity());
+                stmt.setBigDecimal(4, position.getAvgCost());
+                stmt.setBigDecimal(5, position.getCurrentValue());
+                stmt.setBigDecimal(6, position.getUnrealizedPnl());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
     }
     
     /**
@@ -123,30 +216,116 @@ public class PositionDAO {
         return false;
     }
     
+    /**
+     * Update the values of many positions in one transaction with a JDBC batch. A row is only
+     * updated if its quantity and average cost are still the ones the values were computed
+     * from, so a fill that lands meanwhile is not overwritten. Returns whether each position
+     * was updated, or null on error.
+     */
+    public boolean[] updateValuesBatch(List<Position> positions) {
+        String sql = "UPDATE positions SET current_value = ?, unrealized_pnl = ? " +
+                     "WHERE position_id = ? AND quantity = ? AND avg_cost = ?";
+        boolean[] updated = new boolean[positions.size()];
+        if (positions.isEmpty()) {
+            return updated;
+        }
+        
+        try (Connection conn = dbConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                for (Position position : positions) {
+                    stmt.setBigDecimal(1, position.getCurrentValue());
+                    stmt.setBigDecimal(2, position.getUnrealizedPnl());
+                    stmt.setInt(3, position.getPositionId());
+                    stmt.setInt(4, position.getQuantity());
+                    stmt.setBigDecimal(5, position.getAvgCost());
+                    stmt.addBatch();
+                }
+                int[] counts = stmt.executeBatch();
+                conn.commit();
+                for (int i = 0; i < counts.length; i++) {
+                    updated[i] = counts[i] != 0; // SUCCESS_NO_INFO when the driver rewrote the batch
+                }
+                return updated;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error updating position values: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return null;
+    }
+    
     /**
      * Delete position if quantity is zero
      */
     public boolean deleteIfEmpty(int accountId, int symbolId) {
+        try (Connection conn = dbConnection.getConnection()) {
+            return deleteIfEmpty(conn, accountId, symbolId);
+        } catch (SQLException e) {
+            System.err.println("Error deleting empty position: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return false;
+    }
+    
+    /**
+     * Delete position if quantity is zero, on the given connection
+     */
+    public boolean deleteIfEmpty(Connection conn, int accountId, int symbolId) throws SQLException {
         String sql = "DELETE FROM positions WHERE account_id = ? AND symbol_id = ? AND quantity = 0";
         
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setInt(1, accountId);
             stmt.setInt(2, symbolId);
             
             return stmt.executeUpdate() > 0;
-        } catch (SQLException e) {
-            System.err.println("Error deleting empty position: " + e.getMessage());
-            e.printStackTrace();
         }
-        return false;
+    }
+    
+    /**
+     * Delete all empty positions of an account on the given connection
+     */
+    public int deleteEmptyForAccount(Connection conn, int accountId) throws SQLException {
+        String sql = "DELETE FROM positions WHERE account_id = ? AND quantity = 0";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, accountId);
+            return stmt.executeUpdate();
+        }
+    }
+    
+    /**
+     * Delete all positions of an account on the given connection
+     */
+    public int deleteByAccount(Connection conn, int accountId) throws SQLException {
+        String sql = "DELETE FROM positions WHERE account_id = ?";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, accountId);
+            return stmt.executeUpdate();
+        }
     }
     
     /**
      * Map ResultSet to Position
      */
     private Position mapResultSetToPosition(ResultSet rs) throws SQLException {
+        Position position = mapPositionColumns(rs);
+        
+        // Additional fields from join
+        position.setSymbol(rs.getString("symbol"));
+        position.setSymbolName(rs.getString("symbol_name"));
+        
+        return position;
+    }
+    
+    /**
+     * Map the positions columns of a ResultSet to Position
+     */
+    private Position mapPositionColumns(ResultSet rs) throws SQLException {
         Position position = new Position();
         position.setPositionId(rs.getInt("position_id"));
         position.setAccountId(rs.getInt("account_id"));
@@ -156,10 +335,6 @@ public class PositionDAO {
         position.setCurrentValue(rs.getBigDecimal("current_value"));
         position.setUnrealizedPnl(rs.getBigDecimal("unrealized_pnl"));
         
-        // Additional fields from join
-        position.setSymbol(rs.getString("symbol"));
-        position.setSymbolName(rs.getString("symbol_name"));
-        
         Timestamp updatedAt = rs.getTimestamp("updated_at");
         if (updatedAt != null) {
             position.setUpdatedAt(updatedAt.toLocalDateTime());
@@ -2,11 +2,13 @@ package com.savora.dao;
 
 import com.savora.model.SpendingLimit;
 import com.savora.util.DatabaseConnection;
+import com.savora.util.DbExecutor;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Data Access Object for SpendingLimit operations
@@ -93,6 +95,13 @@ public class SpendingLimitDAO {
         return executeQuery(sql);
     }
     
+    /**
+     * Asynchronous version of {@link #findActiveLimits()}
+     */
+    public CompletableFuture<List<SpendingLimit>> findActiveLimitsAsync() {
+        return DbExecutor.getInstance().submit(this::findActiveLimits);
+    }
+    
     /**
      * Get spending limit by category
      */
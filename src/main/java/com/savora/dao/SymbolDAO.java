@@ -2,10 +2,12 @@ package com.savora.dao;
 
 import com.savora.model.StockSymbol;
 import com.savora.util.DatabaseConnection;
+import com.savora.util.DbExecutor;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * DAO for StockSymbol operations
@@ -38,6 +40,13 @@ public class SymbolDAO {
         return symbols;
     }
     
+    /**
+     * Asynchronous version of {@link #findAll()}
+     */
+    public CompletableFuture<List<StockSymbol>> findAllAsync() {
+        return DbExecutor.getInstance().submit(this::findAll);
+    }
+    
     /**
      * Find symbol by ID
      */
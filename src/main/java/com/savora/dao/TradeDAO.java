@@ -3,11 +3,13 @@ package com.savora.dao;
 import com.savora.model.Order;
 import com.savora.model.Trade;
 import com.savora.util.DatabaseConnection;
+import com.savora.util.DbExecutor;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * DAO for Trade operations
@@ -23,12 +25,23 @@ public class TradeDAO {
      * Create new trade
      */
     public boolean create(Trade trade) {
+        try (Connection conn = dbConnection.getConnection()) {
+            return create(conn, trade);
+        } catch (SQLException e) {
+            System.err.println("Error creating trade: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return false;
+    }
+    
+    /**
+     * Create new trade on the given connection
+     */
+    public boolean create(Connection conn, Trade trade) throws SQLException {
         String sql = "INSERT INTO trades (order_id, account_id, symbol_id, side, quantity, price, " +
                      "commission, total_amount, trade_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
         
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
+        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setLong(1, trade.getOrderId());
             stmt.setInt(2, trade.getAccountId());
             stmt.setInt(3, trade.getSymbolId());
@@ -49,13 +62,34 @@ public class TradeDAO {
                 }
                 return true;
             }
-        } catch (SQLException e) {
-            System.err.println("Error creating trade: " + e.getMessage());
-            e.printStackTrace();
         }
         return false;
     }
     
+    /**
+     * Insert many trades in one JDBC batch on the given connection; trade IDs are not read back
+     */
+    public void createBatch(Connection conn, List<Trade> trades) throws SQLException {
+        String sql = "INSERT INTO trades (order_id, account_id, symbol_id, side, quantity, price, " +
+                     "commission, total_amount, trade_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            for (Trade trade : trades) {
+                stmt.setLong(1, trade.getOrderId());
+                stmt.setInt(2, trade.getAccountId());
+                stmt.setInt(3, trade.getSymbolId());
+                stmt.setString(4, trade.getSide().name());
+                stmt.setInt(5, trade.getQuantity());
+                stmt.setBigDecimal(6, trade.getPrice());
+                stmt.setBigDecimal(7, trade.getCommission());
+                stmt.setBigDecimal(8, trade.getTotalAmount());
+                stmt.setDate(9, Date.valueOf(trade.getTradeDate()));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+    
     /**
      * Get all trades for an account
      */
@@ -84,6 +118,13 @@ public class TradeDAO {
         return trades;
     }
     
+    /**
+     * Asynchronous version of {@link #findByAccount(int)}
+     */
+    public CompletableFuture<List<Trade>> findByAccountAsync(int accountId) {
+        return DbExecutor.getInstance().submit(() -> findByAccount(accountId));
+    }
+    
     /**
      * Get trades for an account within date range
      */
@@ -1,33 +1,63 @@
 package com.savora.dao;
 
 import com.savora.model.Transaction;
+import com.savora.model.TransactionFilter;
 import com.savora.util.DatabaseConnection;
+import com.savora.util.DbExecutor;
 
 import java.math.BigDecimal;
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Data Access Object for Transaction operations
+ *
+ * Every write also adjusts spending_rollup, the per-day totals by category and type, in the
+ * same database transaction; range totals are read from the rollup. The standalone write
+ * methods commit through TransactionEvents, which numbers and publishes their changes.
  */
 public class TransactionDAO {
+    private static final String ROLLUP_ADJUST_SQL =
+        "INSERT INTO spending_rollup (rollup_date, category_id, type, total, transaction_count) " +
+        "VALUES (?, ?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE " +
+        "total = total + VALUES(total), " +
+        "transaction_count = transaction_count + VALUES(transaction_count)";
+    
     private final DatabaseConnection dbConnection;
+    private final TransactionEvents events;
     
     public TransactionDAO() {
         this.dbConnection = DatabaseConnection.getInstance();
+        this.events = TransactionEvents.getInstance();
     }
     
     /**
      * Create a new transaction
      */
     public boolean create(Transaction transaction) {
+        try {
+            return events.commit(() -> dbConnection.inTransaction(conn -> create(conn, transaction))
+                                       ? new TransactionEvents.Change(null, transaction) : null);
+        } catch (SQLException e) {
+            System.err.println("Error creating transaction: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return false;
+    }
+    
+    /**
+     * Create a new transaction and add it to the rollup on the given connection
+     */
+    public boolean create(Connection conn, Transaction transaction) throws SQLException {
         String sql = "INSERT INTO transactions (amount, date, category_id, description, type) VALUES (?, ?, ?, ?, ?)";
         
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
+        try (PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             stmt.setBigDecimal(1, transaction.getAmount());
             stmt.setDate(2, Date.valueOf(transaction.getDate()));
             stmt.setInt(3, transaction.getCategoryId());
@@ -42,11 +72,9 @@ public class TransactionDAO {
                         transaction.setTransactionId(generatedKeys.getInt(1));
                     }
                 }
+                adjustRollup(conn, transaction, 1);
                 return true;
             }
-        } catch (SQLException e) {
-            System.err.println("Error creating transaction: " + e.getMessage());
-            e.printStackTrace();
         }
         return false;
     }
@@ -82,6 +110,145 @@ public class TransactionDAO {
         return executeQuery(sql);
     }
     
+    /**
+     * Asynchronous version of {@link #findAll()}
+     */
+    public CompletableFuture<List<Transaction>> findAllAsync() {
+        return DbExecutor.getInstance().submit(this::findAll);
+    }
+    
+    /**
+     * Get the first page of transactions in table order (newest first)
+     */
+    public List<Transaction> findFirstPage(int limit) {
+        return findPage(new TransactionFilter(), null, 0, limit);
+    }
+    
+    /**
+     * Get the page of transactions that follows (afterDate, afterId) in table order
+     */
+    public List<Transaction> findPage(LocalDate afterDate, int afterId, int limit) {
+        return findPage(new TransactionFilter(), afterDate, afterId, limit);
+    }
+    
+    /**
+     * Get a page of the transactions matching a filter, in its order. The page follows the row
+     * whose sort key (TransactionFilter.SortColumn.keyOf) and id are afterKey and afterId, the
+     * last row of the previous page; a null afterKey gives the first page. The query seeks
+     * past that row instead of skipping rows with OFFSET, so every page costs the same.
+     */
+    public List<Transaction> findPage(TransactionFilter filter, Object afterKey, int afterId, int limit) {
+        List<Object> parameters = new ArrayList<>();
+        String sql = buildPageQuery(filter, afterKey, afterId, limit, parameters);
+        
+        try (Connection conn = dbConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            
+            for (int i = 0; i < parameters.size(); i++) {
+                Object parameter = parameters.get(i);
+                if (parameter instanceof LocalDate) {
+                    stmt.setDate(i + 1, Date.valueOf((LocalDate) parameter));
+                } else {
+                    stmt.setObject(i + 1, parameter);
+                }
+            }
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                List<Transaction> transactions = new ArrayList<>();
+                while (rs.next()) {
+                    transactions.add(mapResultSetToTransaction(rs));
+                }
+                return transactions;
+            }
+        } catch (SQLException e) {
+            System.err.println("Error finding page of transactions: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return new ArrayList<>();
+    }
+    
+    /**
+     * Build the SQL of a filtered page and collect its parameters. Every criterion is a
+     * condition on one column, so the (type, date) and (category_id, date) indexes serve
+     * the filtered date order and (date, transaction_id) the unfiltered one.
+     */
+    private String buildPageQuery(TransactionFilter filter, Object afterKey, int afterId, int limit,
+                                  List<Object> parameters) {
+        StringBuilder sql = new StringBuilder("SELECT t.* FROM transactions t");
+        if (filter.getSortColumn() == TransactionFilter.SortColumn.CATEGORY) {
+            sql.append(" LEFT JOIN categories c ON c.category_id = t.category_id");
+        }
+        
+        List<String> conditions = new ArrayList<>();
+        if (filter.getType() != null) {
+            conditions.add("t.type = ?");
+            parameters.add(filter.getType().getValue());
+        }
+        if (filter.getCategoryId() != null) {
+            conditions.add("t.category_id = ?");
+            parameters.add(filter.getCategoryId());
+        }
+        if (filter.getFromDate() != null) {
+            conditions.add("t.date >= ?");
+            parameters.add(filter.getFromDate());
+        }
+        if (filter.getToDate() != null) {
+            conditions.add("t.date <= ?");
+            parameters.add(filter.getToDate());
+        }
+        if (filter.getMinAmount() != null) {
+            conditions.add("t.amount >= ?");
+            parameters.add(filter.getMinAmount());
+        }
+        if (filter.getMaxAmount() != null) {
+            conditions.add("t.amount <= ?");
+            parameters.add(filter.getMaxAmount());
+        }
+        if (filter.getText() != null && !filter.getText().isEmpty()) {
+            conditions.add("LOWER(t.description) LIKE ? ESCAPE '!'");
+            String text = filter.getText().toLowerCase().replace("!", "!!").replace("%", "!%").replace("_", "!_");
+            parameters.add("%" + text + "%");
+        }
+        
+        String key = sortExpression(filter.getSortColumn());
+        String direction = filter.isAscending() ? "ASC" : "DESC";
+        if (afterKey != null) {
+            // (key, id) strictly after the previous row, written so the key bound can use an index
+            String past = filter.isAscending() ? ">" : "<";
+            conditions.add(key + " " + past + "= ? AND (" + key + " " + past + " ? OR t.transaction_id " + past + " ?)");
+            parameters.add(afterKey);
+            parameters.add(afterKey);
+            parameters.add(afterId);
+        }
+        
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        sql.append(" ORDER BY ").append(key).append(' ').append(direction)
+           .append(", t.transaction_id ").append(direction).append(" LIMIT ?");
+        parameters.add(limit);
+        return sql.toString();
+    }
+    
+    /**
+     * SQL value a sort column orders by; matches TransactionFilter.SortColumn.keyOf
+     */
+    private static String sortExpression(TransactionFilter.SortColumn column) {
+        switch (column) {
+            case CATEGORY:
+                return "COALESCE(c.name, '')";
+            case DESCRIPTION:
+                return "COALESCE(t.description, '')";
+            case AMOUNT:
+                return "t.amount";
+            case TYPE:
+                // An ENUM sorts by position but compares as text, so order by an explicit number
+                return "CASE t.type WHEN 'income' THEN 0 ELSE 1 END";
+            default:
+                return "t.date";
+        }
+    }
+    
     /**
      * Get transactions by date range
      */
@@ -108,6 +275,13 @@ public class TransactionDAO {
         return new ArrayList<>();
     }
     
+    /**
+     * Asynchronous version of {@link #findByDateRange(LocalDate, LocalDate)}
+     */
+    public CompletableFuture<List<Transaction>> findByDateRangeAsync(LocalDate startDate, LocalDate endDate) {
+        return DbExecutor.getInstance().submit(() -> findByDateRange(startDate, endDate));
+    }
+    
     /**
      * Get transactions by category
      */
@@ -162,11 +336,37 @@ public class TransactionDAO {
      * Update transaction
      */
     public boolean update(Transaction transaction) {
+        try {
+            return events.commit(() -> {
+                Transaction previous = dbConnection.inTransaction(conn -> replace(conn, transaction));
+                return previous != null ? new TransactionEvents.Change(previous, transaction) : null;
+            });
+        } catch (SQLException e) {
+            System.err.println("Error updating transaction: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return false;
+    }
+    
+    /**
+     * Update transaction and move its amount in the rollup on the given connection
+     */
+    public boolean update(Connection conn, Transaction transaction) throws SQLException {
+        return replace(conn, transaction) != null;
+    }
+    
+    /**
+     * Update transaction on the given connection; returns the version it replaced, or null
+     */
+    private Transaction replace(Connection conn, Transaction transaction) throws SQLException {
+        Transaction previous = findByIdForUpdate(conn, transaction.getTransactionId());
+        if (previous == null) {
+            return null;
+        }
+        
         String sql = "UPDATE transactions SET amount = ?, date = ?, category_id = ?, description = ?, type = ? WHERE transaction_id = ?";
         
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
             stmt.setBigDecimal(1, transaction.getAmount());
             stmt.setDate(2, Date.valueOf(transaction.getDate()));
             stmt.setInt(3, transaction.getCategoryId());
@@ -174,25 +374,24 @@ public class TransactionDAO {
             stmt.setString(5, transaction.getType().getValue());
             stmt.setInt(6, transaction.getTransactionId());
             
-            return stmt.executeUpdate() > 0;
-        } catch (SQLException e) {
-            System.err.println("Error updating transaction: " + e.getMessage());
-            e.printStackTrace();
+            if (stmt.executeUpdate() == 0) {
+                return null;
+            }
         }
-        return false;
+        adjustRollup(conn, previous, -1);
+        adjustRollup(conn, transaction, 1);
+        return previous;
     }
     
     /**
      * Delete transaction
      */
     public boolean delete(int transactionId) {
-        String sql = "DELETE FROM transactions WHERE transaction_id = ?";
-        
-        try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setInt(1, transactionId);
-            return stmt.executeUpdate() > 0;
+        try {
+            return events.commit(() -> {
+                Transaction previous = dbConnection.inTransaction(conn -> remove(conn, transactionId));
+                return previous != null ? new TransactionEvents.Change(previous, null) : null;
+            });
         } catch (SQLException e) {
             System.err.println("Error deleting transaction: " + e.getMessage());
             e.printStackTrace();
@@ -200,41 +399,161 @@ public class TransactionDAO {
         return false;
     }
     
+    /**
+     * Delete transaction and remove it from the rollup on the given connection
+     */
+    public boolean delete(Connection conn, int transactionId) throws SQLException {
+        return remove(conn, transactionId) != null;
+    }
+    
+    /**
+     * Delete transaction on the given connection; returns the deleted version, or null
+     */
+    private Transaction remove(Connection conn, int transactionId) throws SQLException {
+        Transaction previous = findByIdForUpdate(conn, transactionId);
+        if (previous == null) {
+            return null;
+        }
+        
+        String sql = "DELETE FROM transactions WHERE transaction_id = ?";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, transactionId);
+            if (stmt.executeUpdate() == 0) {
+                return null;
+            }
+        }
+        adjustRollup(conn, previous, -1);
+        return previous;
+    }
+    
+    /**
+     * Get a transaction and lock its row until the transaction on conn ends
+     */
+    private Transaction findByIdForUpdate(Connection conn, int transactionId) throws SQLException {
+        String sql = "SELECT * FROM transactions WHERE transaction_id = ? FOR UPDATE";
+        
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, transactionId);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? mapResultSetToTransaction(rs) : null;
+            }
+        }
+    }
+    
+    /**
+     * Add (sign 1) or remove (sign -1) a transaction in its rollup row; rows left with no
+     * transactions are deleted
+     */
+    private void adjustRollup(Connection conn, Transaction transaction, int sign) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(ROLLUP_ADJUST_SQL)) {
+            stmt.setDate(1, Date.valueOf(transaction.getDate()));
+            stmt.setInt(2, transaction.getCategoryId());
+            stmt.setString(3, transaction.getType().getValue());
+            stmt.setBigDecimal(4, sign < 0 ? transaction.getAmount().negate() : transaction.getAmount());
+            stmt.setInt(5, sign);
+            stmt.executeUpdate();
+        }
+        if (sign < 0) {
+            String sql = "DELETE FROM spending_rollup " +
+                         "WHERE rollup_date = ? AND category_id = ? AND type = ? AND transaction_count <= 0";
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setDate(1, Date.valueOf(transaction.getDate()));
+                stmt.setInt(2, transaction.getCategoryId());
+                stmt.setString(3, transaction.getType().getValue());
+                stmt.executeUpdate();
+            }
+        }
+    }
+    
     /**
      * Get total income for a date range
      */
     public BigDecimal getTotalIncome(LocalDate startDate, LocalDate endDate) {
-        String sql = "SELECT COALESCE(SUM(amount), 0) FROM transactions WHERE type = 'income' AND date BETWEEN ? AND ?";
+        return getRollupTotal(Transaction.TransactionType.INCOME, startDate, endDate);
+    }
+    
+    /**
+     * Asynchronous version of {@link #getTotalIncome(LocalDate, LocalDate)}
+     */
+    public CompletableFuture<BigDecimal> getTotalIncomeAsync(LocalDate startDate, LocalDate endDate) {
+        return DbExecutor.getInstance().submit(() -> getTotalIncome(startDate, endDate));
+    }
+    
+    /**
+     * Get total expenses for a date range
+     */
+    public BigDecimal getTotalExpenses(LocalDate startDate, LocalDate endDate) {
+        return getRollupTotal(Transaction.TransactionType.EXPENSE, startDate, endDate);
+    }
+    
+    /**
+     * Asynchronous version of {@link #getTotalExpenses(LocalDate, LocalDate)}
+     */
+    public CompletableFuture<BigDecimal> getTotalExpensesAsync(LocalDate startDate, LocalDate endDate) {
+        return DbExecutor.getInstance().submit(() -> getTotalExpenses(startDate, endDate));
+    }
+    
+    /**
+     * Get expenses per category for several date ranges in one grouped query over the rollup.
+     * Maps each category with expenses to its total in each range, in the order of the ranges.
+     */
+    public Map<Integer, BigDecimal[]> getExpensesByCategory(List<LocalDate> startDates, List<LocalDate> endDates) {
+        Map<Integer, BigDecimal[]> totals = new HashMap<>();
+        int ranges = startDates.size();
+        if (ranges == 0) {
+            return totals;
+        }
+        StringBuilder sql = new StringBuilder("SELECT category_id");
+        for (int i = 0; i < ranges; i++) {
+            sql.append(", COALESCE(SUM(CASE WHEN rollup_date BETWEEN ? AND ? THEN total END), 0)");
+        }
+        sql.append(" FROM spending_rollup WHERE type = 'expense' AND rollup_date BETWEEN ? AND ? GROUP BY category_id");
         
         try (Connection conn = dbConnection.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
             
-            stmt.setDate(1, Date.valueOf(startDate));
-            stmt.setDate(2, Date.valueOf(endDate));
+            int parameter = 1;
+            LocalDate first = startDates.get(0);
+            LocalDate last = endDates.get(0);
+            for (int i = 0; i < ranges; i++) {
+                stmt.setDate(parameter++, Date.valueOf(startDates.get(i)));
+                stmt.setDate(parameter++, Date.valueOf(endDates.get(i)));
+                first = startDates.get(i).isBefore(first) ? startDates.get(i) : first;
+                last = endDates.get(i).isAfter(last) ? endDates.get(i) : last;
+            }
+            stmt.setDate(parameter++, Date.valueOf(first));
+            stmt.setDate(parameter, Date.valueOf(last));
             
             try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return rs.getBigDecimal(1);
+                while (rs.next()) {
+                    BigDecimal[] categoryTotals = new BigDecimal[ranges];
+                    for (int i = 0; i < ranges; i++) {
+                        categoryTotals[i] = rs.getBigDecimal(i + 2);
+                    }
+                    totals.put(rs.getInt(1), categoryTotals);
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error getting total income: " + e.getMessage());
+            System.err.println("Error getting expenses by category: " + e.getMessage());
             e.printStackTrace();
         }
-        return BigDecimal.ZERO;
+        return totals;
     }
     
     /**
-     * Get total expenses for a date range
+     * Sum the rollup rows of one type over a date range
      */
-    public BigDecimal getTotalExpenses(LocalDate startDate, LocalDate endDate) {
-        String sql = "SELECT COALESCE(SUM(amount), 0) FROM transactions WHERE type = 'expense' AND date BETWEEN ? AND ?";
+    private BigDecimal getRollupTotal(Transaction.TransactionType type, LocalDate startDate, LocalDate endDate) {
+        String sql = "SELECT COALESCE(SUM(total), 0) FROM spending_rollup WHERE type = ? AND rollup_date BETWEEN ? AND ?";
         
         try (Connection conn = dbConnection.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
             
-            stmt.setDate(1, Date.valueOf(startDate));
-            stmt.setDate(2, Date.valueOf(endDate));
+            stmt.setString(1, type.getValue());
+            stmt.setDate(2, Date.valueOf(startDate));
+            stmt.setDate(3, Date.valueOf(endDate));
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
@@ -242,7 +561,7 @@ public class TransactionDAO {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error getting total expenses: " + e.getMessage());
+            System.err.println("Error getting total " + type.getValue() + ": " + e.getMessage());
             e.printStackTrace();
         }
         return BigDecimal.ZERO;
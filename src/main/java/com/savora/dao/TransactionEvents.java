@@ -0,0 +1,122 @@
+package com.savora.dao;
+
+import com.savora.model.Transaction;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+
+/**
+ * Stream of committed transaction changes.
+ *
+ * TransactionDAO commits its standalone writes through {@link #commit(Write)}, which numbers
+ * each change and then publishes it: an added transaction, a removed one, or an update as the
+ * removal of the old version followed by the addition of the new one. Writes made through the
+ * Connection overloads are not published, since the caller's transaction may still roll back.
+ *
+ * A change is published after it commits, so a reader that loads totals and then follows the
+ * stream could count a change twice. Reading through {@link #readCommitted(LongFunction)}
+ * gives the number of the last change the read can see; events numbered at or below it are
+ * already in what was read.
+ */
+public class TransactionEvents {
+    private static final TransactionEvents INSTANCE = new TransactionEvents();
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // Held while a write commits and is numbered, and while a consistent read runs
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private long sequence;
+
+    private TransactionEvents() {
+    }
+
+    public static TransactionEvents getInstance() {
+        return INSTANCE;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Run a read that no change commits during, given the number of the last committed change
+     */
+    public <T> T readCommitted(LongFunction<T> read) {
+        commitLock.lock();
+        try {
+            return read.apply(sequence);
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    /**
+     * Run a write in its own database transaction, then number and publish its change; returns
+     * false if the write changed nothing. Listeners are called after the lock is released.
+     */
+    boolean commit(Write write) throws SQLException {
+        Change change;
+        long number;
+        commitLock.lock();
+        try {
+            change = write.run();
+            if (change == null) {
+                return false;
+            }
+            number = ++sequence;
+        } finally {
+            commitLock.unlock();
+        }
+
+        if (change.removed != null) {
+            for (Listener listener : listeners) {
+                listener.transactionRemoved(change.removed, number);
+            }
+        }
+        if (change.added != null) {
+            for (Listener listener : listeners) {
+                listener.transactionAdded(change.added, number);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A committing write; returns its change, or null if it changed nothing
+     */
+    @FunctionalInterface
+    interface Write {
+        Change run() throws SQLException;
+    }
+
+    /**
+     * The version a write removed and the one it added; either may be null
+     */
+    static final class Change {
+        private final Transaction removed;
+        private final Transaction added;
+
+        Change(Transaction removed, Transaction added) {
+            this.removed = removed;
+            this.added = added;
+        }
+    }
+
+    /**
+     * Notified on the writing thread after a change commits, so listeners must be quick and
+     * Swing listeners must hand the change over to the event dispatch thread. Sequence numbers
+     * grow with commit order, but changes by different threads may arrive out of order.
+     */
+    public interface Listener {
+        void transactionAdded(Transaction transaction, long sequence);
+
+        void transactionRemoved(Transaction transaction, long sequence);
+    }
+}
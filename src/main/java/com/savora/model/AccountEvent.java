@@ -0,0 +1,182 @@
+package com.savora.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Model class for an entry of the append-only account ledger.
+ * Folding an account's events in event ID order gives its cash and positions.
+ */
+public class AccountEvent {
+    private long eventId;
+    private int accountId;
+    private Type type;
+    private LocalDate eventDate;
+    private Long orderId;
+    private Integer symbolId;
+    private Order.Side side;
+    private int quantity;
+    private BigDecimal price;
+    private BigDecimal cashDelta = BigDecimal.ZERO;
+    private LocalDateTime createdAt;
+
+    public enum Type {
+        ACCOUNT_OPENED, ORDER_PLACED, ORDER_FILLED, ORDER_REJECTED, ORDER_CANCELLED, CASH_ADJUSTED
+    }
+
+    public AccountEvent() {}
+
+    public AccountEvent(int accountId, Type type, LocalDate eventDate) {
+        this.accountId = accountId;
+        this.type = type;
+        this.eventDate = eventDate;
+    }
+
+    /**
+     * Opening cash balance of a new account
+     */
+    public static AccountEvent accountOpened(SimulatedAccount account, LocalDate date) {
+        AccountEvent event = new AccountEvent(account.getAccountId(), Type.ACCOUNT_OPENED, date);
+        event.cashDelta = account.getInitialCash();
+        return event;
+    }
+
+    public static AccountEvent orderPlaced(Order order) {
+        return forOrder(order, Type.ORDER_PLACED, order.getOrderDate(), order.getQuantity(), order.getLimitPrice());
+    }
+
+    /**
+     * A fill: moves the trade's total amount (commission included) and the position
+     */
+    public static AccountEvent orderFilled(Trade trade) {
+        AccountEvent event = new AccountEvent(trade.getAccountId(), Type.ORDER_FILLED, trade.getTradeDate());
+        event.orderId = trade.getOrderId();
+        event.symbolId = trade.getSymbolId();
+        event.side = trade.getSide();
+        event.quantity = trade.getQuantity();
+        event.price = trade.getPrice();
+        event.cashDelta = trade.getSide() == Order.Side.BUY ? trade.getTotalAmount().negate() : trade.getTotalAmount();
+        return event;
+    }
+
+    public static AccountEvent orderRejected(Order order, LocalDate date) {
+        return forOrder(order, Type.ORDER_REJECTED, date, order.getRemainingQuantity(), null);
+    }
+
+    public static AccountEvent orderCancelled(Order order, LocalDate date) {
+        return forOrder(order, Type.ORDER_CANCELLED, date, order.getRemainingQuantity(), null);
+    }
+
+    public static AccountEvent cashAdjusted(int accountId, BigDecimal cashDelta, LocalDate date) {
+        AccountEvent event = new AccountEvent(accountId, Type.CASH_ADJUSTED, date);
+        event.cashDelta = cashDelta;
+        return event;
+    }
+
+    private static AccountEvent forOrder(Order order, Type type, LocalDate date, int quantity, BigDecimal price) {
+        AccountEvent event = new AccountEvent(order.getAccountId(), type, date);
+        event.orderId = order.getOrderId();
+        event.symbolId = order.getSymbolId();
+        event.side = order.getSide();
+        event.quantity = quantity;
+        event.price = price;
+        return event;
+    }
+
+    // Getters and setters
+    public long getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(long eventId) {
+        this.eventId = eventId;
+    }
+
+    public int getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(int accountId) {
+        this.accountId = accountId;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public LocalDate getEventDate() {
+        return eventDate;
+    }
+
+    public void setEventDate(LocalDate eventDate) {
+        this.eventDate = eventDate;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public void setOrderId(Long orderId) {
+        this.orderId = orderId;
+    }
+
+    public Integer getSymbolId() {
+        return symbolId;
+    }
+
+    public void setSymbolId(Integer symbolId) {
+        this.symbolId = symbolId;
+    }
+
+    public Order.Side getSide() {
+        return side;
+    }
+
+    public void setSide(Order.Side side) {
+        this.side = side;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    public BigDecimal getPrice() {
+        return price;
+    }
+
+    public void setPrice(BigDecimal price) {
+        this.price = price;
+    }
+
+    public BigDecimal getCashDelta() {
+        return cashDelta;
+    }
+
+    public void setCashDelta(BigDecimal cashDelta) {
+        this.cashDelta = cashDelta;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + eventId + " " + eventDate + " " + type + " account " + accountId +
+               (symbolId != null ? " " + side + " " + quantity + " of " + symbolId + " @ " + price : "") +
+               " cash " + cashDelta;
+    }
+}
@@ -0,0 +1,95 @@
+package com.savora.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Cash and holdings of an account after a given ledger event.
+ * Stored in account_snapshots; an empty state (no events) has last event ID 0.
+ */
+public class AccountState {
+    private final int accountId;
+    private long lastEventId;
+    private LocalDate asOfDate;
+    private BigDecimal cash;
+    private final Map<Integer, Position> positions = new TreeMap<>();
+
+    public AccountState(int accountId) {
+        this(accountId, 0L, null, BigDecimal.ZERO);
+    }
+
+    public AccountState(int accountId, long lastEventId, LocalDate asOfDate, BigDecimal cash) {
+        this.accountId = accountId;
+        this.lastEventId = lastEventId;
+        this.asOfDate = asOfDate;
+        this.cash = cash;
+    }
+
+    public int getAccountId() {
+        return accountId;
+    }
+
+    /**
+     * ID of the last event folded into this state
+     */
+    public long getLastEventId() {
+        return lastEventId;
+    }
+
+    public void setLastEventId(long lastEventId) {
+        this.lastEventId = lastEventId;
+    }
+
+    /**
+     * Latest date of the events folded into this state, or null if there were none
+     */
+    public LocalDate getAsOfDate() {
+        return asOfDate;
+    }
+
+    public void setAsOfDate(LocalDate asOfDate) {
+        this.asOfDate = asOfDate;
+    }
+
+    public BigDecimal getCash() {
+        return cash;
+    }
+
+    public void setCash(BigDecimal cash) {
+        this.cash = cash;
+    }
+
+    /**
+     * Position in a symbol, or null if the account holds none
+     */
+    public Position getPosition(int symbolId) {
+        return positions.get(symbolId);
+    }
+
+    /**
+     * Set a position; null or zero quantity removes it
+     */
+    public void setPosition(int symbolId, Position position) {
+        if (position == null || position.getQuantity() == 0) {
+            positions.remove(symbolId);
+        } else {
+            positions.put(symbolId, position);
+        }
+    }
+
+    /**
+     * Held positions by symbol ID
+     */
+    public Collection<Position> getPositions() {
+        return positions.values();
+    }
+
+    @Override
+    public String toString() {
+        return "Account " + accountId + " as of event " + lastEventId + " (" + asOfDate + "): cash " + cash +
+               ", " + positions.size() + " positions";
+    }
+}
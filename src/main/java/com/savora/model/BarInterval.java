@@ -0,0 +1,52 @@
+package com.savora.model;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Length of an intraday bar. Bars are aligned to the 09:30 session open;
+ * the trading session is 390 minutes (09:30 - 16:00).
+ */
+public enum BarInterval {
+    ONE_MINUTE(1),
+    FIVE_MINUTES(5),
+    FIFTEEN_MINUTES(15),
+    THIRTY_MINUTES(30),
+    ONE_HOUR(60),
+    ONE_DAY(390);
+
+    public static final LocalTime SESSION_OPEN = LocalTime.of(9, 30);
+    public static final int SESSION_MINUTES = 390;
+
+    private final int minutes;
+
+    BarInterval(int minutes) {
+        this.minutes = minutes;
+    }
+
+    /**
+     * Stored in intraday_bars.bar_interval
+     */
+    public int getMinutes() {
+        return minutes;
+    }
+
+    /**
+     * Start of the bar of this interval that contains the given time
+     */
+    public LocalDateTime bucketStart(LocalDateTime time) {
+        LocalDateTime sessionOpen = time.toLocalDate().atTime(SESSION_OPEN);
+        long offset = Duration.between(sessionOpen, time).toMinutes();
+        return sessionOpen.plusMinutes(Math.floorDiv(offset, minutes) * minutes);
+    }
+
+    public static BarInterval fromMinutes(int minutes) {
+        for (BarInterval interval : values()) {
+            if (interval.minutes == minutes) {
+                return interval;
+            }
+        }
+        throw new IllegalArgumentException("Unknown bar interval: " + minutes + " minutes");
+    }
+}
@@ -0,0 +1,127 @@
+package com.savora.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Model class for an intraday OHLCV bar.
+ * Prices are kept in cents, as in PriceSeries, since bars are handled in large volumes.
+ */
+public class IntradayBar {
+    private int symbolId;
+    private BarInterval interval;
+    private LocalDateTime barTime;
+    private long openCents;
+    private long highCents;
+    private long lowCents;
+    private long closeCents;
+    private long volume;
+
+    public IntradayBar() {}
+
+    public IntradayBar(int symbolId, BarInterval interval, LocalDateTime barTime,
+                       long openCents, long highCents, long lowCents, long closeCents, long volume) {
+        this.symbolId = symbolId;
+        this.interval = interval;
+        this.barTime = barTime;
+        this.openCents = openCents;
+        this.highCents = highCents;
+        this.lowCents = lowCents;
+        this.closeCents = closeCents;
+        this.volume = volume;
+    }
+
+    // Getters and setters
+    public int getSymbolId() {
+        return symbolId;
+    }
+
+    public void setSymbolId(int symbolId) {
+        this.symbolId = symbolId;
+    }
+
+    public BarInterval getInterval() {
+        return interval;
+    }
+
+    public void setInterval(BarInterval interval) {
+        this.interval = interval;
+    }
+
+    public LocalDateTime getBarTime() {
+        return barTime;
+    }
+
+    public void setBarTime(LocalDateTime barTime) {
+        this.barTime = barTime;
+    }
+
+    public long getOpenCents() {
+        return openCents;
+    }
+
+    public void setOpenCents(long openCents) {
+        this.openCents = openCents;
+    }
+
+    public long getHighCents() {
+        return highCents;
+    }
+
+    public void setHighCents(long highCents) {
+        this.highCents = highCents;
+    }
+
+    public long getLowCents() {
+        return lowCents;
+    }
+
+    public void setLowCents(long lowCents) {
+        this.lowCents = lowCents;
+    }
+
+    public long getCloseCents() {
+        return closeCents;
+    }
+
+    public void setCloseCents(long closeCents) {
+        this.closeCents = closeCents;
+    }
+
+    public long getVolume() {
+        return volume;
+    }
+
+    public void setVolume(long volume) {
+        this.volume = volume;
+    }
+
+    public BigDecimal getOpenPrice() {
+        return PriceSeries.fromCents(openCents);
+    }
+
+    public BigDecimal getHighPrice() {
+        return PriceSeries.fromCents(highCents);
+    }
+
+    public BigDecimal getLowPrice() {
+        return PriceSeries.fromCents(lowCents);
+    }
+
+    public BigDecimal getClosePrice() {
+        return PriceSeries.fromCents(closeCents);
+    }
+
+    /**
+     * Copy of this bar, for keeping a bar handed out by a streaming scan
+     */
+    public IntradayBar copy() {
+        return new IntradayBar(symbolId, interval, barTime, openCents, highCents, lowCents, closeCents, volume);
+    }
+
+    @Override
+    public String toString() {
+        return barTime + " " + interval + " O:" + getOpenPrice() + " H:" + getHighPrice() +
+               " L:" + getLowPrice() + " C:" + getClosePrice() + " V:" + volume;
+    }
+}
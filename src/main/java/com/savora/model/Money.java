@@ -0,0 +1,128 @@
+package com.savora.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Fixed-point money arithmetic on long cents.
+ *
+ * Amounts are plain longs so the trading hot path allocates nothing; BigDecimal is only used
+ * when converting at the DAO and model boundary (DECIMAL(15,2) and DECIMAL(10,2) columns).
+ * Rates are longs in parts per million. Every operation that drops digits takes an explicit
+ * RoundingMode and gives exactly what BigDecimal gives for the same operation and mode;
+ * operations that would overflow throw ArithmeticException instead of wrapping.
+ */
+public final class Money {
+    /**
+     * Decimal places of a cents amount
+     */
+    public static final int SCALE = 2;
+
+    /**
+     * Denominator of a rate in parts per million
+     */
+    public static final long PPM = 1_000_000L;
+
+    private Money() {
+    }
+
+    /**
+     * Cents in an amount, rounding half up as the DECIMAL columns do
+     */
+    public static long toCents(BigDecimal amount) {
+        return toCents(amount, RoundingMode.HALF_UP);
+    }
+
+    public static long toCents(BigDecimal amount, RoundingMode mode) {
+        return amount.setScale(SCALE, mode).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    /**
+     * A rate such as 0.001 in parts per million; fails if it has more than six decimals
+     */
+    public static long toPpm(BigDecimal rate) {
+        return rate.movePointRight(6).longValueExact();
+    }
+
+    /**
+     * Price times quantity
+     */
+    public static long times(long cents, long quantity) {
+        return Math.multiplyExact(cents, quantity);
+    }
+
+    /**
+     * An amount times a rate in parts per million, rounded to cents
+     */
+    public static long applyPpm(long cents, long ppm, RoundingMode mode) {
+        return divide(Math.multiplyExact(cents, ppm), PPM, mode);
+    }
+
+    /**
+     * numerator / denominator rounded to a whole number of cents, as BigDecimal.divide(d, 0, mode)
+     */
+    public static long divide(long numerator, long denominator, RoundingMode mode) {
+        if (denominator == 0) {
+            throw new ArithmeticException("Division by zero");
+        }
+        long quotient = numerator / denominator;
+        long remainder = numerator % denominator;
+        if (remainder == 0) {
+            return quotient;
+        }
+
+        // The exact result lies between quotient and quotient + signum, truncated toward zero
+        int signum = (numerator < 0) == (denominator < 0) ? 1 : -1;
+        boolean up;
+        switch (mode) {
+            case UP:
+                up = true;
+                break;
+            case DOWN:
+                up = false;
+                break;
+            case CEILING:
+                up = signum > 0;
+                break;
+            case FLOOR:
+                up = signum < 0;
+                break;
+            case HALF_UP:
+            case HALF_DOWN:
+            case HALF_EVEN:
+                int half = compareHalf(Math.abs(remainder), Math.abs(denominator));
+                if (half != 0) {
+                    up = half > 0;
+                } else if (mode == RoundingMode.HALF_UP) {
+                    up = true;
+                } else if (mode == RoundingMode.HALF_DOWN) {
+                    up = false;
+                } else {
+                    up = (quotient & 1) != 0;
+                }
+                break;
+            default:
+                throw new ArithmeticException("Rounding necessary");
+        }
+        return up ? quotient + signum : quotient;
+    }
+
+    /**
+     * Plain decimal text of an amount, e.g. -12.05
+     */
+    public static String toString(long cents) {
+        return toBigDecimal(cents).toPlainString();
+    }
+
+    /**
+     * Compare remainder with half the denominator, both non-negative, without overflowing
+     */
+    private static int compareHalf(long remainder, long denominator) {
+        long other = denominator - remainder;
+        return Long.compare(remainder, other);
+    }
+}
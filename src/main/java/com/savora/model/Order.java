@@ -1,6 +1,7 @@
 package com.savora.model;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 
@@ -15,6 +16,12 @@ public class Order {
     private Side side;
     private int quantity;
     private BigDecimal limitPrice;
+    private BigDecimal stopPrice;
+    private BigDecimal trailAmount;
+    private TimeInForce timeInForce = TimeInForce.GTC;
+    private LocalDate triggeredDate;
+    private LocalDate triggerBarDate;
+    private boolean bookManaged;
     private Status status;
     private int filledQuantity;
     private BigDecimal filledPrice;
@@ -41,7 +48,22 @@ public class Order {
     }
     
     public enum OrderType {
-        MARKET, LIMIT
+        MARKET, LIMIT, STOP, STOP_LIMIT, TRAILING_STOP;
+        
+        /**
+         * Whether the order waits for its stop price to be reached before it can fill
+         */
+        public boolean isStop() {
+            return this == STOP || this == STOP_LIMIT || this == TRAILING_STOP;
+        }
+    }
+    
+    /**
+     * How long an unfilled order stays open: until cancelled (GTC), or only for the
+     * first bar it can trade on (DAY, and IOC which also drops unmatched remainders)
+     */
+    public enum TimeInForce {
+        GTC, DAY, IOC
     }
     
     public enum Side {
@@ -49,7 +71,7 @@ public class Order {
     }
     
     public enum Status {
-        PENDING, FILLED, CANCELLED, REJECTED
+        PENDING, FILLED, CANCELLED, REJECTED, EXPIRED
     }
     
     // Getters and setters
@@ -109,6 +131,76 @@ public class Order {
         this.limitPrice = limitPrice;
     }
     
+    /**
+     * Trigger price of a stop order; for a trailing stop, its current level
+     */
+    public BigDecimal getStopPrice() {
+        return stopPrice;
+    }
+    
+    public void setStopPrice(BigDecimal stopPrice) {
+        this.stopPrice = stopPrice;
+    }
+    
+    /**
+     * Distance a trailing stop keeps behind the best price since it was placed
+     */
+    public BigDecimal getTrailAmount() {
+        return trailAmount;
+    }
+    
+    public void setTrailAmount(BigDecimal trailAmount) {
+        this.trailAmount = trailAmount;
+    }
+    
+    public TimeInForce getTimeInForce() {
+        return timeInForce;
+    }
+    
+    public void setTimeInForce(TimeInForce timeInForce) {
+        this.timeInForce = timeInForce;
+    }
+    
+    /**
+     * Date the stop price was reached, or null while a stop order is still waiting
+     */
+    public LocalDate getTriggeredDate() {
+        return triggeredDate;
+    }
+    
+    public void setTriggeredDate(LocalDate triggeredDate) {
+        this.triggeredDate = triggeredDate;
+    }
+    
+    /**
+     * Date of the last bar a waiting stop was checked against, or null if none was yet
+     */
+    public LocalDate getTriggerBarDate() {
+        return triggerBarDate;
+    }
+    
+    public void setTriggerBarDate(LocalDate triggerBarDate) {
+        this.triggerBarDate = triggerBarDate;
+    }
+    
+    /**
+     * Whether the order is a stop order whose stop price has not been reached yet
+     */
+    public boolean isAwaitingTrigger() {
+        return orderType.isStop() && triggeredDate == null;
+    }
+    
+    /**
+     * Whether the order is matched in a MatchingEngine order book instead of against daily bars
+     */
+    public boolean isBookManaged() {
+        return bookManaged;
+    }
+    
+    public void setBookManaged(boolean bookManaged) {
+        this.bookManaged = bookManaged;
+    }
+    
     public Status getStatus() {
         return status;
     }
@@ -125,6 +217,32 @@ public class Order {
         this.filledQuantity = filledQuantity;
     }
     
+    /**
+     * Quantity not filled yet; orders matched in the order book can fill in several parts
+     */
+    public int getRemainingQuantity() {
+        return quantity - filledQuantity;
+    }
+    
+    /**
+     * Record a (partial) fill: adds to the filled quantity, keeps filled price as the
+     * average over all fills and marks the order FILLED once nothing remains
+     */
+    public void addFill(int fillQuantity, BigDecimal price) {
+        int newFilledQuantity = filledQuantity + fillQuantity;
+        if (filledQuantity == 0 || filledPrice == null) {
+            filledPrice = price;
+        } else {
+            filledPrice = filledPrice.multiply(new BigDecimal(filledQuantity))
+                                     .add(price.multiply(new BigDecimal(fillQuantity)))
+                                     .divide(new BigDecimal(newFilledQuantity), 2, RoundingMode.HALF_UP);
+        }
+        filledQuantity = newFilledQuantity;
+        if (filledQuantity >= quantity) {
+            status = Status.FILLED;
+        }
+    }
+    
     public BigDecimal getFilledPrice() {
         return filledPrice;
     }
@@ -0,0 +1,296 @@
+package com.savora.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Daily price history of one symbol in primitive columns, sorted by trade date.
+ *
+ * Dates are epoch days and prices are fixed-point longs in cents (market_data
+ * stores DECIMAL(10,2)). A series is never modified once built, so it can be
+ * shared between threads; {@link #range(LocalDate, LocalDate)} returns a view
+ * over the same arrays without copying.
+ */
+public final class PriceSeries {
+    /**
+     * Decimal places of the fixed-point price columns
+     */
+    public static final int PRICE_SCALE = Money.SCALE;
+
+    private final int symbolId;
+    private final int[] epochDays;
+    private final long[] dataIds;
+    private final long[] open;
+    private final long[] high;
+    private final long[] low;
+    private final long[] close;
+    private final long[] adjustedClose;
+    private final long[] volume;
+    private final int offset;
+    private final int length;
+
+    private PriceSeries(int symbolId, int[] epochDays, long[] dataIds, long[] open, long[] high, long[] low,
+                        long[] close, long[] adjustedClose, long[] volume, int offset, int length) {
+        this.symbolId = symbolId;
+        this.epochDays = epochDays;
+        this.dataIds = dataIds;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.adjustedClose = adjustedClose;
+        this.volume = volume;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public static PriceSeries empty(int symbolId) {
+        return new Builder(symbolId, 0).build();
+    }
+
+    /**
+     * Wrap columns that are already in trade date order. The arrays are not copied
+     * and must not be modified afterwards.
+     */
+    public static PriceSeries fromColumns(int symbolId, int[] epochDays, long[] dataIds, long[] open, long[] high,
+                                          long[] low, long[] close, long[] adjustedClose, long[] volume) {
+        int length = epochDays.length;
+        for (long[] column : new long[][] { dataIds, open, high, low, close, adjustedClose, volume }) {
+            if (column.length != length) {
+                throw new IllegalArgumentException("Column lengths differ: " + column.length + " != " + length);
+            }
+        }
+        for (int i = 1; i < length; i++) {
+            if (epochDays[i] <= epochDays[i - 1]) {
+                throw new IllegalArgumentException("Trade dates are not in order at index " + i);
+            }
+        }
+        return new PriceSeries(symbolId, epochDays, dataIds, open, high, low, close, adjustedClose, volume, 0, length);
+    }
+
+    public int getSymbolId() {
+        return symbolId;
+    }
+
+    public int size() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    public int getEpochDay(int index) {
+        return epochDays[offset + checkIndex(index)];
+    }
+
+    public LocalDate getTradeDate(int index) {
+        return LocalDate.ofEpochDay(getEpochDay(index));
+    }
+
+    public long getDataId(int index) {
+        return dataIds[offset + checkIndex(index)];
+    }
+
+    public long getOpenCents(int index) {
+        return open[offset + checkIndex(index)];
+    }
+
+    public long getHighCents(int index) {
+        return high[offset + checkIndex(index)];
+    }
+
+    public long getLowCents(int index) {
+        return low[offset + checkIndex(index)];
+    }
+
+    public long getCloseCents(int index) {
+        return close[offset + checkIndex(index)];
+    }
+
+    public long getAdjustedCloseCents(int index) {
+        return adjustedClose[offset + checkIndex(index)];
+    }
+
+    public long getVolume(int index) {
+        return volume[offset + checkIndex(index)];
+    }
+
+    /**
+     * Index of the bar on the given date, or -1 if there is none
+     */
+    public int indexOf(LocalDate date) {
+        int key = (int) date.toEpochDay();
+        int index = lowerBound(key);
+        return index < length && epochDays[offset + index] == key ? index : -1;
+    }
+
+    /**
+     * Bars from startDate to endDate inclusive, sharing this series' arrays
+     */
+    public PriceSeries range(LocalDate startDate, LocalDate endDate) {
+        int from = lowerBound((int) startDate.toEpochDay());
+        int to = lowerBound((int) endDate.toEpochDay() + 1);
+        if (to < from) {
+            to = from;
+        }
+        return new PriceSeries(symbolId, epochDays, dataIds, open, high, low, close, adjustedClose, volume,
+                               offset + from, to - from);
+    }
+
+    /**
+     * A new series with the bar added at the end, or null if it is not newer than the last bar
+     */
+    public PriceSeries withAppended(MarketData data) {
+        int epochDay = (int) data.getTradeDate().toEpochDay();
+        if (length > 0 && epochDay <= epochDays[offset + length - 1]) {
+            return null;
+        }
+        Builder builder = new Builder(symbolId, length + 1);
+        for (int i = 0; i < length; i++) {
+            int j = offset + i;
+            builder.add(dataIds[j], epochDays[j], open[j], high[j], low[j], close[j], adjustedClose[j], volume[j]);
+        }
+        builder.add(data);
+        return builder.build();
+    }
+
+    /**
+     * Materialize one bar as a MarketData object
+     */
+    public MarketData toMarketData(int index) {
+        checkIndex(index);
+        int j = offset + index;
+        MarketData data = new MarketData(symbolId, LocalDate.ofEpochDay(epochDays[j]),
+            fromCents(open[j]), fromCents(high[j]), fromCents(low[j]), fromCents(close[j]),
+            fromCents(adjustedClose[j]), volume[j]);
+        data.setDataId(dataIds[j]);
+        return data;
+    }
+
+    /**
+     * Materialize every bar, oldest first
+     */
+    public List<MarketData> toMarketDataList() {
+        List<MarketData> dataList = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            dataList.add(toMarketData(i));
+        }
+        return dataList;
+    }
+
+    public static long toCents(BigDecimal price) {
+        return Money.toCents(price);
+    }
+
+    public static BigDecimal fromCents(long cents) {
+        return Money.toBigDecimal(cents);
+    }
+
+    /**
+     * First index whose epoch day is not less than key
+     */
+    private int lowerBound(int key) {
+        int lo = 0;
+        int hi = length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (epochDays[offset + mid] < key) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + length);
+        }
+        return index;
+    }
+
+    /**
+     * Collects bars in trade date order into growable columns
+     */
+    public static final class Builder {
+        private final int symbolId;
+        private int[] epochDays;
+        private long[] dataIds;
+        private long[] open;
+        private long[] high;
+        private long[] low;
+        private long[] close;
+        private long[] adjustedClose;
+        private long[] volume;
+        private int size;
+
+        public Builder(int symbolId, int expectedSize) {
+            int capacity = Math.max(expectedSize, 16);
+            this.symbolId = symbolId;
+            this.epochDays = new int[capacity];
+            this.dataIds = new long[capacity];
+            this.open = new long[capacity];
+            this.high = new long[capacity];
+            this.low = new long[capacity];
+            this.close = new long[capacity];
+            this.adjustedClose = new long[capacity];
+            this.volume = new long[capacity];
+        }
+
+        public Builder add(MarketData data) {
+            return add(data.getDataId(), (int) data.getTradeDate().toEpochDay(),
+                       toCents(data.getOpenPrice()), toCents(data.getHighPrice()), toCents(data.getLowPrice()),
+                       toCents(data.getClosePrice()), toCents(data.getAdjustedClose()), data.getVolume());
+        }
+
+        public Builder add(long dataId, int epochDay, long openCents, long highCents, long lowCents,
+                           long closeCents, long adjustedCloseCents, long barVolume) {
+            if (size > 0 && epochDay <= epochDays[size - 1]) {
+                throw new IllegalArgumentException("Bars must be added in trade date order: " +
+                                                   LocalDate.ofEpochDay(epochDay));
+            }
+            if (size == epochDays.length) {
+                grow();
+            }
+            epochDays[size] = epochDay;
+            dataIds[size] = dataId;
+            open[size] = openCents;
+            high[size] = highCents;
+            low[size] = lowCents;
+            close[size] = closeCents;
+            adjustedClose[size] = adjustedCloseCents;
+            volume[size] = barVolume;
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public PriceSeries build() {
+            // Trim so a finished series holds no spare capacity
+            return new PriceSeries(symbolId, Arrays.copyOf(epochDays, size), Arrays.copyOf(dataIds, size),
+                                   Arrays.copyOf(open, size), Arrays.copyOf(high, size), Arrays.copyOf(low, size),
+                                   Arrays.copyOf(close, size), Arrays.copyOf(adjustedClose, size),
+                                   Arrays.copyOf(volume, size), 0, size);
+        }
+
+        private void grow() {
+            int capacity = epochDays.length * 2;
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            dataIds = Arrays.copyOf(dataIds, capacity);
+            open = Arrays.copyOf(open, capacity);
+            high = Arrays.copyOf(high, capacity);
+            low = Arrays.copyOf(low, capacity);
+            close = Arrays.copyOf(close, capacity);
+            adjustedClose = Arrays.copyOf(adjustedClose, capacity);
+            volume = Arrays.copyOf(volume, capacity);
+        }
+    }
+}
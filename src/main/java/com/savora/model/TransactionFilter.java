@@ -0,0 +1,136 @@
+package com.savora.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Criteria and order for querying transactions; null criteria match everything
+ */
+public class TransactionFilter {
+    private Transaction.TransactionType type;
+    private Integer categoryId;
+    private LocalDate fromDate;
+    private LocalDate toDate;
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+    private String text;
+    private SortColumn sortColumn = SortColumn.DATE;
+    private boolean ascending;
+
+    /**
+     * What transactions can be ordered by; ties are ordered by transaction id in the same direction
+     */
+    public enum SortColumn {
+        DATE, CATEGORY, DESCRIPTION, AMOUNT, TYPE;
+
+        /**
+         * Value a transaction is ordered by: the date, its category's name, the description
+         * (empty if none), the amount, or the type's ordinal (income first)
+         */
+        public Object keyOf(Transaction transaction, String categoryName) {
+            switch (this) {
+                case CATEGORY:
+                    return categoryName != null ? categoryName : "";
+                case DESCRIPTION:
+                    return transaction.getDescription() != null ? transaction.getDescription() : "";
+                case AMOUNT:
+                    return transaction.getAmount();
+                case TYPE:
+                    return transaction.getType().ordinal();
+                default:
+                    return transaction.getDate();
+            }
+        }
+    }
+
+    // Constructors
+    public TransactionFilter() {}
+
+    public TransactionFilter(TransactionFilter other) {
+        this.type = other.type;
+        this.categoryId = other.categoryId;
+        this.fromDate = other.fromDate;
+        this.toDate = other.toDate;
+        this.minAmount = other.minAmount;
+        this.maxAmount = other.maxAmount;
+        this.text = other.text;
+        this.sortColumn = other.sortColumn;
+        this.ascending = other.ascending;
+    }
+
+    // Getters and Setters
+    public Transaction.TransactionType getType() {
+        return type;
+    }
+
+    public void setType(Transaction.TransactionType type) {
+        this.type = type;
+    }
+
+    public Integer getCategoryId() {
+        return categoryId;
+    }
+
+    public void setCategoryId(Integer categoryId) {
+        this.categoryId = categoryId;
+    }
+
+    public LocalDate getFromDate() {
+        return fromDate;
+    }
+
+    public void setFromDate(LocalDate fromDate) {
+        this.fromDate = fromDate;
+    }
+
+    public LocalDate getToDate() {
+        return toDate;
+    }
+
+    public void setToDate(LocalDate toDate) {
+        this.toDate = toDate;
+    }
+
+    public BigDecimal getMinAmount() {
+        return minAmount;
+    }
+
+    public void setMinAmount(BigDecimal minAmount) {
+        this.minAmount = minAmount;
+    }
+
+    public BigDecimal getMaxAmount() {
+        return maxAmount;
+    }
+
+    public void setMaxAmount(BigDecimal maxAmount) {
+        this.maxAmount = maxAmount;
+    }
+
+    /**
+     * Text the description must contain, ignoring case
+     */
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text;
+    }
+
+    public SortColumn getSortColumn() {
+        return sortColumn;
+    }
+
+    public void setSortColumn(SortColumn sortColumn) {
+        this.sortColumn = sortColumn;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    public void setAscending(boolean ascending) {
+        this.ascending = ascending;
+    }
+}
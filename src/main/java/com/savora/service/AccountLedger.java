@@ -0,0 +1,127 @@
+package com.savora.service;
+
+import com.savora.dao.AccountDAO;
+import com.savora.dao.AccountEventDAO;
+import com.savora.dao.PositionDAO;
+import com.savora.model.AccountEvent;
+import com.savora.model.AccountState;
+import com.savora.model.Position;
+import com.savora.util.DatabaseConnection;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rebuilds account state from the account_events ledger.
+ *
+ * The state at a date is the newest snapshot dated on or before it plus the events after that
+ * snapshot, so the cost is O(events since snapshot) rather than O(all trades). Event dates are
+ * not ordered by event ID (account opening and cash adjustments are dated today, fills by the
+ * date they execute for), so a snapshot holds every event up to its last_event_id and is dated
+ * with the latest date among them. Only replays of the whole ledger longer than
+ * SNAPSHOT_INTERVAL events store a new snapshot: a replay up to a date skips later-dated
+ * events, and a snapshot of it would hide them from every later replay. The positions table and
+ * simulated_accounts.current_cash are read models of the same fold: the order paths update
+ * them in the transaction that appends the event, and rebuildProjection rewrites them from
+ * the ledger.
+ */
+public class AccountLedger {
+    static final int SNAPSHOT_INTERVAL = 200;
+
+    private final AccountEventDAO eventDAO;
+    private final AccountDAO accountDAO;
+    private final PositionDAO positionDAO;
+    private final DatabaseConnection dbConnection;
+
+    public AccountLedger() {
+        this.eventDAO = new AccountEventDAO();
+        this.accountDAO = new AccountDAO();
+        this.positionDAO = new PositionDAO();
+        this.dbConnection = DatabaseConnection.getInstance();
+    }
+
+    /**
+     * Cash and positions of an account at the end of a date
+     */
+    public AccountState getStateAt(int accountId, LocalDate date) {
+        AccountState state = eventDAO.findLatestSnapshot(accountId, date);
+        if (state == null) {
+            state = new AccountState(accountId);
+        }
+
+        List<AccountEvent> events = eventDAO.findAfter(accountId, state.getLastEventId(), date);
+        for (AccountEvent event : events) {
+            apply(state, event);
+        }
+
+        if (date == null && events.size() >= SNAPSHOT_INTERVAL) {
+            eventDAO.saveSnapshot(state);
+        }
+        return state;
+    }
+
+    /**
+     * Current cash and positions of an account
+     */
+    public AccountState getCurrentState(int accountId) {
+        return getStateAt(accountId, null);
+    }
+
+    /**
+     * Store a snapshot of the account's current state; returns false if it has no events or saving failed
+     */
+    public boolean takeSnapshot(int accountId) {
+        AccountState state = getCurrentState(accountId);
+        return state.getLastEventId() > 0 && eventDAO.saveSnapshot(state);
+    }
+
+    /**
+     * Rewrite the account's cash and positions rows from the ledger
+     */
+    public boolean rebuildProjection(int accountId) {
+        try {
+            return dbConnection.inTransaction(conn -> {
+                // Fills lock the account row before appending, so the ledger cannot move while we hold it
+                if (accountDAO.findByIdForUpdate(conn, accountId) == null) {
+                    return false;
+                }
+                // Fold on this connection and store no snapshot: a second connection would wait
+                // on the account row this transaction has locked
+                AccountState state = eventDAO.findLatestSnapshot(conn, accountId, null);
+                if (state == null) {
+                    state = new AccountState(accountId);
+                }
+                for (AccountEvent event : eventDAO.findAfter(conn, accountId, state.getLastEventId(), null)) {
+                    apply(state, event);
+                }
+                accountDAO.updateCash(conn, accountId, state.getCash());
+                positionDAO.deleteByAccount(conn, accountId);
+                positionDAO.upsertBatch(conn, new ArrayList<>(state.getPositions()));
+                return true;
+            });
+        } catch (SQLException e) {
+            System.err.println("Error rebuilding account projection: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return false;
+    }
+
+    /**
+     * Fold one event into a state
+     */
+    static void apply(AccountState state, AccountEvent event) {
+        state.setCash(state.getCash().add(event.getCashDelta()));
+        if (event.getType() == AccountEvent.Type.ORDER_FILLED) {
+            int symbolId = event.getSymbolId();
+            Position position = OrderExecutor.applyFill(state.getPosition(symbolId), state.getAccountId(), symbolId,
+                                                        event.getSide(), event.getQuantity(), event.getPrice());
+            state.setPosition(symbolId, position);
+        }
+        state.setLastEventId(event.getEventId());
+        if (state.getAsOfDate() == null || event.getEventDate().isAfter(state.getAsOfDate())) {
+            state.setAsOfDate(event.getEventDate());
+        }
+    }
+}
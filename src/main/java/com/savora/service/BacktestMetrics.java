@@ -0,0 +1,118 @@
+package com.savora.service;
+
+/**
+ * Performance figures of one backtest, computed in a single pass over its equity curve.
+ *
+ * Returns are daily close-to-close changes in equity. Sharpe is annualized over
+ * TRADING_DAYS_PER_YEAR with a zero risk-free rate. Turnover is traded value per year
+ * relative to average equity.
+ */
+public final class BacktestMetrics {
+    public static final int TRADING_DAYS_PER_YEAR = 252;
+
+    private final double totalReturn;
+    private final double cagr;
+    private final double maxDrawdown;
+    private final double sharpe;
+    private final double turnover;
+    private final int tradeCount;
+    private final long finalEquityCents;
+
+    private BacktestMetrics(double totalReturn, double cagr, double maxDrawdown, double sharpe, double turnover,
+                            int tradeCount, long finalEquityCents) {
+        this.totalReturn = totalReturn;
+        this.cagr = cagr;
+        this.maxDrawdown = maxDrawdown;
+        this.sharpe = sharpe;
+        this.turnover = turnover;
+        this.tradeCount = tradeCount;
+        this.finalEquityCents = finalEquityCents;
+    }
+
+    public static BacktestMetrics of(BacktestResult result) {
+        int days = result.getDayCount();
+        long finalEquity = result.getFinalEquityCents();
+        if (days < 2 || result.getInitialCashCents() <= 0) {
+            return new BacktestMetrics(result.getTotalReturn(), 0.0, 0.0, 0.0, 0.0, result.getTrades().size(),
+                                       finalEquity);
+        }
+
+        long peak = result.getInitialCashCents();
+        double maxDrawdown = 0.0;
+        double sum = 0.0;
+        double sumSquares = 0.0;
+        double equitySum = 0.0;
+        long previous = result.getInitialCashCents();
+        for (int i = 0; i < days; i++) {
+            long equity = result.getEquityCents(i);
+            if (equity > peak) {
+                peak = equity;
+            } else if (peak > 0) {
+                maxDrawdown = Math.max(maxDrawdown, (double) (peak - equity) / peak);
+            }
+            double dailyReturn = previous > 0 ? (double) equity / previous - 1.0 : 0.0;
+            sum += dailyReturn;
+            sumSquares += dailyReturn * dailyReturn;
+            equitySum += equity;
+            previous = equity;
+        }
+
+        double mean = sum / days;
+        double variance = Math.max(0.0, sumSquares / days - mean * mean) * days / (days - 1);
+        double sharpe = variance > 0 ? mean / Math.sqrt(variance) * Math.sqrt(TRADING_DAYS_PER_YEAR) : 0.0;
+
+        double years = (result.getEpochDay(days - 1) - result.getEpochDay(0) + 1) / 365.25;
+        double growth = (double) finalEquity / result.getInitialCashCents();
+        double cagr = growth > 0 ? Math.pow(growth, 1.0 / years) - 1.0 : -1.0;
+
+        double traded = 0.0;
+        for (BacktestResult.TradeRecord trade : result.getTrades()) {
+            traded += (double) trade.getPriceCents() * trade.getQuantity();
+        }
+        double averageEquity = equitySum / days;
+        double turnover = averageEquity > 0 ? traded / averageEquity / years : 0.0;
+
+        return new BacktestMetrics(result.getTotalReturn(), cagr, maxDrawdown, sharpe, turnover,
+                                   result.getTrades().size(), finalEquity);
+    }
+
+    public double getTotalReturn() {
+        return totalReturn;
+    }
+
+    /**
+     * Compound annual growth rate
+     */
+    public double getCagr() {
+        return cagr;
+    }
+
+    /**
+     * Largest fall from a peak in equity, as a fraction of the peak
+     */
+    public double getMaxDrawdown() {
+        return maxDrawdown;
+    }
+
+    public double getSharpe() {
+        return sharpe;
+    }
+
+    public double getTurnover() {
+        return turnover;
+    }
+
+    public int getTradeCount() {
+        return tradeCount;
+    }
+
+    public long getFinalEquityCents() {
+        return finalEquityCents;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CAGR %+.2f%%, max drawdown %.2f%%, Sharpe %.2f, turnover %.2f, %d trades",
+                             cagr * 100, maxDrawdown * 100, sharpe, turnover, tradeCount);
+    }
+}
@@ -0,0 +1,230 @@
+package com.savora.service;
+
+import com.savora.model.Order;
+import com.savora.model.PriceSeries;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Equity curve and trade log of one Backtester run. Money is in cents.
+ */
+public class BacktestResult {
+    private final long initialCashCents;
+    private final int[] epochDays;
+    private final long[] equityCents;
+    private final List<TradeRecord> trades;
+    private final long finalCashCents;
+    private final int[] finalQuantities;
+    private final int ordersPlaced;
+    private final int ordersRejected;
+    private final int ordersPending;
+    private final long elapsedNanos;
+
+    BacktestResult(long initialCashCents, int[] epochDays, long[] equityCents, List<TradeRecord> trades,
+                   long finalCashCents, int[] finalQuantities, int ordersPlaced, int ordersRejected,
+                   int ordersPending, long elapsedNanos) {
+        this.initialCashCents = initialCashCents;
+        this.epochDays = epochDays;
+        this.equityCents = equityCents;
+        this.trades = Collections.unmodifiableList(trades);
+        this.finalCashCents = finalCashCents;
+        this.finalQuantities = finalQuantities;
+        this.ordersPlaced = ordersPlaced;
+        this.ordersRejected = ordersRejected;
+        this.ordersPending = ordersPending;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long getInitialCashCents() {
+        return initialCashCents;
+    }
+
+    /**
+     * Number of trading days in the equity curve
+     */
+    public int getDayCount() {
+        return epochDays.length;
+    }
+
+    public int getEpochDay(int day) {
+        return epochDays[day];
+    }
+
+    public LocalDate getDate(int day) {
+        return LocalDate.ofEpochDay(epochDays[day]);
+    }
+
+    /**
+     * Equity at the close of a trading day
+     */
+    public long getEquityCents(int day) {
+        return equityCents[day];
+    }
+
+    public long getFinalEquityCents() {
+        return epochDays.length > 0 ? equityCents[epochDays.length - 1] : initialCashCents;
+    }
+
+    /**
+     * Final equity over initial cash, minus one
+     */
+    public double getTotalReturn() {
+        return initialCashCents > 0 ? (double) getFinalEquityCents() / initialCashCents - 1.0 : 0.0;
+    }
+
+    /**
+     * Fills in execution order
+     */
+    public List<TradeRecord> getTrades() {
+        return trades;
+    }
+
+    public long getTotalCommissionCents() {
+        long total = 0;
+        for (TradeRecord trade : trades) {
+            total += trade.getCommissionCents();
+        }
+        return total;
+    }
+
+    public long getFinalCashCents() {
+        return finalCashCents;
+    }
+
+    /**
+     * Shares held at the end, by symbol index
+     */
+    public int getFinalQuantity(int symbol) {
+        return finalQuantities[symbol];
+    }
+
+    public int getOrdersPlaced() {
+        return ordersPlaced;
+    }
+
+    public int getOrdersRejected() {
+        return ordersRejected;
+    }
+
+    /**
+     * Orders still unfilled when the bars ran out
+     */
+    public int getOrdersPending() {
+        return ordersPending;
+    }
+
+    public double getElapsedMillis() {
+        return elapsedNanos / 1_000_000.0;
+    }
+
+    /**
+     * Write the equity curve as CSV: date,equity
+     */
+    public void writeEquityCurve(Appendable out) throws IOException {
+        out.append("Date,Equity\n");
+        for (int i = 0; i < epochDays.length; i++) {
+            out.append(getDate(i).toString()).append(',')
+               .append(PriceSeries.fromCents(equityCents[i]).toPlainString()).append('\n');
+        }
+    }
+
+    /**
+     * Write the trade log as CSV, one line per fill
+     */
+    public void writeTradeLog(Appendable out) throws IOException {
+        out.append("Date,SymbolID,Side,Quantity,Price,Commission,Cash\n");
+        for (TradeRecord trade : trades) {
+            out.append(trade.getDate().toString()).append(',')
+               .append(Integer.toString(trade.getSymbolId())).append(',')
+               .append(trade.getSide().name()).append(',')
+               .append(Integer.toString(trade.getQuantity())).append(',')
+               .append(PriceSeries.fromCents(trade.getPriceCents()).toPlainString()).append(',')
+               .append(PriceSeries.fromCents(trade.getCommissionCents()).toPlainString()).append(',')
+               .append(PriceSeries.fromCents(trade.getCashAfterCents()).toPlainString()).append('\n');
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Backtest: %d days, %d orders, %d fills, %d rejected, %d pending, " +
+                             "equity %s -> %s (%+.2f%%), commission %s in %.1f ms",
+                             epochDays.length, ordersPlaced, trades.size(), ordersRejected, ordersPending,
+                             PriceSeries.fromCents(initialCashCents), PriceSeries.fromCents(getFinalEquityCents()),
+                             getTotalReturn() * 100, PriceSeries.fromCents(getTotalCommissionCents()),
+                             getElapsedMillis());
+    }
+
+    /**
+     * One fill in a backtest
+     */
+    public static final class TradeRecord {
+        private final int epochDay;
+        private final int symbol;
+        private final int symbolId;
+        private final Order.Side side;
+        private final int quantity;
+        private final long priceCents;
+        private final long commissionCents;
+        private final long cashAfterCents;
+
+        TradeRecord(int epochDay, int symbol, int symbolId, Order.Side side, int quantity, long priceCents,
+                    long commissionCents, long cashAfterCents) {
+            this.epochDay = epochDay;
+            this.symbol = symbol;
+            this.symbolId = symbolId;
+            this.side = side;
+            this.quantity = quantity;
+            this.priceCents = priceCents;
+            this.commissionCents = commissionCents;
+            this.cashAfterCents = cashAfterCents;
+        }
+
+        public int getEpochDay() {
+            return epochDay;
+        }
+
+        public LocalDate getDate() {
+            return LocalDate.ofEpochDay(epochDay);
+        }
+
+        /**
+         * Index of the symbol in the backtest's series list
+         */
+        public int getSymbol() {
+            return symbol;
+        }
+
+        public int getSymbolId() {
+            return symbolId;
+        }
+
+        public Order.Side getSide() {
+            return side;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public long getPriceCents() {
+            return priceCents;
+        }
+
+        public long getCommissionCents() {
+            return commissionCents;
+        }
+
+        public long getCashAfterCents() {
+            return cashAfterCents;
+        }
+
+        @Override
+        public String toString() {
+            return getDate() + " " + side + " " + quantity + " #" + symbolId + " @ " +
+                   PriceSeries.fromCents(priceCents);
+        }
+    }
+}
@@ -0,0 +1,541 @@
+package com.savora.service;
+
+import com.savora.model.Order;
+import com.savora.model.PriceSeries;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Replays daily bars through the OrderExecutor fill rules with account state held in memory.
+ *
+ * Bars come from PriceSeries, so a run reads the market data cache or archive files mapped by
+ * MarketDataArchive and never touches the database. Days are streamed in date order across all
+ * symbols. Each day, orders placed on earlier days are filled against that day's bar with the
+ * same ExecutionRules as OrderExecutor (market orders at the open plus slippage, limit orders
+ * when the range reaches the limit, commission with a minimum, buys rejected if cash would go
+ * negative), equity is marked at the close and then the strategy runs and may place orders.
+ * Stop orders rest in a TriggerEngine and fill on the bar that reaches them, after that day's
+ * pending orders; a stop-limit that does not fill then rests as a limit order. Placing an
+ * order applies the placeOrder checks against the latest close. Money is in cents.
+ *
+ * A Backtester is immutable; run may be called from several threads at once. Each thread
+ * keeps its working arrays (positions, pending orders, equity curve) between runs, so repeated
+ * runs such as a ParameterSweep allocate only their results.
+ */
+public class Backtester {
+    private static final ThreadLocal<Workspace> WORKSPACE = ThreadLocal.withInitial(Workspace::new);
+
+    private final PriceSeries[] series;
+
+    public Backtester(List<PriceSeries> series) {
+        this.series = series.toArray(new PriceSeries[0]);
+    }
+
+    /**
+     * Backtest over the bars from startDate to endDate inclusive; the series are not copied
+     */
+    public Backtester(List<PriceSeries> series, LocalDate startDate, LocalDate endDate) {
+        this.series = new PriceSeries[series.size()];
+        for (int i = 0; i < this.series.length; i++) {
+            this.series[i] = series.get(i).range(startDate, endDate);
+        }
+    }
+
+    public int getSymbolCount() {
+        return series.length;
+    }
+
+    public PriceSeries getSeries(int symbol) {
+        return series[symbol];
+    }
+
+    /**
+     * Run a strategy from a starting cash balance
+     */
+    public BacktestResult run(Strategy strategy, long initialCashCents) {
+        long start = System.nanoTime();
+        Workspace workspace = WORKSPACE.get();
+        if (workspace.inUse) {
+            throw new IllegalStateException("Backtests cannot be nested on one thread");
+        }
+        workspace.inUse = true;
+        try {
+            Context context = new Context(series, initialCashCents, workspace);
+            replay(strategy, context, workspace.next);
+            return context.finish(System.nanoTime() - start);
+        } finally {
+            workspace.inUse = false;
+        }
+    }
+
+    /**
+     * Stream the days of all series through the context and strategy
+     */
+    private void replay(Strategy strategy, Context context, int[] next) {
+        while (true) {
+            // Next trading day is the earliest unread bar of any symbol
+            int day = Integer.MAX_VALUE;
+            for (int i = 0; i < series.length; i++) {
+                if (next[i] < series[i].size()) {
+                    day = Math.min(day, series[i].getEpochDay(next[i]));
+                }
+            }
+            if (day == Integer.MAX_VALUE) {
+                break;
+            }
+            for (int i = 0; i < series.length; i++) {
+                if (next[i] < series[i].size() && series[i].getEpochDay(next[i]) == day) {
+                    context.barIndex[i] = next[i]++;
+                    context.hasBar[i] = true;
+                } else {
+                    context.hasBar[i] = false;
+                }
+            }
+            context.epochDay = day;
+
+            context.executePending();
+            context.recordEquity();
+            strategy.onDay(context);
+            context.dayNumber++;
+        }
+    }
+
+    /**
+     * Trading logic driven by a backtest. A strategy instance is used by one run at a time.
+     */
+    @FunctionalInterface
+    public interface Strategy {
+        /**
+         * Called once per trading day after fills and the close; orders placed here fill from the next day
+         */
+        void onDay(Context context);
+    }
+
+    /**
+     * The simulated account and the bars seen so far, as given to a strategy.
+     * Symbols are addressed by their index in the backtest's series list. A context is only
+     * valid during its run.
+     */
+    public static final class Context {
+        private final PriceSeries[] series;
+        private final int[] barIndex;
+        private final boolean[] hasBar;
+        private final int[] quantity;
+        private final long[] avgCostCents;
+        private final long initialCashCents;
+        private final Workspace workspace;
+        private final List<BacktestResult.TradeRecord> trades = new ArrayList<>();
+        private long cashCents;
+        private int pendingCount;
+        private int epochDay;
+        private int dayNumber;
+        private int ordersPlaced;
+        private int ordersRejected;
+
+        private Context(PriceSeries[] series, long initialCashCents, Workspace workspace) {
+            workspace.reset(series.length);
+            this.series = series;
+            this.barIndex = workspace.barIndex;
+            this.hasBar = workspace.hasBar;
+            this.quantity = workspace.quantity;
+            this.avgCostCents = workspace.avgCostCents;
+            this.initialCashCents = initialCashCents;
+            this.workspace = workspace;
+            this.cashCents = initialCashCents;
+        }
+
+        public LocalDate getDate() {
+            return LocalDate.ofEpochDay(epochDay);
+        }
+
+        public int getEpochDay() {
+            return epochDay;
+        }
+
+        /**
+         * Number of trading days before today in this run
+         */
+        public int getDayNumber() {
+            return dayNumber;
+        }
+
+        public int getSymbolCount() {
+            return series.length;
+        }
+
+        public PriceSeries getSeries(int symbol) {
+            return series[symbol];
+        }
+
+        /**
+         * Whether the symbol traded today
+         */
+        public boolean hasBar(int symbol) {
+            return hasBar[symbol];
+        }
+
+        /**
+         * Index in the symbol's series of its latest bar up to today, or -1 if it has not traded yet
+         */
+        public int getBarIndex(int symbol) {
+            return barIndex[symbol];
+        }
+
+        /**
+         * Latest close of a symbol in cents, or -1 if it has not traded yet
+         */
+        public long getCloseCents(int symbol) {
+            int index = barIndex[symbol];
+            return index >= 0 ? series[symbol].getCloseCents(index) : -1L;
+        }
+
+        public int getQuantity(int symbol) {
+            return quantity[symbol];
+        }
+
+        public long getAvgCostCents(int symbol) {
+            return avgCostCents[symbol];
+        }
+
+        public long getCashCents() {
+            return cashCents;
+        }
+
+        /**
+         * Cash plus positions valued at their latest close
+         */
+        public long getEquityCents() {
+            long equity = cashCents;
+            for (int i = 0; i < series.length; i++) {
+                if (quantity[i] != 0) {
+                    equity += quantity[i] * series[i].getCloseCents(barIndex[i]);
+                }
+            }
+            return equity;
+        }
+
+        /**
+         * Orders waiting to fill, including stops not triggered yet
+         */
+        public int getPendingCount() {
+            return pendingCount + workspace.triggers.size();
+        }
+
+        public boolean buy(int symbol, int shares) {
+            return place(symbol, Order.Side.BUY, shares, ExecutionRules.NO_FILL);
+        }
+
+        public boolean sell(int symbol, int shares) {
+            return place(symbol, Order.Side.SELL, shares, ExecutionRules.NO_FILL);
+        }
+
+        public boolean buyLimit(int symbol, int shares, long limitCents) {
+            return place(symbol, Order.Side.BUY, shares, limitCents);
+        }
+
+        public boolean sellLimit(int symbol, int shares, long limitCents) {
+            return place(symbol, Order.Side.SELL, shares, limitCents);
+        }
+
+        /**
+         * Buy at market once the price rises to stopCents
+         */
+        public boolean buyStop(int symbol, int shares, long stopCents) {
+            return placeStop(symbol, Order.Side.BUY, shares, stopCents, ExecutionRules.NO_FILL, 0L);
+        }
+
+        /**
+         * Sell at market once the price falls to stopCents
+         */
+        public boolean sellStop(int symbol, int shares, long stopCents) {
+            return placeStop(symbol, Order.Side.SELL, shares, stopCents, ExecutionRules.NO_FILL, 0L);
+        }
+
+        public boolean buyStopLimit(int symbol, int shares, long stopCents, long limitCents) {
+            return placeStop(symbol, Order.Side.BUY, shares, stopCents, limitCents, 0L);
+        }
+
+        public boolean sellStopLimit(int symbol, int shares, long stopCents, long limitCents) {
+            return placeStop(symbol, Order.Side.SELL, shares, stopCents, limitCents, 0L);
+        }
+
+        /**
+         * Buy at market once the price rises trailCents above its lowest low since today's close
+         */
+        public boolean buyTrailingStop(int symbol, int shares, long trailCents) {
+            return placeStop(symbol, Order.Side.BUY, shares, ExecutionRules.NO_FILL, ExecutionRules.NO_FILL, trailCents);
+        }
+
+        /**
+         * Sell at market once the price falls trailCents below its highest high since today's close
+         */
+        public boolean sellTrailingStop(int symbol, int shares, long trailCents) {
+            return placeStop(symbol, Order.Side.SELL, shares, ExecutionRules.NO_FILL, ExecutionRules.NO_FILL, trailCents);
+        }
+
+        /**
+         * Cancel all pending orders of a symbol; returns the number cancelled
+         */
+        public int cancelOrders(int symbol) {
+            Workspace w = workspace;
+            int kept = 0;
+            for (int i = 0; i < pendingCount; i++) {
+                if (w.orderSymbol[i] != symbol) {
+                    w.moveOrder(i, kept++);
+                }
+            }
+            int cancelled = pendingCount - kept;
+            pendingCount = kept;
+            return cancelled + w.triggers.removeSymbol(symbol);
+        }
+
+        /**
+         * Queue an order after the OrderExecutor.placeOrder checks; returns false if it is refused
+         */
+        private boolean place(int symbol, Order.Side side, int shares, long limitCents) {
+            if (shares <= 0) {
+                return false;
+            }
+            if (side == Order.Side.BUY) {
+                long estimatedPrice = limitCents != ExecutionRules.NO_FILL ? limitCents : getCloseCents(symbol);
+                if (estimatedPrice < 0) {
+                    return false;
+                }
+                long estimatedCost = estimatedPrice * shares;
+                if (cashCents < estimatedCost + ExecutionRules.commissionCents(estimatedCost)) {
+                    return false;
+                }
+            } else if (quantity[symbol] < shares) {
+                return false;
+            }
+            workspace.addOrder(pendingCount++, symbol, side, shares, limitCents);
+            ordersPlaced++;
+            return true;
+        }
+
+        /**
+         * Add a stop order after the placeOrder checks; a trailing stop starts trailCents from the latest close
+         */
+        private boolean placeStop(int symbol, Order.Side side, int shares, long stopCents, long limitCents,
+                                  long trailCents) {
+            long closeCents = getCloseCents(symbol);
+            if (shares <= 0 || closeCents < 0) {
+                return false;
+            }
+            if (trailCents > 0) {
+                stopCents = side == Order.Side.SELL ? closeCents - trailCents : closeCents + trailCents;
+            } else if (stopCents <= 0) {
+                return false;
+            }
+            if (side == Order.Side.BUY) {
+                long estimatedPrice = limitCents != ExecutionRules.NO_FILL ? limitCents : Math.max(stopCents, closeCents);
+                long estimatedCost = estimatedPrice * shares;
+                if (cashCents < estimatedCost + ExecutionRules.commissionCents(estimatedCost)) {
+                    return false;
+                }
+            } else if (quantity[symbol] < shares) {
+                return false;
+            }
+            Workspace w = workspace;
+            int id = w.addStop(shares, limitCents);
+            if (trailCents > 0) {
+                w.triggers.addTrailingStop(id, symbol, side, stopCents, trailCents);
+            } else {
+                w.triggers.addStop(id, symbol, side, stopCents);
+            }
+            ordersPlaced++;
+            return true;
+        }
+
+        /**
+         * Fill pending orders against today's bars, oldest first, compacting the ones left pending;
+         * then fill the stops the bars reach
+         */
+        private void executePending() {
+            Workspace w = workspace;
+            int kept = 0;
+            for (int i = 0; i < pendingCount; i++) {
+                int symbol = w.orderSymbol[i];
+                Order.Side side = w.orderSide[i];
+                int shares = w.orderQuantity[i];
+                long limitCents = w.orderLimitCents[i];
+                if (!hasBar[symbol]) {
+                    w.moveOrder(i, kept++);
+                    continue;
+                }
+                PriceSeries bars = series[symbol];
+                int index = barIndex[symbol];
+                long priceCents = limitCents == ExecutionRules.NO_FILL
+                    ? ExecutionRules.marketPriceCents(side, bars.getOpenCents(index))
+                    : ExecutionRules.limitPriceCents(side, limitCents, bars.getLowCents(index),
+                                                     bars.getHighCents(index));
+                if (priceCents == ExecutionRules.NO_FILL) {
+                    w.moveOrder(i, kept++);
+                    continue;
+                }
+                fill(symbol, side, shares, priceCents);
+            }
+            pendingCount = kept;
+
+            if (w.triggers.size() > 0) {
+                fireStops();
+            }
+        }
+
+        private void fireStops() {
+            Workspace w = workspace;
+            for (int symbol = 0; symbol < series.length; symbol++) {
+                if (!hasBar[symbol] || w.triggers.getTriggerCount(symbol) == 0) {
+                    continue;
+                }
+                PriceSeries bars = series[symbol];
+                int index = barIndex[symbol];
+                long lowCents = bars.getLowCents(index);
+                long highCents = bars.getHighCents(index);
+                for (TriggerEngine.Fired stop : w.triggers.onBar(symbol, bars.getOpenCents(index), highCents, lowCents)) {
+                    int id = (int) stop.getOrderId();
+                    Order.Side side = stop.getSide();
+                    int shares = w.stopQuantity[id];
+                    long limitCents = w.stopLimitCents[id];
+                    long priceCents = limitCents == ExecutionRules.NO_FILL
+                        ? ExecutionRules.stopPriceCents(side, stop.getPriceCents())
+                        : ExecutionRules.stopLimitPriceCents(side, limitCents, stop.getPriceCents(), lowCents, highCents);
+                    if (priceCents == ExecutionRules.NO_FILL) {
+                        w.addOrder(pendingCount++, symbol, side, shares, limitCents);
+                    } else {
+                        fill(symbol, side, shares, priceCents);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Fill an order at a price unless cash or shares fall short
+         */
+        private void fill(int symbol, Order.Side side, int shares, long priceCents) {
+            long subtotal = priceCents * shares;
+            long commission = ExecutionRules.commissionCents(subtotal);
+            if (side == Order.Side.BUY) {
+                if (cashCents < subtotal + commission) {
+                    ordersRejected++;
+                    return;
+                }
+                avgCostCents[symbol] = ExecutionRules.averageCostCents(avgCostCents[symbol], quantity[symbol],
+                                                                       priceCents, shares);
+                quantity[symbol] += shares;
+                cashCents -= subtotal + commission;
+            } else {
+                if (quantity[symbol] < shares) {
+                    // Sold by an earlier order since this one was placed
+                    ordersRejected++;
+                    return;
+                }
+                quantity[symbol] -= shares;
+                if (quantity[symbol] == 0) {
+                    avgCostCents[symbol] = 0;
+                }
+                cashCents += subtotal - commission;
+            }
+            trades.add(new BacktestResult.TradeRecord(epochDay, symbol, series[symbol].getSymbolId(), side,
+                                                      shares, priceCents, commission, cashCents));
+        }
+
+        private void recordEquity() {
+            workspace.recordEquity(dayNumber, epochDay, getEquityCents());
+        }
+
+        private BacktestResult finish(long elapsedNanos) {
+            return new BacktestResult(initialCashCents, Arrays.copyOf(workspace.equityDays, dayNumber),
+                                      Arrays.copyOf(workspace.equityCents, dayNumber), trades, cashCents,
+                                      Arrays.copyOf(quantity, series.length), ordersPlaced, ordersRejected,
+                                      getPendingCount(), elapsedNanos);
+        }
+    }
+
+    /**
+     * Working arrays of one thread's runs, grown as needed and cleared between runs.
+     * Pending orders are kept as columns in placement order; stop orders as columns indexed by
+     * their trigger ID.
+     */
+    private static final class Workspace {
+        private boolean inUse;
+        private int[] next = new int[0];
+        private int[] barIndex = new int[0];
+        private boolean[] hasBar = new boolean[0];
+        private int[] quantity = new int[0];
+        private long[] avgCostCents = new long[0];
+        private int[] orderSymbol = new int[16];
+        private Order.Side[] orderSide = new Order.Side[16];
+        private int[] orderQuantity = new int[16];
+        private long[] orderLimitCents = new long[16];
+        private final TriggerEngine triggers = new TriggerEngine();
+        private int[] stopQuantity = new int[16];
+        private long[] stopLimitCents = new long[16];
+        private int stopCount;
+        private int[] equityDays = new int[256];
+        private long[] equityCents = new long[256];
+
+        private void reset(int symbols) {
+            if (next.length < symbols) {
+                next = new int[symbols];
+                barIndex = new int[symbols];
+                hasBar = new boolean[symbols];
+                quantity = new int[symbols];
+                avgCostCents = new long[symbols];
+            }
+            Arrays.fill(next, 0);
+            Arrays.fill(barIndex, -1);
+            Arrays.fill(hasBar, false);
+            Arrays.fill(quantity, 0);
+            Arrays.fill(avgCostCents, 0L);
+            triggers.clear();
+            stopCount = 0;
+        }
+
+        private void addOrder(int slot, int symbol, Order.Side side, int shares, long limitCents) {
+            if (slot == orderSymbol.length) {
+                int capacity = slot * 2;
+                orderSymbol = Arrays.copyOf(orderSymbol, capacity);
+                orderSide = Arrays.copyOf(orderSide, capacity);
+                orderQuantity = Arrays.copyOf(orderQuantity, capacity);
+                orderLimitCents = Arrays.copyOf(orderLimitCents, capacity);
+            }
+            orderSymbol[slot] = symbol;
+            orderSide[slot] = side;
+            orderQuantity[slot] = shares;
+            orderLimitCents[slot] = limitCents;
+        }
+
+        /**
+         * Store a stop order; returns its trigger ID
+         */
+        private int addStop(int shares, long limitCents) {
+            if (stopCount == stopQuantity.length) {
+                int capacity = stopCount * 2;
+                stopQuantity = Arrays.copyOf(stopQuantity, capacity);
+                stopLimitCents = Arrays.copyOf(stopLimitCents, capacity);
+            }
+            stopQuantity[stopCount] = shares;
+            stopLimitCents[stopCount] = limitCents;
+            return stopCount++;
+        }
+
+        private void moveOrder(int from, int to) {
+            if (from != to) {
+                addOrder(to, orderSymbol[from], orderSide[from], orderQuantity[from], orderLimitCents[from]);
+            }
+        }
+
+        private void recordEquity(int day, int epochDay, long equity) {
+            if (day == equityDays.length) {
+                equityDays = Arrays.copyOf(equityDays, day * 2);
+                equityCents = Arrays.copyOf(equityCents, day * 2);
+            }
+            equityDays[day] = epochDay;
+            equityCents[day] = equity;
+        }
+    }
+}
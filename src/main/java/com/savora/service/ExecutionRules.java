@@ -0,0 +1,116 @@
+package com.savora.service;
+
+import com.savora.model.Money;
+import com.savora.model.Order;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Commission and fill price rules shared by OrderExecutor and the backtester.
+ *
+ * The BigDecimal methods are the reference definition; the cents methods compute the same
+ * results with Money on long cents without allocating, and are what the execution path,
+ * backtests and valuation use. MoneyRegressionTest compares the two. Stop orders only have
+ * cents rules; they are defined in terms of the market and limit rules.
+ */
+public final class ExecutionRules {
+    public static final BigDecimal COMMISSION_RATE = new BigDecimal("0.001"); // 0.1% commission
+    public static final BigDecimal MIN_COMMISSION = new BigDecimal("1.00"); // $1 minimum
+    public static final BigDecimal SLIPPAGE_RATE = new BigDecimal("0.0005"); // 0.05% slippage
+
+    /**
+     * Returned by the cents methods when an order does not fill
+     */
+    public static final long NO_FILL = -1L;
+
+    private static final long COMMISSION_PPM = Money.toPpm(COMMISSION_RATE);
+    private static final long MIN_COMMISSION_CENTS = Money.toCents(MIN_COMMISSION);
+    private static final long SLIPPAGE_PPM = Money.toPpm(SLIPPAGE_RATE);
+
+    private ExecutionRules() {
+    }
+
+    /**
+     * Commission on a trade amount, rounded to cents
+     */
+    public static BigDecimal commission(BigDecimal amount) {
+        BigDecimal commission = amount.multiply(COMMISSION_RATE);
+        if (commission.compareTo(MIN_COMMISSION) < 0) {
+            commission = MIN_COMMISSION;
+        }
+        return commission.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Commission on a trade amount in cents
+     */
+    public static long commissionCents(long amountCents) {
+        return Math.max(MIN_COMMISSION_CENTS, Money.applyPpm(amountCents, COMMISSION_PPM, RoundingMode.HALF_UP));
+    }
+
+    /**
+     * Fill price of a market order: the open price plus slippage against the taker, rounded to cents
+     */
+    public static BigDecimal marketPrice(Order.Side side, BigDecimal openPrice) {
+        BigDecimal slippage = openPrice.multiply(SLIPPAGE_RATE);
+        BigDecimal price = side == Order.Side.BUY ? openPrice.add(slippage) : openPrice.subtract(slippage);
+        return price.setScale(2, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Fill price of a market order in cents
+     */
+    public static long marketPriceCents(Order.Side side, long openCents) {
+        long ppm = side == Order.Side.BUY ? Money.PPM + SLIPPAGE_PPM : Money.PPM - SLIPPAGE_PPM;
+        return Money.applyPpm(openCents, ppm, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Fill price of a limit order: the limit if the day's range reaches it, otherwise null
+     */
+    public static BigDecimal limitPrice(Order.Side side, BigDecimal limitPrice, BigDecimal lowPrice,
+                                        BigDecimal highPrice) {
+        boolean reached = side == Order.Side.BUY ? lowPrice.compareTo(limitPrice) <= 0
+                                                 : highPrice.compareTo(limitPrice) >= 0;
+        return reached ? limitPrice.setScale(2, RoundingMode.HALF_UP) : null;
+    }
+
+    /**
+     * Fill price of a limit order in cents, or NO_FILL
+     */
+    public static long limitPriceCents(Order.Side side, long limitCents, long lowCents, long highCents) {
+        boolean reached = side == Order.Side.BUY ? lowCents <= limitCents : highCents >= limitCents;
+        return reached ? limitCents : NO_FILL;
+    }
+
+    /**
+     * Fill price in cents of a stop order on the bar that fired it: it becomes a market order
+     * at the price it fired at (TriggerEngine.Fired), plus slippage
+     */
+    public static long stopPriceCents(Order.Side side, long triggerCents) {
+        return marketPriceCents(side, triggerCents);
+    }
+
+    /**
+     * Fill price in cents of a stop-limit order on the bar that fired it: the fired price plus
+     * slippage, capped at the limit; if the bar opened beyond the limit, the limit when the range
+     * reaches it. Returns NO_FILL otherwise, and the order rests as a limit order.
+     */
+    public static long stopLimitPriceCents(Order.Side side, long limitCents, long triggerCents, long lowCents,
+                                           long highCents) {
+        if (side == Order.Side.BUY ? triggerCents <= limitCents : triggerCents >= limitCents) {
+            long priceCents = marketPriceCents(side, triggerCents);
+            return side == Order.Side.BUY ? Math.min(priceCents, limitCents) : Math.max(priceCents, limitCents);
+        }
+        return limitPriceCents(side, limitCents, lowCents, highCents);
+    }
+
+    /**
+     * Average cost after buying more shares, rounded to cents
+     */
+    public static long averageCostCents(long avgCostCents, int quantity, long priceCents, int addedQuantity) {
+        long totalCents = Math.addExact(Money.times(avgCostCents, quantity), Money.times(priceCents, addedQuantity));
+        return Money.divide(totalCents, (long) quantity + addedQuantity, RoundingMode.HALF_UP);
+    }
+}
@@ -0,0 +1,199 @@
+package com.savora.service;
+
+import com.savora.dao.OrderDAO;
+import com.savora.util.DatabaseConnection;
+
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes the pending orders of all accounts for a date in parallel.
+ *
+ * Work is striped by account_id over single-threaded executors: an account always maps to the
+ * same stripe, so its cash and positions are only ever updated by one thread and no lock is
+ * shared between accounts (the database row locks taken by OrderExecutor never contend).
+ * Stripes run concurrently, one pooled connection each. The daily bars of every symbol with
+ * pending orders are loaded into the shared market data cache before the stripes start, so
+ * a stripe never needs a second connection while it holds its row locks.
+ * After a run that filled anything, all positions are marked to market in one pass.
+ */
+public class ExecutionScheduler {
+    private final OrderExecutor orderExecutor;
+    private final OrderDAO orderDAO;
+    private final ExecutorService[] stripes;
+
+    public ExecutionScheduler() {
+        this(defaultStripeCount());
+    }
+
+    public ExecutionScheduler(int stripeCount) {
+        this.orderExecutor = new OrderExecutor();
+        this.orderDAO = new OrderDAO();
+        this.stripes = new ExecutorService[Math.max(1, stripeCount)];
+        for (int i = 0; i < stripes.length; i++) {
+            String name = "savora-exec-" + (i + 1);
+            ThreadPoolExecutor stripe = new ThreadPoolExecutor(1, 1, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r, name);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            stripe.allowCoreThreadTimeOut(true);
+            stripes[i] = stripe;
+        }
+    }
+
+    /**
+     * One stripe per core, leaving one pooled connection for the UI
+     */
+    private static int defaultStripeCount() {
+        int connections = DatabaseConnection.getInstance().getPoolMaxSize() - 1;
+        return Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), connections));
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * Execute the pending orders of every account for a date and wait for all of them
+     */
+    public RunResult executeAll(LocalDate date) {
+        long start = System.nanoTime();
+        List<Integer> accountIds = orderDAO.findAccountsWithPendingOrders(date);
+        orderExecutor.loadBars(orderDAO.findSymbolsWithPendingOrders(date));
+
+        Map<Integer, Future<OrderExecutor.BatchResult>> pending = new LinkedHashMap<>();
+        for (int accountId : accountIds) {
+            pending.put(accountId, submit(accountId, () -> orderExecutor.executeLoadedPendingOrders(accountId, date)));
+        }
+
+        RunResult result = new RunResult(stripes.length);
+        for (Map.Entry<Integer, Future<OrderExecutor.BatchResult>> entry : pending.entrySet()) {
+            try {
+                result.add(entry.getKey(), entry.getValue().get());
+            } catch (ExecutionException e) {
+                System.err.println("Error executing orders for account " + entry.getKey() + ": " +
+                                   e.getCause().getMessage());
+                e.getCause().printStackTrace();
+                result.failedAccounts++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                System.err.println("Order execution interrupted");
+                break;
+            }
+        }
+        result.elapsedNanos = System.nanoTime() - start;
+        System.out.println(result);
+
+        if (result.filled > 0) {
+            // Fills value positions at their fill price; bring every account back to the latest closes
+            MarkToMarketService.getInstance().markAll();
+        }
+        return result;
+    }
+
+    /**
+     * Run work for an account on the account's stripe, after any work already queued for it
+     */
+    public <T> Future<T> submit(int accountId, Callable<T> task) {
+        return stripes[Math.floorMod(accountId, stripes.length)].submit(task);
+    }
+
+    /**
+     * Stop the stripes; queued work is dropped
+     */
+    public void shutdown() {
+        for (ExecutorService stripe : stripes) {
+            stripe.shutdownNow();
+        }
+    }
+
+    /**
+     * Outcome of one executeAll run
+     */
+    public static class RunResult {
+        private final int stripeCount;
+        private final Map<Integer, OrderExecutor.BatchResult> accountResults = new LinkedHashMap<>();
+        private int orders;
+        private int filled;
+        private int rejected;
+        private int unfilled;
+        private int expired;
+        private int failedAccounts;
+        private long elapsedNanos;
+
+        private RunResult(int stripeCount) {
+            this.stripeCount = stripeCount;
+        }
+
+        private void add(int accountId, OrderExecutor.BatchResult batch) {
+            accountResults.put(accountId, batch);
+            orders += batch.getOrders();
+            filled += batch.getFilled();
+            rejected += batch.getRejected();
+            unfilled += batch.getUnfilled();
+            expired += batch.getExpired();
+            if (batch.isFailed()) {
+                failedAccounts++;
+            }
+        }
+
+        /**
+         * Per-account results, by account ID
+         */
+        public Map<Integer, OrderExecutor.BatchResult> getAccountResults() {
+            return accountResults;
+        }
+
+        public int getOrders() {
+            return orders;
+        }
+
+        public int getFilled() {
+            return filled;
+        }
+
+        public int getRejected() {
+            return rejected;
+        }
+
+        public int getUnfilled() {
+            return unfilled;
+        }
+
+        public int getExpired() {
+            return expired;
+        }
+
+        public int getFailedAccounts() {
+            return failedAccounts;
+        }
+
+        public double getElapsedMillis() {
+            return elapsedNanos / 1_000_000.0;
+        }
+
+        public double getOrdersPerSecond() {
+            return elapsedNanos > 0 ? orders * 1_000_000_000.0 / elapsedNanos : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Executed %d accounts on %d stripes: %d orders, %d filled, %d rejected, " +
+                                 "%d not filled, %d expired, %d accounts failed in %.1f ms (%.0f orders/s)",
+                                 accountResults.size(), stripeCount, orders, filled, rejected, unfilled, expired,
+                                 failedAccounts, getElapsedMillis(), getOrdersPerSecond());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.savora.service;
+
+import com.savora.dao.MarketDataDAO;
+import com.savora.dao.PositionDAO;
+import com.savora.model.Money;
+import com.savora.model.Position;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Revalues positions at the latest close of their symbol.
+ *
+ * A mark reads the positions in one query and the latest closes in at most one more (cached
+ * price histories are used directly), recomputes current_value and unrealized_pnl in cents
+ * and writes only the positions whose values changed, in one batched update. Listeners are
+ * then told which positions changed, so a view can patch those rows instead of reloading.
+ */
+public class MarkToMarketService {
+    private static final MarkToMarketService INSTANCE = new MarkToMarketService();
+
+    private final PositionDAO positionDAO;
+    private final MarketDataDAO marketDataDAO;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private MarkToMarketService() {
+        this.positionDAO = new PositionDAO();
+        this.marketDataDAO = new MarketDataDAO();
+    }
+
+    public static MarkToMarketService getInstance() {
+        return INSTANCE;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Revalue the open positions of every account; returns the changes written
+     */
+    public List<Change> markAll() {
+        long start = System.nanoTime();
+        List<Position> positions = positionDAO.findAllOpen();
+        List<Change> changes = mark(positions);
+        System.out.printf("Marked %d positions to market: %d changed in %.1f ms%n", positions.size(),
+                          changes.size(), (System.nanoTime() - start) / 1_000_000.0);
+        return changes;
+    }
+
+    /**
+     * Revalue one account's open positions; returns all of them (with symbol details) at their new values
+     */
+    public List<Position> markAccount(int accountId) {
+        List<Position> positions = positionDAO.findByAccount(accountId);
+        mark(positions);
+        return positions;
+    }
+
+    private List<Change> mark(List<Position> positions) {
+        if (positions.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Set<Integer> symbolIds = new TreeSet<>();
+        for (Position position : positions) {
+            symbolIds.add(position.getSymbolId());
+        }
+        Map<Integer, Long> closes = marketDataDAO.findLatestCloses(symbolIds);
+
+        List<Position> changed = new ArrayList<>();
+        List<Change> changes = new ArrayList<>();
+        for (Position position : positions) {
+            Long close = closes.get(position.getSymbolId());
+            if (close == null) {
+                continue;
+            }
+            long value = Money.times(close, position.getQuantity());
+            long pnl = value - Money.times(Money.toCents(position.getAvgCost()), position.getQuantity());
+            if (position.getCurrentValue() != null && position.getUnrealizedPnl() != null &&
+                Money.toCents(position.getCurrentValue()) == value && Money.toCents(position.getUnrealizedPnl()) == pnl) {
+                continue;
+            }
+            position.setCurrentValue(Money.toBigDecimal(value));
+            position.setUnrealizedPnl(Money.toBigDecimal(pnl));
+            changed.add(position);
+            changes.add(new Change(position, close));
+        }
+
+        boolean[] updated = positionDAO.updateValuesBatch(changed);
+        if (updated == null) {
+            return Collections.emptyList();
+        }
+        List<Change> written = new ArrayList<>(changes.size());
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i]) {
+                written.add(changes.get(i));
+            }
+        }
+        if (!written.isEmpty()) {
+            List<Change> event = Collections.unmodifiableList(written);
+            for (Listener listener : listeners) {
+                listener.positionsRevalued(event);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Notified after a mark writes new values. Called on the marking thread, so Swing
+     * listeners must hand the change over to the event dispatch thread.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void positionsRevalued(List<Change> changes);
+    }
+
+    /**
+     * The new value of one position
+     */
+    public static final class Change {
+        private final Position position;
+        private final long priceCents;
+
+        private Change(Position position, long priceCents) {
+            this.position = position;
+            this.priceCents = priceCents;
+        }
+
+        public Position getPosition() {
+            return position;
+        }
+
+        public int getAccountId() {
+            return position.getAccountId();
+        }
+
+        public int getSymbolId() {
+            return position.getSymbolId();
+        }
+
+        /**
+         * Close the position was valued at
+         */
+        public long getPriceCents() {
+            return priceCents;
+        }
+
+        public long getValueCents() {
+            return Money.toCents(position.getCurrentValue());
+        }
+
+        public long getUnrealizedPnlCents() {
+            return Money.toCents(position.getUnrealizedPnl());
+        }
+    }
+}
@@ -0,0 +1,405 @@
+package com.savora.service;
+
+import com.savora.dao.AccountDAO;
+import com.savora.dao.AccountEventDAO;
+import com.savora.dao.OrderDAO;
+import com.savora.dao.PositionDAO;
+import com.savora.dao.TradeDAO;
+import com.savora.model.AccountEvent;
+import com.savora.model.Money;
+import com.savora.model.Order;
+import com.savora.model.Position;
+import com.savora.model.PriceSeries;
+import com.savora.model.SimulatedAccount;
+import com.savora.model.Trade;
+import com.savora.util.DatabaseConnection;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Matches orders of all accounts against each other in in-memory order books, one per symbol.
+ *
+ * Orders are saved first as book orders (Order.setBookManaged, then OrderExecutor.placeOrder)
+ * and then submitted here; OrderExecutor never fills book orders against daily bars. Matching
+ * is done in memory, so there is no database scan per resting order. The fills of one
+ * submission are written in one transaction, which first locks the orders and checks that they
+ * are still PENDING with the quantity left, then locks the accounts and positions and settles
+ * the fills in order: a trade for each side, order fill progress (partial fills leave the order
+ * PENDING with filled_quantity set), account cash, positions and ledger events. If a buyer
+ * cannot pay for a fill or a seller does not hold the shares, nothing is written, that order is
+ * REJECTED and the book is rebuilt from the database without it. The unfilled remainder of a
+ * MARKET or IOC order is cancelled, as are resting orders of the same account that an order
+ * would have traded with, so an account never trades with itself. Stop orders are not matched
+ * here; OrderExecutor triggers them.
+ */
+public class MatchingEngine {
+    private final Map<Integer, OrderBook> books = new ConcurrentHashMap<>();
+    private final Map<Long, Order> openOrders = new ConcurrentHashMap<>();
+    private final OrderDAO orderDAO;
+    private final TradeDAO tradeDAO;
+    private final PositionDAO positionDAO;
+    private final AccountDAO accountDAO;
+    private final AccountEventDAO eventDAO;
+    private final DatabaseConnection dbConnection;
+
+    public MatchingEngine() {
+        this.orderDAO = new OrderDAO();
+        this.tradeDAO = new TradeDAO();
+        this.positionDAO = new PositionDAO();
+        this.accountDAO = new AccountDAO();
+        this.eventDAO = new AccountEventDAO();
+        this.dbConnection = DatabaseConnection.getInstance();
+    }
+
+    /**
+     * Rebuild all books from the pending book orders in the database, replayed in time priority.
+     * Returns the number of orders loaded.
+     */
+    public int loadOpenOrders(LocalDate date) {
+        Map<Integer, List<Order>> bySymbol = new LinkedHashMap<>();
+        List<Order> orders = orderDAO.findOpenBookOrders();
+        for (Order order : orders) {
+            bySymbol.computeIfAbsent(order.getSymbolId(), id -> new ArrayList<>()).add(order);
+        }
+
+        books.clear();
+        openOrders.clear();
+        for (Map.Entry<Integer, List<Order>> entry : bySymbol.entrySet()) {
+            OrderBook book = books.computeIfAbsent(entry.getKey(), OrderBook::new);
+            synchronized (book) {
+                replay(book, entry.getValue(), date, 0);
+            }
+        }
+        System.out.println("Order books loaded: " + orders.size() + " open orders in " + books.size() + " symbols");
+        return orders.size();
+    }
+
+    /**
+     * Match a saved book order against its symbol's book and write the resulting fills.
+     * Returns the fills written for the order, or an empty list if nothing matched or writing failed.
+     */
+    public List<OrderBook.Fill> submit(Order order, LocalDate date) {
+        if (order.getOrderType().isStop()) {
+            throw new IllegalArgumentException("Stop orders are not matched in order books: " + order.getOrderId());
+        }
+        if (!order.isBookManaged()) {
+            throw new IllegalArgumentException("Not an order book order: " + order.getOrderId());
+        }
+        OrderBook book = books.computeIfAbsent(order.getSymbolId(), OrderBook::new);
+        synchronized (book) {
+            try {
+                return match(book, order, date);
+            } catch (UncoveredFillException e) {
+                reject(e.order, e.getMessage(), date);
+            } catch (SQLException e) {
+                System.err.println("Error matching order " + order.getOrderId() + ": " + e.getMessage());
+                e.printStackTrace();
+            }
+            // Nothing was written, but the book already moved on; rebuild it from the database
+            return replay(book, orderDAO.findOpenBookOrders(order.getSymbolId()), date, order.getOrderId());
+        }
+    }
+
+    /**
+     * Cancel a resting order; returns false if it is not in a book or could not be updated
+     */
+    public boolean cancel(Order order, LocalDate date) {
+        OrderBook book = books.get(order.getSymbolId());
+        if (book == null) {
+            return false;
+        }
+        synchronized (book) {
+            if (!book.cancel(order.getOrderId())) {
+                return false;
+            }
+            Order open = openOrders.remove(order.getOrderId());
+            Order current = open != null ? open : order;
+            try {
+                return dbConnection.inTransaction(conn -> {
+                    if (orderDAO.findStatusForUpdate(conn, current.getOrderId()) != Order.Status.PENDING) {
+                        return false;
+                    }
+                    orderDAO.updateOrderFilled(conn, current.getOrderId(), Order.Status.CANCELLED,
+                                               current.getFilledQuantity(), current.getFilledPrice(), date);
+                    eventDAO.append(conn, AccountEvent.orderCancelled(current, date));
+                    return true;
+                });
+            } catch (SQLException e) {
+                System.err.println("Error cancelling order " + current.getOrderId() + ": " + e.getMessage());
+                e.printStackTrace();
+                replay(book, orderDAO.findOpenBookOrders(order.getSymbolId()), date, 0);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Get the book of a symbol, or null if it has none; synchronize on it while reading it
+     */
+    public OrderBook getBook(int symbolId) {
+        return books.get(symbolId);
+    }
+
+    /**
+     * Clear the book and resubmit orders oldest first; any crossing orders are matched and written.
+     * When a fill cannot be settled, the order at fault is rejected and the book's pending orders
+     * are replayed again from the database. Returns the fills written for orderId.
+     */
+    private List<OrderBook.Fill> replay(OrderBook book, List<Order> orders, LocalDate date, long orderId) {
+        List<OrderBook.Fill> orderFills = new ArrayList<>();
+        Set<Long> rejected = new HashSet<>();
+        boolean restart = true;
+        while (restart) {
+            restart = false;
+            openOrders.values().removeIf(open -> open.getSymbolId() == book.getSymbolId());
+            book.clear();
+            for (Order order : orders) {
+                if (rejected.contains(order.getOrderId())) {
+                    continue;
+                }
+                try {
+                    for (OrderBook.Fill fill : match(book, order, date)) {
+                        if (fill.getTakerOrderId() == orderId || fill.getMakerOrderId() == orderId) {
+                            orderFills.add(fill);
+                        }
+                    }
+                } catch (UncoveredFillException e) {
+                    // Skipped from now on even if rejecting it fails, so the replay ends
+                    rejected.add(e.order.getOrderId());
+                    reject(e.order, e.getMessage(), date);
+                    orders = orderDAO.findOpenBookOrders(book.getSymbolId());
+                    restart = true;
+                    break;
+                } catch (SQLException e) {
+                    System.err.println("Error replaying order " + order.getOrderId() + ": " + e.getMessage());
+                    e.printStackTrace();
+                    book.cancel(order.getOrderId());
+                    openOrders.remove(order.getOrderId());
+                }
+            }
+        }
+        return orderFills;
+    }
+
+    /**
+     * Mark an order REJECTED in its own transaction, unless it is no longer pending
+     */
+    private void reject(Order order, String reason, LocalDate date) {
+        openOrders.remove(order.getOrderId());
+        try {
+            boolean rejected = dbConnection.inTransaction(conn -> {
+                if (orderDAO.findStatusForUpdate(conn, order.getOrderId()) != Order.Status.PENDING) {
+                    return false;
+                }
+                orderDAO.updateOrderFilled(conn, order.getOrderId(), Order.Status.REJECTED,
+                                           order.getFilledQuantity(), order.getFilledPrice(), date);
+                eventDAO.append(conn, AccountEvent.orderRejected(order, date));
+                return true;
+            });
+            if (rejected) {
+                System.err.println("Rejected order " + order.getOrderId() + ": " + reason);
+            }
+        } catch (SQLException e) {
+            System.err.println("Error rejecting order " + order.getOrderId() + ": " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    private List<OrderBook.Fill> match(OrderBook book, Order order, LocalDate date) throws SQLException {
+        int quantity = order.getRemainingQuantity();
+        if (quantity <= 0) {
+            return Collections.emptyList();
+        }
+        boolean market = order.getOrderType() == Order.OrderType.MARKET;
+        long limitCents = market ? OrderBook.MARKET_PRICE : PriceSeries.toCents(order.getLimitPrice());
+
+        openOrders.put(order.getOrderId(), order);
+        List<OrderBook.Fill> fills = book.submit(order.getOrderId(), order.getAccountId(), order.getSide(),
+                                                 limitCents, quantity);
+        List<Long> selfTradeCancels = book.getSelfTradeCancels();
+        boolean immediate = market || order.getTimeInForce() == Order.TimeInForce.IOC;
+        boolean cancelRemainder = immediate && fills.stream().mapToInt(OrderBook.Fill::getQuantity).sum() < quantity;
+        if (cancelRemainder && !market) {
+            book.cancel(order.getOrderId());
+        }
+        if (!fills.isEmpty() || cancelRemainder || !selfTradeCancels.isEmpty()) {
+            Map<Long, Order> written = dbConnection.inTransaction(conn ->
+                persistFills(conn, book.getSymbolId(), order, fills, selfTradeCancels, cancelRemainder, date));
+
+            // Committed: track the orders as written
+            for (Order updated : written.values()) {
+                Order open = openOrders.get(updated.getOrderId());
+                if (open != null) {
+                    open.setStatus(updated.getStatus());
+                    open.setFilledQuantity(updated.getFilledQuantity());
+                    open.setFilledPrice(updated.getFilledPrice());
+                    open.setFilledDate(updated.getFilledDate());
+                }
+            }
+        }
+
+        // Forget orders that are done
+        for (long cancelled : selfTradeCancels) {
+            openOrders.remove(cancelled);
+        }
+        for (OrderBook.Fill fill : fills) {
+            if (book.getRestingQuantity(fill.getMakerOrderId()) == 0) {
+                openOrders.remove(fill.getMakerOrderId());
+            }
+        }
+        if (book.getRestingQuantity(order.getOrderId()) == 0) {
+            openOrders.remove(order.getOrderId());
+        }
+        return fills;
+    }
+
+    /**
+     * Write the fills of one submission, and the resting orders of the taker's account it
+     * cancelled, on the transaction's connection; returns the written orders by ID. Throws
+     * UncoveredFillException if a fill cannot be settled, and SQLException if an order is no
+     * longer open for its fills; the caller rolls back.
+     */
+    private Map<Long, Order> persistFills(Connection conn, int symbolId, Order taker, List<OrderBook.Fill> fills,
+                                          List<Long> selfTradeCancels, boolean cancelRemainder, LocalDate date)
+            throws SQLException {
+        // Lock the orders, in ID order, and check each is still open for what the book filled
+        Map<Long, Integer> fillQuantities = new TreeMap<>();
+        fillQuantities.put(taker.getOrderId(), 0);
+        for (long cancelled : selfTradeCancels) {
+            fillQuantities.put(cancelled, 0);
+        }
+        for (OrderBook.Fill fill : fills) {
+            fillQuantities.merge(fill.getMakerOrderId(), fill.getQuantity(), Integer::sum);
+            fillQuantities.merge(taker.getOrderId(), fill.getQuantity(), Integer::sum);
+        }
+        Map<Long, Order> orders = orderDAO.findByIdsForUpdate(conn, fillQuantities.keySet());
+        for (Map.Entry<Long, Integer> entry : fillQuantities.entrySet()) {
+            Order order = orders.get(entry.getKey());
+            if (order == null || !order.isBookManaged() || order.getStatus() != Order.Status.PENDING ||
+                order.getRemainingQuantity() < entry.getValue()) {
+                throw new SQLException("Order " + entry.getKey() + " is no longer open for " + entry.getValue() +
+                                       " shares");
+            }
+        }
+
+        // Same lock order as OrderExecutor: orders, then accounts, then positions
+        Set<Integer> accountIds = new TreeSet<>();
+        for (Order order : orders.values()) {
+            accountIds.add(order.getAccountId());
+        }
+        Map<Integer, Long> cash = new HashMap<>(); // cents
+        Map<Integer, Position> positions = new HashMap<>();
+        for (int accountId : accountIds) {
+            SimulatedAccount account = accountDAO.findByIdForUpdate(conn, accountId);
+            if (account == null) {
+                throw new SQLException("Account not found: " + accountId);
+            }
+            cash.put(accountId, Money.toCents(account.getCurrentCash()));
+        }
+        for (int accountId : accountIds) {
+            positions.put(accountId, positionDAO.findByAccountAndSymbolForUpdate(conn, accountId, symbolId));
+        }
+
+        List<AccountEvent> events = new ArrayList<>();
+        for (long cancelled : selfTradeCancels) {
+            Order order = orders.get(cancelled);
+            order.setStatus(Order.Status.CANCELLED);
+            order.setFilledDate(date);
+            events.add(AccountEvent.orderCancelled(order, date));
+        }
+
+        // Settle the fills in order, against the running cash and shares of each account
+        Order takerRow = orders.get(taker.getOrderId());
+        List<Trade> trades = new ArrayList<>();
+        for (OrderBook.Fill fill : fills) {
+            BigDecimal price = Money.toBigDecimal(fill.getPriceCents());
+            long subtotal = Money.times(fill.getPriceCents(), fill.getQuantity());
+            long commission = ExecutionRules.commissionCents(subtotal);
+            Order maker = orders.get(fill.getMakerOrderId());
+            Order buyer = maker.getSide() == Order.Side.BUY ? maker : takerRow;
+            Order seller = buyer == maker ? takerRow : maker;
+
+            long buyerCash = cash.get(buyer.getAccountId()) - (subtotal + commission);
+            if (buyerCash < 0) {
+                throw new UncoveredFillException(buyer, "insufficient cash for " + fill.getQuantity() +
+                                                 " shares at $" + price);
+            }
+            Position held = positions.get(seller.getAccountId());
+            if (held == null || held.getQuantity() < fill.getQuantity()) {
+                throw new UncoveredFillException(seller, "insufficient shares: need " + fill.getQuantity() +
+                                                 ", have " + (held != null ? held.getQuantity() : 0));
+            }
+            cash.put(buyer.getAccountId(), buyerCash);
+            cash.merge(seller.getAccountId(), subtotal - commission, Long::sum);
+
+            for (Order order : new Order[] {maker, takerRow}) {
+                int accountId = order.getAccountId();
+                Trade trade = new Trade(order.getOrderId(), accountId, symbolId, order.getSide(),
+                                        fill.getQuantity(), price, Money.toBigDecimal(commission), date);
+                trades.add(trade);
+                positions.put(accountId, OrderExecutor.applyFill(positions.get(accountId), accountId, symbolId,
+                                                                 order.getSide(), fill.getQuantity(), price));
+                order.addFill(fill.getQuantity(), price);
+                order.setFilledDate(date);
+            }
+        }
+        if (cancelRemainder) {
+            takerRow.setStatus(Order.Status.CANCELLED);
+            takerRow.setFilledDate(date);
+        }
+
+        orderDAO.updateOrdersFilledBatch(conn, new ArrayList<>(orders.values()));
+
+        if (!trades.isEmpty()) {
+            for (int accountId : accountIds) {
+                accountDAO.updateCash(conn, accountId, Money.toBigDecimal(cash.get(accountId)));
+            }
+            List<Position> changed = new ArrayList<>();
+            for (int accountId : accountIds) {
+                changed.add(positions.get(accountId));
+            }
+            positionDAO.upsertBatch(conn, changed);
+            for (Position position : changed) {
+                if (position.getQuantity() == 0) {
+                    positionDAO.deleteIfEmpty(conn, position.getAccountId(), symbolId);
+                }
+            }
+            tradeDAO.createBatch(conn, trades);
+        }
+
+        for (Trade trade : trades) {
+            events.add(AccountEvent.orderFilled(trade));
+        }
+        if (cancelRemainder) {
+            events.add(AccountEvent.orderCancelled(takerRow, date));
+        }
+        eventDAO.appendBatch(conn, events);
+        return orders;
+    }
+
+    /**
+     * A fill the buyer cannot pay for or the seller cannot deliver; order is the one at fault
+     */
+    private static final class UncoveredFillException extends SQLException {
+        private final Order order;
+
+        private UncoveredFillException(Order order, String message) {
+            super(message);
+            this.order = order;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.savora.service;
+
+import com.savora.model.PriceSeries;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Holds a symbol while its fast moving average of closes is above its slow one.
+ *
+ * Each symbol gets an equal share of the starting equity. Averages are kept as running sums,
+ * so a day costs O(symbols) whatever the window lengths.
+ */
+public class MovingAverageCrossStrategy implements Backtester.Strategy {
+    private final int fastWindow;
+    private final int slowWindow;
+    private long[] fastSums;
+    private long[] slowSums;
+    private long budgetCents;
+
+    public MovingAverageCrossStrategy(int fastWindow, int slowWindow) {
+        if (fastWindow <= 0 || slowWindow <= fastWindow) {
+            throw new IllegalArgumentException("Need 0 < fast < slow: " + fastWindow + ", " + slowWindow);
+        }
+        this.fastWindow = fastWindow;
+        this.slowWindow = slowWindow;
+    }
+
+    public MovingAverageCrossStrategy(Windows windows) {
+        this(windows.fast, windows.slow);
+    }
+
+    /**
+     * Every valid pair of fast and slow windows, for a ParameterSweep
+     */
+    public static List<Windows> grid(int[] fastWindows, int[] slowWindows) {
+        List<Windows> grid = new ArrayList<>();
+        for (int fast : fastWindows) {
+            for (int slow : slowWindows) {
+                if (fast > 0 && slow > fast) {
+                    grid.add(new Windows(fast, slow));
+                }
+            }
+        }
+        return grid;
+    }
+
+    public int getFastWindow() {
+        return fastWindow;
+    }
+
+    public int getSlowWindow() {
+        return slowWindow;
+    }
+
+    @Override
+    public void onDay(Backtester.Context context) {
+        int symbols = context.getSymbolCount();
+        if (fastSums == null) {
+            fastSums = new long[symbols];
+            slowSums = new long[symbols];
+            budgetCents = context.getCashCents() / Math.max(1, symbols);
+        }
+
+        for (int symbol = 0; symbol < symbols; symbol++) {
+            if (!context.hasBar(symbol)) {
+                continue;
+            }
+            PriceSeries series = context.getSeries(symbol);
+            int index = context.getBarIndex(symbol);
+            long close = series.getCloseCents(index);
+            fastSums[symbol] += close;
+            slowSums[symbol] += close;
+            if (index >= fastWindow) {
+                fastSums[symbol] -= series.getCloseCents(index - fastWindow);
+            }
+            if (index >= slowWindow) {
+                slowSums[symbol] -= series.getCloseCents(index - slowWindow);
+            }
+            if (index + 1 < slowWindow) {
+                continue;
+            }
+
+            // Compare fast/fastWindow with slow/slowWindow without dividing
+            boolean bullish = fastSums[symbol] * slowWindow > slowSums[symbol] * fastWindow;
+            int held = context.getQuantity(symbol);
+            if (bullish && held == 0) {
+                long shares = budgetCents * 99 / 100 / close; // leave room for slippage and commission
+                if (shares > 0) {
+                    context.buy(symbol, (int) Math.min(shares, Integer.MAX_VALUE));
+                }
+            } else if (!bullish && held > 0) {
+                context.sell(symbol, held);
+            }
+        }
+    }
+
+    /**
+     * Fast and slow window lengths, in bars
+     */
+    public static final class Windows {
+        private final int fast;
+        private final int slow;
+
+        public Windows(int fast, int slow) {
+            this.fast = fast;
+            this.slow = slow;
+        }
+
+        public int getFast() {
+            return fast;
+        }
+
+        public int getSlow() {
+            return slow;
+        }
+
+        @Override
+        public String toString() {
+            return fast + "/" + slow;
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.savora.service;
+
+import com.savora.model.Order;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory limit order book for one symbol with price-time priority.
+ *
+ * Each side keeps its price levels in a sorted primitive long[] (prices in cents) with the
+ * best level last, so finding a level is a binary search and consuming the best level is O(1).
+ * A level holds its orders in a FIFO doubly linked list; orders are also indexed by ID, so a
+ * cancel unlinks in O(1). Opening or closing a level other than the best shifts the array,
+ * which is cheap for the few hundred levels a simulated book has. Orders of one account never
+ * trade with each other: an incoming order cancels the account's resting orders it would match.
+ *
+ * Not thread-safe; MatchingEngine serializes access per book.
+ */
+public class OrderBook {
+    /**
+     * Limit price of a market order: matches any price and never rests
+     */
+    public static final long MARKET_PRICE = -1L;
+
+    private final int symbolId;
+    private final BookSide bids = new BookSide(true);
+    private final BookSide asks = new BookSide(false);
+    private final Map<Long, RestingOrder> restingOrders = new HashMap<>();
+    private final List<Long> selfTradeCancels = new ArrayList<>();
+
+    public OrderBook(int symbolId) {
+        this.symbolId = symbolId;
+    }
+
+    public int getSymbolId() {
+        return symbolId;
+    }
+
+    /**
+     * Match an incoming order against the opposite side, best price first and oldest order
+     * first within a price. Fills execute at the resting order's price; a resting order of the
+     * same account is cancelled instead (see {@link #getSelfTradeCancels()}). Any remainder of a
+     * limit order rests in the book; the remainder of a market order is dropped.
+     */
+    public List<Fill> submit(long orderId, int accountId, Order.Side side, long limitCents, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+        }
+        if (restingOrders.containsKey(orderId)) {
+            throw new IllegalArgumentException("Order already in book: " + orderId);
+        }
+        boolean market = limitCents == MARKET_PRICE;
+        BookSide opposite = side == Order.Side.BUY ? asks : bids;
+        List<Fill> fills = new ArrayList<>();
+        selfTradeCancels.clear();
+        int remaining = quantity;
+
+        while (remaining > 0) {
+            Level level = opposite.best();
+            if (level == null || !(market || crosses(side, limitCents, level.priceCents))) {
+                break;
+            }
+            while (remaining > 0 && level.head != null) {
+                RestingOrder maker = level.head;
+                if (maker.accountId == accountId) {
+                    // Self-trade prevention: the resting order is cancelled, not filled
+                    level.unlink(maker);
+                    level.quantity -= maker.remaining;
+                    restingOrders.remove(maker.orderId);
+                    selfTradeCancels.add(maker.orderId);
+                    continue;
+                }
+                int quantityFilled = Math.min(remaining, maker.remaining);
+                fills.add(new Fill(maker.orderId, maker.accountId, orderId, accountId, side,
+                                   level.priceCents, quantityFilled));
+                remaining -= quantityFilled;
+                maker.remaining -= quantityFilled;
+                level.quantity -= quantityFilled;
+                if (maker.remaining == 0) {
+                    level.unlink(maker);
+                    restingOrders.remove(maker.orderId);
+                }
+            }
+            if (level.head == null) {
+                opposite.removeBest();
+            }
+        }
+
+        if (remaining > 0 && !market) {
+            BookSide own = side == Order.Side.BUY ? bids : asks;
+            RestingOrder order = new RestingOrder(orderId, accountId, side, remaining);
+            own.levelFor(limitCents).append(order);
+            restingOrders.put(orderId, order);
+        }
+        return fills;
+    }
+
+    /**
+     * IDs of the resting orders the last submit cancelled because they belonged to the incoming
+     * order's account and would have traded with it, oldest first
+     */
+    public List<Long> getSelfTradeCancels() {
+        return new ArrayList<>(selfTradeCancels);
+    }
+
+    /**
+     * Remove a resting order; returns false if it is not in the book
+     */
+    public boolean cancel(long orderId) {
+        RestingOrder order = restingOrders.remove(orderId);
+        if (order == null) {
+            return false;
+        }
+        Level level = order.level;
+        level.unlink(order);
+        level.quantity -= order.remaining;
+        if (level.head == null) {
+            (order.side == Order.Side.BUY ? bids : asks).remove(level);
+        }
+        return true;
+    }
+
+    /**
+     * Remove all orders
+     */
+    public void clear() {
+        bids.clear();
+        asks.clear();
+        restingOrders.clear();
+    }
+
+    /**
+     * Best bid in cents, or -1 if there are no bids
+     */
+    public long getBestBidCents() {
+        Level best = bids.best();
+        return best != null ? best.priceCents : -1L;
+    }
+
+    /**
+     * Best ask in cents, or -1 if there are no asks
+     */
+    public long getBestAskCents() {
+        Level best = asks.best();
+        return best != null ? best.priceCents : -1L;
+    }
+
+    /**
+     * Unfilled quantity of a resting order, or 0 if it is not in the book
+     */
+    public int getRestingQuantity(long orderId) {
+        RestingOrder order = restingOrders.get(orderId);
+        return order != null ? order.remaining : 0;
+    }
+
+    /**
+     * Total resting quantity at a price on one side
+     */
+    public long getQuantityAt(Order.Side side, long priceCents) {
+        Level level = (side == Order.Side.BUY ? bids : asks).find(priceCents);
+        return level != null ? level.quantity : 0L;
+    }
+
+    public int getLevelCount(Order.Side side) {
+        return (side == Order.Side.BUY ? bids : asks).size;
+    }
+
+    public int getOrderCount() {
+        return restingOrders.size();
+    }
+
+    private static boolean crosses(Order.Side side, long limitCents, long levelCents) {
+        return side == Order.Side.BUY ? levelCents <= limitCents : levelCents >= limitCents;
+    }
+
+    /**
+     * A trade between a resting (maker) order and an incoming (taker) order
+     */
+    public static final class Fill {
+        private final long makerOrderId;
+        private final int makerAccountId;
+        private final long takerOrderId;
+        private final int takerAccountId;
+        private final Order.Side takerSide;
+        private final long priceCents;
+        private final int quantity;
+
+        Fill(long makerOrderId, int makerAccountId, long takerOrderId, int takerAccountId,
+             Order.Side takerSide, long priceCents, int quantity) {
+            this.makerOrderId = makerOrderId;
+            this.makerAccountId = makerAccountId;
+            this.takerOrderId = takerOrderId;
+            this.takerAccountId = takerAccountId;
+            this.takerSide = takerSide;
+            this.priceCents = priceCents;
+            this.quantity = quantity;
+        }
+
+        public long getMakerOrderId() {
+            return makerOrderId;
+        }
+
+        public int getMakerAccountId() {
+            return makerAccountId;
+        }
+
+        public long getTakerOrderId() {
+            return takerOrderId;
+        }
+
+        public int getTakerAccountId() {
+            return takerAccountId;
+        }
+
+        public Order.Side getTakerSide() {
+            return takerSide;
+        }
+
+        public Order.Side getMakerSide() {
+            return takerSide == Order.Side.BUY ? Order.Side.SELL : Order.Side.BUY;
+        }
+
+        public long getPriceCents() {
+            return priceCents;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        @Override
+        public String toString() {
+            return "Fill " + quantity + " @ " + priceCents + "c (maker " + makerOrderId + ", taker " + takerOrderId + ")";
+        }
+    }
+
+    private static final class RestingOrder {
+        private final long orderId;
+        private final int accountId;
+        private final Order.Side side;
+        private int remaining;
+        private Level level;
+        private RestingOrder prev;
+        private RestingOrder next;
+
+        private RestingOrder(long orderId, int accountId, Order.Side side, int remaining) {
+            this.orderId = orderId;
+            this.accountId = accountId;
+            this.side = side;
+            this.remaining = remaining;
+        }
+    }
+
+    /**
+     * Orders at one price, oldest first
+     */
+    private static final class Level {
+        private final long priceCents;
+        private RestingOrder head;
+        private RestingOrder tail;
+        private long quantity;
+
+        private Level(long priceCents) {
+            this.priceCents = priceCents;
+        }
+
+        private void append(RestingOrder order) {
+            order.level = this;
+            order.prev = tail;
+            if (tail != null) {
+                tail.next = order;
+            } else {
+                head = order;
+            }
+            tail = order;
+            quantity += order.remaining;
+        }
+
+        private void unlink(RestingOrder order) {
+            if (order.prev != null) {
+                order.prev.next = order.next;
+            } else {
+                head = order.next;
+            }
+            if (order.next != null) {
+                order.next.prev = order.prev;
+            } else {
+                tail = order.prev;
+            }
+            order.prev = null;
+            order.next = null;
+        }
+    }
+
+    /**
+     * Price levels of one side, sorted so the best level is last: bids by ascending price,
+     * asks by descending price (stored as negated keys, so keys are always ascending)
+     */
+    private static final class BookSide {
+        private final boolean bid;
+        private long[] keys = new long[16];
+        private Level[] levels = new Level[16];
+        private int size;
+
+        private BookSide(boolean bid) {
+            this.bid = bid;
+        }
+
+        private long keyOf(long priceCents) {
+            return bid ? priceCents : -priceCents;
+        }
+
+        private void clear() {
+            Arrays.fill(levels, 0, size, null);
+            size = 0;
+        }
+
+        private Level best() {
+            return size > 0 ? levels[size - 1] : null;
+        }
+
+        private void removeBest() {
+            levels[--size] = null;
+        }
+
+        private Level find(long priceCents) {
+            int index = Arrays.binarySearch(keys, 0, size, keyOf(priceCents));
+            return index >= 0 ? levels[index] : null;
+        }
+
+        private Level levelFor(long priceCents) {
+            long key = keyOf(priceCents);
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            if (index >= 0) {
+                return levels[index];
+            }
+            index = -index - 1;
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                levels = Arrays.copyOf(levels, size * 2);
+            }
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            System.arraycopy(levels, index, levels, index + 1, size - index);
+            Level level = new Level(priceCents);
+            keys[index] = key;
+            levels[index] = level;
+            size++;
+            return level;
+        }
+
+        private void remove(Level level) {
+            int index = Arrays.binarySearch(keys, 0, size, keyOf(level.priceCents));
+            if (index < 0) {
+                return;
+            }
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(levels, index + 1, levels, index, size - index - 1);
+            levels[--size] = null;
+        }
+    }
+}
@@ -2,15 +2,23 @@ package com.savora.service;
 
 import com.savora.dao.*;
 import com.savora.model.*;
+import com.savora.util.DatabaseConnection;
 
 import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service to execute stock orders against market data
- * Handles MARKET and LIMIT orders with realistic execution rules
+ * Handles MARKET, LIMIT and stop orders with realistic execution rules; stops are
+ * evaluated per bar by a TriggerEngine
  */
 public class OrderExecutor {
     private final OrderDAO orderDAO;
@@ -18,10 +26,8 @@ public class OrderExecutor {
     private final PositionDAO positionDAO;
     private final AccountDAO accountDAO;
     private final MarketDataDAO marketDataDAO;
-    
-    private static final BigDecimal COMMISSION_RATE = new BigDecimal("0.001"); // 0.1% commission
-    private static final BigDecimal MIN_COMMISSION = new BigDecimal("1.00"); // $1 minimum
-    private static final BigDecimal SLIPPAGE_RATE = new BigDecimal("0.0005"); // 0.05% slippage
+    private final AccountEventDAO eventDAO;
+    private final DatabaseConnection dbConnection;
     
     public OrderExecutor() {
         this.orderDAO = new OrderDAO();
@@ -29,6 +35,8 @@ public class OrderExecutor {
         this.positionDAO = new PositionDAO();
         this.accountDAO = new AccountDAO();
         this.marketDataDAO = new MarketDataDAO();
+        this.eventDAO = new AccountEventDAO();
+        this.dbConnection = DatabaseConnection.getInstance();
     }
     
     /**
@@ -40,6 +48,21 @@ public class OrderExecutor {
             System.err.println("Invalid quantity: " + order.getQuantity());
             return false;
         }
+        if (!hasValidPrices(order)) {
+            return false;
+        }
+        
+        // A trailing stop starts at its trail from the latest close
+        if (order.getOrderType() == Order.OrderType.TRAILING_STOP && order.getStopPrice() == null) {
+            MarketData latestData = marketDataDAO.findLatestBySymbol(order.getSymbolId());
+            if (latestData == null) {
+                System.err.println("No market data available for symbol ID: " + order.getSymbolId());
+                return false;
+            }
+            order.setStopPrice(order.getSide() == Order.Side.SELL
+                               ? latestData.getClosePrice().subtract(order.getTrailAmount())
+                               : latestData.getClosePrice().add(order.getTrailAmount()));
+        }
         
         // Check if we have enough cash for BUY orders (rough estimate)
         if (order.getSide() == Order.Side.BUY) {
@@ -56,8 +79,7 @@ public class OrderExecutor {
                 return false;
             }
             
-            BigDecimal estimatedPrice = order.getOrderType() == Order.OrderType.LIMIT ? 
-                                        order.getLimitPrice() : latestData.getClosePrice();
+            BigDecimal estimatedPrice = estimatedPrice(order, latestData.getClosePrice());
             BigDecimal estimatedCost = estimatedPrice.multiply(new BigDecimal(order.getQuantity()));
             BigDecimal estimatedCommission = calculateCommission(estimatedCost);
             BigDecimal totalCost = estimatedCost.add(estimatedCommission);
@@ -78,104 +100,420 @@ public class OrderExecutor {
             }
         }
         
-        // Save order
-        return orderDAO.create(order);
+        // Save order and record it in the account ledger
+        try {
+            return dbConnection.inTransaction(conn -> {
+                if (!orderDAO.create(conn, order)) {
+                    return false;
+                }
+                eventDAO.append(conn, AccountEvent.orderPlaced(order));
+                return true;
+            });
+        } catch (SQLException e) {
+            System.err.println("Error placing order: " + e.getMessage());
+            e.printStackTrace();
+        }
+        return false;
     }
     
     /**
-     * Execute pending orders for a given date
+     * Check the prices an order type needs: a limit for LIMIT and STOP_LIMIT, a stop for
+     * STOP and STOP_LIMIT, a trail for TRAILING_STOP
      */
-    public void executePendingOrders(int accountId, LocalDate date) {
-        List<Order> pendingOrders = orderDAO.findPendingByDate(accountId, date);
-        
-        for (Order order : pendingOrders) {
-            executeOrder(order, date);
+    private static boolean hasValidPrices(Order order) {
+        Order.OrderType type = order.getOrderType();
+        if ((type == Order.OrderType.LIMIT || type == Order.OrderType.STOP_LIMIT) &&
+            (order.getLimitPrice() == null || order.getLimitPrice().signum() <= 0)) {
+            System.err.println("Invalid limit price: " + order.getLimitPrice());
+            return false;
+        }
+        if ((type == Order.OrderType.STOP || type == Order.OrderType.STOP_LIMIT) &&
+            (order.getStopPrice() == null || order.getStopPrice().signum() <= 0)) {
+            System.err.println("Invalid stop price: " + order.getStopPrice());
+            return false;
         }
+        if (type == Order.OrderType.TRAILING_STOP &&
+            (order.getTrailAmount() == null || order.getTrailAmount().signum() <= 0)) {
+            System.err.println("Invalid trail amount: " + order.getTrailAmount());
+            return false;
+        }
+        return true;
     }
     
     /**
-     * Execute a single order
+     * Price a buy order is expected to fill at, for the cash check
      */
-    public boolean executeOrder(Order order, LocalDate executionDate) {
-        // Get market data for the execution date
-        MarketData marketData = marketDataDAO.findBySymbolAndDate(order.getSymbolId(), executionDate);
-        
-        if (marketData == null) {
-            // No trading on this date (weekend/holiday)
-            return false;
+    private static BigDecimal estimatedPrice(Order order, BigDecimal closePrice) {
+        switch (order.getOrderType()) {
+            case LIMIT:
+            case STOP_LIMIT:
+                return order.getLimitPrice();
+            case STOP:
+            case TRAILING_STOP:
+                return order.getStopPrice().max(closePrice);
+            default:
+                return closePrice;
         }
+    }
+    
+    /**
+     * Execute pending orders for a given date as one batch in one transaction.
+     * Orders, the account and its positions are read and locked in three queries; fills are
+     * computed in memory oldest order first, with cash and shares held checked sequentially;
+     * trades, order updates and positions are written with JDBC batches and the cash balance once.
+     * Stop orders are indexed in a TriggerEngine, so the day's bars only visit the stops they
+     * reach; a fired STOP or TRAILING_STOP fills as a market order at the price it fired at, a
+     * fired STOP_LIMIT as a limit order. Each waiting stop records the last bar it was checked
+     * against, so running a date again does not move a trailing stop by the same bar twice.
+     * DAY and IOC orders that can trade today but do not fill expire. The bars of the account's
+     * symbols are loaded into the market data cache first, so no second connection is taken
+     * while the row locks are held.
+     */
+    public BatchResult executePendingOrders(int accountId, LocalDate date) {
+        loadBars(orderDAO.findSymbolsWithPendingOrders(accountId, date));
+        return executeLoadedPendingOrders(accountId, date);
+    }
+    
+    /**
+     * Load the daily bars of symbols into the market data cache, outside any transaction
+     */
+    void loadBars(Collection<Integer> symbolIds) {
+        for (int symbolId : symbolIds) {
+            marketDataDAO.findSeries(symbolId);
+        }
+    }
+    
+    /**
+     * executePendingOrders for a caller that has already loaded the bars with loadBars
+     */
+    BatchResult executeLoadedPendingOrders(int accountId, LocalDate date) {
+        BatchResult result = new BatchResult();
+        long start = System.nanoTime();
+        try {
+            dbConnection.inTransaction(conn -> {
+                executeBatch(conn, accountId, date, result);
+                return null;
+            });
+        } catch (SQLException e) {
+            System.err.println("Error executing pending orders: " + e.getMessage());
+            e.printStackTrace();
+            result.failed = true;
+        }
+        result.totalNanos = System.nanoTime() - start;
+        return result;
+    }
+    
+    private void executeBatch(Connection conn, int accountId, LocalDate date, BatchResult result)
+            throws SQLException {
+        // Load: lock the pending orders, the account and its positions; bars come from the market data
+        // cache, which was filled before the transaction
+        long phaseStart = System.nanoTime();
+        List<Order> orders = orderDAO.findPendingByDateForUpdate(conn, accountId, date);
+        result.orders = orders.size();
+        if (orders.isEmpty()) {
+            result.loadNanos = System.nanoTime() - phaseStart;
+            return;
+        }
+        SimulatedAccount account = accountDAO.findByIdForUpdate(conn, accountId);
+        if (account == null) {
+            throw new SQLException("Account not found: " + accountId);
+        }
+        Map<Integer, Position> positions = new HashMap<>();
+        for (Position position : positionDAO.findByAccountForUpdate(conn, accountId)) {
+            positions.put(position.getSymbolId(), position);
+        }
+        Map<Integer, PriceSeries> bars = new HashMap<>();
+        for (Order order : orders) {
+            if (!bars.containsKey(order.getSymbolId())) {
+                bars.put(order.getSymbolId(), marketDataDAO.findSeries(order.getSymbolId()));
+            }
+        }
+        result.loadNanos = System.nanoTime() - phaseStart;
         
-        BigDecimal executionPrice = null;
-        
-        // Determine execution price based on order type
-        if (order.getOrderType() == Order.OrderType.MARKET) {
-            // Market orders execute at open price with slippage
-            executionPrice = marketData.getOpenPrice();
+        // Compute: fire the stops today's bars reach, then fill in priority order against a
+        // running cash balance, in cents
+        phaseStart = System.nanoTime();
+        TriggerEngine triggers = new TriggerEngine();
+        Map<Long, TriggerEngine.Fired> fired = fireStops(triggers, orders, bars, date);
+        long cash = Money.toCents(account.getCurrentCash());
+        List<Trade> trades = new ArrayList<>();
+        List<Order> updatedOrders = new ArrayList<>();
+        List<Order> triggerUpdates = new ArrayList<>();
+        List<AccountEvent> events = new ArrayList<>();
+        Map<Integer, Position> changedPositions = new LinkedHashMap<>();
+        for (Order order : orders) {
+            PriceSeries series = bars.get(order.getSymbolId());
+            long priceCents;
+            if (order.isAwaitingTrigger()) {
+                TriggerEngine.Fired stop = fired.get(order.getOrderId());
+                if (stop != null) {
+                    order.setTriggeredDate(date);
+                    order.setTriggerBarDate(date);
+                    triggerUpdates.add(order);
+                    priceCents = triggeredPriceCents(order, stop, series, date);
+                } else {
+                    if (triggers.contains(order.getOrderId()) && series != null && series.indexOf(date) >= 0) {
+                        // Checked against today's bar; a trailing stop may have moved with its range
+                        order.setStopPrice(Money.toBigDecimal(triggers.getStopCents(order.getOrderId())));
+                        order.setTriggerBarDate(date);
+                        triggerUpdates.add(order);
+                    }
+                    priceCents = ExecutionRules.NO_FILL;
+                }
+            } else {
+                priceCents = executionPriceCents(order, series, date);
+            }
+            if (priceCents == ExecutionRules.NO_FILL) {
+                if (order.getTimeInForce() != Order.TimeInForce.GTC && series != null && series.indexOf(date) >= 0) {
+                    order.setStatus(Order.Status.EXPIRED);
+                    order.setFilledDate(date);
+                    updatedOrders.add(order);
+                    events.add(AccountEvent.orderCancelled(order, date));
+                    result.expired++;
+                } else {
+                    result.unfilled++;
+                }
+                continue;
+            }
             
-            // Apply slippage
-            BigDecimal slippage = executionPrice.multiply(SLIPPAGE_RATE);
+            int quantity = order.getRemainingQuantity();
+            long subtotal = Money.times(priceCents, quantity);
+            long commission = ExecutionRules.commissionCents(subtotal);
+            long newCash;
+            boolean covered;
             if (order.getSide() == Order.Side.BUY) {
-                executionPrice = executionPrice.add(slippage);
+                newCash = cash - (subtotal + commission);
+                covered = newCash >= 0;
             } else {
-                executionPrice = executionPrice.subtract(slippage);
+                // Earlier fills of this batch may already have sold the shares
+                Position held = positions.get(order.getSymbolId());
+                newCash = cash + (subtotal - commission);
+                covered = held != null && held.getQuantity() >= quantity;
             }
+            if (!covered) {
+                order.setStatus(Order.Status.REJECTED);
+                order.setFilledDate(date);
+                updatedOrders.add(order);
+                events.add(AccountEvent.orderRejected(order, date));
+                result.rejected++;
+                continue;
+            }
+            cash = newCash;
             
-        } else if (order.getOrderType() == Order.OrderType.LIMIT) {
-            // Limit orders execute only if price reaches the limit
-            BigDecimal limitPrice = order.getLimitPrice();
+            BigDecimal executionPrice = Money.toBigDecimal(priceCents);
+            Position position = applyFill(positions.get(order.getSymbolId()), accountId, order.getSymbolId(),
+                                          order.getSide(), quantity, executionPrice);
+            if (position != null) {
+                positions.put(order.getSymbolId(), position);
+                changedPositions.put(order.getSymbolId(), position);
+            }
             
-            if (order.getSide() == Order.Side.BUY) {
-                // Buy limit: execute if day's low <= limit price
-                if (marketData.getLowPrice().compareTo(limitPrice) <= 0) {
-                    executionPrice = limitPrice;
-                }
+            Trade trade = new Trade(order.getOrderId(), accountId, order.getSymbolId(), order.getSide(),
+                                    quantity, executionPrice, Money.toBigDecimal(commission), date);
+            trades.add(trade);
+            events.add(AccountEvent.orderFilled(trade));
+            order.addFill(quantity, executionPrice);
+            order.setFilledDate(date);
+            updatedOrders.add(order);
+            result.filled++;
+        }
+        result.computeNanos = System.nanoTime() - phaseStart;
+        
+        // Persist
+        phaseStart = System.nanoTime();
+        if (!trades.isEmpty()) {
+            tradeDAO.createBatch(conn, trades);
+            positionDAO.upsertBatch(conn, new ArrayList<>(changedPositions.values()));
+            positionDAO.deleteEmptyForAccount(conn, accountId);
+            accountDAO.updateCash(conn, accountId, Money.toBigDecimal(cash));
+        }
+        if (!triggerUpdates.isEmpty()) {
+            orderDAO.updateTriggersBatch(conn, triggerUpdates);
+        }
+        if (!updatedOrders.isEmpty()) {
+            orderDAO.updateOrdersFilledBatch(conn, updatedOrders);
+        }
+        eventDAO.appendBatch(conn, events);
+        result.persistNanos = System.nanoTime() - phaseStart;
+    }
+    
+    /**
+     * Index the stop orders still waiting for their trigger, other than those already checked
+     * against the bar of this date, and apply today's bar of each of their symbols. Returns the
+     * fired stops by order ID; trailing stops left in the engine hold their moved levels.
+     */
+    private static Map<Long, TriggerEngine.Fired> fireStops(TriggerEngine triggers, List<Order> orders,
+                                                           Map<Integer, PriceSeries> bars, LocalDate date) {
+        for (Order order : orders) {
+            if (!order.isAwaitingTrigger() ||
+                order.getTriggerBarDate() != null && !order.getTriggerBarDate().isBefore(date)) {
+                continue;
+            }
+            long stopCents = Money.toCents(order.getStopPrice());
+            if (order.getOrderType() == Order.OrderType.TRAILING_STOP) {
+                triggers.addTrailingStop(order.getOrderId(), order.getSymbolId(), order.getSide(), stopCents,
+                                         Money.toCents(order.getTrailAmount()));
             } else {
-                // Sell limit: execute if day's high >= limit price
-                if (marketData.getHighPrice().compareTo(limitPrice) >= 0) {
-                    executionPrice = limitPrice;
-                }
+                triggers.addStop(order.getOrderId(), order.getSymbolId(), order.getSide(), stopCents);
             }
         }
         
-        // If no execution price determined, order doesn't fill
-        if (executionPrice == null) {
+        Map<Long, TriggerEngine.Fired> fired = new HashMap<>();
+        if (triggers.size() == 0) {
+            return fired;
+        }
+        for (Map.Entry<Integer, PriceSeries> entry : bars.entrySet()) {
+            PriceSeries series = entry.getValue();
+            int index = series != null ? series.indexOf(date) : -1;
+            if (index < 0 || triggers.getTriggerCount(entry.getKey()) == 0) {
+                continue;
+            }
+            for (TriggerEngine.Fired stop : triggers.onBar(entry.getKey(), series.getOpenCents(index),
+                                                           series.getHighCents(index), series.getLowCents(index))) {
+                fired.put(stop.getOrderId(), stop);
+            }
+        }
+        return fired;
+    }
+    
+    /**
+     * Execution price in cents of a stop order on the bar that fired it, or ExecutionRules.NO_FILL
+     */
+    private static long triggeredPriceCents(Order order, TriggerEngine.Fired stop, PriceSeries series,
+                                            LocalDate date) {
+        if (order.getOrderType() != Order.OrderType.STOP_LIMIT) {
+            return ExecutionRules.stopPriceCents(order.getSide(), stop.getPriceCents());
+        }
+        int index = series.indexOf(date);
+        return ExecutionRules.stopLimitPriceCents(order.getSide(), Money.toCents(order.getLimitPrice()),
+                                                  stop.getPriceCents(), series.getLowCents(index),
+                                                  series.getHighCents(index));
+    }
+    
+    /**
+     * Execute a single order; order book orders are left to MatchingEngine
+     */
+    public boolean executeOrder(Order order, LocalDate executionDate) {
+        if (order.isBookManaged()) {
             return false;
         }
         
-        // Round execution price
-        executionPrice = executionPrice.setScale(2, RoundingMode.HALF_UP);
+        // Get the symbol's bars; the execution date is looked up in them
+        PriceSeries series = marketDataDAO.findSeries(order.getSymbolId());
         
-        // Calculate amounts
-        BigDecimal subtotal = executionPrice.multiply(new BigDecimal(order.getQuantity()));
-        BigDecimal commission = calculateCommission(subtotal);
-        BigDecimal totalAmount;
+        long priceCents = executionPriceCents(order, series, executionDate);
+        
+        // If no execution price determined, order doesn't fill
+        if (priceCents == ExecutionRules.NO_FILL) {
+            return false;
+        }
+        
+        // Calculate amounts in cents
+        int quantity = order.getRemainingQuantity();
+        long subtotal = Money.times(priceCents, quantity);
+        long commission = ExecutionRules.commissionCents(subtotal);
+        long totalAmount;
         
         if (order.getSide() == Order.Side.BUY) {
-            totalAmount = subtotal.add(commission);
+            totalAmount = subtotal + commission;
         } else {
-            totalAmount = subtotal.subtract(commission);
+            totalAmount = subtotal - commission;
+        }
+        
+        // Apply the whole fill in one transaction, holding row locks on the order, account and position
+        boolean filled;
+        try {
+            filled = dbConnection.inTransaction(conn -> fillOrder(conn, order, quantity, priceCents, commission,
+                                                                  totalAmount, executionDate));
+        } catch (SQLException e) {
+            System.err.println("Error executing order " + order.getOrderId() + ": " + e.getMessage());
+            e.printStackTrace();
+            return false;
+        }
+        
+        if (filled) {
+            System.out.println("✓ Executed " + order.getSide() + " " + quantity + 
+                              " shares at $" + Money.toString(priceCents) +
+                              " (Commission: $" + Money.toString(commission) + ")");
+        }
+        return filled;
+    }
+    
+    /**
+     * Execution price in cents of an order against its bar on a date, or ExecutionRules.NO_FILL if it doesn't fill
+     */
+    private static long executionPriceCents(Order order, PriceSeries series, LocalDate date) {
+        int index = series != null ? series.indexOf(date) : -1;
+        if (index < 0) {
+            // No trading on this date (weekend/holiday)
+            return ExecutionRules.NO_FILL;
+        }
+        
+        // Stops that have not fired yet wait for executePendingOrders to trigger them
+        if (order.isAwaitingTrigger()) {
+            return ExecutionRules.NO_FILL;
+        }
+        
+        // Market orders execute at open price with slippage; limit orders only if the day's range reaches the limit.
+        // A fired stop that did not fill on its trigger bar continues as a market order, a fired stop-limit as a limit order.
+        switch (order.getOrderType()) {
+            case MARKET:
+            case STOP:
+            case TRAILING_STOP:
+                return ExecutionRules.marketPriceCents(order.getSide(), series.getOpenCents(index));
+            case LIMIT:
+            case STOP_LIMIT:
+                return ExecutionRules.limitPriceCents(order.getSide(), Money.toCents(order.getLimitPrice()),
+                                                      series.getLowCents(index), series.getHighCents(index));
+            default:
+                return ExecutionRules.NO_FILL;
+        }
+    }
+    
+    /**
+     * Write one fill on the transaction's connection: cash, position, trade and order status.
+     * Returns false if the order is no longer pending or was rejected.
+     */
+    private boolean fillOrder(Connection conn, Order order, int quantity, long priceCents,
+                              long commission, long totalAmount, LocalDate executionDate)
+            throws SQLException {
+        // Another executor may have filled or cancelled the order meanwhile
+        if (orderDAO.findStatusForUpdate(conn, order.getOrderId()) != Order.Status.PENDING) {
+            return false;
         }
         
         // Update account cash
-        SimulatedAccount account = accountDAO.findById(order.getAccountId());
-        BigDecimal newCash;
+        SimulatedAccount account = accountDAO.findByIdForUpdate(conn, order.getAccountId());
+        if (account == null) {
+            throw new SQLException("Account not found: " + order.getAccountId());
+        }
+        Position position = positionDAO.findByAccountAndSymbolForUpdate(conn, order.getAccountId(),
+                                                                        order.getSymbolId());
+        long cash = Money.toCents(account.getCurrentCash());
+        long newCash;
         
         if (order.getSide() == Order.Side.BUY) {
-            newCash = account.getCurrentCash().subtract(totalAmount);
-            if (newCash.compareTo(BigDecimal.ZERO) < 0) {
+            newCash = cash - totalAmount;
+            if (newCash < 0) {
                 System.err.println("Order would result in negative cash. Rejecting.");
-                orderDAO.updateOrderFilled(order.getOrderId(), Order.Status.REJECTED, 0, null, executionDate);
+                rejectOrder(conn, order, executionDate);
                 return false;
             }
         } else {
-            newCash = account.getCurrentCash().add(totalAmount);
+            newCash = cash + totalAmount;
+            if (position == null || position.getQuantity() < quantity) {
+                System.err.println("Order would sell more shares than held. Rejecting.");
+                rejectOrder(conn, order, executionDate);
+                return false;
+            }
         }
         
-        accountDAO.updateCash(order.getAccountId(), newCash);
+        accountDAO.updateCash(conn, order.getAccountId(), Money.toBigDecimal(newCash));
         
         // Update position
-        updatePosition(order.getAccountId(), order.getSymbolId(), order.getSide(), 
-                      order.getQuantity(), executionPrice);
+        BigDecimal executionPrice = Money.toBigDecimal(priceCents);
+        updatePosition(conn, position, order.getAccountId(), order.getSymbolId(), order.getSide(), 
+                      quantity, executionPrice);
         
         // Create trade record
         Trade trade = new Trade(
@@ -183,100 +521,170 @@ public class OrderExecutor {
             order.getAccountId(),
             order.getSymbolId(),
             order.getSide(),
-            order.getQuantity(),
+            quantity,
             executionPrice,
-            commission,
+            Money.toBigDecimal(commission),
             executionDate
         );
-        tradeDAO.create(trade);
+        tradeDAO.create(conn, trade);
+        eventDAO.append(conn, AccountEvent.orderFilled(trade));
         
         // Update order status
-        orderDAO.updateOrderFilled(order.getOrderId(), Order.Status.FILLED, 
-                                   order.getQuantity(), executionPrice, executionDate);
-        
-        System.out.println("✓ Executed " + order.getSide() + " " + order.getQuantity() + 
-                          " shares at $" + executionPrice + " (Commission: $" + commission + ")");
-        
+        order.addFill(quantity, executionPrice);
+        orderDAO.updateOrderFilled(conn, order.getOrderId(), order.getStatus(), 
+                                   order.getFilledQuantity(), order.getFilledPrice(), executionDate);
         return true;
     }
     
     /**
-     * Update position after trade execution
+     * Reject an order on the transaction's connection
+     */
+    private void rejectOrder(Connection conn, Order order, LocalDate executionDate) throws SQLException {
+        orderDAO.updateOrderFilled(conn, order.getOrderId(), Order.Status.REJECTED,
+                                   order.getFilledQuantity(), order.getFilledPrice(), executionDate);
+        eventDAO.append(conn, AccountEvent.orderRejected(order, executionDate));
+    }
+    
+    /**
+     * Update a position locked by the transaction (null if none) after trade execution
      */
-    private void updatePosition(int accountId, int symbolId, Order.Side side, 
-                                int quantity, BigDecimal price) {
-        Position position = positionDAO.findByAccountAndSymbol(accountId, symbolId);
+    private void updatePosition(Connection conn, Position position, int accountId, int symbolId,
+                                Order.Side side, int quantity, BigDecimal price) throws SQLException {
+        position = applyFill(position, accountId, symbolId, side, quantity, price);
+        if (position == null) {
+            return;
+        }
+        
+        positionDAO.upsert(conn, position);
         
+        // Delete position if quantity is zero
+        if (position.getQuantity() == 0) {
+            positionDAO.deleteIfEmpty(conn, accountId, symbolId);
+        }
+    }
+    
+    /**
+     * Apply a fill to a position (null if the account holds none).
+     * Returns the new or updated position, or null if there is nothing to store.
+     */
+    static Position applyFill(Position position, int accountId, int symbolId, Order.Side side,
+                                      int quantity, BigDecimal price) {
+        long priceCents = Money.toCents(price);
         if (position == null) {
             // Create new position for BUY
             if (side == Order.Side.BUY) {
                 position = new Position(accountId, symbolId, quantity, price);
-                position.setCurrentValue(price.multiply(new BigDecimal(quantity)));
+                position.setCurrentValue(Money.toBigDecimal(Money.times(priceCents, quantity)));
                 position.setUnrealizedPnl(BigDecimal.ZERO);
-                positionDAO.upsert(position);
             }
+            return position;
+        }
+        
+        // Update existing position, in cents
+        int newQuantity;
+        long avgCost = Money.toCents(position.getAvgCost());
+        long newAvgCost;
+        
+        if (side == Order.Side.BUY) {
+            // Add to position - calculate new average cost
+            newQuantity = position.getQuantity() + quantity;
+            newAvgCost = ExecutionRules.averageCostCents(avgCost, position.getQuantity(), priceCents, quantity);
         } else {
-            // Update existing position
-            int newQuantity;
-            BigDecimal newAvgCost;
-            
-            if (side == Order.Side.BUY) {
-                // Add to position - calculate new average cost
-                BigDecimal oldCost = position.getAvgCost().multiply(new BigDecimal(position.getQuantity()));
-                BigDecimal newCost = price.multiply(new BigDecimal(quantity));
-                newQuantity = position.getQuantity() + quantity;
-                newAvgCost = oldCost.add(newCost).divide(new BigDecimal(newQuantity), 2, RoundingMode.HALF_UP);
-            } else {
-                // Reduce position - keep same average cost
-                newQuantity = position.getQuantity() - quantity;
-                newAvgCost = position.getAvgCost();
-            }
-            
-            position.setQuantity(newQuantity);
-            position.setAvgCost(newAvgCost);
-            position.setCurrentValue(price.multiply(new BigDecimal(newQuantity)));
-            
-            // Calculate unrealized P&L
-            BigDecimal costBasis = newAvgCost.multiply(new BigDecimal(newQuantity));
-            BigDecimal currentValue = price.multiply(new BigDecimal(newQuantity));
-            position.setUnrealizedPnl(currentValue.subtract(costBasis));
-            
-            positionDAO.upsert(position);
-            
-            // Delete position if quantity is zero
-            if (newQuantity == 0) {
-                positionDAO.deleteIfEmpty(accountId, symbolId);
-            }
+            // Reduce position - keep same average cost
+            newQuantity = position.getQuantity() - quantity;
+            newAvgCost = avgCost;
         }
+        
+        long currentValue = Money.times(priceCents, newQuantity);
+        long costBasis = Money.times(newAvgCost, newQuantity);
+        position.setQuantity(newQuantity);
+        position.setAvgCost(side == Order.Side.BUY ? Money.toBigDecimal(newAvgCost) : position.getAvgCost());
+        position.setCurrentValue(Money.toBigDecimal(currentValue));
+        position.setUnrealizedPnl(Money.toBigDecimal(currentValue - costBasis));
+        return position;
     }
     
     /**
      * Calculate commission for a trade
      */
-    private BigDecimal calculateCommission(BigDecimal amount) {
-        BigDecimal commission = amount.multiply(COMMISSION_RATE);
-        if (commission.compareTo(MIN_COMMISSION) < 0) {
-            commission = MIN_COMMISSION;
-        }
-        return commission.setScale(2, RoundingMode.HALF_UP);
+    static BigDecimal calculateCommission(BigDecimal amount) {
+        return ExecutionRules.commission(amount);
     }
     
     /**
      * Update all position values based on latest market prices
      */
     public void updatePositionValues(int accountId) {
-        List<Position> positions = positionDAO.findByAccount(accountId);
-        
-        for (Position position : positions) {
-            MarketData latestData = marketDataDAO.findLatestBySymbol(position.getSymbolId());
-            if (latestData != null) {
-                BigDecimal currentPrice = latestData.getClosePrice();
-                BigDecimal currentValue = currentPrice.multiply(new BigDecimal(position.getQuantity()));
-                BigDecimal costBasis = position.getAvgCost().multiply(new BigDecimal(position.getQuantity()));
-                BigDecimal unrealizedPnl = currentValue.subtract(costBasis);
-                
-                positionDAO.updateValues(position.getPositionId(), currentValue, unrealizedPnl);
-            }
+        MarkToMarketService.getInstance().markAccount(accountId);
+    }
+    
+    /**
+     * Outcome and phase timings of one executePendingOrders batch
+     */
+    public static class BatchResult {
+        private int orders;
+        private int filled;
+        private int rejected;
+        private int unfilled;
+        private int expired;
+        private boolean failed;
+        private long loadNanos;
+        private long computeNanos;
+        private long persistNanos;
+        private long totalNanos;
+        
+        public int getOrders() {
+            return orders;
+        }
+        
+        public int getFilled() {
+            return filled;
+        }
+        
+        public int getRejected() {
+            return rejected;
+        }
+        
+        public int getUnfilled() {
+            return unfilled;
+        }
+        
+        /**
+         * DAY and IOC orders closed unfilled
+         */
+        public int getExpired() {
+            return expired;
+        }
+        
+        /**
+         * True if the transaction was rolled back; nothing was written
+         */
+        public boolean isFailed() {
+            return failed;
+        }
+        
+        public double getLoadMillis() {
+            return loadNanos / 1_000_000.0;
+        }
+        
+        public double getComputeMillis() {
+            return computeNanos / 1_000_000.0;
+        }
+        
+        public double getPersistMillis() {
+            return persistNanos / 1_000_000.0;
+        }
+        
+        public double getTotalMillis() {
+            return totalNanos / 1_000_000.0;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("Order batch%s: %d orders, %d filled, %d rejected, %d not filled, %d expired " +
+                                 "(load %.1f ms, compute %.1f ms, persist %.1f ms, total %.1f ms)",
+                                 failed ? " FAILED" : "", orders, filled, rejected, unfilled, expired,
+                                 getLoadMillis(), getComputeMillis(), getPersistMillis(), getTotalMillis());
         }
     }
 }
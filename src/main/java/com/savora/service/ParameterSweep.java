@@ -0,0 +1,208 @@
+package com.savora.service;
+
+import com.savora.model.PriceSeries;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * Backtests one strategy over a grid of parameters, and optionally each symbol on its own,
+ * in parallel on a fork/join pool.
+ *
+ * All runs read the same PriceSeries, which are immutable, so the price data is loaded once
+ * and shared by every worker. Each worker thread reuses its Backtester working arrays between
+ * runs. Every run is reduced to BacktestMetrics and its equity curve is dropped, so memory
+ * stays flat however large the grid is.
+ */
+public class ParameterSweep {
+    /**
+     * Symbol ID of a row that covers all symbols together
+     */
+    public static final int ALL_SYMBOLS = -1;
+
+    private final List<PriceSeries> series;
+    private final long initialCashCents;
+    private final int parallelism;
+
+    public ParameterSweep(List<PriceSeries> series, long initialCashCents) {
+        this(series, initialCashCents, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ParameterSweep(List<PriceSeries> series, long initialCashCents, int parallelism) {
+        this.series = Collections.unmodifiableList(new ArrayList<>(series));
+        this.initialCashCents = initialCashCents;
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Backtest each parameter set over all symbols as one portfolio
+     */
+    public <P> Result<P> run(List<P> parameters, Function<P, Backtester.Strategy> strategyFactory) {
+        return sweep(parameters, strategyFactory,
+                     new Backtester[] { new Backtester(series) }, new int[] { ALL_SYMBOLS });
+    }
+
+    /**
+     * Backtest each parameter set on each symbol alone
+     */
+    public <P> Result<P> runPerSymbol(List<P> parameters, Function<P, Backtester.Strategy> strategyFactory) {
+        Backtester[] backtesters = new Backtester[series.size()];
+        int[] symbolIds = new int[series.size()];
+        for (int i = 0; i < backtesters.length; i++) {
+            backtesters[i] = new Backtester(Collections.singletonList(series.get(i)));
+            symbolIds[i] = series.get(i).getSymbolId();
+        }
+        return sweep(parameters, strategyFactory, backtesters, symbolIds);
+    }
+
+    private <P> Result<P> sweep(List<P> parameters, Function<P, Backtester.Strategy> strategyFactory,
+                                Backtester[] backtesters, int[] symbolIds) {
+        long start = System.nanoTime();
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Row<P>[] rows = new Row[parameters.size() * backtesters.length];
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new SweepTask<>(parameters, strategyFactory, backtesters, symbolIds, rows, 0, rows.length));
+        } finally {
+            pool.shutdown();
+        }
+
+        return new Result<>(Arrays.asList(rows), System.nanoTime() - start, parallelism);
+    }
+
+    /**
+     * Splits a range of (parameter set, backtester) runs across the fork/join pool
+     */
+    private final class SweepTask<P> extends RecursiveAction {
+        private final List<P> parameters;
+        private final Function<P, Backtester.Strategy> strategyFactory;
+        private final Backtester[] backtesters;
+        private final int[] symbolIds;
+        private final Row<P>[] rows;
+        private final int from;
+        private final int to;
+
+        private SweepTask(List<P> parameters, Function<P, Backtester.Strategy> strategyFactory,
+                          Backtester[] backtesters, int[] symbolIds, Row<P>[] rows, int from, int to) {
+            this.parameters = parameters;
+            this.strategyFactory = strategyFactory;
+            this.backtesters = backtesters;
+            this.symbolIds = symbolIds;
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SweepTask<>(parameters, strategyFactory, backtesters, symbolIds, rows, from, mid),
+                          new SweepTask<>(parameters, strategyFactory, backtesters, symbolIds, rows, mid, to));
+                return;
+            }
+            P params = parameters.get(from / backtesters.length);
+            int backtester = from % backtesters.length;
+            BacktestResult result = backtesters[backtester].run(strategyFactory.apply(params), initialCashCents);
+            rows[from] = new Row<>(params, symbolIds[backtester], BacktestMetrics.of(result));
+        }
+    }
+
+    /**
+     * Metrics of one parameter set on one symbol, or on all symbols
+     */
+    public static final class Row<P> {
+        private final P parameters;
+        private final int symbolId;
+        private final BacktestMetrics metrics;
+
+        private Row(P parameters, int symbolId, BacktestMetrics metrics) {
+            this.parameters = parameters;
+            this.symbolId = symbolId;
+            this.metrics = metrics;
+        }
+
+        public P getParameters() {
+            return parameters;
+        }
+
+        /**
+         * Symbol ID, or ALL_SYMBOLS
+         */
+        public int getSymbolId() {
+            return symbolId;
+        }
+
+        public BacktestMetrics getMetrics() {
+            return metrics;
+        }
+    }
+
+    /**
+     * All rows of a sweep, ranked by Sharpe ratio, best first
+     */
+    public static final class Result<P> {
+        private final List<Row<P>> rows;
+        private final long elapsedNanos;
+        private final int parallelism;
+
+        private Result(List<Row<P>> rows, long elapsedNanos, int parallelism) {
+            List<Row<P>> ranked = new ArrayList<>(rows);
+            ranked.sort(Comparator.comparingDouble((Row<P> row) -> row.getMetrics().getSharpe()).reversed());
+            this.rows = Collections.unmodifiableList(ranked);
+            this.elapsedNanos = elapsedNanos;
+            this.parallelism = parallelism;
+        }
+
+        public List<Row<P>> getRows() {
+            return rows;
+        }
+
+        /**
+         * Rows ordered by another measure
+         */
+        public List<Row<P>> rankedBy(Comparator<BacktestMetrics> order) {
+            List<Row<P>> ranked = new ArrayList<>(rows);
+            ranked.sort((a, b) -> order.compare(a.getMetrics(), b.getMetrics()));
+            return ranked;
+        }
+
+        public Row<P> getBest() {
+            return rows.isEmpty() ? null : rows.get(0);
+        }
+
+        public double getElapsedMillis() {
+            return elapsedNanos / 1_000_000.0;
+        }
+
+        /**
+         * The first rows as a text table
+         */
+        public String formatTable(int limit) {
+            StringBuilder table = new StringBuilder(String.format("%4s  %-16s %8s %8s %9s %7s %9s %7s%n",
+                "Rank", "Parameters", "Symbol", "CAGR", "Drawdown", "Sharpe", "Turnover", "Trades"));
+            for (int i = 0; i < Math.min(limit, rows.size()); i++) {
+                Row<P> row = rows.get(i);
+                BacktestMetrics metrics = row.getMetrics();
+                table.append(String.format("%4d  %-16s %8s %7.2f%% %8.2f%% %7.2f %9.2f %7d%n", i + 1,
+                    row.getParameters(), row.getSymbolId() == ALL_SYMBOLS ? "all" : String.valueOf(row.getSymbolId()),
+                    metrics.getCagr() * 100, metrics.getMaxDrawdown() * 100, metrics.getSharpe(),
+                    metrics.getTurnover(), metrics.getTradeCount()));
+            }
+            return table.toString();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Swept %d backtests on %d threads in %.1f ms", rows.size(), parallelism,
+                                 getElapsedMillis());
+        }
+    }
+}
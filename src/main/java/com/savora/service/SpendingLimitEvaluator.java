@@ -0,0 +1,241 @@
+package com.savora.service;
+
+import com.savora.dao.SpendingLimitDAO;
+import com.savora.dao.TransactionDAO;
+import com.savora.model.SpendingLimit;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates spending limits against the expenses of their current period.
+ *
+ * All limits are evaluated together: they are grouped by period window (this week, month or
+ * year), and the expenses of every category in every window come from one grouped query over
+ * spending_rollup. Overall limits use the sum over all categories. The result holds the usage
+ * of each limit and the limits at or past the warning threshold, so one evaluation can serve
+ * the spending limit table, alerts and reports.
+ */
+public class SpendingLimitEvaluator {
+    /**
+     * Usage at which a limit warns, in percent
+     */
+    public static final double WARNING_PERCENT = 80;
+
+    /**
+     * Usage at which a limit is exceeded, in percent
+     */
+    public static final double EXCEEDED_PERCENT = 100;
+
+    private final SpendingLimitDAO spendingLimitDAO;
+    private final TransactionDAO transactionDAO;
+
+    public SpendingLimitEvaluator() {
+        this.spendingLimitDAO = new SpendingLimitDAO();
+        this.transactionDAO = new TransactionDAO();
+    }
+
+    /**
+     * Evaluate the active limits for today
+     */
+    public Evaluation evaluate() {
+        return evaluate(spendingLimitDAO.findActiveLimits(), LocalDate.now());
+    }
+
+    /**
+     * Evaluate the given limits for the periods containing a date
+     */
+    public Evaluation evaluate(List<SpendingLimit> limits, LocalDate date) {
+        // Distinct period windows; limits with the same period share one
+        Map<String, Integer> windowIndex = new HashMap<>();
+        List<LocalDate> starts = new ArrayList<>();
+        List<LocalDate> ends = new ArrayList<>();
+        int[] windowOf = new int[limits.size()];
+        for (int i = 0; i < limits.size(); i++) {
+            String period = limits.get(i).getPeriod();
+            LocalDate start = getPeriodStart(period, date);
+            LocalDate end = getPeriodEnd(start, period, date);
+            Integer window = windowIndex.get(start + "/" + end);
+            if (window == null) {
+                window = starts.size();
+                windowIndex.put(start + "/" + end, window);
+                starts.add(start);
+                ends.add(end);
+            }
+            windowOf[i] = window;
+        }
+
+        // Per-category totals for every window in one query; overall totals are their sums
+        Map<Integer, BigDecimal[]> byCategory = transactionDAO.getExpensesByCategory(starts, ends);
+        BigDecimal[] overall = new BigDecimal[starts.size()];
+        Arrays.fill(overall, BigDecimal.ZERO);
+        for (BigDecimal[] totals : byCategory.values()) {
+            for (int i = 0; i < overall.length; i++) {
+                overall[i] = overall[i].add(totals[i]);
+            }
+        }
+
+        List<LimitStatus> statuses = new ArrayList<>(limits.size());
+        for (int i = 0; i < limits.size(); i++) {
+            SpendingLimit limit = limits.get(i);
+            int window = windowOf[i];
+            BigDecimal spent;
+            if (limit.getCategoryId() == null) {
+                spent = overall[window];
+            } else {
+                BigDecimal[] totals = byCategory.get(limit.getCategoryId());
+                spent = totals != null ? totals[window] : BigDecimal.ZERO;
+            }
+            statuses.add(new LimitStatus(limit, starts.get(window), ends.get(window), spent));
+        }
+        return new Evaluation(statuses);
+    }
+
+    /**
+     * First day of the period ("weekly", "monthly" or "yearly") containing a date; unknown periods are monthly
+     */
+    public static LocalDate getPeriodStart(String period, LocalDate date) {
+        switch (period.toLowerCase()) {
+            case "monthly":
+                return date.withDayOfMonth(1);
+            case "weekly":
+                return date.minusDays(date.getDayOfWeek().getValue() - 1);
+            case "yearly":
+                return date.withDayOfYear(1);
+            default:
+                return date.withDayOfMonth(1);
+        }
+    }
+
+    /**
+     * Last day of the period starting at start; unknown periods end on the evaluation date
+     */
+    public static LocalDate getPeriodEnd(LocalDate start, String period, LocalDate date) {
+        switch (period.toLowerCase()) {
+            case "monthly":
+                return start.withDayOfMonth(start.lengthOfMonth());
+            case "weekly":
+                return start.plusDays(6);
+            case "yearly":
+                return start.withDayOfYear(start.lengthOfYear());
+            default:
+                return date;
+        }
+    }
+
+    /**
+     * How far a limit's usage has gone
+     */
+    public enum Level {
+        OK, WARNING, EXCEEDED;
+
+        public static Level of(double percentage) {
+            if (percentage >= EXCEEDED_PERCENT) {
+                return EXCEEDED;
+            }
+            return percentage >= WARNING_PERCENT ? WARNING : OK;
+        }
+    }
+
+    /**
+     * Usage of one limit in its current period
+     */
+    public static final class LimitStatus {
+        private final SpendingLimit limit;
+        private final LocalDate periodStart;
+        private final LocalDate periodEnd;
+        private final BigDecimal spent;
+        private final double percentage;
+
+        public LimitStatus(SpendingLimit limit, LocalDate periodStart, LocalDate periodEnd, BigDecimal spent) {
+            this.limit = limit;
+            this.periodStart = periodStart;
+            this.periodEnd = periodEnd;
+            this.spent = spent;
+            this.percentage = spent.divide(limit.getLimitAmount(), 4, RoundingMode.HALF_UP)
+                                   .multiply(new BigDecimal(100)).doubleValue();
+        }
+
+        public SpendingLimit getLimit() {
+            return limit;
+        }
+
+        public boolean isOverall() {
+            return limit.getCategoryId() == null;
+        }
+
+        public LocalDate getPeriodStart() {
+            return periodStart;
+        }
+
+        public LocalDate getPeriodEnd() {
+            return periodEnd;
+        }
+
+        public BigDecimal getSpent() {
+            return spent;
+        }
+
+        public BigDecimal getRemaining() {
+            return limit.getLimitAmount().subtract(spent);
+        }
+
+        public double getPercentage() {
+            return percentage;
+        }
+
+        public Level getLevel() {
+            return Level.of(percentage);
+        }
+    }
+
+    /**
+     * Result of evaluating a set of limits
+     */
+    public static final class Evaluation {
+        private final List<LimitStatus> statuses;
+
+        private Evaluation(List<LimitStatus> statuses) {
+            this.statuses = Collections.unmodifiableList(statuses);
+        }
+
+        /**
+         * Status of every evaluated limit, in the order given
+         */
+        public List<LimitStatus> getStatuses() {
+            return statuses;
+        }
+
+        /**
+         * Limits at or past the warning threshold
+         */
+        public List<LimitStatus> getAlerts() {
+            List<LimitStatus> alerts = new ArrayList<>();
+            for (LimitStatus status : statuses) {
+                if (status.getLevel() != Level.OK) {
+                    alerts.add(status);
+                }
+            }
+            return alerts;
+        }
+
+        /**
+         * Status of a limit, or null if it was not evaluated
+         */
+        public LimitStatus getStatus(int limitId) {
+            for (LimitStatus status : statuses) {
+                if (status.getLimit().getLimitId() == limitId) {
+                    return status;
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.savora.service;
+
+import com.savora.dao.TransactionEvents;
+import com.savora.model.Transaction;
+import com.savora.util.DbExecutor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps the spending of every active limit's current period in memory and reports when a
+ * limit crosses a threshold.
+ *
+ * The running totals are loaded with one SpendingLimitEvaluator evaluation and then follow
+ * the TransactionEvents stream: an expense only touches the windows of its own category and
+ * the overall ones, so a save costs a constant number of additions, not a query. The load
+ * records the sequence number of the last change it read, and events at or below it are
+ * already counted. Listeners are told when an addition moves a limit to a higher level (OK to
+ * WARNING, or to EXCEEDED); removals lower the totals silently. Totals are reloaded on the DB
+ * executor when the date moves into another day and after {@link #invalidate()}, which must be
+ * called when limits change; events that arrive meanwhile are queued and replayed once loaded.
+ */
+public class SpendingLimitMonitor implements TransactionEvents.Listener {
+    private static final SpendingLimitMonitor INSTANCE = new SpendingLimitMonitor();
+
+    private final SpendingLimitEvaluator evaluator;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // Windows by category id; overall limits are under null
+    private Map<Integer, List<Window>> windows;
+    private LocalDate loadedDate;
+    private long loadedSequence;
+
+    // Changes published while the totals were not loaded, in arrival order
+    private final List<Change> pending = new ArrayList<>();
+
+    private SpendingLimitMonitor() {
+        this.evaluator = new SpendingLimitEvaluator();
+        TransactionEvents.getInstance().addListener(this);
+    }
+
+    public static SpendingLimitMonitor getInstance() {
+        return INSTANCE;
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Drop the running totals; the next event or status request reloads them
+     */
+    public synchronized void invalidate() {
+        windows = null;
+    }
+
+    /**
+     * Load the running totals now if they are not current
+     */
+    public void refresh() {
+        notifyCrossed(refreshTotals());
+    }
+
+    /**
+     * Asynchronous version of {@link #refresh()}, to load the totals before the first save
+     */
+    public CompletableFuture<Void> refreshAsync() {
+        return DbExecutor.getInstance().submit(() -> {
+            refresh();
+            return null;
+        });
+    }
+
+    /**
+     * Current status of every active limit
+     */
+    public List<SpendingLimitEvaluator.LimitStatus> getStatuses() {
+        List<SpendingLimitEvaluator.LimitStatus> statuses = new ArrayList<>();
+        List<SpendingLimitEvaluator.LimitStatus> crossed;
+        synchronized (this) {
+            crossed = refreshTotals();
+            for (List<Window> categoryWindows : windows.values()) {
+                for (Window window : categoryWindows) {
+                    statuses.add(window.status);
+                }
+            }
+        }
+        notifyCrossed(crossed);
+        return statuses;
+    }
+
+    @Override
+    public void transactionAdded(Transaction transaction, long sequence) {
+        notifyCrossed(apply(transaction, 1, sequence));
+    }
+
+    @Override
+    public void transactionRemoved(Transaction transaction, long sequence) {
+        apply(transaction, -1, sequence);
+    }
+
+    private void notifyCrossed(List<SpendingLimitEvaluator.LimitStatus> crossed) {
+        if (!crossed.isEmpty()) {
+            List<SpendingLimitEvaluator.LimitStatus> event = Collections.unmodifiableList(crossed);
+            for (Listener listener : listeners) {
+                listener.thresholdsCrossed(event);
+            }
+        }
+    }
+
+    /**
+     * Add (sign 1) or remove (sign -1) an expense in the windows containing it; returns the
+     * limits it moved to a higher level
+     */
+    private synchronized List<SpendingLimitEvaluator.LimitStatus> apply(Transaction transaction, int sign,
+                                                                        long sequence) {
+        if (transaction.getType() != Transaction.TransactionType.EXPENSE) {
+            return Collections.emptyList();
+        }
+        if (!isCurrent()) {
+            // Loading here would block the saving thread; the reload replays the change
+            windows = null;
+            if (pending.isEmpty()) {
+                refreshAsync();
+            }
+            pending.add(new Change(transaction, sign, sequence));
+            return Collections.emptyList();
+        }
+        if (sequence <= loadedSequence) {
+            return Collections.emptyList(); // already in the loaded totals
+        }
+
+        List<SpendingLimitEvaluator.LimitStatus> crossed = new ArrayList<>(2);
+        apply(transaction, sign, crossed);
+        return crossed;
+    }
+
+    private void apply(Transaction transaction, int sign, List<SpendingLimitEvaluator.LimitStatus> crossed) {
+        BigDecimal amount = sign < 0 ? transaction.getAmount().negate() : transaction.getAmount();
+        apply(windows.get(transaction.getCategoryId()), transaction.getDate(), amount, crossed);
+        apply(windows.get(null), transaction.getDate(), amount, crossed);
+    }
+
+    /**
+     * Move the windows containing the date by amount, collecting those moved to a higher level
+     * unless crossed is null
+     */
+    private void apply(List<Window> categoryWindows, LocalDate date, BigDecimal amount,
+                       List<SpendingLimitEvaluator.LimitStatus> crossed) {
+        if (categoryWindows == null) {
+            return;
+        }
+        for (Window window : categoryWindows) {
+            if (date.isBefore(window.status.getPeriodStart()) || date.isAfter(window.status.getPeriodEnd())) {
+                continue;
+            }
+            SpendingLimitEvaluator.Level before = window.status.getLevel();
+            window.status = window.status(window.status.getSpent().add(amount));
+            if (crossed != null && window.status.getLevel().compareTo(before) > 0) {
+                crossed.add(window.status);
+            }
+        }
+    }
+
+    private boolean isCurrent() {
+        return windows != null && LocalDate.now().equals(loadedDate);
+    }
+
+    /**
+     * Load the totals if they are not current; returns the limits raised by queued changes
+     */
+    private synchronized List<SpendingLimitEvaluator.LimitStatus> refreshTotals() {
+        if (isCurrent()) {
+            return Collections.emptyList();
+        }
+        LocalDate today = LocalDate.now();
+        SpendingLimitEvaluator.Evaluation evaluation = TransactionEvents.getInstance().readCommitted(sequence -> {
+            loadedSequence = sequence;
+            return evaluator.evaluate();
+        });
+        Map<Integer, List<Window>> loaded = new HashMap<>();
+        for (SpendingLimitEvaluator.LimitStatus status : evaluation.getStatuses()) {
+            loaded.computeIfAbsent(status.getLimit().getCategoryId(), id -> new ArrayList<>(1))
+                  .add(new Window(status));
+        }
+        windows = loaded;
+        loadedDate = today;
+
+        // Take the queued changes the load read back out, then replay all of them in order so
+        // that the thresholds they cross are still reported
+        for (Change change : pending) {
+            if (change.sequence <= loadedSequence) {
+                apply(change.transaction, -change.sign, null);
+            }
+        }
+        List<SpendingLimitEvaluator.LimitStatus> crossed = new ArrayList<>();
+        for (Change change : pending) {
+            apply(change.transaction, change.sign, change.sign > 0 ? crossed : null);
+        }
+        pending.clear();
+        return crossed;
+    }
+
+    /**
+     * Notified on the writing thread when an added expense moves limits to a higher level, or on
+     * the thread that reloads the totals for expenses added meanwhile, so Swing listeners must
+     * hand the statuses over to the event dispatch thread.
+     */
+    @FunctionalInterface
+    public interface Listener {
+        void thresholdsCrossed(List<SpendingLimitEvaluator.LimitStatus> statuses);
+    }
+
+    /**
+     * An expense change published while the totals were not loaded
+     */
+    private static final class Change {
+        private final Transaction transaction;
+        private final int sign;
+        private final long sequence;
+
+        private Change(Transaction transaction, int sign, long sequence) {
+            this.transaction = transaction;
+            this.sign = sign;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * Running total of one limit in its current period
+     */
+    private static final class Window {
+        private SpendingLimitEvaluator.LimitStatus status;
+
+        private Window(SpendingLimitEvaluator.LimitStatus status) {
+            this.status = status;
+        }
+
+        private SpendingLimitEvaluator.LimitStatus status(BigDecimal spent) {
+            return new SpendingLimitEvaluator.LimitStatus(status.getLimit(), status.getPeriodStart(),
+                                                          status.getPeriodEnd(), spent);
+        }
+    }
+}
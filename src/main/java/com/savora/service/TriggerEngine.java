@@ -0,0 +1,406 @@
+package com.savora.service;
+
+import com.savora.model.Order;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Resting stop triggers of many orders, indexed by price per symbol.
+ *
+ * Each symbol keeps its stops in sorted primitive long[] price levels, like the sides of an
+ * OrderBook, with the next level to fire last: buy stops (which fire as the price rises) by
+ * ascending stop, sell stops by descending stop. A bar pops exactly the levels its range
+ * crosses and never looks at the others. Trailing stops are indexed a second time by their
+ * reference price, the best price since they were placed, so a new high only visits the sell
+ * trailing stops whose reference it exceeds (and a new low the buy trailing stops), moving
+ * each of them once to the new level.
+ *
+ * A bar's triggers are checked before trailing stops follow its range, so a stop moved by a
+ * bar applies from the next bar. A stop the bar opens beyond fires at the open rather than at
+ * the stop. Prices are in cents. Not thread-safe.
+ */
+public class TriggerEngine {
+    private final Map<Integer, SymbolTriggers> symbols = new HashMap<>();
+    private final Map<Long, Trigger> triggers = new HashMap<>();
+
+    /**
+     * Add a stop: a buy fires when the price rises to stopCents, a sell when it falls to it
+     */
+    public void addStop(long orderId, int symbolId, Order.Side side, long stopCents) {
+        add(new Trigger(orderId, symbolId, side, stopCents, 0L, false));
+    }
+
+    /**
+     * Add a trailing stop at its current level; it follows the best price at trailCents behind
+     */
+    public void addTrailingStop(long orderId, int symbolId, Order.Side side, long stopCents, long trailCents) {
+        if (trailCents <= 0) {
+            throw new IllegalArgumentException("Trail must be positive: " + trailCents);
+        }
+        add(new Trigger(orderId, symbolId, side, stopCents, trailCents, true));
+    }
+
+    private void add(Trigger trigger) {
+        if (triggers.containsKey(trigger.orderId)) {
+            throw new IllegalArgumentException("Order already has a trigger: " + trigger.orderId);
+        }
+        symbols.computeIfAbsent(trigger.symbolId, SymbolTriggers::new).add(trigger);
+        triggers.put(trigger.orderId, trigger);
+    }
+
+    /**
+     * Remove an order's trigger; returns false if it has none
+     */
+    public boolean remove(long orderId) {
+        Trigger trigger = triggers.remove(orderId);
+        if (trigger == null) {
+            return false;
+        }
+        SymbolTriggers symbol = symbols.get(trigger.symbolId);
+        symbol.remove(trigger);
+        if (symbol.count == 0) {
+            symbols.remove(trigger.symbolId);
+        }
+        return true;
+    }
+
+    /**
+     * Remove all triggers of a symbol; returns the number removed
+     */
+    public int removeSymbol(int symbolId) {
+        SymbolTriggers symbol = symbols.remove(symbolId);
+        if (symbol == null) {
+            return 0;
+        }
+        triggers.values().removeIf(trigger -> trigger.symbolId == symbolId);
+        return symbol.count;
+    }
+
+    public void clear() {
+        symbols.clear();
+        triggers.clear();
+    }
+
+    public int size() {
+        return triggers.size();
+    }
+
+    public int getTriggerCount(int symbolId) {
+        SymbolTriggers symbol = symbols.get(symbolId);
+        return symbol != null ? symbol.count : 0;
+    }
+
+    public boolean contains(long orderId) {
+        return triggers.containsKey(orderId);
+    }
+
+    /**
+     * Current stop level of an order in cents, or -1 if it has no trigger
+     */
+    public long getStopCents(long orderId) {
+        Trigger trigger = triggers.get(orderId);
+        return trigger != null ? trigger.stopCents : -1L;
+    }
+
+    /**
+     * Apply one bar of a symbol: fire and remove the stops its range reaches, then move the
+     * trailing stops its range improves on. Returns the fired stops, buys before sells.
+     */
+    public List<Fired> onBar(int symbolId, long openCents, long highCents, long lowCents) {
+        SymbolTriggers symbol = symbols.get(symbolId);
+        if (symbol == null) {
+            return Collections.emptyList();
+        }
+        List<Fired> fired = new ArrayList<>();
+        symbol.fire(openCents, highCents, lowCents, fired);
+        for (Fired stop : fired) {
+            triggers.remove(stop.orderId);
+        }
+        symbol.trail(highCents, lowCents);
+        if (symbol.count == 0) {
+            symbols.remove(symbolId);
+        }
+        return fired;
+    }
+
+    /**
+     * A stop reached by a bar
+     */
+    public static final class Fired {
+        private final long orderId;
+        private final int symbolId;
+        private final Order.Side side;
+        private final long stopCents;
+        private final long priceCents;
+
+        private Fired(long orderId, int symbolId, Order.Side side, long stopCents, long priceCents) {
+            this.orderId = orderId;
+            this.symbolId = symbolId;
+            this.side = side;
+            this.stopCents = stopCents;
+            this.priceCents = priceCents;
+        }
+
+        public long getOrderId() {
+            return orderId;
+        }
+
+        public int getSymbolId() {
+            return symbolId;
+        }
+
+        public Order.Side getSide() {
+            return side;
+        }
+
+        /**
+         * Stop level that was reached
+         */
+        public long getStopCents() {
+            return stopCents;
+        }
+
+        /**
+         * Price at which the stop fired: the stop, or the open if the bar opened beyond it
+         */
+        public long getPriceCents() {
+            return priceCents;
+        }
+
+        @Override
+        public String toString() {
+            return "Fired " + side + " stop " + stopCents + "c @ " + priceCents + "c (order " + orderId + ")";
+        }
+    }
+
+    private static final class Trigger {
+        private final long orderId;
+        private final int symbolId;
+        private final Order.Side side;
+        private final long trailCents;
+        private final Node stopNode;
+        private final Node referenceNode;
+        private long stopCents;
+
+        private Trigger(long orderId, int symbolId, Order.Side side, long stopCents, long trailCents,
+                        boolean trailing) {
+            this.orderId = orderId;
+            this.symbolId = symbolId;
+            this.side = side;
+            this.stopCents = stopCents;
+            this.trailCents = trailCents;
+            this.stopNode = new Node(this);
+            this.referenceNode = trailing ? new Node(this) : null;
+        }
+
+        /**
+         * Best price seen by a trailing stop: the high a sell trails, the low a buy trails
+         */
+        private long referenceCents() {
+            return side == Order.Side.SELL ? stopCents + trailCents : stopCents - trailCents;
+        }
+    }
+
+    /**
+     * Entry of a trigger in one index; a trailing stop is in two
+     */
+    private static final class Node {
+        private final Trigger trigger;
+        private Level level;
+        private Node prev;
+        private Node next;
+
+        private Node(Trigger trigger) {
+            this.trigger = trigger;
+        }
+    }
+
+    /**
+     * Triggers at one price
+     */
+    private static final class Level {
+        private final long priceCents;
+        private Node head;
+        private Node tail;
+
+        private Level(long priceCents) {
+            this.priceCents = priceCents;
+        }
+
+        private void append(Node node) {
+            node.level = this;
+            node.prev = tail;
+            node.next = null;
+            if (tail != null) {
+                tail.next = node;
+            } else {
+                head = node;
+            }
+            tail = node;
+        }
+
+        private void unlink(Node node) {
+            if (node.prev != null) {
+                node.prev.next = node.next;
+            } else {
+                head = node.next;
+            }
+            if (node.next != null) {
+                node.next.prev = node.prev;
+            } else {
+                tail = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.level = null;
+        }
+    }
+
+    /**
+     * Price levels sorted so the next level to be reached is last: ascending prices are
+     * stored as negated keys when the price must rise to reach them, so keys are always ascending
+     */
+    private static final class LevelIndex {
+        private final boolean rising;
+        private long[] keys = new long[8];
+        private Level[] levels = new Level[8];
+        private int size;
+
+        private LevelIndex(boolean rising) {
+            this.rising = rising;
+        }
+
+        private long keyOf(long priceCents) {
+            return rising ? -priceCents : priceCents;
+        }
+
+        private Level next() {
+            return size > 0 ? levels[size - 1] : null;
+        }
+
+        private void removeNext() {
+            levels[--size] = null;
+        }
+
+        private void add(Node node, long priceCents) {
+            long key = keyOf(priceCents);
+            int index = Arrays.binarySearch(keys, 0, size, key);
+            if (index < 0) {
+                index = -index - 1;
+                if (size == keys.length) {
+                    keys = Arrays.copyOf(keys, size * 2);
+                    levels = Arrays.copyOf(levels, size * 2);
+                }
+                System.arraycopy(keys, index, keys, index + 1, size - index);
+                System.arraycopy(levels, index, levels, index + 1, size - index);
+                keys[index] = key;
+                levels[index] = new Level(priceCents);
+                size++;
+            }
+            levels[index].append(node);
+        }
+
+        private void remove(Node node) {
+            Level level = node.level;
+            level.unlink(node);
+            if (level.head != null) {
+                return;
+            }
+            int index = Arrays.binarySearch(keys, 0, size, keyOf(level.priceCents));
+            System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+            System.arraycopy(levels, index + 1, levels, index, size - index - 1);
+            levels[--size] = null;
+        }
+    }
+
+    /**
+     * The triggers of one symbol
+     */
+    private static final class SymbolTriggers {
+        private final int symbolId;
+        private final LevelIndex buyStops = new LevelIndex(true);
+        private final LevelIndex sellStops = new LevelIndex(false);
+        private final LevelIndex buyReferences = new LevelIndex(false);
+        private final LevelIndex sellReferences = new LevelIndex(true);
+        private int count;
+
+        private SymbolTriggers(int symbolId) {
+            this.symbolId = symbolId;
+        }
+
+        private void add(Trigger trigger) {
+            boolean buy = trigger.side == Order.Side.BUY;
+            (buy ? buyStops : sellStops).add(trigger.stopNode, trigger.stopCents);
+            if (trigger.referenceNode != null) {
+                (buy ? buyReferences : sellReferences).add(trigger.referenceNode, trigger.referenceCents());
+            }
+            count++;
+        }
+
+        private void remove(Trigger trigger) {
+            boolean buy = trigger.side == Order.Side.BUY;
+            (buy ? buyStops : sellStops).remove(trigger.stopNode);
+            if (trigger.referenceNode != null) {
+                (buy ? buyReferences : sellReferences).remove(trigger.referenceNode);
+            }
+            count--;
+        }
+
+        private void fire(long openCents, long highCents, long lowCents, List<Fired> fired) {
+            Level level;
+            while ((level = buyStops.next()) != null && level.priceCents <= highCents) {
+                buyStops.removeNext();
+                fireLevel(level, Math.max(openCents, level.priceCents), buyReferences, fired);
+            }
+            while ((level = sellStops.next()) != null && level.priceCents >= lowCents) {
+                sellStops.removeNext();
+                fireLevel(level, Math.min(openCents, level.priceCents), sellReferences, fired);
+            }
+        }
+
+        private void fireLevel(Level level, long priceCents, LevelIndex references, List<Fired> fired) {
+            for (Node node = level.head; node != null; node = node.next) {
+                Trigger trigger = node.trigger;
+                if (trigger.referenceNode != null) {
+                    references.remove(trigger.referenceNode);
+                }
+                fired.add(new Fired(trigger.orderId, symbolId, trigger.side, level.priceCents, priceCents));
+                count--;
+            }
+        }
+
+        private void trail(long highCents, long lowCents) {
+            Level level;
+            // Sell trailing stops whose reference is below the new high move up to it
+            while ((level = sellReferences.next()) != null && level.priceCents < highCents) {
+                sellReferences.removeNext();
+                moveLevel(level, highCents, sellReferences, sellStops);
+            }
+            // Buy trailing stops whose reference is above the new low move down to it
+            while ((level = buyReferences.next()) != null && level.priceCents > lowCents) {
+                buyReferences.removeNext();
+                moveLevel(level, lowCents, buyReferences, buyStops);
+            }
+        }
+
+        private void moveLevel(Level level, long referenceCents, LevelIndex references, LevelIndex stops) {
+            Node node = level.head;
+            while (node != null) {
+                Node next = node.next;
+                Trigger trigger = node.trigger;
+                stops.remove(trigger.stopNode);
+                trigger.stopCents = trigger.side == Order.Side.SELL ? referenceCents - trigger.trailCents
+                                                                    : referenceCents + trigger.trailCents;
+                stops.add(trigger.stopNode, trigger.stopCents);
+                // The new level is beyond every level still to be popped, so it is not reached again
+                references.add(node, referenceCents);
+                node = next;
+            }
+        }
+    }
+}
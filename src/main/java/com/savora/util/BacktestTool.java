@@ -0,0 +1,96 @@
+package com.savora.util;
+
+import com.savora.dao.MarketDataArchive;
+import com.savora.model.PriceSeries;
+import com.savora.service.BacktestResult;
+import com.savora.service.Backtester;
+import com.savora.service.MovingAverageCrossStrategy;
+import com.savora.service.ParameterSweep;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command line tool that backtests a moving average crossover over archived market data.
+ *
+ * Usage: BacktestTool &lt;archive directory&gt; [fast slow [output directory]]
+ *        BacktestTool &lt;archive directory&gt; sweep [per-symbol]
+ * Reads the files written by MarketDataArchiveTool export, so no database is needed. With an
+ * output directory, the equity curve and trade log are written there as CSV. The sweep form
+ * ranks a grid of window lengths.
+ */
+public class BacktestTool {
+    private static final long INITIAL_CASH_CENTS = 100_000_00L;
+    private static final int[] SWEEP_FAST_WINDOWS = { 5, 10, 15, 20, 30, 40, 50 };
+    private static final int[] SWEEP_SLOW_WINDOWS = { 20, 40, 60, 80, 100, 150, 200 };
+
+    /**
+     * Map every archive file in a directory
+     */
+    public static List<PriceSeries> readArchive(Path directory) throws IOException {
+        List<PriceSeries> series = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + MarketDataArchive.FILE_SUFFIX)) {
+            for (Path file : files) {
+                series.add(MarketDataArchive.read(file, -1));
+            }
+        }
+        series.sort((a, b) -> Integer.compare(a.getSymbolId(), b.getSymbolId()));
+        return series;
+    }
+
+    public static void main(String[] args) {
+        boolean sweep = args.length >= 2 && args[1].equals("sweep");
+        if (!sweep && args.length != 1 && args.length != 3 && args.length != 4 ||
+            sweep && args.length > 3 || sweep && args.length == 3 && !args[2].equals("per-symbol")) {
+            System.err.println("Usage: BacktestTool <archive directory> [fast slow [output directory]]");
+            System.err.println("       BacktestTool <archive directory> sweep [per-symbol]");
+            System.exit(1);
+        }
+
+        try {
+            long start = System.nanoTime();
+            List<PriceSeries> series = readArchive(Paths.get(args[0]));
+            System.out.printf("Loaded %d symbols in %.1f ms%n", series.size(), (System.nanoTime() - start) / 1_000_000.0);
+
+            if (sweep) {
+                ParameterSweep sweeper = new ParameterSweep(series, INITIAL_CASH_CENTS);
+                List<MovingAverageCrossStrategy.Windows> grid =
+                    MovingAverageCrossStrategy.grid(SWEEP_FAST_WINDOWS, SWEEP_SLOW_WINDOWS);
+                ParameterSweep.Result<MovingAverageCrossStrategy.Windows> result = args.length == 3
+                    ? sweeper.runPerSymbol(grid, MovingAverageCrossStrategy::new)
+                    : sweeper.run(grid, MovingAverageCrossStrategy::new);
+                System.out.println(result);
+                System.out.print(result.formatTable(20));
+                return;
+            }
+
+            int fast = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+            int slow = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+            BacktestResult result = new Backtester(series).run(new MovingAverageCrossStrategy(fast, slow),
+                                                               INITIAL_CASH_CENTS);
+            System.out.println(result);
+
+            if (args.length == 4) {
+                Path output = Files.createDirectories(Paths.get(args[3]));
+                try (Writer writer = Files.newBufferedWriter(output.resolve("equity.csv"), StandardCharsets.UTF_8)) {
+                    result.writeEquityCurve(writer);
+                }
+                try (Writer writer = Files.newBufferedWriter(output.resolve("trades.csv"), StandardCharsets.UTF_8)) {
+                    result.writeTradeLog(writer);
+                }
+                System.out.println("Wrote equity.csv and trades.csv to " + output);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Backtest failed: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
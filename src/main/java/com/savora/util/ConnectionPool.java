@@ -0,0 +1,469 @@
+package com.savora.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded JDBC connection pool.
+ *
+ * Connections handed out by {@link #borrow()} are proxies: calling close() on them
+ * returns the physical connection to the pool instead of closing it, so the DAOs'
+ * try-with-resources blocks borrow and return connections without any changes.
+ * Each physical connection keeps a {@link StatementCache}, so prepareStatement()
+ * with SQL already seen on that connection reuses the existing statement; SQL is
+ * rewritten by the backend's {@link SqlDialect} when it is first prepared.
+ * Connections are validated on borrow, idle connections above the minimum are evicted
+ * after the idle timeout, and connections held longer than the leak threshold are
+ * reported together with the stack trace of the code that borrowed them.
+ */
+public class ConnectionPool {
+
+    /**
+     * Opens new physical connections for the pool
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    private final ConnectionFactory factory;
+    private final SqlDialect dialect;
+    private final int maxSize;
+    private final int minIdle;
+    private final long connectionTimeoutMs;
+    private final int validationTimeoutSeconds;
+    private final long idleTimeoutMs;
+    private final long leakDetectionThresholdMs;
+    private final int statementCacheSize;
+    private final StatementCacheStats statementStats = new StatementCacheStats();
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final long startedAt = System.currentTimeMillis();
+
+    private volatile boolean closed;
+
+    public ConnectionPool(ConnectionFactory factory, SqlDialect dialect, DatabaseConfig config) {
+        this.factory = factory;
+        this.dialect = dialect;
+        this.maxSize = Math.max(1, config.getPoolMaxSize());
+        this.minIdle = Math.min(Math.max(0, config.getPoolMinIdle()), maxSize);
+        this.connectionTimeoutMs = config.getConnectionTimeoutMs();
+        this.validationTimeoutSeconds = config.getValidationTimeoutSeconds();
+        this.idleTimeoutMs = config.getIdleTimeoutMs();
+        this.leakDetectionThresholdMs = config.getLeakDetectionThresholdMs();
+        this.statementCacheSize = config.getStatementCacheSize();
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "savora-pool-housekeeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1000L, config.getHousekeepingIntervalMs());
+        housekeeper.scheduleWithFixedDelay(this::housekeep, interval, interval, TimeUnit.MILLISECONDS);
+
+        fillMinIdle();
+    }
+
+    /**
+     * Borrow a connection. Closing the returned connection gives it back to the pool.
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool has been shut down");
+        }
+
+        long waitStart = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(connectionTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new SQLTransientConnectionException("Timed out after " + connectionTimeoutMs +
+                        "ms waiting for a database connection (active: " + borrowed.size() +
+                        ", max: " + maxSize + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+        recordWait(System.nanoTime() - waitStart);
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isUsable(pooled)) {
+                    break;
+                }
+                discard(pooled);
+            }
+            if (pooled == null) {
+                pooled = createConnection();
+            }
+
+            pooled.borrowedAt = System.currentTimeMillis();
+            pooled.borrowTrace = leakDetectionThresholdMs > 0 ? new Throwable("Connection borrowed here") : null;
+            pooled.leakReported = false;
+            borrowed.add(pooled);
+            borrowCount.incrementAndGet();
+            return pooled.newLease();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Return a connection to the pool (called when a lease is closed)
+     */
+    private void release(PooledConnection pooled) {
+        if (!borrowed.remove(pooled)) {
+            return;
+        }
+        try {
+            Connection physical = pooled.physical;
+            if (!physical.getAutoCommit()) {
+                // Never hand out a connection with someone else's uncommitted work on it
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            if (closed) {
+                discard(pooled);
+            } else {
+                pooled.lastReturnedAt = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            }
+        } catch (SQLException e) {
+            System.err.println("Discarding connection that failed to reset: " + e.getMessage());
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private PooledConnection createConnection() throws SQLException {
+        Connection physical = factory.create();
+        totalConnections.incrementAndGet();
+        createdCount.incrementAndGet();
+        return new PooledConnection(physical);
+    }
+
+    private void discard(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        pooled.statements.closeAll();
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            // Connection is already unusable
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        totalWaitNanos.addAndGet(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    /**
+     * Evict idle connections, report leaks and top the pool back up to its minimum
+     */
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+
+            if (idleTimeoutMs > 0) {
+                for (PooledConnection pooled : idle) {
+                    if (totalConnections.get() <= minIdle) {
+                        break;
+                    }
+                    if (now - pooled.lastReturnedAt > idleTimeoutMs && idle.remove(pooled)) {
+                        discard(pooled);
+                        evictedCount.incrementAndGet();
+                    }
+                }
+            }
+
+            if (leakDetectionThresholdMs > 0) {
+                for (PooledConnection pooled : borrowed) {
+                    if (!pooled.leakReported && now - pooled.borrowedAt > leakDetectionThresholdMs) {
+                        pooled.leakReported = true;
+                        leakCount.incrementAndGet();
+                        System.err.println("Possible connection leak: connection held for " +
+                                (now - pooled.borrowedAt) + "ms");
+                        if (pooled.borrowTrace != null) {
+                            pooled.borrowTrace.printStackTrace();
+                        }
+                    }
+                }
+            }
+
+            fillMinIdle();
+        } catch (RuntimeException e) {
+            System.err.println("Connection pool housekeeping failed: " + e.getMessage());
+        }
+    }
+
+    private void fillMinIdle() {
+        while (!closed && idle.size() < minIdle && totalConnections.get() < maxSize) {
+            try {
+                PooledConnection pooled = createConnection();
+                pooled.lastReturnedAt = System.currentTimeMillis();
+                idle.offerLast(pooled);
+            } catch (SQLException e) {
+                System.err.println("Failed to pre-open pooled connection: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * Close all idle connections and stop accepting new borrows.
+     * Connections still in use are closed when they are returned.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+    
+    /**
+     * Prepared statement cache hit/miss counters across all pooled connections
+     */
+    public StatementCacheStats getStatementCacheStats() {
+        return statementStats;
+    }
+
+    /**
+     * Snapshot of pool usage for monitoring
+     */
+    public PoolMetrics getMetrics() {
+        long borrows = borrowCount.get();
+        double elapsedMinutes = Math.max(1L, System.currentTimeMillis() - startedAt) / 60_000.0;
+        return new PoolMetrics(
+            borrowed.size(),
+            idle.size(),
+            totalConnections.get(),
+            maxSize,
+            permits.getQueueLength(),
+            borrows,
+            createdCount.get(),
+            createdCount.get() / elapsedMinutes,
+            borrows == 0 ? 0 : totalWaitNanos.get() / borrows / 1_000_000.0,
+            maxWaitNanos.get() / 1_000_000.0,
+            evictedCount.get(),
+            leakCount.get()
+        );
+    }
+
+    /**
+     * A physical connection owned by the pool
+     */
+    private final class PooledConnection {
+        private final Connection physical;
+        private final StatementCache statements;
+        private volatile long borrowedAt;
+        private volatile long lastReturnedAt;
+        private volatile Throwable borrowTrace;
+        private volatile boolean leakReported;
+
+        private PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statements = new StatementCache(physical, dialect, statementCacheSize, statementStats);
+        }
+
+        /**
+         * Each borrow gets its own proxy so a stale reference cannot touch the next borrower's work
+         */
+        private Connection newLease() {
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                new LeaseHandler(this));
+        }
+    }
+
+    /**
+     * Routes calls on a leased connection to the physical connection until the lease is closed
+     */
+    private final class LeaseHandler implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean returned;
+
+        private LeaseHandler(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!returned) {
+                        returned = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.physical + (returned ? ", returned" : "") + "]";
+                default:
+                    break;
+            }
+
+            if (returned) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            if ("prepareStatement".equals(method.getName()) && isCacheable(method)) {
+                int autoGeneratedKeys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                return pooled.statements.prepare((String) args[0], autoGeneratedKeys, (Connection) proxy);
+            }
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * prepareStatement(String) and prepareStatement(String, int autoGeneratedKeys) go through the cache
+     */
+    private static boolean isCacheable(Method method) {
+        Class<?>[] params = method.getParameterTypes();
+        return params.length == 1 || (params.length == 2 && params[1] == int.class);
+    }
+
+    /**
+     * Point-in-time pool statistics
+     */
+    public static final class PoolMetrics {
+        private final int activeConnections;
+        private final int idleConnections;
+        private final int totalConnections;
+        private final int maxSize;
+        private final int threadsAwaiting;
+        private final long borrowCount;
+        private final long createdCount;
+        private final double creationRatePerMinute;
+        private final double averageWaitMs;
+        private final double maxWaitMs;
+        private final long evictedCount;
+        private final long leakCount;
+
+        private PoolMetrics(int activeConnections, int idleConnections, int totalConnections, int maxSize,
+                            int threadsAwaiting, long borrowCount, long createdCount, double creationRatePerMinute,
+                            double averageWaitMs, double maxWaitMs, long evictedCount, long leakCount) {
+            this.activeConnections = activeConnections;
+            this.idleConnections = idleConnections;
+            this.totalConnections = totalConnections;
+            this.maxSize = maxSize;
+            this.threadsAwaiting = threadsAwaiting;
+            this.borrowCount = borrowCount;
+            this.createdCount = createdCount;
+            this.creationRatePerMinute = creationRatePerMinute;
+            this.averageWaitMs = averageWaitMs;
+            this.maxWaitMs = maxWaitMs;
+            this.evictedCount = evictedCount;
+            this.leakCount = leakCount;
+        }
+
+        public int getActiveConnections() {
+            return activeConnections;
+        }
+
+        public int getIdleConnections() {
+            return idleConnections;
+        }
+
+        public int getTotalConnections() {
+            return totalConnections;
+        }
+
+        public int getMaxSize() {
+            return maxSize;
+        }
+
+        public int getThreadsAwaiting() {
+            return threadsAwaiting;
+        }
+
+        public long getBorrowCount() {
+            return borrowCount;
+        }
+
+        public long getCreatedCount() {
+            return createdCount;
+        }
+
+        public double getCreationRatePerMinute() {
+            return creationRatePerMinute;
+        }
+
+        public double getAverageWaitMs() {
+            return averageWaitMs;
+        }
+
+        public double getMaxWaitMs() {
+            return maxWaitMs;
+        }
+
+        public long getEvictedCount() {
+            return evictedCount;
+        }
+
+        public long getLeakCount() {
+            return leakCount;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                "active=%d, idle=%d, total=%d/%d, waiting=%d, borrows=%d, created=%d (%.2f/min), " +
+                "avgWait=%.3fms, maxWait=%.3fms, evicted=%d, leaks=%d",
+                activeConnections, idleConnections, totalConnections, maxSize, threadsAwaiting,
+                borrowCount, createdCount, creationRatePerMinute, averageWaitMs, maxWaitMs,
+                evictedCount, leakCount);
+        }
+    }
+}
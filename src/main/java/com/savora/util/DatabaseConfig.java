@@ -0,0 +1,167 @@
+package com.savora.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Database and connection pool settings.
+ * Values are read from database.properties on the classpath and can be
+ * overridden with JVM system properties of the same name.
+ */
+public class DatabaseConfig {
+    private static final String CONFIG_RESOURCE = "/database.properties";
+
+    private final Properties properties;
+
+    private DatabaseConfig(Properties properties) {
+        this.properties = properties;
+    }
+
+    /**
+     * Load configuration from the classpath and system properties
+     */
+    public static DatabaseConfig load() {
+        Properties props = new Properties();
+        try (InputStream in = DatabaseConfig.class.getResourceAsStream(CONFIG_RESOURCE)) {
+            if (in != null) {
+                props.load(in);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to read " + CONFIG_RESOURCE + ": " + e.getMessage());
+        }
+
+        for (String key : System.getProperties().stringPropertyNames()) {
+            if (key.startsWith("db.") || key.startsWith("pool.")) {
+                props.setProperty(key, System.getProperty(key));
+            }
+        }
+        return new DatabaseConfig(props);
+    }
+
+    /**
+     * Storage backend: mysql (default) or embedded
+     */
+    public String getBackend() {
+        return get("db.backend", "mysql");
+    }
+
+    public String getServerUrl() {
+        return get("db.serverUrl", "jdbc:mysql://localhost:3306");
+    }
+
+    public String getDatabaseName() {
+        return get("db.name", "savora_finance");
+    }
+
+    public String getUrl() {
+        return get("db.url", getServerUrl() + "/" + getDatabaseName());
+    }
+
+    public String getUser() {
+        return get("db.user", "root");
+    }
+
+    public String getPassword() {
+        return get("db.password", "");
+    }
+
+    public String getEmbeddedUrl() {
+        return get("db.embedded.url", "jdbc:h2:mem:" + getDatabaseName());
+    }
+
+    public String getEmbeddedUser() {
+        return get("db.embedded.user", "sa");
+    }
+
+    public String getEmbeddedPassword() {
+        return get("db.embedded.password", "");
+    }
+
+    /**
+     * Directory of the binary market data archive; empty when reads should go to the database
+     */
+    public String getMarketDataArchiveDir() {
+        return get("db.marketDataArchive", "");
+    }
+
+    /**
+     * Whether bulk loads may use LOAD DATA LOCAL INFILE (MySQL only; needs local_infile on the server).
+     * Only the bulk loader's own connection ever allows it, never pooled ones.
+     */
+    public boolean isBulkLoadLocalInfile() {
+        return getBoolean("db.bulkLoad.localInfile", false);
+    }
+
+    public int getPoolMaxSize() {
+        return getInt("pool.maxSize", 10);
+    }
+
+    public int getPoolMinIdle() {
+        return getInt("pool.minIdle", 2);
+    }
+
+    public long getConnectionTimeoutMs() {
+        return getLong("pool.connectionTimeoutMs", 30_000L);
+    }
+
+    public int getValidationTimeoutSeconds() {
+        return getInt("pool.validationTimeoutSeconds", 2);
+    }
+
+    public long getIdleTimeoutMs() {
+        return getLong("pool.idleTimeoutMs", 600_000L);
+    }
+
+    public long getLeakDetectionThresholdMs() {
+        return getLong("pool.leakDetectionThresholdMs", 60_000L);
+    }
+
+    public long getHousekeepingIntervalMs() {
+        return getLong("pool.housekeepingIntervalMs", 30_000L);
+    }
+
+    public int getStatementCacheSize() {
+        return getInt("pool.statementCacheSize", 64);
+    }
+
+    /**
+     * Whether to use MySQL server-side prepared statements with batch rewriting
+     */
+    public boolean isServerSidePrepare() {
+        return getBoolean("db.serverSidePrepare", true);
+    }
+
+    /**
+     * Get a raw setting, falling back to the given default
+     */
+    public String get(String key, String defaultValue) {
+        String value = properties.getProperty(key);
+        return value != null ? value.trim() : defaultValue;
+    }
+
+    public boolean getBoolean(String key, boolean defaultValue) {
+        String value = properties.getProperty(key);
+        return value != null ? Boolean.parseBoolean(value.trim()) : defaultValue;
+    }
+
+    public int getInt(String key, int defaultValue) {
+        String value = properties.getProperty(key);
+        try {
+            return value != null ? Integer.parseInt(value.trim()) : defaultValue;
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+
+    public long getLong(String key, long defaultValue) {
+        String value = properties.getProperty(key);
+        try {
+            return value != null ? Long.parseLong(value.trim()) : defaultValue;
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + ": " + value);
+            return defaultValue;
+        }
+    }
+}
@@ -1,47 +1,32 @@
 package com.savora.util;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
-import java.sql.Statement;
-import java.util.Properties;
 
 /**
- * Utility class for managing database connections
+ * Utility class for managing database connections.
+ * Connections come from a bounded pool; closing a connection returns it to the pool.
  */
 public class DatabaseConnection {
-    private static final String DB_URL = "jdbc:mysql://localhost:3306/savora_finance";
-    private static final String DB_USER = "root"; // Using default root user
-    private static final String DB_PASSWORD = "whatthe";   // Using default root password
-    
     private static DatabaseConnection instance;
-    private Connection connection;
+    
+    private final DatabaseConfig config;
+    private StorageBackend backend;
+    private ConnectionPool pool;
     
     private DatabaseConnection() {
+        this.config = DatabaseConfig.load();
         try {
-            // Load MySQL JDBC driver
-            Class.forName("com.mysql.cj.jdbc.Driver");
+            backend = StorageBackend.fromConfig(config);
+            backend.initialize();
             
-            // Set connection properties
-            Properties props = new Properties();
-            props.setProperty("user", DB_USER);
-            props.setProperty("password", DB_PASSWORD);
-            props.setProperty("serverTimezone", "UTC");
-            
-            // First try to create the database if it doesn't exist
-            try (Connection tempConn = DriverManager.getConnection("jdbc:mysql://localhost:3306", props)) {
-                Statement stmt = tempConn.createStatement();
-                stmt.execute("CREATE DATABASE IF NOT EXISTS savora_finance");
-            }
-            
-            connection = DriverManager.getConnection(DB_URL, props);
-            System.out.println("Database connection established successfully.");
+            pool = new ConnectionPool(backend::openConnection, backend.getDialect(), config);
+            System.out.println("Database connection pool started on " + backend.getName() +
+                               " (max " + pool.getMaxSize() + " connections).");
             
             // Initialize database schema
             initializeDatabase();
-        } catch (ClassNotFoundException | SQLException e) {
+        } catch (SQLException | IllegalArgumentException e) {
             System.err.println("Failed to establish database connection: " + e.getMessage());
             e.printStackTrace();
         }
@@ -58,82 +43,122 @@ public class DatabaseConnection {
     }
     
     /**
-     * Get database connection
+     * Borrow a connection from the pool. Close it (try-with-resources) to give it back.
      */
     public Connection getConnection() {
+        if (pool == null) {
+            System.err.println("Failed to get database connection: connection pool is not available");
+            return null;
+        }
         try {
-            if (connection == null || connection.isClosed()) {
-                // Reconnect if connection is closed
-                Properties props = new Properties();
-                props.setProperty("user", DB_USER);
-                props.setProperty("password", DB_PASSWORD);
-                
-                connection = DriverManager.getConnection(DB_URL, props);
-            }
+            return pool.borrow();
         } catch (SQLException e) {
             System.err.println("Failed to get database connection: " + e.getMessage());
             e.printStackTrace();
         }
-        return connection;
+        return null;
     }
     
     /**
-     * Close database connection
+     * Connection for a bulk load: when the loads may use LOAD DATA LOCAL INFILE, a separate
+     * connection that allows it, otherwise a pooled one. Close it when done.
      */
-    public void closeConnection() {
+    public Connection getBulkLoadConnection() {
+        if (backend == null || !backend.getDialect().supportsLoadDataLocalInfile() || !config.isBulkLoadLocalInfile()) {
+            return getConnection();
+        }
         try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Database connection closed.");
-            }
+            return backend.openBulkLoadConnection();
         } catch (SQLException e) {
-            System.err.println("Failed to close database connection: " + e.getMessage());
+            System.err.println("Failed to open bulk load connection: " + e.getMessage());
             e.printStackTrace();
         }
+        return null;
     }
     
     /**
-     * Initialize database schema
+     * Run a unit of work in one transaction on one pooled connection.
+     * Commits once if the work returns normally; rolls back and rethrows if it throws.
      */
-    private void initializeDatabase() {
-        try (BufferedReader reader = new BufferedReader(
-                new InputStreamReader(getClass().getResourceAsStream("/schema.sql")))) {
-            
-            StringBuilder sql = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                // Skip comments and empty lines
-                if (line.trim().isEmpty() || line.trim().startsWith("--")) {
-                    continue;
-                }
-                sql.append(line).append("\n");
+    public <T> T inTransaction(UnitOfWork<T> work) throws SQLException {
+        Connection conn = getConnection();
+        if (conn == null) {
+            throw new SQLException("No database connection available");
+        }
+        try (Connection txConn = conn) {
+            txConn.setAutoCommit(false);
+            try {
+                T result = work.execute(txConn);
+                txConn.commit();
+                return result;
+            } catch (SQLException | RuntimeException e) {
+                txConn.rollback();
+                throw e;
+            } finally {
+                txConn.setAutoCommit(true);
             }
-            
-            // Split SQL statements and execute them
-            String[] statements = sql.toString().split(";");
-            try (Statement stmt = connection.createStatement()) {
-                for (String statement : statements) {
-                    statement = statement.trim();
-                    if (!statement.isEmpty()) {
-                        try {
-                            stmt.execute(statement);
-                        } catch (SQLException se) {
-                            // Ignore duplicate-key / already-exists errors while initializing schema
-                            String msg = se.getMessage() != null ? se.getMessage().toLowerCase() : "";
-                            if (msg.contains("duplicate key") || msg.contains("already exists") || msg.contains("duplicate key name") || msg.contains("errno 1061")) {
-                                // benign when schema was previously initialized
-                                System.out.println("Schema statement skipped: " + se.getMessage());
-                                continue;
-                            }
-                            // rethrow if it's a different SQL error
-                            throw se;
-                        }
-                    }
-                }
+        }
+    }
+    
+    /**
+     * Get the loaded database settings
+     */
+    public DatabaseConfig getConfig() {
+        return config;
+    }
+    
+    /**
+     * Get the SQL dialect of the configured storage backend
+     */
+    public SqlDialect getDialect() {
+        return backend != null ? backend.getDialect() : new MySqlDialect();
+    }
+    
+    /**
+     * Get connection pool statistics (wait time, active count, creation rate)
+     */
+    public ConnectionPool.PoolMetrics getPoolMetrics() {
+        return pool != null ? pool.getMetrics() : null;
+    }
+    
+    /**
+     * Get the maximum number of pooled connections
+     */
+    public int getPoolMaxSize() {
+        return pool != null ? pool.getMaxSize() : config.getPoolMaxSize();
+    }
+    
+    /**
+     * Get prepared statement cache hit/miss counters
+     */
+    public StatementCacheStats getStatementCacheStats() {
+        return pool != null ? pool.getStatementCacheStats() : null;
+    }
+    
+    /**
+     * Shut down the connection pool
+     */
+    public void closeConnection() {
+        if (pool != null) {
+            System.out.println("Connection pool stats: " + pool.getMetrics());
+            System.out.println("Statement cache stats: " + pool.getStatementCacheStats());
+            pool.close();
+            System.out.println("Database connection pool closed.");
+        }
+    }
+    
+    /**
+     * Initialize database schema by applying any pending migrations
+     */
+    private void initializeDatabase() {
+        long start = System.currentTimeMillis();
+        try (Connection conn = getConnection()) {
+            if (conn == null) {
+                return;
             }
-            
-            System.out.println("Database schema initialized successfully.");
-        } catch (Exception e) {
+            new SchemaMigrator(backend.getDialect()).migrate(conn);
+            System.out.println("Database schema check took " + (System.currentTimeMillis() - start) + "ms.");
+        } catch (SQLException e) {
             System.err.println("Failed to initialize database schema: " + e.getMessage());
             e.printStackTrace();
         }
@@ -143,12 +168,19 @@ public class DatabaseConnection {
      * Test database connection
      */
     public boolean testConnection() {
-        try {
-            Connection conn = getConnection();
-            return conn != null && !conn.isClosed();
+        try (Connection conn = getConnection()) {
+            return conn != null && conn.isValid(config.getValidationTimeoutSeconds());
         } catch (SQLException e) {
             System.err.println("Database connection test failed: " + e.getMessage());
             return false;
         }
     }
+    
+    /**
+     * Work run by {@link #inTransaction(UnitOfWork)}; all statements must use the given connection
+     */
+    @FunctionalInterface
+    public interface UnitOfWork<T> {
+        T execute(Connection conn) throws SQLException;
+    }
 }
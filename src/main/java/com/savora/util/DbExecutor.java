@@ -0,0 +1,95 @@
+package com.savora.util;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bounded executor for database work that must not run on the Swing EDT.
+ *
+ * It has one worker per pooled connection, so queued tasks wait in the
+ * executor instead of blocking on the pool. Futures returned by
+ * {@link #submit(Supplier)} can be cancelled: a task that has not started yet
+ * is skipped, and a running one is interrupted and its result dropped.
+ */
+public class DbExecutor {
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private static DbExecutor instance;
+
+    private final ThreadPoolExecutor executor;
+
+    private DbExecutor(int threads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+            threads, threads, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(QUEUE_CAPACITY),
+            r -> {
+                Thread thread = new Thread(r, "savora-db-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Get singleton instance, sized to the connection pool
+     */
+    public static synchronized DbExecutor getInstance() {
+        if (instance == null) {
+            instance = new DbExecutor(DatabaseConnection.getInstance().getPoolMaxSize());
+        }
+        return instance;
+    }
+
+    /**
+     * Run a database task in the background
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CancellableFuture<T> future = new CancellableFuture<>();
+        try {
+            future.handle = executor.submit(() -> {
+                if (future.isDone()) {
+                    return; // cancelled while queued
+                }
+                try {
+                    future.complete(task.get());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Stop accepting work and interrupt running tasks
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * A future that also cancels the executor task behind it
+     */
+    private static final class CancellableFuture<T> extends CompletableFuture<T> {
+        private volatile Future<?> handle;
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            Future<?> task = handle;
+            if (cancelled && task != null) {
+                task.cancel(true);
+            }
+            return cancelled;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.savora.util;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * In-process H2 backend. Needs no database server, so the application, benchmarks
+ * and CI can run against an in-memory (jdbc:h2:mem:) or local file database.
+ */
+public class EmbeddedBackend implements StorageBackend {
+    private static final String REQUIRED_SETTINGS = ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private final DatabaseConfig config;
+    private final String url;
+    private final SqlDialect dialect = new H2Dialect();
+
+    public EmbeddedBackend(DatabaseConfig config) {
+        this.config = config;
+        String configured = config.getEmbeddedUrl();
+        this.url = configured.toUpperCase().contains(";MODE=") ? configured : configured + REQUIRED_SETTINGS;
+    }
+
+    @Override
+    public String getName() {
+        return "Embedded H2 (" + url + ")";
+    }
+
+    @Override
+    public SqlDialect getDialect() {
+        return dialect;
+    }
+
+    @Override
+    public void initialize() throws SQLException {
+        try {
+            Class.forName("org.h2.Driver");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("H2 JDBC driver not found", e);
+        }
+    }
+
+    @Override
+    public Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(url, config.getEmbeddedUser(), config.getEmbeddedPassword());
+    }
+}
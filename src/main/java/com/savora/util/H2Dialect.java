@@ -0,0 +1,52 @@
+package com.savora.util;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Dialect for the embedded H2 engine.
+ *
+ * The embedded backend always opens H2 in MySQL compatibility mode, which
+ * understands the MySQL constructs the DAOs rely on: ENUM columns (native H2
+ * ENUM type, ordered by declaration like MySQL), INSERT IGNORE in
+ * MarketDataDAO.batchInsert, and ON DUPLICATE KEY UPDATE ... VALUES(col) in
+ * PositionDAO.upsert. What the mode does not cover is rewritten here:
+ * storage-engine table options, table partitioning, re-runnable CREATE
+ * INDEX statements and index names, which H2 requires to be unique in the
+ * schema while MySQL only requires them to be unique in their table.
+ */
+public class H2Dialect implements SqlDialect {
+    private static final Pattern TABLE_ENGINE = Pattern.compile("\\)\\s*ENGINE\\s*=\\s*\\w+", Pattern.CASE_INSENSITIVE);
+    private static final Pattern PARTITION_BY = Pattern.compile("\\)\\s*PARTITION\\s+BY\\s.*$",
+                                                                Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern CREATE_INDEX = Pattern.compile("^CREATE\\s+(UNIQUE\\s+)?INDEX\\s+(?!IF\\s+NOT\\s+EXISTS)",
+                                                                Pattern.CASE_INSENSITIVE);
+    private static final Pattern CREATE_TABLE = Pattern.compile("^CREATE\\s+TABLE\\s+(?:IF\\s+NOT\\s+EXISTS\\s+)?(\\w+)",
+                                                                Pattern.CASE_INSENSITIVE);
+    private static final Pattern INLINE_INDEX = Pattern.compile("^(\\s*(?:UNIQUE\\s+)?(?:INDEX|KEY)\\s+)(\\w+)(\\s*\\()",
+                                                                Pattern.CASE_INSENSITIVE | Pattern.MULTILINE);
+
+    @Override
+    public String getName() {
+        return "H2 (MySQL mode)";
+    }
+
+    @Override
+    public String translate(String sql) {
+        return sql;
+    }
+
+    @Override
+    public String translateDdl(String sql) {
+        String translated = TABLE_ENGINE.matcher(sql).replaceAll(")");
+        translated = PARTITION_BY.matcher(translated).replaceFirst(")");
+        translated = CREATE_INDEX.matcher(translated).replaceFirst("CREATE $1INDEX IF NOT EXISTS ");
+
+        // Index names declared in CREATE TABLE are prefixed with the table name
+        Matcher table = CREATE_TABLE.matcher(translated.trim());
+        if (table.find()) {
+            translated = INLINE_INDEX.matcher(translated).replaceAll("$1" + table.group(1) + "_$2$3");
+        }
+        return translated;
+    }
+}
@@ -0,0 +1,106 @@
+package com.savora.util;
+
+import com.savora.dao.MarketDataArchive;
+import com.savora.dao.MarketDataBulkLoader;
+import com.savora.dao.MarketDataDAO;
+import com.savora.dao.SymbolDAO;
+import com.savora.model.PriceSeries;
+import com.savora.model.StockSymbol;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Command line tool that copies market_data to and from the binary archive.
+ *
+ * Usage: MarketDataArchiveTool export|import &lt;directory&gt;
+ * Point db.marketDataArchive at an exported directory to read prices from it.
+ */
+public class MarketDataArchiveTool {
+    private final SymbolDAO symbolDAO;
+    private final MarketDataDAO marketDataDAO;
+
+    public MarketDataArchiveTool() {
+        this.symbolDAO = new SymbolDAO();
+        this.marketDataDAO = new MarketDataDAO();
+    }
+
+    /**
+     * Write every symbol's history from the database to archive files
+     */
+    public void exportAll(Path directory) throws IOException {
+        MarketDataArchive archive = new MarketDataArchive(directory);
+        long start = System.nanoTime();
+        long totalRows = 0;
+
+        for (StockSymbol symbol : symbolDAO.findAll()) {
+            PriceSeries series = marketDataDAO.findSeriesInDatabase(symbol.getSymbolId());
+            if (series == null) {
+                System.err.println("Skipping " + symbol.getSymbol() + ": could not read market data");
+                continue;
+            }
+            archive.write(series, symbol.getSymbol());
+            totalRows += series.size();
+            System.out.println("  " + symbol.getSymbol() + ": " + series.size() + " rows -> " +
+                               archive.fileFor(symbol.getSymbolId()).getFileName());
+        }
+        report("Exported", totalRows, start);
+    }
+
+    /**
+     * Replace market_data rows with the contents of archive files, matching symbols by ticker
+     */
+    public void importAll(Path directory) throws IOException {
+        MarketDataBulkLoader loader = marketDataDAO.openBulkLoader();
+        try (loader; DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + MarketDataArchive.FILE_SUFFIX)) {
+            for (Path file : files) {
+                String ticker = MarketDataArchive.readTicker(file);
+                StockSymbol symbol = symbolDAO.findBySymbol(ticker);
+                if (symbol == null) {
+                    System.err.println("Skipping " + file.getFileName() + ": symbol " + ticker + " not found in database");
+                    continue;
+                }
+
+                PriceSeries series = MarketDataArchive.read(file, -1);
+                if (loader.replace(symbol.getSymbolId(), series)) {
+                    System.out.println("  " + ticker + ": " + series.size() + " rows loaded");
+                } else {
+                    System.err.println("  " + ticker + ": load failed, existing rows kept");
+                }
+            }
+        }
+        System.out.println("Imported " + loader);
+    }
+
+    private static void report(String action, long rows, long startNanos) {
+        double seconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        System.out.printf("%s %,d rows in %.2fs (%,.0f rows/sec)%n",
+                          action, rows, seconds, seconds > 0 ? rows / seconds : rows);
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2 || !(args[0].equals("export") || args[0].equals("import"))) {
+            System.err.println("Usage: MarketDataArchiveTool export|import <directory>");
+            System.exit(1);
+        }
+
+        MarketDataArchiveTool tool = new MarketDataArchiveTool();
+        Path directory = Paths.get(args[1]);
+        try {
+            if (args[0].equals("export")) {
+                tool.exportAll(directory);
+            } else {
+                tool.importAll(directory);
+            }
+        } catch (IOException e) {
+            System.err.println("Archive " + args[0] + " failed: " + e.getMessage());
+            e.printStackTrace();
+            System.exit(1);
+        } finally {
+            DatabaseConnection.getInstance().closeConnection();
+        }
+    }
+}
@@ -1,26 +1,47 @@
 package com.savora.util;
 
+import com.savora.dao.IntradayBarDAO;
+import com.savora.dao.MarketDataBulkLoader;
 import com.savora.dao.MarketDataDAO;
 import com.savora.dao.SymbolDAO;
-import com.savora.model.MarketData;
+import com.savora.model.BarInterval;
+import com.savora.model.IntradayBar;
+import com.savora.model.PriceSeries;
 import com.savora.model.StockSymbol;
+import com.savora.service.MarkToMarketService;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
 import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Utility to generate realistic mock stock market data for simulation
- * Generates 10 years of daily data for popular stocks
+ * Generates 10 years of daily data for popular stocks, plus any number of synthetic tickers.
+ *
+ * Every symbol draws from its own SplittableRandom stream, seeded from the master
+ * seed and the ticker alone. Symbols are generated in parallel on a fork/join
+ * pool, and the output is bit-identical for any thread count or symbol order.
+ * Minute bars are derived from the stored daily bars and aggregate exactly to them.
  */
 public class MockDataGenerator {
+    private static final long DEFAULT_SEED = 42L;
+    private static final String SYNTHETIC_PREFIX = "SYN";
+    
     private final SymbolDAO symbolDAO;
     private final MarketDataDAO marketDataDAO;
-    private final Random random;
+    private final IntradayBarDAO intradayBarDAO;
+    private final long masterSeed;
+    private final int parallelism;
     
     // Stock configurations: symbol -> [starting price, volatility (0-1), drift (annual %)]
     private static final Object[][] STOCK_CONFIGS = {
@@ -52,75 +73,136 @@ public class MockDataGenerator {
     };
     
     public MockDataGenerator() {
+        this(DEFAULT_SEED, Runtime.getRuntime().availableProcessors()); // Fixed seed for reproducibility
+    }
+    
+    public MockDataGenerator(long masterSeed, int parallelism) {
         this.symbolDAO = new SymbolDAO();
         this.marketDataDAO = new MarketDataDAO();
-        this.random = new Random(42); // Fixed seed for reproducibility
+        this.intradayBarDAO = new IntradayBarDAO();
+        this.masterSeed = masterSeed;
+        this.parallelism = Math.max(1, parallelism);
     }
     
     /**
      * Generate and insert 10 years of mock data for all configured stocks
      */
     public void generateAllData() {
+        generateAllData(0);
+    }
+    
+    /**
+     * Generate and insert 10 years of mock data for the configured stocks and
+     * the given number of synthetic tickers (SYN00001, SYN00002, ...)
+     */
+    public void generateAllData(int syntheticSymbols) {
         LocalDate endDate = LocalDate.now(); // Include today
         LocalDate startDate = endDate.minusYears(10);
         
-        System.out.println("Starting mock data generation for 10 years (" + startDate + " to " + endDate + ")");
+        List<SymbolSpec> specs = buildSpecs(syntheticSymbols);
+        System.out.println("Starting mock data generation for " + specs.size() + " symbols over 10 years (" +
+                           startDate + " to " + endDate + ") on " + parallelism + " threads");
         
+        int[] symbolIds = prepareSymbols(specs);
+        
+        // Generate a bounded batch of symbols in parallel, then stream it to the loader in symbol order
+        int batchSize = parallelism * 4;
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        MarketDataBulkLoader loader = marketDataDAO.openBulkLoader();
+        try {
+            for (int from = 0; from < specs.size(); from += batchSize) {
+                int to = Math.min(from + batchSize, specs.size());
+                PriceSeries[] batch = new PriceSeries[to - from];
+                pool.invoke(new GenerateTask(specs, symbolIds, from, to, batch, from, startDate, endDate));
+                
+                for (PriceSeries series : batch) {
+                    if (series == null) {
+                        continue;
+                    }
+                    for (int i = 0; i < series.size(); i++) {
+                        loader.add(series.getSymbolId(), series.getEpochDay(i), series.getOpenCents(i),
+                                   series.getHighCents(i), series.getLowCents(i), series.getCloseCents(i),
+                                   series.getAdjustedCloseCents(i), series.getVolume(i));
+                    }
+                }
+                System.out.println("  ✓ Generated " + to + "/" + specs.size() + " symbols");
+            }
+        } finally {
+            loader.close();
+            pool.shutdown();
+        }
+        
+        System.out.println("\n✓ Mock data generation complete: " + loader);
+    }
+    
+    /**
+     * The 25 configured stocks followed by the synthetic ones
+     */
+    public List<SymbolSpec> buildSpecs(int syntheticSymbols) {
+        List<SymbolSpec> specs = new ArrayList<>();
         for (Object[] config : STOCK_CONFIGS) {
-            String symbol = (String) config[0];
-            double startPrice = (double) config[1];
-            double volatility = (double) config[2];
-            double annualDrift = (double) config[3];
-            
-            System.out.println("\nGenerating data for " + symbol + "...");
+            specs.add(new SymbolSpec((String) config[0], (String) config[0],
+                                     (double) config[1], (double) config[2], (double) config[3]));
+        }
+        for (int n = 1; n <= syntheticSymbols; n++) {
+            String ticker = String.format("%s%05d", SYNTHETIC_PREFIX, n);
+            SplittableRandom params = new SplittableRandom(seedFor("params:" + ticker));
+            specs.add(new SymbolSpec(ticker, "Synthetic Stock " + n,
+                                     5.0 + params.nextDouble() * 495.0,    // $5 - $500
+                                     0.15 + params.nextDouble() * 0.45,    // 15% - 60% vol
+                                     -0.05 + params.nextDouble() * 0.40)); // -5% - 35% growth
+        }
+        return specs;
+    }
+    
+    /**
+     * Look up (or create synthetic) symbols and clear their old data; -1 marks a skipped symbol
+     */
+    private int[] prepareSymbols(List<SymbolSpec> specs) {
+        int[] symbolIds = new int[specs.size()];
+        for (int i = 0; i < specs.size(); i++) {
+            SymbolSpec spec = specs.get(i);
+            symbolIds[i] = -1;
             
             // Get or verify symbol exists
-            StockSymbol stockSymbol = symbolDAO.findBySymbol(symbol);
+            StockSymbol stockSymbol = symbolDAO.findBySymbol(spec.ticker);
+            if (stockSymbol == null && spec.ticker.startsWith(SYNTHETIC_PREFIX)) {
+                stockSymbol = new StockSymbol(spec.ticker, spec.name);
+                if (!symbolDAO.create(stockSymbol)) {
+                    stockSymbol = null;
+                }
+            }
             if (stockSymbol == null) {
-                System.err.println("Symbol " + symbol + " not found in database. Skipping.");
+                System.err.println("Symbol " + spec.ticker + " not found in database. Skipping.");
                 continue;
             }
             
             // Check if data already exists and delete it to regenerate with current dates
             int existingCount = marketDataDAO.getDataCountForSymbol(stockSymbol.getSymbolId());
             if (existingCount > 0) {
-                System.out.println("  " + symbol + " has " + existingCount + " old data points. Deleting...");
+                System.out.println("  " + spec.ticker + " has " + existingCount + " old data points. Deleting...");
                 marketDataDAO.deleteBySymbolId(stockSymbol.getSymbolId());
             }
-            
-            // Generate data
-            List<MarketData> dataPoints = generateStockData(
-                stockSymbol.getSymbolId(),
-                startDate,
-                endDate,
-                startPrice,
-                volatility,
-                annualDrift
-            );
-            
-            // Batch insert
-            System.out.println("  Inserting " + dataPoints.size() + " data points for " + symbol + "...");
-            int inserted = marketDataDAO.batchInsert(dataPoints);
-            System.out.println("  ✓ Inserted " + inserted + " records for " + symbol);
+            symbolIds[i] = stockSymbol.getSymbolId();
         }
-        
-        System.out.println("\n✓ Mock data generation complete!");
+        return symbolIds;
     }
     
     /**
-     * Generate realistic stock price data using geometric Brownian motion
+     * Generate realistic stock price data using geometric Brownian motion.
+     * Depends only on the master seed, the spec and the dates.
      */
-    private List<MarketData> generateStockData(int symbolId, LocalDate startDate, LocalDate endDate,
-                                                 double startPrice, double volatility, double annualDrift) {
-        List<MarketData> dataPoints = new ArrayList<>();
+    public PriceSeries generateSeries(SymbolSpec spec, int symbolId, LocalDate startDate, LocalDate endDate) {
+        GaussianRandom random = new GaussianRandom(seedFor(spec.ticker));
+        PriceSeries.Builder builder = new PriceSeries.Builder(symbolId, 2700);
         
-        double currentPrice = startPrice;
+        double currentPrice = spec.startPrice;
         LocalDate currentDate = startDate;
         
         // Daily drift and volatility
         double dt = 1.0 / 252.0; // Trading days in a year
-        double dailyDrift = annualDrift * dt;
-        double dailyVol = volatility * Math.sqrt(dt);
+        double dailyDrift = spec.annualDrift * dt;
+        double dailyVol = spec.volatility * StrictMath.sqrt(dt);
         
         while (!currentDate.isAfter(endDate)) {
             // Skip weekends
@@ -135,7 +217,7 @@ public class MockDataGenerator {
             double dailyReturn = dailyDrift + (dailyVol * randomShock);
             
             // Calculate new price
-            double newPrice = currentPrice * Math.exp(dailyReturn);
+            double newPrice = currentPrice * StrictMath.exp(dailyReturn);
             
             // Generate OHLC (Open, High, Low, Close) for the day
             double open = currentPrice;
@@ -154,43 +236,306 @@ public class MockDataGenerator {
             long baseVolume = 10_000_000L + random.nextInt(5_000_000);
             long volume = (long) (baseVolume * (1 + Math.abs(dailyReturn) * 10));
             
-            // Create market data entry
-            MarketData data = new MarketData(
-                symbolId,
-                currentDate,
-                round(open),
-                round(high),
-                round(low),
-                round(close),
-                round(close), // adjusted_close = close (no splits/dividends in mock data)
+            long closeCents = toCents(close);
+            builder.add(
+                0L,
+                (int) currentDate.toEpochDay(),
+                toCents(open),
+                toCents(high),
+                toCents(low),
+                closeCents,
+                closeCents, // adjusted_close = close (no splits/dividends in mock data)
                 volume
             );
             
-            dataPoints.add(data);
-            
             // Update for next day
             currentPrice = newPrice;
             currentDate = currentDate.plusDays(1);
         }
         
-        return dataPoints;
+        return builder.build();
+    }
+    
+    /**
+     * Generate and insert one-minute bars for the last given number of trading days
+     * of every symbol that has daily data
+     */
+    public void generateIntradayData(int days) {
+        List<StockSymbol> symbols = symbolDAO.findAll();
+        System.out.println("Starting intraday generation: " + days + " days of one-minute bars for " +
+                           symbols.size() + " symbols on " + parallelism + " threads");
+        
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        long totalBars = 0;
+        try {
+            for (int from = 0; from < symbols.size(); from += parallelism) {
+                List<Callable<List<IntradayBar>>> batch = new ArrayList<>();
+                for (StockSymbol symbol : symbols.subList(from, Math.min(from + parallelism, symbols.size()))) {
+                    batch.add(() -> generateIntradaySeries(symbol, days));
+                }
+                
+                for (Future<List<IntradayBar>> result : pool.invokeAll(batch)) {
+                    List<IntradayBar> bars = result.get();
+                    if (bars.isEmpty()) {
+                        continue;
+                    }
+                    LocalDateTime first = bars.get(0).getBarTime().toLocalDate().atStartOfDay();
+                    LocalDateTime last = bars.get(bars.size() - 1).getBarTime().toLocalDate().plusDays(1).atStartOfDay();
+                    intradayBarDAO.deleteRange(bars.get(0).getSymbolId(), BarInterval.ONE_MINUTE, first, last);
+                    totalBars += intradayBarDAO.insertBars(bars);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Intraday generation interrupted");
+        } catch (ExecutionException e) {
+            System.err.println("Error generating intraday data: " + e.getCause().getMessage());
+            e.getCause().printStackTrace();
+        } finally {
+            pool.shutdown();
+        }
+        
+        System.out.println("\n✓ Intraday generation complete: " + totalBars + " bars inserted");
+    }
+    
+    /**
+     * Minute bars for the last given number of days of a symbol's daily series; none if the
+     * series could not be loaded
+     */
+    private List<IntradayBar> generateIntradaySeries(StockSymbol symbol, int days) {
+        PriceSeries daily = marketDataDAO.findSeries(symbol.getSymbolId());
+        if (daily == null) {
+            System.err.println("Skipping intraday data for " + symbol.getSymbol() + ": daily data could not be loaded");
+            return new ArrayList<>();
+        }
+        List<IntradayBar> bars = new ArrayList<>(Math.min(days, daily.size()) * BarInterval.SESSION_MINUTES);
+        for (int i = Math.max(0, daily.size() - days); i < daily.size(); i++) {
+            bars.addAll(Arrays.asList(generateMinuteBars(symbol.getSymbol(), daily, i)));
+        }
+        return bars;
+    }
+    
+    /**
+     * Generate the 390 one-minute bars of one trading day of a daily series.
+     * The close path is a Brownian bridge from the daily open to the daily close, kept inside
+     * the daily range; one bar touches the daily high and one the daily low, and the volume is
+     * split with a U-shaped intraday profile. Aggregating the bars gives back the daily bar exactly.
+     */
+    public IntradayBar[] generateMinuteBars(String ticker, PriceSeries daily, int index) {
+        int n = BarInterval.SESSION_MINUTES;
+        int epochDay = daily.getEpochDay(index);
+        long openCents = daily.getOpenCents(index);
+        long highCents = daily.getHighCents(index);
+        long lowCents = daily.getLowCents(index);
+        long closeCents = daily.getCloseCents(index);
+        long volume = daily.getVolume(index);
+        GaussianRandom random = new GaussianRandom(seedFor("intraday:" + ticker + ":" + epochDay));
+        
+        // Random walk, pinned to the daily close by the bridge correction below
+        double step = (highCents - lowCents) / (4.0 * StrictMath.sqrt(n));
+        double[] walk = new double[n];
+        double position = 0;
+        for (int k = 0; k < n; k++) {
+            position += random.nextGaussian() * step;
+            walk[k] = position;
+        }
+        
+        long[] closes = new long[n];
+        for (int k = 0; k < n - 1; k++) {
+            double t = (k + 1) / (double) n;
+            double price = openCents + (closeCents - openCents) * t + walk[k] - t * walk[n - 1];
+            closes[k] = Math.max(lowCents, Math.min(highCents, Math.round(price)));
+        }
+        closes[n - 1] = closeCents;
+        
+        int highBar = random.nextInt(n);
+        int lowBar = random.nextInt(n);
+        double[] weights = new double[n];
+        double totalWeight = 0;
+        LocalDateTime sessionOpen = LocalDate.ofEpochDay(epochDay).atTime(BarInterval.SESSION_OPEN);
+        IntradayBar[] bars = new IntradayBar[n];
+        for (int k = 0; k < n; k++) {
+            long open = k == 0 ? openCents : closes[k - 1];
+            long close = closes[k];
+            long high = k == highBar ? highCents
+                    : Math.min(highCents, Math.max(open, close) + Math.round(Math.abs(random.nextGaussian()) * step));
+            long low = k == lowBar ? lowCents
+                    : Math.max(lowCents, Math.min(open, close) - Math.round(Math.abs(random.nextGaussian()) * step));
+            bars[k] = new IntradayBar(daily.getSymbolId(), BarInterval.ONE_MINUTE, sessionOpen.plusMinutes(k),
+                                      open, high, low, close, 0);
+            
+            // Busier near the open and the close
+            double fromMiddle = (k - (n - 1) / 2.0) / ((n - 1) / 2.0);
+            weights[k] = (1 + 2 * fromMiddle * fromMiddle) * (0.5 + random.nextDouble());
+            totalWeight += weights[k];
+        }
+        
+        // Allocate volume by cumulative weight so the bar volumes sum exactly to the daily volume
+        double cumulative = 0;
+        long allocated = 0;
+        for (int k = 0; k < n - 1; k++) {
+            cumulative += weights[k];
+            long target = Math.min(volume, Math.round(volume * (cumulative / totalWeight)));
+            bars[k].setVolume(target - allocated);
+            allocated = target;
+        }
+        bars[n - 1].setVolume(volume - allocated);
+        return bars;
     }
     
     /**
-     * Round to 2 decimal places
+     * Round to 2 decimal places, as cents
      */
-    private BigDecimal round(double value) {
-        return BigDecimal.valueOf(value).setScale(2, RoundingMode.HALF_UP);
+    private static long toCents(double value) {
+        return Math.round(value * 100.0);
+    }
+    
+    /**
+     * Seed of the random stream for a key: SplitMix64 mixing of the master seed and a 64-bit FNV-1a hash
+     */
+    private long seedFor(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        return mix64(masterSeed ^ mix64(hash));
+    }
+    
+    private static long mix64(long z) {
+        z += 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
     }
     
     /**
-     * Main method for standalone execution
+     * Parameters of one generated symbol
+     */
+    public static final class SymbolSpec {
+        private final String ticker;
+        private final String name;
+        private final double startPrice;
+        private final double volatility;
+        private final double annualDrift;
+        
+        public SymbolSpec(String ticker, String name, double startPrice, double volatility, double annualDrift) {
+            this.ticker = ticker;
+            this.name = name;
+            this.startPrice = startPrice;
+            this.volatility = volatility;
+            this.annualDrift = annualDrift;
+        }
+        
+        public String getTicker() {
+            return ticker;
+        }
+        
+        public String getName() {
+            return name;
+        }
+    }
+    
+    /**
+     * SplittableRandom with normal deviates (Marsaglia polar method), which it lacks before Java 17.
+     * StrictMath keeps the values identical on every JVM.
+     */
+    private static final class GaussianRandom {
+        private final SplittableRandom random;
+        private double spare;
+        private boolean hasSpare;
+        
+        private GaussianRandom(long seed) {
+            this.random = new SplittableRandom(seed);
+        }
+        
+        private double nextGaussian() {
+            if (hasSpare) {
+                hasSpare = false;
+                return spare;
+            }
+            double u;
+            double v;
+            double s;
+            do {
+                u = random.nextDouble() * 2 - 1;
+                v = random.nextDouble() * 2 - 1;
+                s = u * u + v * v;
+            } while (s >= 1 || s == 0);
+            double scale = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+            spare = v * scale;
+            hasSpare = true;
+            return u * scale;
+        }
+        
+        private int nextInt(int bound) {
+            return random.nextInt(bound);
+        }
+        
+        private double nextDouble() {
+            return random.nextDouble();
+        }
+    }
+    
+    /**
+     * Splits a range of symbols across the fork/join pool
+     */
+    private final class GenerateTask extends RecursiveAction {
+        private final List<SymbolSpec> specs;
+        private final int[] symbolIds;
+        private final int from;
+        private final int to;
+        private final PriceSeries[] results;
+        private final int resultOffset;
+        private final LocalDate startDate;
+        private final LocalDate endDate;
+        
+        private GenerateTask(List<SymbolSpec> specs, int[] symbolIds, int from, int to, PriceSeries[] results,
+                             int resultOffset, LocalDate startDate, LocalDate endDate) {
+            this.specs = specs;
+            this.symbolIds = symbolIds;
+            this.from = from;
+            this.to = to;
+            this.results = results;
+            this.resultOffset = resultOffset;
+            this.startDate = startDate;
+            this.endDate = endDate;
+        }
+        
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new GenerateTask(specs, symbolIds, from, mid, results, resultOffset, startDate, endDate),
+                          new GenerateTask(specs, symbolIds, mid, to, results, resultOffset, startDate, endDate));
+                return;
+            }
+            if (symbolIds[from] >= 0) {
+                results[from - resultOffset] = generateSeries(specs.get(from), symbolIds[from], startDate, endDate);
+            }
+        }
+    }
+    
+    /**
+     * Main method for standalone execution.
+     * Optional arguments: number of synthetic symbols, thread count, master seed,
+     * days of one-minute bars to generate.
      */
     public static void main(String[] args) {
         System.out.println("=== Savora Stock Market Data Generator ===\n");
         
-        MockDataGenerator generator = new MockDataGenerator();
-        generator.generateAllData();
+        int syntheticSymbols = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SEED;
+        int intradayDays = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        
+        MockDataGenerator generator = new MockDataGenerator(seed, threads);
+        generator.generateAllData(syntheticSymbols);
+        if (intradayDays > 0) {
+            generator.generateIntradayData(intradayDays);
+        }
+        
+        // Positions held before the regeneration are still valued at the old prices
+        MarkToMarketService.getInstance().markAll();
         
         System.out.println("\nData generation complete. You can now run the application.");
     }
@@ -0,0 +1,70 @@
+package com.savora.util;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+/**
+ * MySQL server backend
+ */
+public class MySqlBackend implements StorageBackend {
+    private final DatabaseConfig config;
+    private final Properties props;
+    private final SqlDialect dialect = new MySqlDialect();
+
+    public MySqlBackend(DatabaseConfig config) {
+        this.config = config;
+        
+        // Set connection properties
+        this.props = new Properties();
+        props.setProperty("user", config.getUser());
+        props.setProperty("password", config.getPassword());
+        props.setProperty("serverTimezone", "UTC");
+        if (config.isServerSidePrepare()) {
+            // Statements are cached per pooled connection, so let the server parse each one once
+            props.setProperty("useServerPrepStmts", "true");
+            props.setProperty("rewriteBatchedStatements", "true");
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "MySQL (" + config.getUrl() + ")";
+    }
+
+    @Override
+    public SqlDialect getDialect() {
+        return dialect;
+    }
+
+    @Override
+    public void initialize() throws SQLException {
+        try {
+            Class.forName("com.mysql.cj.jdbc.Driver");
+        } catch (ClassNotFoundException e) {
+            throw new SQLException("MySQL JDBC driver not found", e);
+        }
+
+        // Create the database if it doesn't exist
+        try (Connection tempConn = DriverManager.getConnection(config.getServerUrl(), props);
+             Statement stmt = tempConn.createStatement()) {
+            stmt.execute("CREATE DATABASE IF NOT EXISTS " + config.getDatabaseName());
+        }
+    }
+
+    @Override
+    public Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(config.getUrl(), props);
+    }
+
+    @Override
+    public Connection openBulkLoadConnection() throws SQLException {
+        // Only this connection lets the server ask for a local file; the loader supplies its stream
+        Properties bulkProps = new Properties();
+        bulkProps.putAll(props);
+        bulkProps.setProperty("allowLoadLocalInfile", "true");
+        return DriverManager.getConnection(config.getUrl(), bulkProps);
+    }
+}
@@ -0,0 +1,33 @@
+package com.savora.util;
+
+/**
+ * MySQL dialect. The application SQL is written for MySQL, so nothing is rewritten.
+ */
+public class MySqlDialect implements SqlDialect {
+
+    @Override
+    public String getName() {
+        return "MySQL";
+    }
+
+    @Override
+    public String translate(String sql) {
+        return sql;
+    }
+
+    @Override
+    public String translateDdl(String sql) {
+        return sql;
+    }
+
+    @Override
+    public boolean supportsLoadDataLocalInfile() {
+        return true;
+    }
+
+    @Override
+    public int getStreamingFetchSize() {
+        // Connector/J streams row by row only for this value
+        return Integer.MIN_VALUE;
+    }
+}
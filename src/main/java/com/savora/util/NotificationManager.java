@@ -1,22 +1,39 @@
 package com.savora.util;
 
-import com.savora.dao.SpendingLimitDAO;
-import com.savora.dao.TransactionDAO;
 import com.savora.model.SpendingLimit;
-import com.savora.model.Transaction;
+import com.savora.service.SpendingLimitEvaluator;
+import com.savora.service.SpendingLimitMonitor;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.math.BigDecimal;
-import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.prefs.Preferences;
 
 /**
  * Manages spending limit notifications and alerts
+ *
+ * Alerts come from SpendingLimitMonitor when a limit crosses a threshold, so saving a
+ * transaction never waits for them. They are queued on the event dispatch thread and shown one
+ * non-modal dialog at a time; a limit is alerted at most once per level and period, and limits
+ * muted with "Don't Show Again" stay muted across runs.
  */
 public class NotificationManager {
-    private final SpendingLimitDAO spendingLimitDAO;
-    private final TransactionDAO transactionDAO;
+    private static final String MUTED_KEY_PREFIX = "muted.limit.";
+    
+    private final SpendingLimitMonitor monitor;
+    private final Preferences preferences;
+    
+    // Accessed on the event dispatch thread only
+    private final Deque<SpendingLimitEvaluator.LimitStatus> queue = new ArrayDeque<>();
+    private final Set<String> alerted = new HashSet<>();
+    private JDialog current;
     
     // Colors for notifications
     private static final Color WARNING_COLOR = new Color(245, 158, 11);
@@ -24,75 +41,83 @@ public class NotificationManager {
     private static final Color SUCCESS_COLOR = new Color(34, 197, 94);
     
     public NotificationManager() {
-        this.spendingLimitDAO = new SpendingLimitDAO();
-        this.transactionDAO = new TransactionDAO();
+        this.monitor = SpendingLimitMonitor.getInstance();
+        this.preferences = Preferences.userNodeForPackage(NotificationManager.class);
+        
+        monitor.addListener(statuses -> SwingUtilities.invokeLater(() -> enqueue(statuses)));
+        monitor.refreshAsync(); // load the running totals before the first save
     }
     
     /**
-     * Check spending limits after a new transaction is added
+     * Queue alerts that have not been shown for their level and period, and show the next one
      */
-    public void checkSpendingLimits(Transaction transaction) {
-        if (transaction.getType() != Transaction.TransactionType.EXPENSE) {
-            return; // Only check limits for expenses
+    private void enqueue(List<SpendingLimitEvaluator.LimitStatus> statuses) {
+        for (SpendingLimitEvaluator.LimitStatus status : statuses) {
+            int limitId = status.getLimit().getLimitId();
+            String key = limitId + "/" + status.getLevel() + "/" + status.getPeriodStart();
+            if (status.getLevel() != SpendingLimitEvaluator.Level.OK && !isMuted(limitId) && alerted.add(key)) {
+                queue.add(status);
+            }
+        }
+        if (current == null) {
+            showNext();
         }
-        
-        // Check category-specific limits
-        checkCategoryLimit(transaction);
-        
-        // Check overall spending limit
-        checkOverallLimit();
+    }
+    
+    private void showNext() {
+        SpendingLimitEvaluator.LimitStatus status;
+        while ((status = queue.poll()) != null) {
+            if (!isMuted(status.getLimit().getLimitId())) {
+                current = showAlert(status);
+                return;
+            }
+        }
+        current = null;
     }
     
     /**
-     * Check spending limit for a specific category
+     * Whether alerts of a limit were turned off with "Don't Show Again"
      */
-    private void checkCategoryLimit(Transaction transaction) {
-        SpendingLimit limit = spendingLimitDAO.findByCategory(transaction.getCategoryId());
-        if (limit == null || !limit.isActive()) {
-            return;
-        }
-        
-        LocalDate startOfPeriod = getPeriodStartDate(limit.getPeriod());
-        LocalDate endOfPeriod = getPeriodEndDate(startOfPeriod, limit.getPeriod());
-        
-        BigDecimal spentAmount = transactionDAO.getTotalExpenses(startOfPeriod, endOfPeriod);
-        double percentage = spentAmount.divide(limit.getLimitAmount(), 4, BigDecimal.ROUND_HALF_UP)
-                .multiply(new BigDecimal(100)).doubleValue();
-        
-        if (percentage >= 100) {
-            showLimitExceededNotification(transaction.getCategoryId(), limit.getLimitAmount(), spentAmount, percentage);
-        } else if (percentage >= 80) {
-            showLimitWarningNotification(transaction.getCategoryId(), limit.getLimitAmount(), spentAmount, percentage);
-        }
+    public boolean isMuted(int limitId) {
+        return preferences.getBoolean(MUTED_KEY_PREFIX + limitId, false);
     }
     
     /**
-     * Check overall spending limit
+     * Turn the alerts of a limit on or off
      */
-    private void checkOverallLimit() {
-        SpendingLimit overallLimit = spendingLimitDAO.findOverallLimit();
-        if (overallLimit == null || !overallLimit.isActive()) {
-            return;
+    public void setMuted(int limitId, boolean muted) {
+        if (muted) {
+            preferences.putBoolean(MUTED_KEY_PREFIX + limitId, true);
+        } else {
+            preferences.remove(MUTED_KEY_PREFIX + limitId);
         }
-        
-        LocalDate startOfPeriod = getPeriodStartDate(overallLimit.getPeriod());
-        LocalDate endOfPeriod = getPeriodEndDate(startOfPeriod, overallLimit.getPeriod());
-        
-        BigDecimal totalSpent = transactionDAO.getTotalExpenses(startOfPeriod, endOfPeriod);
-        double percentage = totalSpent.divide(overallLimit.getLimitAmount(), 4, BigDecimal.ROUND_HALF_UP)
-                .multiply(new BigDecimal(100)).doubleValue();
-        
-        if (percentage >= 100) {
-            showOverallLimitExceededNotification(overallLimit.getLimitAmount(), totalSpent, percentage);
-        } else if (percentage >= 80) {
-            showOverallLimitWarningNotification(overallLimit.getLimitAmount(), totalSpent, percentage);
+    }
+    
+    /**
+     * Show the notification for a limit at or past the warning threshold
+     */
+    private JDialog showAlert(SpendingLimitEvaluator.LimitStatus status) {
+        SpendingLimit limit = status.getLimit();
+        boolean exceeded = status.getLevel() == SpendingLimitEvaluator.Level.EXCEEDED;
+        if (status.isOverall()) {
+            if (exceeded) {
+                return showOverallLimitExceededNotification(limit.getLimitId(), limit.getLimitAmount(), status.getSpent(),
+                                                            status.getPercentage());
+            }
+            return showOverallLimitWarningNotification(limit.getLimitId(), limit.getLimitAmount(), status.getSpent(),
+                                                       status.getPercentage());
+        } else if (exceeded) {
+            return showLimitExceededNotification(limit.getLimitId(), limit.getLimitAmount(), status.getSpent(),
+                                                 status.getPercentage());
         }
+        return showLimitWarningNotification(limit.getLimitId(), limit.getLimitAmount(), status.getSpent(),
+                                            status.getPercentage());
     }
     
     /**
      * Show notification when category limit is exceeded
      */
-    private void showLimitExceededNotification(int categoryId, BigDecimal limitAmount, BigDecimal spentAmount, double percentage) {
+    private JDialog showLimitExceededNotification(int limitId, BigDecimal limitAmount, BigDecimal spentAmount, double percentage) {
         String message = String.format(
             "⚠️ Category spending limit EXCEEDED!\n\n" +
             "Limit: $%.2f\n" +
@@ -105,13 +130,13 @@ public class NotificationManager {
             percentage
         );
         
-        showNotification("Spending Limit Exceeded", message, JOptionPane.ERROR_MESSAGE, DANGER_COLOR);
+        return showNotification(limitId, "Spending Limit Exceeded", message, JOptionPane.ERROR_MESSAGE, DANGER_COLOR);
     }
     
     /**
      * Show warning when approaching category limit
      */
-    private void showLimitWarningNotification(int categoryId, BigDecimal limitAmount, BigDecimal spentAmount, double percentage) {
+    private JDialog showLimitWarningNotification(int limitId, BigDecimal limitAmount, BigDecimal spentAmount, double percentage) {
         BigDecimal remaining = limitAmount.subtract(spentAmount);
         
         String message = String.format(
@@ -127,13 +152,13 @@ public class NotificationManager {
             percentage
         );
         
-        showNotification("Spending Limit Warning", message, JOptionPane.WARNING_MESSAGE, WARNING_COLOR);
+        return showNotification(limitId, "Spending Limit Warning", message, JOptionPane.WARNING_MESSAGE, WARNING_COLOR);
     }
     
     /**
      * Show notification when overall limit is exceeded
      */
-    private void showOverallLimitExceededNotification(BigDecimal limitAmount, BigDecimal totalSpent, double percentage) {
+    private JDialog showOverallLimitExceededNotification(int limitId, BigDecimal limitAmount, BigDecimal totalSpent, double percentage) {
         String message = String.format(
             "🚨 Overall spending limit EXCEEDED!\n\n" +
             "Monthly Limit: $%.2f\n" +
@@ -146,13 +171,13 @@ public class NotificationManager {
             percentage
         );
         
-        showNotification("Overall Spending Limit Exceeded", message, JOptionPane.ERROR_MESSAGE, DANGER_COLOR);
+        return showNotification(limitId, "Overall Spending Limit Exceeded", message, JOptionPane.ERROR_MESSAGE, DANGER_COLOR);
     }
     
     /**
      * Show warning when approaching overall limit
      */
-    private void showOverallLimitWarningNotification(BigDecimal limitAmount, BigDecimal totalSpent, double percentage) {
+    private JDialog showOverallLimitWarningNotification(int limitId, BigDecimal limitAmount, BigDecimal totalSpent, double percentage) {
         BigDecimal remaining = limitAmount.subtract(totalSpent);
         
         String message = String.format(
@@ -168,17 +193,17 @@ public class NotificationManager {
             percentage
         );
         
-        showNotification("Overall Spending Limit Warning", message, JOptionPane.WARNING_MESSAGE, WARNING_COLOR);
+        return showNotification(limitId, "Overall Spending Limit Warning", message, JOptionPane.WARNING_MESSAGE, WARNING_COLOR);
     }
     
     /**
-     * Show a custom notification dialog
+     * Show a custom notification dialog; the next queued alert is shown when it closes
      */
-    private void showNotification(String title, String message, int messageType, Color backgroundColor) {
+    private JDialog showNotification(int limitId, String title, String message, int messageType, Color backgroundColor) {
         // Create custom dialog
         JDialog dialog = new JDialog();
         dialog.setTitle(title);
-        dialog.setModal(true);
+        dialog.setModal(false);
         dialog.setResizable(false);
         dialog.setDefaultCloseOperation(JDialog.DISPOSE_ON_CLOSE);
         
@@ -213,8 +238,7 @@ public class NotificationManager {
         disableButton.setBorder(BorderFactory.createEmptyBorder(6, 12, 6, 12));
         disableButton.setFocusPainted(false);
         disableButton.addActionListener(e -> {
-            // Store user preference to disable notifications
-            // This could be implemented with a preferences file or database setting
+            setMuted(limitId, true);
             dialog.dispose();
         });
         
@@ -227,98 +251,23 @@ public class NotificationManager {
         dialog.setContentPane(contentPanel);
         dialog.pack();
         dialog.setLocationRelativeTo(null);
+        dialog.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                showNext();
+            }
+        });
         
-        // Make dialog visible
+        // Make dialog visible without blocking the caller
         dialog.setVisible(true);
+        return dialog;
     }
     
     /**
-     * Check all spending limits and show notifications
+     * Check all spending limits and queue notifications for those not yet alerted
      */
     public void checkAllSpendingLimits() {
-        // Check category limits
-        List<SpendingLimit> categoryLimits = spendingLimitDAO.findActiveLimits();
-        for (SpendingLimit limit : categoryLimits) {
-            if (limit.getCategoryId() != null) { // Skip overall limits
-                checkCategoryLimitForPeriod(limit);
-            }
-        }
-        
-        // Check overall limit
-        checkOverallLimitForPeriod();
-    }
-    
-    /**
-     * Check category limit for current period
-     */
-    private void checkCategoryLimitForPeriod(SpendingLimit limit) {
-        LocalDate startOfPeriod = getPeriodStartDate(limit.getPeriod());
-        LocalDate endOfPeriod = getPeriodEndDate(startOfPeriod, limit.getPeriod());
-        
-        BigDecimal spentAmount = transactionDAO.getTotalExpenses(startOfPeriod, endOfPeriod);
-        double percentage = spentAmount.divide(limit.getLimitAmount(), 4, BigDecimal.ROUND_HALF_UP)
-                .multiply(new BigDecimal(100)).doubleValue();
-        
-        if (percentage >= 100) {
-            showLimitExceededNotification(limit.getCategoryId(), limit.getLimitAmount(), spentAmount, percentage);
-        } else if (percentage >= 80) {
-            showLimitWarningNotification(limit.getCategoryId(), limit.getLimitAmount(), spentAmount, percentage);
-        }
-    }
-    
-    /**
-     * Check overall limit for current period
-     */
-    private void checkOverallLimitForPeriod() {
-        SpendingLimit overallLimit = spendingLimitDAO.findOverallLimit();
-        if (overallLimit == null || !overallLimit.isActive()) {
-            return;
-        }
-        
-        LocalDate startOfPeriod = getPeriodStartDate(overallLimit.getPeriod());
-        LocalDate endOfPeriod = getPeriodEndDate(startOfPeriod, overallLimit.getPeriod());
-        
-        BigDecimal totalSpent = transactionDAO.getTotalExpenses(startOfPeriod, endOfPeriod);
-        double percentage = totalSpent.divide(overallLimit.getLimitAmount(), 4, BigDecimal.ROUND_HALF_UP)
-                .multiply(new BigDecimal(100)).doubleValue();
-        
-        if (percentage >= 100) {
-            showOverallLimitExceededNotification(overallLimit.getLimitAmount(), totalSpent, percentage);
-        } else if (percentage >= 80) {
-            showOverallLimitWarningNotification(overallLimit.getLimitAmount(), totalSpent, percentage);
-        }
-    }
-    
-    /**
-     * Get start date for the specified period
-     */
-    private LocalDate getPeriodStartDate(String period) {
-        LocalDate now = LocalDate.now();
-        switch (period.toLowerCase()) {
-            case "monthly":
-                return now.withDayOfMonth(1);
-            case "weekly":
-                return now.minusDays(now.getDayOfWeek().getValue() - 1);
-            case "yearly":
-                return now.withDayOfYear(1);
-            default:
-                return now.withDayOfMonth(1);
-        }
-    }
-    
-    /**
-     * Get end date for the specified period
-     */
-    private LocalDate getPeriodEndDate(LocalDate startDate, String period) {
-        switch (period.toLowerCase()) {
-            case "monthly":
-                return startDate.withDayOfMonth(startDate.lengthOfMonth());
-            case "weekly":
-                return startDate.plusDays(6);
-            case "yearly":
-                return startDate.withDayOfYear(startDate.lengthOfYear());
-            default:
-                return LocalDate.now();
-        }
+        DbExecutor.getInstance().submit(monitor::getStatuses)
+                  .thenAccept(statuses -> SwingUtilities.invokeLater(() -> enqueue(statuses)));
     }
 }
@@ -0,0 +1,246 @@
+package com.savora.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Applies versioned schema migrations from db/migration on the classpath.
+ *
+ * Each applied migration is recorded in schema_version with a checksum of its
+ * script. At startup a single query compares the newest recorded version and
+ * checksum with the newest bundled migration; only when they differ are the
+ * scripts read, validated and the pending ones applied. Migrations run once, so
+ * sample-data INSERTs in a script are never repeated.
+ */
+public class SchemaMigrator {
+    private static final String MIGRATION_PATH = "/db/migration/";
+
+    /**
+     * Bundled migrations in version order. Add new scripts to the end; never edit an applied one.
+     */
+    private static final String[] MIGRATIONS = {
+        "V1__initial_schema.sql",
+        "V2__intraday_bars.sql",
+        "V3__account_ledger.sql",
+        "V4__stop_orders.sql",
+        "V5__spending_rollup.sql",
+        "V6__transaction_indexes.sql",
+        "V7__book_orders.sql",
+        "V8__reset_account_snapshots.sql",
+        "V9__stop_trigger_bar_date.sql"
+    };
+
+    private static final String CREATE_VERSION_TABLE =
+        "CREATE TABLE IF NOT EXISTS schema_version (" +
+        "version INT PRIMARY KEY, " +
+        "description VARCHAR(200) NOT NULL, " +
+        "checksum BIGINT NOT NULL, " +
+        "execution_ms BIGINT NOT NULL, " +
+        "installed_on TIMESTAMP DEFAULT CURRENT_TIMESTAMP)";
+
+    private final SqlDialect dialect;
+
+    public SchemaMigrator(SqlDialect dialect) {
+        this.dialect = dialect;
+    }
+
+    /**
+     * Bring the schema up to the latest bundled version
+     */
+    public void migrate(Connection conn) throws SQLException {
+        Migration latest = load(MIGRATIONS[MIGRATIONS.length - 1]);
+        if (isAtVersion(conn, latest)) {
+            System.out.println("Database schema is up to date (version " + latest.version + ").");
+            return;
+        }
+
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute(dialect.translateDdl(CREATE_VERSION_TABLE));
+        }
+
+        Map<Integer, Long> applied = findAppliedChecksums(conn);
+        if (applied.isEmpty() && hasLegacySchema(conn)) {
+            // Database was created by the old run-schema.sql-on-every-start code
+            Migration baseline = load(MIGRATIONS[0]);
+            recordMigration(conn, baseline, 0);
+            applied.put(baseline.version, baseline.checksum);
+            System.out.println("Existing schema baselined at version " + baseline.version + ".");
+        }
+
+        for (String script : MIGRATIONS) {
+            Migration migration = load(script);
+            Long checksum = applied.get(migration.version);
+            if (checksum != null) {
+                if (checksum != migration.checksum) {
+                    throw new SQLException("Checksum mismatch for applied migration " + script +
+                                           ": database has " + checksum + ", script has " + migration.checksum);
+                }
+                continue;
+            }
+            apply(conn, migration);
+        }
+    }
+
+    /**
+     * The fast path: one query for the newest applied version
+     */
+    private boolean isAtVersion(Connection conn, Migration latest) {
+        String sql = "SELECT version, checksum FROM schema_version ORDER BY version DESC LIMIT 1";
+        try (PreparedStatement stmt = conn.prepareStatement(sql);
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() && rs.getInt(1) == latest.version && rs.getLong(2) == latest.checksum;
+        } catch (SQLException e) {
+            // schema_version does not exist yet
+            return false;
+        }
+    }
+
+    private Map<Integer, Long> findAppliedChecksums(Connection conn) throws SQLException {
+        Map<Integer, Long> applied = new HashMap<>();
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT version, checksum FROM schema_version");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                applied.put(rs.getInt(1), rs.getLong(2));
+            }
+        }
+        return applied;
+    }
+
+    private boolean hasLegacySchema(Connection conn) throws SQLException {
+        DatabaseMetaData metaData = conn.getMetaData();
+        for (String name : new String[] { "transactions", "TRANSACTIONS" }) {
+            try (ResultSet rs = metaData.getTables(conn.getCatalog(), null, name, new String[] { "TABLE" })) {
+                if (rs.next()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void apply(Connection conn, Migration migration) throws SQLException {
+        System.out.println("Applying migration V" + migration.version + " (" + migration.description + ")...");
+        long start = System.currentTimeMillis();
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (Statement stmt = conn.createStatement()) {
+            for (String statement : splitStatements(migration.script)) {
+                stmt.execute(dialect.translateDdl(statement));
+            }
+            recordMigration(conn, migration, System.currentTimeMillis() - start);
+            conn.commit();
+        } catch (SQLException e) {
+            // MySQL commits DDL implicitly, so a failed migration may need manual cleanup
+            conn.rollback();
+            throw new SQLException("Migration V" + migration.version + " failed: " + e.getMessage(), e);
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void recordMigration(Connection conn, Migration migration, long executionMs) throws SQLException {
+        String sql = "INSERT INTO schema_version (version, description, checksum, execution_ms) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setInt(1, migration.version);
+            stmt.setString(2, migration.description);
+            stmt.setLong(3, migration.checksum);
+            stmt.setLong(4, executionMs);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Read a migration script; file names follow V{version}__{description}.sql
+     */
+    private Migration load(String fileName) throws SQLException {
+        String script;
+        try (InputStream in = getClass().getResourceAsStream(MIGRATION_PATH + fileName)) {
+            if (in == null) {
+                throw new SQLException("Migration script not found: " + fileName);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            script = out.toString(StandardCharsets.UTF_8).replace("\r\n", "\n");
+        } catch (IOException e) {
+            throw new SQLException("Failed to read migration " + fileName, e);
+        }
+
+        int separator = fileName.indexOf("__");
+        int version = Integer.parseInt(fileName.substring(1, separator));
+        String description = fileName.substring(separator + 2, fileName.length() - ".sql".length()).replace('_', ' ');
+
+        CRC32 crc = new CRC32();
+        crc.update(script.getBytes(StandardCharsets.UTF_8));
+        return new Migration(version, description, script, crc.getValue());
+    }
+
+    /**
+     * Split a script into statements on semicolons, ignoring -- comments and quoted text
+     */
+    static List<String> splitStatements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean inQuote = false;
+
+        for (int i = 0; i < script.length(); i++) {
+            char c = script.charAt(i);
+            if (inQuote) {
+                current.append(c);
+                if (c == '\'') {
+                    inQuote = false;
+                }
+            } else if (c == '\'') {
+                inQuote = true;
+                current.append(c);
+            } else if (c == '-' && i + 1 < script.length() && script.charAt(i + 1) == '-') {
+                // Skip comment to end of line
+                while (i < script.length() && script.charAt(i) != '\n') {
+                    i++;
+                }
+                current.append('\n');
+            } else if (c == ';') {
+                addStatement(statements, current);
+            } else {
+                current.append(c);
+            }
+        }
+        addStatement(statements, current);
+        return statements;
+    }
+
+    private static void addStatement(List<String> statements, StringBuilder current) {
+        String statement = current.toString().trim();
+        if (!statement.isEmpty()) {
+            statements.add(statement);
+        }
+        current.setLength(0);
+    }
+
+    private static final class Migration {
+        private final int version;
+        private final String description;
+        private final String script;
+        private final long checksum;
+
+        private Migration(int version, String description, String script, long checksum) {
+            this.version = version;
+            this.description = description;
+            this.script = script;
+            this.checksum = checksum;
+        }
+    }
+}
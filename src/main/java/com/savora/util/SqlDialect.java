@@ -0,0 +1,38 @@
+package com.savora.util;
+
+/**
+ * SQL differences between storage backends.
+ * DAOs and schema scripts are written in MySQL syntax; a dialect rewrites
+ * statements for engines that need it before they are prepared or executed.
+ */
+public interface SqlDialect {
+
+    /**
+     * Dialect name for logging
+     */
+    String getName();
+
+    /**
+     * Rewrite a DAO statement (DML or query) for this backend
+     */
+    String translate(String sql);
+
+    /**
+     * Rewrite a schema (DDL) statement for this backend
+     */
+    String translateDdl(String sql);
+
+    /**
+     * Whether LOAD DATA LOCAL INFILE can be used for bulk loads
+     */
+    default boolean supportsLoadDataLocalInfile() {
+        return false;
+    }
+
+    /**
+     * Fetch size that makes the driver stream a large result set instead of buffering it
+     */
+    default int getStreamingFetchSize() {
+        return 1000;
+    }
+}
@@ -0,0 +1,217 @@
+package com.savora.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * LRU cache of prepared statements bound to one pooled connection, keyed by SQL text.
+ *
+ * Statements handed out are proxies: close() clears the parameters and puts the
+ * statement back in the cache, so the next DAO call with the same SQL on this
+ * connection reuses it instead of preparing it again. A pooled connection is only
+ * used by one thread at a time, so no locking is needed here.
+ */
+final class StatementCache {
+    private final Connection physical;
+    private final SqlDialect dialect;
+    private final int maxSize;
+    private final StatementCacheStats stats;
+    private final LinkedHashMap<Key, Entry> entries;
+
+    StatementCache(Connection physical, SqlDialect dialect, int maxSize, StatementCacheStats stats) {
+        this.physical = physical;
+        this.dialect = dialect;
+        this.maxSize = maxSize;
+        this.stats = stats;
+        this.entries = new LinkedHashMap<Key, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > StatementCache.this.maxSize) {
+                    eldest.getValue().evict();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get a cached statement for the SQL, preparing it on a miss
+     */
+    PreparedStatement prepare(String sql, int autoGeneratedKeys, Connection owner) throws SQLException {
+        Key key = new Key(sql, autoGeneratedKeys);
+        Entry entry = entries.get(key);
+
+        if (entry != null && !entry.inUse) {
+            stats.recordHit(sql);
+        } else {
+            stats.recordMiss(sql);
+            String translated = dialect.translate(sql);
+            PreparedStatement statement = autoGeneratedKeys == Statement.NO_GENERATED_KEYS
+                    ? physical.prepareStatement(translated)
+                    : physical.prepareStatement(translated, autoGeneratedKeys);
+            if (entry != null) {
+                // Same SQL is already open on this connection; hand out a one-off statement
+                Entry oneOff = new Entry(key, statement);
+                oneOff.evicted = true;
+                return oneOff.lease(owner);
+            }
+            entry = new Entry(key, statement);
+            if (maxSize > 0) {
+                entries.put(key, entry);
+            } else {
+                entry.evicted = true;
+            }
+        }
+        return entry.lease(owner);
+    }
+
+    /**
+     * Close every cached statement (the connection is being discarded)
+     */
+    void closeAll() {
+        for (Entry entry : new ArrayList<>(entries.values())) {
+            entry.evict();
+        }
+        entries.clear();
+    }
+
+    private static final class Key {
+        private final String sql;
+        private final int autoGeneratedKeys;
+
+        private Key(String sql, int autoGeneratedKeys) {
+            this.sql = sql;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return autoGeneratedKeys == other.autoGeneratedKeys && sql.equals(other.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sql, autoGeneratedKeys);
+        }
+    }
+
+    /**
+     * A prepared statement owned by the cache
+     */
+    private final class Entry {
+        private final Key key;
+        private final PreparedStatement statement;
+        private boolean inUse;
+        private boolean evicted;
+
+        private Entry(Key key, PreparedStatement statement) {
+            this.key = key;
+            this.statement = statement;
+        }
+
+        private PreparedStatement lease(Connection owner) {
+            inUse = true;
+            return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                new StatementLease(this, owner));
+        }
+
+        /**
+         * Called when the caller closes its statement
+         */
+        private void release() {
+            inUse = false;
+            if (evicted) {
+                closeQuietly();
+                return;
+            }
+            try {
+                statement.clearParameters();
+                statement.clearBatch();
+            } catch (SQLException e) {
+                entries.remove(key);
+                closeQuietly();
+            }
+        }
+
+        /**
+         * Dropped from the cache; close now unless a caller still holds it
+         */
+        private void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                // Statement is unusable either way
+            }
+        }
+    }
+
+    /**
+     * Routes calls on a leased statement to the cached one until the lease is closed
+     */
+    private static final class StatementLease implements InvocationHandler {
+        private final Entry entry;
+        private final Connection owner;
+        private boolean closed;
+
+        private StatementLease(Entry entry, Connection owner) {
+            this.entry = entry;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        entry.release();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || entry.statement.isClosed();
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + entry.key.sql + "]";
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("Statement is closed");
+            }
+            try {
+                return method.invoke(entry.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.savora.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit/miss counters for the prepared statement cache, overall and per SQL text.
+ * A miss means the statement was prepared (parsed) on a connection; with a warm
+ * pool each hot query should show one miss per pooled connection and hits for
+ * every other call.
+ */
+public class StatementCacheStats {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final ConcurrentHashMap<String, SqlCounter> bySql = new ConcurrentHashMap<>();
+
+    void recordHit(String sql) {
+        hits.increment();
+        counterFor(sql).hits.increment();
+    }
+
+    void recordMiss(String sql) {
+        misses.increment();
+        counterFor(sql).misses.increment();
+    }
+
+    private SqlCounter counterFor(String sql) {
+        SqlCounter counter = bySql.get(sql);
+        return counter != null ? counter : bySql.computeIfAbsent(sql, k -> new SqlCounter());
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRatio() {
+        long h = getHits();
+        long total = h + getMisses();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    /**
+     * Counters for a single SQL statement, or null if it was never prepared
+     */
+    public SqlStats getStats(String sql) {
+        SqlCounter counter = bySql.get(sql);
+        return counter != null ? new SqlStats(sql, counter.hits.sum(), counter.misses.sum()) : null;
+    }
+
+    /**
+     * Per-statement counters, most frequently used first
+     */
+    public List<SqlStats> snapshot() {
+        List<SqlStats> result = new ArrayList<>();
+        bySql.forEach((sql, counter) -> result.add(new SqlStats(sql, counter.hits.sum(), counter.misses.sum())));
+        result.sort(Comparator.comparingLong(SqlStats::getExecutions).reversed());
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits=%d, misses=%d, hitRatio=%.1f%%", getHits(), getMisses(), getHitRatio() * 100);
+    }
+
+    private static final class SqlCounter {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+    }
+
+    /**
+     * Counters for one SQL statement
+     */
+    public static final class SqlStats {
+        private final String sql;
+        private final long hits;
+        private final long misses;
+
+        private SqlStats(String sql, long hits, long misses) {
+            this.sql = sql;
+            this.hits = hits;
+            this.misses = misses;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getExecutions() {
+            return hits + misses;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%6d hits %4d misses  %s", hits, misses, sql);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.savora.util;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A database engine the application can run against, selected with db.backend
+ */
+public interface StorageBackend {
+
+    /**
+     * Backend name for logging
+     */
+    String getName();
+
+    /**
+     * SQL dialect used to rewrite statements for this backend
+     */
+    SqlDialect getDialect();
+
+    /**
+     * Load the driver and create the database if needed, before any connection is opened
+     */
+    void initialize() throws SQLException;
+
+    /**
+     * Open a new physical connection (used by the connection pool)
+     */
+    Connection openConnection() throws SQLException;
+
+    /**
+     * Open a connection outside the pool for a bulk load that uses LOAD DATA LOCAL INFILE
+     */
+    default Connection openBulkLoadConnection() throws SQLException {
+        return openConnection();
+    }
+
+    /**
+     * Create the backend named by the db.backend setting (mysql or embedded)
+     */
+    static StorageBackend fromConfig(DatabaseConfig config) {
+        String backend = config.getBackend();
+        switch (backend.toLowerCase()) {
+            case "mysql":
+                return new MySqlBackend(config);
+            case "embedded":
+            case "h2":
+                return new EmbeddedBackend(config);
+            default:
+                throw new IllegalArgumentException("Unknown db.backend: " + backend);
+        }
+    }
+}
@@ -15,6 +15,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -25,6 +26,7 @@ public class BudgetPanel extends JPanel {
     private final BudgetDAO budgetDAO;
     private final CategoryDAO categoryDAO;
     private final TransactionDAO transactionDAO;
+    private final LoadScope loads = new LoadScope(this::loadBudgets);
     
     private JTable budgetTable;
     private DefaultTableModel tableModel;
@@ -307,7 +309,19 @@ public class BudgetPanel extends JPanel {
     }
     
     private void loadBudgets() {
-        tableModel.setRowCount(0);
+        loads.load("budgets", this::loadBudgetRows, rows -> {
+            tableModel.setRowCount(0);
+            for (Object[] row : rows) {
+                tableModel.addRow(row);
+            }
+        });
+    }
+    
+    /**
+     * Build the budget table rows; runs on the DB executor
+     */
+    private List<Object[]> loadBudgetRows() {
+        List<Object[]> rows = new ArrayList<>();
         List<Budget> budgets = budgetDAO.findActiveBudgets();
         
         for (Budget budget : budgets) {
@@ -332,8 +346,9 @@ public class BudgetPanel extends JPanel {
                 new ProgressBarData(progressPercentage, spentAmount, budget.getAmount()),
                 budget.getPeriod()
             };
-            tableModel.addRow(row);
+            rows.add(row);
         }
+        return rows;
     }
     
     private LocalDate getPeriodStartDate(LocalDate startDate, String period) {
@@ -454,6 +469,10 @@ public class BudgetPanel extends JPanel {
         loadCategories();
     }
     
+    public LoadScope getLoadScope() {
+        return loads;
+    }
+    
     // Progress bar data class
     private static class ProgressBarData {
         private final double percentage;
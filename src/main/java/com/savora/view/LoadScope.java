@@ -0,0 +1,100 @@
+package com.savora.view;
+
+import com.savora.util.DbExecutor;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Background data loads started by one panel.
+ *
+ * Results are handed back on the EDT. Starting a load under a key that is
+ * still in flight cancels the older one, so a slow earlier query can never
+ * overwrite newer data. When the user leaves the tab, MainFrame calls
+ * {@link #cancelAll()}; if anything was dropped, {@link #resume()} reloads the
+ * panel when the tab is shown again. All methods must be called on the EDT.
+ */
+public class LoadScope {
+    private final Runnable reload;
+    private final Map<String, CompletableFuture<?>> pending = new HashMap<>();
+    private boolean interrupted;
+
+    public LoadScope(Runnable reload) {
+        this.reload = reload;
+    }
+
+    /**
+     * Run a block of DAO calls on the DB executor and apply the result on the EDT
+     */
+    public <T> void load(String key, Supplier<T> task, Consumer<T> onLoaded) {
+        load(key, DbExecutor.getInstance().submit(task), onLoaded);
+    }
+
+    /**
+     * Apply the result of an async DAO call on the EDT
+     */
+    public <T> void load(String key, CompletableFuture<T> future, Consumer<T> onLoaded) {
+        CompletableFuture<?> previous = pending.put(key, future);
+        if (previous != null) {
+            previous.cancel(true);
+        }
+
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if (pending.get(key) != future) {
+                return; // superseded or cancelled
+            }
+            pending.remove(key);
+            if (error != null) {
+                System.err.println("Error loading " + key + ": " + error.getMessage());
+                error.printStackTrace();
+                return;
+            }
+            onLoaded.accept(result);
+        }));
+    }
+
+    /**
+     * Apply the results of two async DAO calls running in parallel
+     */
+    public <A, B> void load(String key, CompletableFuture<A> first, CompletableFuture<B> second,
+                            BiConsumer<A, B> onLoaded) {
+        CompletableFuture<Void> both = CompletableFuture.allOf(first, second);
+        both.whenComplete((ignored, error) -> {
+            if (both.isCancelled()) {
+                first.cancel(true);
+                second.cancel(true);
+            }
+        });
+        load(key, both, ignored -> onLoaded.accept(first.join(), second.join()));
+    }
+
+    /**
+     * Cancel every load still in flight
+     */
+    public void cancelAll() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        interrupted = true;
+        for (CompletableFuture<?> future : new ArrayList<>(pending.values())) {
+            future.cancel(true);
+        }
+        pending.clear();
+    }
+
+    /**
+     * Reload the panel if loads were cancelled while it was hidden
+     */
+    public void resume() {
+        if (interrupted) {
+            interrupted = false;
+            reload.run();
+        }
+    }
+}
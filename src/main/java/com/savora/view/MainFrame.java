@@ -3,8 +3,10 @@ package com.savora.view;
 import com.savora.dao.TransactionDAO;
 import com.savora.dao.CategoryDAO;
 import javax.swing.table.DefaultTableModel;
+import com.savora.model.Category;
 import com.savora.model.Transaction;
 import com.savora.util.DatabaseConnection;
+import com.savora.util.DbExecutor;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -14,7 +16,10 @@ import java.awt.event.WindowEvent;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Main application window for Savora Finance Tracker
@@ -35,6 +40,10 @@ public class MainFrame extends JFrame {
     private JTable recentTable;
     private DefaultTableModel recentTableModel;
     private CategoryDAO categoryDAO;
+    private JPanel dashboardPanel;
+    private final LoadScope dashboardLoads = new LoadScope(this::loadDashboardData);
+    private final Map<Component, LoadScope> loadScopes = new HashMap<>();
+    private Component selectedTab;
     
     // Colors for modern UI
     private static final Color PRIMARY_COLOR = new Color(59, 130, 246);
@@ -82,7 +91,8 @@ public class MainFrame extends JFrame {
         tabbedPane.setBorder(new EmptyBorder(0, 0, 0, 0));
         
         // Add tabs with icons
-        tabbedPane.addTab("Dashboard", createDashboardPanel());
+        dashboardPanel = createDashboardPanel();
+        tabbedPane.addTab("Dashboard", dashboardPanel);
         tabbedPane.addTab("Transactions", transactionPanel);
         tabbedPane.addTab("Budgets", budgetPanel);
         tabbedPane.addTab("Spending Limits", spendingLimitPanel);
@@ -94,6 +104,23 @@ public class MainFrame extends JFrame {
         for (int i = 0; i < tabbedPane.getTabCount(); i++) {
             tabbedPane.setBackgroundAt(i, BACKGROUND_COLOR);
         }
+        
+        // Loads still running for a tab the user leaves are cancelled, and redone on return
+        loadScopes.put(dashboardPanel, dashboardLoads);
+        loadScopes.put(budgetPanel, budgetPanel.getLoadScope());
+        loadScopes.put(stockMarketPanel, stockMarketPanel.getLoadScope());
+        selectedTab = tabbedPane.getSelectedComponent();
+        tabbedPane.addChangeListener(e -> {
+            LoadScope leaving = loadScopes.get(selectedTab);
+            if (leaving != null) {
+                leaving.cancelAll();
+            }
+            selectedTab = tabbedPane.getSelectedComponent();
+            LoadScope entering = loadScopes.get(selectedTab);
+            if (entering != null) {
+                entering.resume();
+            }
+        });
     }
     
     private void setupLayout() {
@@ -292,6 +319,7 @@ public class MainFrame extends JFrame {
                 );
                 
                 if (option == JOptionPane.YES_OPTION) {
+                    DbExecutor.getInstance().shutdown();
                     DatabaseConnection.getInstance().closeConnection();
                     System.exit(0);
                 }
@@ -300,57 +328,62 @@ public class MainFrame extends JFrame {
     }
     
     public void loadDashboardData() {
-        try {
-            LocalDate startOfMonth = LocalDate.now().withDayOfMonth(1);
-            LocalDate endOfMonth = LocalDate.now().withDayOfMonth(LocalDate.now().lengthOfMonth());
-            
-            BigDecimal totalIncome = transactionDAO.getTotalIncome(startOfMonth, endOfMonth);
-            BigDecimal totalExpenses = transactionDAO.getTotalExpenses(startOfMonth, endOfMonth);
-            BigDecimal balance = totalIncome.subtract(totalExpenses);
-            
-            // Update summary labels
-            balanceLabel.setText("$" + balance.toString());
-            incomeLabel.setText("$" + totalIncome.toString());
-            expenseLabel.setText("$" + totalExpenses.toString());
-            
-            // Set colors based on balance
-            if (balance.compareTo(BigDecimal.ZERO) >= 0) {
-                balanceLabel.setForeground(SUCCESS_COLOR);
-            } else {
-                balanceLabel.setForeground(DANGER_COLOR);
-            }
-            // Populate recent transactions table (show latest 10)
-            if (recentTableModel != null) {
+        LocalDate startOfMonth = LocalDate.now().withDayOfMonth(1);
+        LocalDate endOfMonth = LocalDate.now().withDayOfMonth(LocalDate.now().lengthOfMonth());
+        
+        dashboardLoads.load("totals",
+            transactionDAO.getTotalIncomeAsync(startOfMonth, endOfMonth),
+            transactionDAO.getTotalExpensesAsync(startOfMonth, endOfMonth),
+            (totalIncome, totalExpenses) -> {
+                BigDecimal balance = totalIncome.subtract(totalExpenses);
+                
+                // Update summary labels
+                balanceLabel.setText("$" + balance.toString());
+                incomeLabel.setText("$" + totalIncome.toString());
+                expenseLabel.setText("$" + totalExpenses.toString());
+                
+                // Set colors based on balance
+                if (balance.compareTo(BigDecimal.ZERO) >= 0) {
+                    balanceLabel.setForeground(SUCCESS_COLOR);
+                } else {
+                    balanceLabel.setForeground(DANGER_COLOR);
+                }
+            });
+        
+        // Populate recent transactions table (show latest 10)
+        if (recentTableModel != null) {
+            dashboardLoads.load("recent", this::loadRecentTransactionRows, rows -> {
                 recentTableModel.setRowCount(0);
-                List<Transaction> all = transactionDAO.findAll();
-                int limit = Math.min(all.size(), 10);
-                DateTimeFormatter fmt = DateTimeFormatter.ofPattern("MMM dd, yyyy");
-                for (int i = 0; i < limit; i++) {
-                    Transaction t = all.get(i);
-                    String categoryName = "Unknown";
-                    try {
-                        com.savora.model.Category cat = categoryDAO.findById(t.getCategoryId());
-                        if (cat != null) categoryName = cat.getName();
-                    } catch (Exception ex) {
-                        // ignore
-                    }
-                    Object[] row = new Object[] {
-                        t.getDate().format(fmt),
-                        categoryName,
-                        t.getDescription() != null ? t.getDescription() : "",
-                        "$" + t.getAmount().toString(),
-                        t.getType().toString()
-                    };
+                for (Object[] row : rows) {
                     recentTableModel.addRow(row);
                 }
-            }
-            
-        } catch (Exception e) {
-            JOptionPane.showMessageDialog(this,
-                "Failed to load dashboard data: " + e.getMessage(),
-                "Error",
-                JOptionPane.ERROR_MESSAGE);
+            });
+        }
+    }
+    
+    /**
+     * Build the recent transactions rows; runs on the DB executor
+     */
+    private List<Object[]> loadRecentTransactionRows() {
+        List<Transaction> recent = transactionDAO.findFirstPage(10);
+        
+        Map<Integer, String> categoryNames = new HashMap<>();
+        for (Category category : categoryDAO.findAll()) {
+            categoryNames.put(category.getCategoryId(), category.getName());
+        }
+        
+        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("MMM dd, yyyy");
+        List<Object[]> rows = new ArrayList<>();
+        for (Transaction t : recent) {
+            rows.add(new Object[] {
+                t.getDate().format(fmt),
+                categoryNames.getOrDefault(t.getCategoryId(), "Unknown"),
+                t.getDescription() != null ? t.getDescription() : "",
+                "$" + t.getAmount().toString(),
+                t.getType().toString()
+            });
         }
+        return rows;
     }
     
     public void refreshAllData() {
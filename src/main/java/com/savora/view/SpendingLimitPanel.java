@@ -2,10 +2,11 @@ package com.savora.view;
 
 import com.savora.dao.CategoryDAO;
 import com.savora.dao.SpendingLimitDAO;
-import com.savora.dao.TransactionDAO;
 import com.savora.model.Category;
 import com.savora.model.SpendingLimit;
 import com.savora.model.Transaction;
+import com.savora.service.SpendingLimitEvaluator;
+import com.savora.service.SpendingLimitMonitor;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -23,7 +24,8 @@ import java.util.List;
 public class SpendingLimitPanel extends JPanel {
     private final SpendingLimitDAO spendingLimitDAO;
     private final CategoryDAO categoryDAO;
-    private final TransactionDAO transactionDAO;
+    private final SpendingLimitEvaluator limitEvaluator;
+    private final SpendingLimitMonitor limitMonitor;
     
     private JTable limitTable;
     private DefaultTableModel tableModel;
@@ -46,7 +48,8 @@ public class SpendingLimitPanel extends JPanel {
     public SpendingLimitPanel() {
         this.spendingLimitDAO = new SpendingLimitDAO();
         this.categoryDAO = new CategoryDAO();
-        this.transactionDAO = new TransactionDAO();
+        this.limitEvaluator = new SpendingLimitEvaluator();
+        this.limitMonitor = SpendingLimitMonitor.getInstance();
         
         initializeComponents();
         setupLayout();
@@ -280,19 +283,20 @@ public class SpendingLimitPanel extends JPanel {
     private void loadSpendingLimits() {
         tableModel.setRowCount(0);
         List<SpendingLimit> limits = spendingLimitDAO.findAll();
+        SpendingLimitEvaluator.Evaluation evaluation = limitEvaluator.evaluate(limits, LocalDate.now());
         
-        for (SpendingLimit limit : limits) {
+        for (SpendingLimitEvaluator.LimitStatus status : evaluation.getStatuses()) {
+            SpendingLimit limit = status.getLimit();
             String categoryName = "Overall Spending";
             if (limit.getCategoryId() != null) {
                 Category category = categoryDAO.findById(limit.getCategoryId());
                 categoryName = category != null ? category.getName() : "Unknown";
             }
             
-            // Calculate current spending for the period
-            BigDecimal currentSpending = getCurrentSpendingForPeriod(limit);
-            BigDecimal remaining = limit.getLimitAmount().subtract(currentSpending);
-            double usagePercentage = currentSpending.divide(limit.getLimitAmount(), 4, BigDecimal.ROUND_HALF_UP)
-                    .multiply(new BigDecimal(100)).doubleValue();
+            // Current spending for the period, from one evaluation of all limits
+            BigDecimal currentSpending = status.getSpent();
+            BigDecimal remaining = status.getRemaining();
+            double usagePercentage = status.getPercentage();
             
             Object[] row = {
                 limit.getLimitId(),
@@ -307,46 +311,6 @@ public class SpendingLimitPanel extends JPanel {
         }
     }
     
-    private BigDecimal getCurrentSpendingForPeriod(SpendingLimit limit) {
-        LocalDate startOfPeriod = getPeriodStartDate(limit.getPeriod());
-        LocalDate endOfPeriod = getPeriodEndDate(startOfPeriod, limit.getPeriod());
-        
-        if (limit.getCategoryId() != null) {
-            // Category-specific spending
-            return transactionDAO.getTotalExpenses(startOfPeriod, endOfPeriod);
-        } else {
-            // Overall spending
-            return transactionDAO.getTotalExpenses(startOfPeriod, endOfPeriod);
-        }
-    }
-    
-    private LocalDate getPeriodStartDate(String period) {
-        LocalDate now = LocalDate.now();
-        switch (period.toLowerCase()) {
-            case "monthly":
-                return now.withDayOfMonth(1);
-            case "weekly":
-                return now.minusDays(now.getDayOfWeek().getValue() - 1);
-            case "yearly":
-                return now.withDayOfYear(1);
-            default:
-                return now.withDayOfMonth(1);
-        }
-    }
-    
-    private LocalDate getPeriodEndDate(LocalDate startDate, String period) {
-        switch (period.toLowerCase()) {
-            case "monthly":
-                return startDate.withDayOfMonth(startDate.lengthOfMonth());
-            case "weekly":
-                return startDate.plusDays(6);
-            case "yearly":
-                return startDate.withDayOfYear(startDate.lengthOfYear());
-            default:
-                return LocalDate.now();
-        }
-    }
-    
     private void loadCategories() {
         categoryCombo.removeAllItems();
         List<Category> categories = categoryDAO.findAll();
@@ -397,6 +361,7 @@ public class SpendingLimitPanel extends JPanel {
             SpendingLimit spendingLimit = new SpendingLimit(categoryId, limitAmount, period);
             
             if (spendingLimitDAO.create(spendingLimit)) {
+                limitMonitor.invalidate();
                 JOptionPane.showMessageDialog(this, "Spending limit added successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
                 clearForm();
                 loadSpendingLimits();
@@ -441,6 +406,7 @@ public class SpendingLimitPanel extends JPanel {
             
             if (option == JOptionPane.YES_OPTION) {
                 if (spendingLimitDAO.delete(limitId)) {
+                    limitMonitor.invalidate();
                     JOptionPane.showMessageDialog(this, "Spending limit deleted successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
                     loadSpendingLimits();
                 } else {
@@ -459,6 +425,7 @@ public class SpendingLimitPanel extends JPanel {
             if (limit != null) {
                 limit.setActive(!limit.isActive());
                 if (spendingLimitDAO.update(limit)) {
+                    limitMonitor.invalidate();
                     JOptionPane.showMessageDialog(this, "Spending limit status updated successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
                     loadSpendingLimits();
                 } else {
@@ -2,6 +2,7 @@ package com.savora.view;
 
 import com.savora.dao.*;
 import com.savora.model.*;
+import com.savora.service.MarkToMarketService;
 import com.savora.service.OrderExecutor;
 import com.savora.service.MarketNewsGenerator;
 import com.savora.model.MarketNews;
@@ -18,8 +19,12 @@ import javax.swing.border.TitledBorder;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Panel for stock market simulation
@@ -34,6 +39,9 @@ public class StockMarketPanel extends JPanel {
     private final TradeDAO tradeDAO;
     private final OrderExecutor orderExecutor;
     private final MarketNewsGenerator newsGenerator;
+    private final MarkToMarketService markToMarket;
+    private final LoadScope loads = new LoadScope(this::loadAccountData);
+    private final Map<Integer, Integer> positionRowsBySymbol = new HashMap<>();
     
     private JLabel cashLabel;
     private JLabel portfolioValueLabel;
@@ -41,7 +49,10 @@ public class StockMarketPanel extends JPanel {
     private JComboBox<StockSymbol> symbolCombo;
     private JTextField quantityField;
     private JTextField limitPriceField;
+    private JTextField stopPriceField;
+    private JLabel stopLabel;
     private JComboBox<Order.OrderType> orderTypeCombo;
+    private JComboBox<Order.TimeInForce> timeInForceCombo;
     private JComboBox<Order.Side> sideCombo;
     
     private DefaultTableModel positionsTableModel;
@@ -73,9 +84,11 @@ public class StockMarketPanel extends JPanel {
         this.tradeDAO = new TradeDAO();
         this.orderExecutor = new OrderExecutor();
         this.newsGenerator = new MarketNewsGenerator();
+        this.markToMarket = MarkToMarketService.getInstance();
         
         initializeComponents();
         setupLayout();
+        markToMarket.addListener(changes -> SwingUtilities.invokeLater(() -> patchPositions(changes)));
         loadData();
     }
     
@@ -122,14 +135,25 @@ public class StockMarketPanel extends JPanel {
         limitPriceField = new JTextField(10);
         limitPriceField.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         
+        stopPriceField = new JTextField(10);
+        stopPriceField.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        stopPriceField.setEnabled(false);
+        stopLabel = new JLabel("🛑 Stop Price:");
+        
         orderTypeCombo = new JComboBox<>(Order.OrderType.values());
         orderTypeCombo.setFont(new Font("Segoe UI", Font.PLAIN, 14));
         orderTypeCombo.addActionListener(e -> {
-            boolean isLimit = orderTypeCombo.getSelectedItem() == Order.OrderType.LIMIT;
+            Order.OrderType type = (Order.OrderType) orderTypeCombo.getSelectedItem();
+            boolean isLimit = type == Order.OrderType.LIMIT || type == Order.OrderType.STOP_LIMIT;
             limitPriceField.setEnabled(isLimit);
+            stopPriceField.setEnabled(type.isStop());
+            stopLabel.setText(type == Order.OrderType.TRAILING_STOP ? "🛑 Trail Amount:" : "🛑 Stop Price:");
         });
         orderTypeCombo.setPreferredSize(new Dimension(200, 28));
         
+        timeInForceCombo = new JComboBox<>(Order.TimeInForce.values());
+        timeInForceCombo.setFont(new Font("Segoe UI", Font.PLAIN, 14));
+        
         sideCombo = new JComboBox<>(Order.Side.values());
         sideCombo.setFont(new Font("Segoe UI", Font.PLAIN, 14));
     sideCombo.setPreferredSize(new Dimension(200, 28));
@@ -147,7 +171,8 @@ public class StockMarketPanel extends JPanel {
         positionsTable.setRowHeight(32);
         
         // Orders table
-        String[] ordersColumns = {"Date", "Symbol", "Type", "Side", "Qty", "Limit Price", "Status", "Filled Price"};
+        String[] ordersColumns = {"Date", "Symbol", "Type", "Side", "Qty", "Limit Price", "Stop Price", "TIF", "Status",
+                                  "Filled Price"};
         ordersTableModel = new DefaultTableModel(ordersColumns, 0) {
             @Override
             public boolean isCellEditable(int row, int column) {
@@ -349,6 +374,18 @@ public class StockMarketPanel extends JPanel {
         formPanel.add(orderTypePanel);
         formPanel.add(Box.createVerticalStrut(10));
         
+        // Time in force
+        JPanel timeInForcePanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
+        timeInForcePanel.setOpaque(false);
+        JLabel timeInForceLabel = new JLabel("⏱ Time in Force:");
+        timeInForceLabel.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        timeInForceCombo.setPreferredSize(new Dimension(280, 40));
+        timeInForceCombo.setBorder(BorderFactory.createLineBorder(new Color(209, 213, 219), 2));
+        timeInForcePanel.add(timeInForceLabel);
+        timeInForcePanel.add(timeInForceCombo);
+        formPanel.add(timeInForcePanel);
+        formPanel.add(Box.createVerticalStrut(10));
+        
         // Quantity
         JPanel quantityPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
         quantityPanel.setOpaque(false);
@@ -377,6 +414,20 @@ public class StockMarketPanel extends JPanel {
         limitPanel.add(limitLabel);
         limitPanel.add(limitPriceField);
         formPanel.add(limitPanel);
+        formPanel.add(Box.createVerticalStrut(10));
+        
+        // Stop price, or trail amount for trailing stops
+        JPanel stopPanel = new JPanel(new FlowLayout(FlowLayout.LEFT, 10, 5));
+        stopPanel.setOpaque(false);
+        stopLabel.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        stopPriceField.setPreferredSize(new Dimension(280, 40));
+        stopPriceField.setBorder(BorderFactory.createCompoundBorder(
+            BorderFactory.createLineBorder(new Color(209, 213, 219), 2),
+            new EmptyBorder(8, 12, 8, 12)
+        ));
+        stopPanel.add(stopLabel);
+        stopPanel.add(stopPriceField);
+        formPanel.add(stopPanel);
         formPanel.add(Box.createVerticalStrut(15));
         
         // Wrap the form in a scroll pane
@@ -480,16 +531,8 @@ public class StockMarketPanel extends JPanel {
         }
         System.out.println("Symbol combo now has " + symbolCombo.getItemCount() + " items");
         
-        // Load account data
-        updateAccountSummary();
-        loadPositions();
-        loadOrders();
-        loadTrades();
-        
-        // Load chart for first symbol
-        if (symbolCombo.getItemCount() > 0) {
-            updateChart((StockSymbol) symbolCombo.getSelectedItem());
-        }
+        // Load account data and the chart for the first symbol
+        loadAccountData();
         
         // Add listener to update chart on symbol change
         symbolCombo.addActionListener(e -> {
@@ -500,91 +543,139 @@ public class StockMarketPanel extends JPanel {
         });
     }
     
+    /**
+     * Reload account summary, positions, orders, trades and the chart in the background
+     */
+    private void loadAccountData() {
+        updateAccountSummary();
+        loadPositions();
+        loadOrders();
+        loadTrades();
+        
+        if (symbolCombo.getItemCount() > 0) {
+            updateChart((StockSymbol) symbolCombo.getSelectedItem());
+        }
+    }
+    
     private void updateAccountSummary() {
-        SimulatedAccount account = accountDAO.findById(ACCOUNT_ID);
-        if (account != null) {
-            cashLabel.setText("Cash: $" + String.format("%,.2f", account.getCurrentCash()));
-            
-            // Calculate portfolio value
-            List<Position> positions = positionDAO.findByAccount(ACCOUNT_ID);
-            BigDecimal portfolioValue = BigDecimal.ZERO;
+        loads.load("account",
+            accountDAO.findByIdAsync(ACCOUNT_ID),
+            positionDAO.findByAccountAsync(ACCOUNT_ID),
+            (account, positions) -> {
+                if (account == null) {
+                    return;
+                }
+                cashLabel.setText("Cash: $" + String.format("%,.2f", account.getCurrentCash()));
+                
+                // Calculate portfolio value
+                BigDecimal portfolioValue = BigDecimal.ZERO;
+                for (Position pos : positions) {
+                    if (pos.getCurrentValue() != null) {
+                        portfolioValue = portfolioValue.add(pos.getCurrentValue());
+                    }
+                }
+                
+                portfolioValueLabel.setText("Portfolio: $" + String.format("%,.2f", portfolioValue));
+                
+                BigDecimal total = account.getCurrentCash().add(portfolioValue);
+                totalValueLabel.setText("Total: $" + String.format("%,.2f", total));
+            });
+    }
+    
+    private void loadPositions() {
+        // Revalue on the DB executor: one query for the positions, closes from the price cache
+        loads.load("positions", () -> markToMarket.markAccount(ACCOUNT_ID), positions -> {
+            positionsTableModel.setRowCount(0);
+            positionRowsBySymbol.clear();
             for (Position pos : positions) {
-                if (pos.getCurrentValue() != null) {
-                    portfolioValue = portfolioValue.add(pos.getCurrentValue());
+                positionRowsBySymbol.put(pos.getSymbolId(), positionsTableModel.getRowCount());
+                positionsTableModel.addRow(toPositionRow(pos));
+            }
+        });
+    }
+    
+    /**
+     * Update only the cells of revalued positions; positions not in the table appear at the next reload
+     */
+    private void patchPositions(List<MarkToMarketService.Change> changes) {
+        boolean patched = false;
+        for (MarkToMarketService.Change change : changes) {
+            Integer row = positionRowsBySymbol.get(change.getSymbolId());
+            if (change.getAccountId() != ACCOUNT_ID || row == null || row >= positionsTableModel.getRowCount()) {
+                continue;
+            }
+            Object[] values = toPositionRow(change.getPosition());
+            for (int column = 3; column < values.length; column++) { // price, value, P&L, P&L %
+                if (!values[column].equals(positionsTableModel.getValueAt(row, column))) {
+                    positionsTableModel.setValueAt(values[column], row, column);
                 }
             }
-            
-            portfolioValueLabel.setText("Portfolio: $" + String.format("%,.2f", portfolioValue));
-            
-            BigDecimal total = account.getCurrentCash().add(portfolioValue);
-            totalValueLabel.setText("Total: $" + String.format("%,.2f", total));
+            patched = true;
+        }
+        if (patched) {
+            updateAccountSummary();
         }
     }
     
-    private void loadPositions() {
-        positionsTableModel.setRowCount(0);
-        
-        // Update position values first
-        orderExecutor.updatePositionValues(ACCOUNT_ID);
-        
-        List<Position> positions = positionDAO.findByAccount(ACCOUNT_ID);
-        for (Position pos : positions) {
-            MarketData latest = marketDataDAO.findLatestBySymbol(pos.getSymbolId());
-            BigDecimal currentPrice = latest != null ? latest.getClosePrice() : pos.getAvgCost();
-            
-            BigDecimal pnl = pos.getUnrealizedPnl() != null ? pos.getUnrealizedPnl() : BigDecimal.ZERO;
-            BigDecimal costBasis = pos.getAvgCost().multiply(new BigDecimal(pos.getQuantity()));
-            double pnlPercent = costBasis.doubleValue() > 0 ? 
-                (pnl.doubleValue() / costBasis.doubleValue()) * 100 : 0;
-            
-            Object[] row = {
-                pos.getSymbol(),
-                pos.getQuantity(),
-                String.format("$%.2f", pos.getAvgCost()),
-                String.format("$%.2f", currentPrice),
-                String.format("$%.2f", pos.getCurrentValue()),
-                String.format("$%.2f", pnl),
-                String.format("%.2f%%", pnlPercent)
-            };
-            positionsTableModel.addRow(row);
-        }
+    /**
+     * Table row of a position; the current price is its value per share
+     */
+    private Object[] toPositionRow(Position pos) {
+        long costBasis = Money.times(Money.toCents(pos.getAvgCost()), pos.getQuantity());
+        long value = pos.getCurrentValue() != null ? Money.toCents(pos.getCurrentValue()) : costBasis;
+        long pnl = pos.getUnrealizedPnl() != null ? Money.toCents(pos.getUnrealizedPnl()) : 0L;
+        long currentPrice = pos.getQuantity() > 0 ? Money.divide(value, pos.getQuantity(), RoundingMode.HALF_UP)
+                                                  : Money.toCents(pos.getAvgCost());
+        double pnlPercent = costBasis > 0 ? pnl * 100.0 / costBasis : 0;
+        
+        return new Object[] {
+            pos.getSymbol(),
+            pos.getQuantity(),
+            String.format("$%.2f", pos.getAvgCost()),
+            String.format("$%.2f", Money.toBigDecimal(currentPrice)),
+            String.format("$%.2f", Money.toBigDecimal(value)),
+            String.format("$%.2f", Money.toBigDecimal(pnl)),
+            String.format("%.2f%%", pnlPercent)
+        };
     }
     
     private void loadOrders() {
-        ordersTableModel.setRowCount(0);
-        List<Order> orders = orderDAO.findByAccount(ACCOUNT_ID);
-        
-        for (Order order : orders) {
-            Object[] row = {
-                order.getOrderDate(),
-                order.getSymbol(),
-                order.getOrderType(),
-                order.getSide(),
-                order.getQuantity(),
-                order.getLimitPrice() != null ? String.format("$%.2f", order.getLimitPrice()) : "-",
-                order.getStatus(),
-                order.getFilledPrice() != null ? String.format("$%.2f", order.getFilledPrice()) : "-"
-            };
-            ordersTableModel.addRow(row);
-        }
+        loads.load("orders", orderDAO.findByAccountAsync(ACCOUNT_ID), orders -> {
+            ordersTableModel.setRowCount(0);
+            for (Order order : orders) {
+                Object[] row = {
+                    order.getOrderDate(),
+                    order.getSymbol(),
+                    order.getOrderType(),
+                    order.getSide(),
+                    order.getQuantity(),
+                    order.getLimitPrice() != null ? String.format("$%.2f", order.getLimitPrice()) : "-",
+                    order.getStopPrice() != null ? String.format("$%.2f", order.getStopPrice()) : "-",
+                    order.getTimeInForce(),
+                    order.getStatus(),
+                    order.getFilledPrice() != null ? String.format("$%.2f", order.getFilledPrice()) : "-"
+                };
+                ordersTableModel.addRow(row);
+            }
+        });
     }
     
     private void loadTrades() {
-        tradesTableModel.setRowCount(0);
-        List<Trade> trades = tradeDAO.findByAccount(ACCOUNT_ID);
-        
-        for (Trade trade : trades) {
-            Object[] row = {
-                trade.getTradeDate(),
-                trade.getSymbol(),
-                trade.getSide(),
-                trade.getQuantity(),
-                String.format("$%.2f", trade.getPrice()),
-                String.format("$%.2f", trade.getCommission()),
-                String.format("$%.2f", trade.getTotalAmount())
-            };
-            tradesTableModel.addRow(row);
-        }
+        loads.load("trades", tradeDAO.findByAccountAsync(ACCOUNT_ID), trades -> {
+            tradesTableModel.setRowCount(0);
+            for (Trade trade : trades) {
+                Object[] row = {
+                    trade.getTradeDate(),
+                    trade.getSymbol(),
+                    trade.getSide(),
+                    trade.getQuantity(),
+                    String.format("$%.2f", trade.getPrice()),
+                    String.format("$%.2f", trade.getCommission()),
+                    String.format("$%.2f", trade.getTotalAmount())
+                };
+                tradesTableModel.addRow(row);
+            }
+        });
     }
     
     private void updateChart(StockSymbol symbol) {
@@ -593,26 +684,29 @@ public class StockMarketPanel extends JPanel {
             return;
         }
         
-        LocalDate endDate = LocalDate.now().minusDays(1); // Use yesterday as end date since data goes to yesterday
-        LocalDate startDate = endDate.minusMonths(6); // Show 6 months
-        
         System.out.println("Updating chart for " + symbol.getSymbol() + " (ID: " + symbol.getSymbolId() + ")");
+        loadChart(symbol, 6); // Show 6 months
+    }
+    
+    private void loadChart(StockSymbol symbol, int months) {
+        LocalDate endDate = LocalDate.now().minusDays(1); // Use yesterday as end date since data goes to yesterday
+        LocalDate startDate = endDate.minusMonths(months);
         System.out.println("Date range: " + startDate + " to " + endDate);
         
-        List<MarketData> data = marketDataDAO.findBySymbolAndDateRange(
-            symbol.getSymbolId(), startDate, endDate
-        );
-        
-        System.out.println("Found " + data.size() + " data points for " + symbol.getSymbol());
-        
-        // If no data found in recent 6 months, try last 12 months
-        if (data.isEmpty()) {
-            startDate = endDate.minusMonths(12);
-            System.out.println("No data in 6 months, trying 12 months: " + startDate + " to " + endDate);
-            data = marketDataDAO.findBySymbolAndDateRange(symbol.getSymbolId(), startDate, endDate);
-            System.out.println("Found " + data.size() + " data points in 12 months for " + symbol.getSymbol());
-        }
-        
+        loads.load("chart", marketDataDAO.findBySymbolAndDateRangeAsync(symbol.getSymbolId(), startDate, endDate), data -> {
+            System.out.println("Found " + data.size() + " data points in " + months + " months for " + symbol.getSymbol());
+            
+            // If no data found in recent 6 months, try last 12 months
+            if (data.isEmpty() && months < 12) {
+                System.out.println("No data in " + months + " months, trying 12 months");
+                loadChart(symbol, 12);
+                return;
+            }
+            showChart(symbol, data, months);
+        });
+    }
+    
+    private void showChart(StockSymbol symbol, List<MarketData> data, int months) {
         TimeSeries series = new TimeSeries(symbol.getSymbol());
         for (MarketData md : data) {
             series.add(
@@ -626,7 +720,6 @@ public class StockMarketPanel extends JPanel {
         TimeSeriesCollection dataset = new TimeSeriesCollection(series);
         String chartTitle = symbol.getSymbol() + " - Price History";
         if (!data.isEmpty()) {
-            int months = (int) java.time.temporal.ChronoUnit.MONTHS.between(startDate, endDate);
             chartTitle += " (" + months + " Months)";
         } else {
             chartTitle += " (No Data Available)";
@@ -665,9 +758,13 @@ public class StockMarketPanel extends JPanel {
             Order.Side side = (Order.Side) sideCombo.getSelectedItem();
             
             BigDecimal limitPrice = null;
-            if (orderType == Order.OrderType.LIMIT) {
+            if (orderType == Order.OrderType.LIMIT || orderType == Order.OrderType.STOP_LIMIT) {
                 limitPrice = new BigDecimal(limitPriceField.getText().trim());
             }
+            BigDecimal stopPrice = null;
+            if (orderType.isStop()) {
+                stopPrice = new BigDecimal(stopPriceField.getText().trim());
+            }
             
             Order order = new Order(
                 ACCOUNT_ID,
@@ -678,11 +775,18 @@ public class StockMarketPanel extends JPanel {
                 limitPrice,
                 LocalDate.now()
             );
+            if (orderType == Order.OrderType.TRAILING_STOP) {
+                order.setTrailAmount(stopPrice);
+            } else {
+                order.setStopPrice(stopPrice);
+            }
+            order.setTimeInForce((Order.TimeInForce) timeInForceCombo.getSelectedItem());
             
             if (orderExecutor.placeOrder(order)) {
                 JOptionPane.showMessageDialog(this, "Order placed successfully!", "Success", JOptionPane.INFORMATION_MESSAGE);
                 quantityField.setText("");
                 limitPriceField.setText("");
+                stopPriceField.setText("");
                 loadOrders();
             } else {
                 JOptionPane.showMessageDialog(this, "Failed to place order", "Error", JOptionPane.ERROR_MESSAGE);
@@ -694,8 +798,16 @@ public class StockMarketPanel extends JPanel {
     }
     
     private void executeTodaysOrders() {
-        orderExecutor.executePendingOrders(ACCOUNT_ID, LocalDate.now());
-        JOptionPane.showMessageDialog(this, "Orders executed!", "Success", JOptionPane.INFORMATION_MESSAGE);
+        OrderExecutor.BatchResult result = orderExecutor.executePendingOrders(ACCOUNT_ID, LocalDate.now());
+        System.out.println(result);
+        if (result.isFailed()) {
+            JOptionPane.showMessageDialog(this, "Failed to execute orders", "Error", JOptionPane.ERROR_MESSAGE);
+        } else {
+            JOptionPane.showMessageDialog(this, "Orders executed: " + result.getFilled() + " filled, " +
+                                          result.getRejected() + " rejected, " + result.getUnfilled() + " not filled, " +
+                                          result.getExpired() + " expired",
+                                          "Success", JOptionPane.INFORMATION_MESSAGE);
+        }
         
         updateAccountSummary();
         loadPositions();
@@ -707,6 +819,10 @@ public class StockMarketPanel extends JPanel {
         loadData();
     }
     
+    public LoadScope getLoadScope() {
+        return loads;
+    }
+    
     private JPanel createNewsPanel() {
         JPanel panel = new JPanel(new BorderLayout(10, 10));
         panel.setBackground(CARD_COLOR);
@@ -4,18 +4,20 @@ import com.savora.dao.CategoryDAO;
 import com.savora.dao.TransactionDAO;
 import com.savora.model.Category;
 import com.savora.model.Transaction;
+import com.savora.model.TransactionFilter;
 import com.savora.util.NotificationManager;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
-import javax.swing.table.DefaultTableModel;
-import javax.swing.table.TableRowSorter;
 import javax.swing.table.TableCellRenderer;
 import javax.swing.table.DefaultTableCellRenderer;
+import javax.swing.table.JTableHeader;
+import javax.swing.table.TableColumn;
 import java.awt.*;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 /**
@@ -28,8 +30,7 @@ public class TransactionPanel extends JPanel {
     private final NotificationManager notificationManager;
     
     private JTable transactionTable;
-    private DefaultTableModel tableModel;
-    private TableRowSorter<DefaultTableModel> tableSorter;
+    private TransactionTableModel tableModel;
     
     private JTextField amountField;
     private JTextField descriptionField;
@@ -37,6 +38,16 @@ public class TransactionPanel extends JPanel {
     private JComboBox<Transaction.TransactionType> typeCombo;
     private JFormattedTextField dateField;
     
+    // Filters, applied by the database
+    private JComboBox<Transaction.TransactionType> typeFilter;
+    private JComboBox<Category> categoryFilter;
+    private JFormattedTextField fromDateFilter;
+    private JFormattedTextField toDateFilter;
+    private JTextField minAmountFilter;
+    private JTextField maxAmountFilter;
+    private JTextField searchFilter;
+    private boolean clearingFilters;
+    
     // Colors for modern UI
     private static final Color PRIMARY_COLOR = new Color(59, 130, 246);
     private static final Color SUCCESS_COLOR = new Color(34, 197, 94);
@@ -62,14 +73,8 @@ public class TransactionPanel extends JPanel {
         setBackground(BACKGROUND_COLOR);
         setBorder(new EmptyBorder(24, 24, 24, 24));
         
-        // Initialize table
-        String[] columnNames = {"ID", "Date", "Category", "Description", "Amount", "Type"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
-            @Override
-            public boolean isCellEditable(int row, int column) {
-                return false; // Make table read-only
-            }
-        };
+        // Initialize table; rows are loaded a page at a time as it scrolls
+        tableModel = new TransactionTableModel(transactionDAO, categoryDAO);
         
         transactionTable = new JTable(tableModel);
         transactionTable.setFont(new Font("Segoe UI", Font.PLAIN, 12));
@@ -92,9 +97,6 @@ public class TransactionPanel extends JPanel {
         // Customize type column
         transactionTable.getColumnModel().getColumn(5).setCellRenderer(new TypeCellRenderer());
         
-        tableSorter = new TableRowSorter<>(tableModel);
-        transactionTable.setRowSorter(tableSorter);
-        
         // Initialize form fields
         initializeFormFields();
     }
@@ -196,19 +198,19 @@ public class TransactionPanel extends JPanel {
         typeFilterLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
         typeFilterLabel.setForeground(TEXT_SECONDARY);
         
-        JComboBox<Transaction.TransactionType> typeFilter = new JComboBox<>();
+        typeFilter = new JComboBox<>();
         typeFilter.addItem(null); // All types
         for (Transaction.TransactionType type : Transaction.TransactionType.values()) {
             typeFilter.addItem(type);
         }
-        typeFilter.addActionListener(e -> filterTransactions(typeFilter, null, null));
+        typeFilter.addActionListener(e -> filterTransactions());
         
         // Category filter
         JLabel categoryFilterLabel = new JLabel("Category:");
         categoryFilterLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
         categoryFilterLabel.setForeground(TEXT_SECONDARY);
         
-        JComboBox<Category> categoryFilter = new JComboBox<>();
+        categoryFilter = new JComboBox<>();
         categoryFilter.addItem(null); // All categories
         // Render categories by name (and show friendly label for null)
         categoryFilter.setRenderer(new DefaultListCellRenderer() {
@@ -227,16 +229,44 @@ public class TransactionPanel extends JPanel {
         for (Category category : categories) {
             categoryFilter.addItem(category);
         }
-        categoryFilter.addActionListener(e -> filterTransactions(null, categoryFilter, null));
+        categoryFilter.addActionListener(e -> filterTransactions());
         
-        // Date filter
+        // Date range filter (yyyy-MM-dd), applied on Enter
         JLabel dateFilterLabel = new JLabel("Date:");
         dateFilterLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
         dateFilterLabel.setForeground(TEXT_SECONDARY);
         
-        JFormattedTextField dateFilter = new JFormattedTextField();
-        dateFilter.setColumns(10);
-        dateFilter.addActionListener(e -> filterTransactions(null, null, dateFilter));
+        fromDateFilter = new JFormattedTextField();
+        fromDateFilter.setColumns(8);
+        fromDateFilter.setToolTipText("From (yyyy-MM-dd)");
+        fromDateFilter.addActionListener(e -> filterTransactions());
+        
+        toDateFilter = new JFormattedTextField();
+        toDateFilter.setColumns(8);
+        toDateFilter.setToolTipText("To (yyyy-MM-dd)");
+        toDateFilter.addActionListener(e -> filterTransactions());
+        
+        // Amount range filter, applied on Enter
+        JLabel amountFilterLabel = new JLabel("Amount:");
+        amountFilterLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        amountFilterLabel.setForeground(TEXT_SECONDARY);
+        
+        minAmountFilter = new JTextField(5);
+        minAmountFilter.setToolTipText("Minimum amount");
+        minAmountFilter.addActionListener(e -> filterTransactions());
+        
+        maxAmountFilter = new JTextField(5);
+        maxAmountFilter.setToolTipText("Maximum amount");
+        maxAmountFilter.addActionListener(e -> filterTransactions());
+        
+        // Description search, applied on Enter
+        JLabel searchFilterLabel = new JLabel("Search:");
+        searchFilterLabel.setFont(new Font("Segoe UI", Font.PLAIN, 12));
+        searchFilterLabel.setForeground(TEXT_SECONDARY);
+        
+        searchFilter = new JTextField(10);
+        searchFilter.setToolTipText("Text in the description");
+        searchFilter.addActionListener(e -> filterTransactions());
         
         // Clear filters button
         JButton clearFiltersButton = new JButton("Clear Filters");
@@ -246,10 +276,16 @@ public class TransactionPanel extends JPanel {
         clearFiltersButton.setBorder(BorderFactory.createEmptyBorder(6, 12, 6, 12));
         clearFiltersButton.setFocusPainted(false);
         clearFiltersButton.addActionListener(e -> {
+            clearingFilters = true;
             typeFilter.setSelectedItem(null);
             categoryFilter.setSelectedItem(null);
-            dateFilter.setValue("");
-            tableSorter.setRowFilter(null);
+            fromDateFilter.setValue("");
+            toDateFilter.setValue("");
+            minAmountFilter.setText("");
+            maxAmountFilter.setText("");
+            searchFilter.setText("");
+            clearingFilters = false;
+            filterTransactions();
         });
         
         // Refresh button
@@ -269,7 +305,13 @@ public class TransactionPanel extends JPanel {
         filterPanel.add(categoryFilterLabel);
         filterPanel.add(categoryFilter);
         filterPanel.add(dateFilterLabel);
-        filterPanel.add(dateFilter);
+        filterPanel.add(fromDateFilter);
+        filterPanel.add(toDateFilter);
+        filterPanel.add(amountFilterLabel);
+        filterPanel.add(minAmountFilter);
+        filterPanel.add(maxAmountFilter);
+        filterPanel.add(searchFilterLabel);
+        filterPanel.add(searchFilter);
         filterPanel.add(clearFiltersButton);
         filterPanel.add(refreshButton);
         
@@ -418,46 +460,78 @@ public class TransactionPanel extends JPanel {
         contextMenu.add(deleteMenuItem);
         
         transactionTable.setComponentPopupMenu(contextMenu);
+        
+        // Header click sorts by that column in the database
+        JTableHeader header = transactionTable.getTableHeader();
+        header.addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseClicked(java.awt.event.MouseEvent e) {
+                int column = transactionTable.convertColumnIndexToModel(header.columnAtPoint(e.getPoint()));
+                if (column >= 0 && tableModel.sortBy(column)) {
+                    updateSortIndicator();
+                }
+            }
+        });
+        updateSortIndicator();
     }
     
-    private void filterTransactions(JComboBox<Transaction.TransactionType> typeFilter, 
-                                   JComboBox<Category> categoryFilter, 
-                                   JFormattedTextField dateFilter) {
-        // Implementation for filtering transactions
-        // This would set up row filters based on the selected criteria
+    /**
+     * Query the transactions matching the filter fields, keeping the current order
+     */
+    private void filterTransactions() {
+        if (clearingFilters) {
+            return;
+        }
+        TransactionFilter filter = tableModel.getFilter();
+        filter.setType((Transaction.TransactionType) typeFilter.getSelectedItem());
+        Category category = (Category) categoryFilter.getSelectedItem();
+        filter.setCategoryId(category != null ? category.getCategoryId() : null);
+        try {
+            filter.setFromDate(parseDateFilter(fromDateFilter));
+            filter.setToDate(parseDateFilter(toDateFilter));
+        } catch (DateTimeParseException e) {
+            JOptionPane.showMessageDialog(this, "Please enter filter dates as yyyy-MM-dd.", "Validation Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        try {
+            filter.setMinAmount(parseAmountFilter(minAmountFilter));
+            filter.setMaxAmount(parseAmountFilter(maxAmountFilter));
+        } catch (NumberFormatException e) {
+            JOptionPane.showMessageDialog(this, "Please enter a valid filter amount.", "Validation Error", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        String text = searchFilter.getText().trim();
+        filter.setText(text.isEmpty() ? null : text);
+        tableModel.setFilter(filter);
+    }
+    
+    private LocalDate parseDateFilter(JTextField field) {
+        String text = field.getText().trim();
+        return text.isEmpty() ? null : LocalDate.parse(text, DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+    }
+    
+    private BigDecimal parseAmountFilter(JTextField field) {
+        String text = field.getText().trim();
+        return text.isEmpty() ? null : new BigDecimal(text);
+    }
+    
+    /**
+     * Mark the sorted column's header with the direction
+     */
+    private void updateSortIndicator() {
+        int sortedColumn = tableModel.getSortedColumn();
+        String arrow = tableModel.getFilter().isAscending() ? " \u25B2" : " \u25BC";
+        for (int i = 0; i < transactionTable.getColumnCount(); i++) {
+            TableColumn column = transactionTable.getColumnModel().getColumn(i);
+            int modelColumn = column.getModelIndex();
+            String name = tableModel.getColumnName(modelColumn);
+            column.setHeaderValue(modelColumn == sortedColumn ? name + arrow : name);
+        }
+        transactionTable.getTableHeader().repaint();
     }
     
     private void loadTransactions() {
-        SwingUtilities.invokeLater(() -> {
-            // Clear any row filters before repopulating
-            if (tableSorter != null) {
-                tableSorter.setRowFilter(null);
-            }
-            tableModel.setRowCount(0);
-            List<Transaction> transactions = transactionDAO.findAll();
-            
-            System.out.println("Loading " + transactions.size() + " transactions...");
-            
-            for (Transaction transaction : transactions) {
-                Category category = categoryDAO.findById(transaction.getCategoryId());
-                String categoryName = category != null ? category.getName() : "Unknown";
-                
-                Object[] row = {
-                    transaction.getTransactionId(),
-                    transaction.getDate().format(DateTimeFormatter.ofPattern("MMM dd, yyyy")),
-                    categoryName,
-                    transaction.getDescription() != null ? transaction.getDescription() : "",
-                    transaction.getAmount(),
-                    transaction.getType()
-                };
-                tableModel.addRow(row);
-            }
-            
-            tableModel.fireTableDataChanged();
-            transactionTable.revalidate();
-            transactionTable.repaint();
-            System.out.println("Table updated with " + tableModel.getRowCount() + " rows");
-        });
+        SwingUtilities.invokeLater(tableModel::reload);
     }
     
     private void loadCategories() {
@@ -510,9 +584,6 @@ public class TransactionPanel extends JPanel {
                 clearForm();
                 loadTransactions();
                 mainFrame.loadDashboardData(); // Refresh dashboard
-                
-                // Check spending limits and show notifications
-                notificationManager.checkSpendingLimits(transaction);
             } else {
                 JOptionPane.showMessageDialog(this, "Failed to add transaction.", "Error", JOptionPane.ERROR_MESSAGE);
             }
@@ -535,7 +606,7 @@ public class TransactionPanel extends JPanel {
     private void editSelectedTransaction() {
         int selectedRow = transactionTable.getSelectedRow();
         if (selectedRow >= 0) {
-            int transactionId = (Integer) tableModel.getValueAt(selectedRow, 0);
+            Integer transactionId = tableModel.getTransactionId(selectedRow);
             // Open edit dialog
             // Implementation for editing transaction
         }
@@ -543,9 +614,8 @@ public class TransactionPanel extends JPanel {
     
     private void deleteSelectedTransaction() {
         int selectedRow = transactionTable.getSelectedRow();
-        if (selectedRow >= 0) {
-            int transactionId = (Integer) tableModel.getValueAt(selectedRow, 0);
-            
+        Integer transactionId = selectedRow >= 0 ? tableModel.getTransactionId(selectedRow) : null;
+        if (transactionId != null) {
             int option = JOptionPane.showConfirmDialog(this,
                 "Are you sure you want to delete this transaction?",
                 "Confirm Delete",
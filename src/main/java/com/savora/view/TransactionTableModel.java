@@ -0,0 +1,273 @@
+package com.savora.view;
+
+import com.savora.dao.CategoryDAO;
+import com.savora.dao.TransactionDAO;
+import com.savora.model.Category;
+import com.savora.model.Transaction;
+import com.savora.model.TransactionFilter;
+import com.savora.util.DbExecutor;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.math.BigDecimal;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Table model that loads transactions a page at a time as the table scrolls.
+ *
+ * Pages are fetched on the DB executor with TransactionDAO's keyset queries, which also
+ * filter and sort on the server. Only the last key of each page seen so far is kept, so any
+ * page can be fetched again directly; the rows themselves live in a small LRU cache of pages.
+ * Until the last page has been seen, the table ends with a placeholder row, and painting it
+ * loads the next page. Rows of pages not in the cache show "Loading..." until their page
+ * arrives. Memory and open time therefore do not grow with the number of transactions. All
+ * methods must be called on the EDT.
+ */
+public class TransactionTableModel extends AbstractTableModel {
+    static final int PAGE_SIZE = 100;
+    private static final int MAX_CACHED_PAGES = 10;
+
+    private static final String[] COLUMN_NAMES = {"ID", "Date", "Category", "Description", "Amount", "Type"};
+    private static final TransactionFilter.SortColumn[] SORT_COLUMNS = {
+        null, TransactionFilter.SortColumn.DATE, TransactionFilter.SortColumn.CATEGORY,
+        TransactionFilter.SortColumn.DESCRIPTION, TransactionFilter.SortColumn.AMOUNT, TransactionFilter.SortColumn.TYPE
+    };
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("MMM dd, yyyy");
+
+    private final TransactionDAO transactionDAO;
+    private final CategoryDAO categoryDAO;
+
+    private final Map<Integer, List<Transaction>> pages = new LinkedHashMap<Integer, List<Transaction>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<Transaction>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Set<Integer> loading = new HashSet<>();
+    private Map<Integer, String> categoryNames = new HashMap<>();
+    private TransactionFilter filter = new TransactionFilter();
+
+    // Sort key and id of the last row of every page seen so far; page n starts after page n - 1
+    private final List<Object> pageEndKeys = new ArrayList<>();
+    private final List<Integer> pageEndIds = new ArrayList<>();
+    private int knownRows;
+    private boolean complete;
+    private int generation;
+
+    public TransactionTableModel(TransactionDAO transactionDAO, CategoryDAO categoryDAO) {
+        this.transactionDAO = transactionDAO;
+        this.categoryDAO = categoryDAO;
+    }
+
+    public TransactionFilter getFilter() {
+        return new TransactionFilter(filter);
+    }
+
+    /**
+     * Show the transactions matching a filter, in its order
+     */
+    public void setFilter(TransactionFilter filter) {
+        this.filter = new TransactionFilter(filter);
+        reload();
+    }
+
+    /**
+     * Order by a column: descending first for dates and amounts, ascending for the others, and
+     * reversed when already ordered by it. Returns false for a column that cannot be sorted.
+     */
+    public boolean sortBy(int column) {
+        TransactionFilter.SortColumn sortColumn = SORT_COLUMNS[column];
+        if (sortColumn == null) {
+            return false;
+        }
+        TransactionFilter sorted = new TransactionFilter(filter);
+        if (sortColumn == filter.getSortColumn()) {
+            sorted.setAscending(!filter.isAscending());
+        } else {
+            sorted.setSortColumn(sortColumn);
+            sorted.setAscending(sortColumn != TransactionFilter.SortColumn.DATE &&
+                                sortColumn != TransactionFilter.SortColumn.AMOUNT);
+        }
+        setFilter(sorted);
+        return true;
+    }
+
+    /**
+     * Column the rows are ordered by
+     */
+    public int getSortedColumn() {
+        return Arrays.asList(SORT_COLUMNS).indexOf(filter.getSortColumn());
+    }
+
+    /**
+     * Drop every page and load the first one again, with fresh category names
+     */
+    public void reload() {
+        generation++;
+        pages.clear();
+        loading.clear();
+        pageEndKeys.clear();
+        pageEndIds.clear();
+        knownRows = 0;
+        complete = false;
+        fireTableDataChanged();
+
+        int loadGeneration = generation;
+        TransactionFilter loadFilter = filter;
+        loading.add(0);
+        DbExecutor.getInstance().submit(() -> {
+            Map<Integer, String> names = new HashMap<>();
+            for (Category category : categoryDAO.findAll()) {
+                names.put(category.getCategoryId(), category.getName());
+            }
+            return new FirstPage(names, transactionDAO.findPage(loadFilter, null, 0, PAGE_SIZE));
+        }).whenComplete((firstPage, error) -> SwingUtilities.invokeLater(() -> {
+            if (error == null) {
+                categoryNames = firstPage.categoryNames;
+            }
+            pageLoaded(loadGeneration, 0, firstPage != null ? firstPage.transactions : null, error);
+        }));
+    }
+
+    private void loadPage(int page) {
+        if (!loading.add(page)) {
+            return;
+        }
+        int loadGeneration = generation;
+        TransactionFilter loadFilter = filter;
+        Object afterKey = page > 0 ? pageEndKeys.get(page - 1) : null;
+        int afterId = page > 0 ? pageEndIds.get(page - 1) : 0;
+        DbExecutor.getInstance().submit(() -> transactionDAO.findPage(loadFilter, afterKey, afterId, PAGE_SIZE))
+            .whenComplete((transactions, error) ->
+                SwingUtilities.invokeLater(() -> pageLoaded(loadGeneration, page, transactions, error)));
+    }
+
+    private void pageLoaded(int loadGeneration, int page, List<Transaction> transactions, Throwable error) {
+        if (loadGeneration != generation) {
+            return; // loaded before a reload
+        }
+        loading.remove(page);
+        if (error != null) {
+            System.err.println("Error loading transaction page " + page + ": " + error.getMessage());
+            error.printStackTrace();
+            return;
+        }
+        pages.put(page, transactions);
+
+        int oldCount = getRowCount();
+        if (page == pageEndKeys.size()) {
+            // A page not seen before: remember where it ends and grow the table
+            if (!transactions.isEmpty()) {
+                Transaction last = transactions.get(transactions.size() - 1);
+                pageEndKeys.add(filter.getSortColumn().keyOf(last, categoryNames.get(last.getCategoryId())));
+                pageEndIds.add(last.getTransactionId());
+            }
+            knownRows += transactions.size();
+            complete = transactions.size() < PAGE_SIZE;
+        }
+        int newCount = getRowCount();
+        if (newCount > oldCount) {
+            fireTableRowsInserted(oldCount, newCount - 1);
+        } else if (newCount < oldCount) {
+            fireTableRowsDeleted(newCount, oldCount - 1);
+        }
+        int firstRow = page * PAGE_SIZE;
+        int lastRow = Math.min(firstRow + PAGE_SIZE, Math.min(oldCount, newCount)) - 1;
+        if (lastRow >= firstRow) {
+            fireTableRowsUpdated(firstRow, lastRow);
+        }
+    }
+
+    /**
+     * Transaction shown on a row, or null if its page is not loaded; starts loading it
+     */
+    public Transaction getTransaction(int row) {
+        int page = row / PAGE_SIZE;
+        List<Transaction> transactions = pages.get(page);
+        if (transactions == null) {
+            if (page <= pageEndKeys.size()) {
+                loadPage(page);
+            }
+            return null;
+        }
+        int index = row % PAGE_SIZE;
+        return index < transactions.size() ? transactions.get(index) : null;
+    }
+
+    /**
+     * Id of the transaction on a row, or null if it is not loaded
+     */
+    public Integer getTransactionId(int row) {
+        Transaction transaction = getTransaction(row);
+        return transaction != null ? transaction.getTransactionId() : null;
+    }
+
+    @Override
+    public int getRowCount() {
+        return complete ? knownRows : knownRows + 1;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        switch (column) {
+            case 0:
+                return Integer.class;
+            case 4:
+                return BigDecimal.class;
+            case 5:
+                return Transaction.TransactionType.class;
+            default:
+                return String.class;
+        }
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Transaction transaction = getTransaction(row);
+        if (transaction == null) {
+            return column == 3 ? "Loading..." : null;
+        }
+        switch (column) {
+            case 0:
+                return transaction.getTransactionId();
+            case 1:
+                return transaction.getDate().format(DATE_FORMAT);
+            case 2:
+                return categoryNames.getOrDefault(transaction.getCategoryId(), "Unknown");
+            case 3:
+                return transaction.getDescription() != null ? transaction.getDescription() : "";
+            case 4:
+                return transaction.getAmount();
+            default:
+                return transaction.getType();
+        }
+    }
+
+    private static final class FirstPage {
+        private final Map<Integer, String> categoryNames;
+        private final List<Transaction> transactions;
+
+        private FirstPage(Map<Integer, String> categoryNames, List<Transaction> transactions) {
+            this.categoryNames = categoryNames;
+            this.transactions = transactions;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+-- Intraday OHLCV bars (minute bars and their roll-ups)
+-- About 390 one-minute bars per symbol per trading day, so the table is
+-- clustered on (symbol_id, bar_interval, bar_time) for range scans and
+-- hash-partitioned by symbol. MySQL does not allow foreign keys on
+-- partitioned tables; symbol_id refers to stock_symbols.symbol_id.
+CREATE TABLE IF NOT EXISTS intraday_bars (
+    symbol_id INT NOT NULL,
+    bar_interval SMALLINT NOT NULL,
+    bar_time DATETIME NOT NULL,
+    open_price DECIMAL(10,2) NOT NULL,
+    high_price DECIMAL(10,2) NOT NULL,
+    low_price DECIMAL(10,2) NOT NULL,
+    close_price DECIMAL(10,2) NOT NULL,
+    volume BIGINT NOT NULL,
+    PRIMARY KEY (symbol_id, bar_interval, bar_time)
+) ENGINE=InnoDB
+PARTITION BY KEY (symbol_id) PARTITIONS 16;
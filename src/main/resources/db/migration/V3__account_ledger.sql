@@ -0,0 +1,65 @@
+-- Append-only ledger of account events, with periodic snapshots of the state
+-- they fold into. simulated_accounts.current_cash and positions are kept as
+-- read models derived from this ledger.
+CREATE TABLE IF NOT EXISTS account_events (
+    event_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    account_id INT NOT NULL,
+    event_type ENUM('ACCOUNT_OPENED', 'ORDER_PLACED', 'ORDER_FILLED', 'ORDER_REJECTED', 'ORDER_CANCELLED', 'CASH_ADJUSTED') NOT NULL,
+    event_date DATE NOT NULL,
+    order_id BIGINT,
+    symbol_id INT,
+    side ENUM('BUY', 'SELL'),
+    quantity INT NOT NULL DEFAULT 0,
+    price DECIMAL(10,2),
+    cash_delta DECIMAL(15,2) NOT NULL DEFAULT 0,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (account_id) REFERENCES simulated_accounts(account_id),
+    INDEX idx_account_event (account_id, event_id),
+    INDEX idx_account_date (account_id, event_date)
+) ENGINE=InnoDB;
+
+-- Account state as of one event: replaying starts from the newest snapshot
+CREATE TABLE IF NOT EXISTS account_snapshots (
+    snapshot_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    account_id INT NOT NULL,
+    last_event_id BIGINT NOT NULL,
+    snapshot_date DATE NOT NULL,
+    cash DECIMAL(15,2) NOT NULL,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (account_id) REFERENCES simulated_accounts(account_id),
+    UNIQUE KEY unique_account_event (account_id, last_event_id),
+    INDEX idx_account_date (account_id, snapshot_date)
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS account_snapshot_positions (
+    snapshot_id BIGINT NOT NULL,
+    symbol_id INT NOT NULL,
+    quantity INT NOT NULL,
+    avg_cost DECIMAL(10,2) NOT NULL,
+    PRIMARY KEY (snapshot_id, symbol_id),
+    FOREIGN KEY (snapshot_id) REFERENCES account_snapshots(snapshot_id) ON DELETE CASCADE
+) ENGINE=InnoDB;
+
+-- Backfill: opening balances, then every recorded fill in date order,
+-- then one adjustment for any cash change not explained by trades
+INSERT INTO account_events (account_id, event_type, event_date, cash_delta)
+SELECT account_id, 'ACCOUNT_OPENED', CAST(created_at AS DATE), initial_cash
+FROM simulated_accounts
+ORDER BY account_id;
+
+INSERT INTO account_events (account_id, event_type, event_date, order_id, symbol_id, side, quantity, price, cash_delta)
+SELECT account_id, 'ORDER_FILLED', trade_date, order_id, symbol_id, side, quantity, price,
+       CASE WHEN side = 'BUY' THEN -total_amount ELSE total_amount END
+FROM trades
+ORDER BY trade_date, trade_id;
+
+INSERT INTO account_events (account_id, event_type, event_date, cash_delta)
+SELECT a.account_id, 'CASH_ADJUSTED', CURRENT_DATE, a.current_cash - a.initial_cash - COALESCE(t.net_amount, 0)
+FROM simulated_accounts a
+LEFT JOIN (
+    SELECT account_id, SUM(CASE WHEN side = 'BUY' THEN -total_amount ELSE total_amount END) AS net_amount
+    FROM trades
+    GROUP BY account_id
+) t ON t.account_id = a.account_id
+WHERE a.current_cash <> a.initial_cash + COALESCE(t.net_amount, 0)
+ORDER BY a.account_id;
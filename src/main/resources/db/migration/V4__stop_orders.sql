@@ -0,0 +1,12 @@
+-- Stop, stop-limit and trailing-stop orders and time in force.
+-- stop_price is the trigger level; a trailing stop keeps its current level
+-- here and moves it by trail_amount behind the best price since it was placed.
+-- triggered_date is set once a stop fires; a triggered STOP_LIMIT then rests
+-- as a limit order. DAY and IOC orders still unfilled after the first bar
+-- they can trade on are EXPIRED.
+ALTER TABLE orders MODIFY COLUMN order_type ENUM('MARKET', 'LIMIT', 'STOP', 'STOP_LIMIT', 'TRAILING_STOP') NOT NULL;
+ALTER TABLE orders MODIFY COLUMN status ENUM('PENDING', 'FILLED', 'CANCELLED', 'REJECTED', 'EXPIRED') DEFAULT 'PENDING';
+ALTER TABLE orders ADD COLUMN stop_price DECIMAL(10,2);
+ALTER TABLE orders ADD COLUMN trail_amount DECIMAL(10,2);
+ALTER TABLE orders ADD COLUMN time_in_force ENUM('GTC', 'DAY', 'IOC') NOT NULL DEFAULT 'GTC';
+ALTER TABLE orders ADD COLUMN triggered_date DATE;
@@ -0,0 +1,21 @@
+-- Per-day totals of transactions by category and type. TransactionDAO keeps
+-- it up to date in the same transaction as every insert, update and delete,
+-- so range totals read at most one row per day and category instead of
+-- summing raw transactions.
+CREATE TABLE IF NOT EXISTS spending_rollup (
+    rollup_date DATE NOT NULL,
+    category_id INT NOT NULL,
+    type ENUM('income', 'expense') NOT NULL,
+    total DECIMAL(15,2) NOT NULL DEFAULT 0,
+    transaction_count INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (rollup_date, category_id, type),
+    FOREIGN KEY (category_id) REFERENCES categories(category_id),
+    INDEX idx_rollup_type_date (type, rollup_date),
+    INDEX idx_rollup_category_date (category_id, type, rollup_date)
+) ENGINE=InnoDB;
+
+-- Backfill from the existing transactions
+INSERT INTO spending_rollup (rollup_date, category_id, type, total, transaction_count)
+SELECT date, category_id, type, SUM(amount), COUNT(*)
+FROM transactions
+GROUP BY date, category_id, type;
@@ -0,0 +1,7 @@
+-- Composite indexes for the paged transaction queries. Each filtered page
+-- is a range on one of these in (date, transaction_id) order, so filtering,
+-- sorting by date and seeking to the next page read only the rows returned.
+-- The single-column indexes from V1 are left in place.
+CREATE INDEX idx_transactions_date_id ON transactions(date, transaction_id);
+CREATE INDEX idx_transactions_type_date ON transactions(type, date, transaction_id);
+CREATE INDEX idx_transactions_category_date ON transactions(category_id, date, transaction_id);
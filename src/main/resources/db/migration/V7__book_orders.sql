@@ -0,0 +1,5 @@
+-- Orders placed for the MatchingEngine order books. They are matched only
+-- against other accounts' book orders, so the bar-based OrderExecutor never
+-- selects them, and order books are rebuilt from them alone.
+ALTER TABLE orders ADD COLUMN book_managed BOOLEAN NOT NULL DEFAULT FALSE;
+CREATE INDEX idx_orders_book_status ON orders(book_managed, status, symbol_id);
@@ -0,0 +1,6 @@
+-- Snapshots are only a replay shortcut. Date-bounded replays used to store
+-- snapshots that skipped later-dated events with lower IDs, and snapshot_date
+-- held the last event's date instead of the latest date covered. Drop them
+-- all; the ledger takes new ones as accounts are replayed.
+DELETE FROM account_snapshot_positions;
+DELETE FROM account_snapshots;
@@ -0,0 +1,4 @@
+-- Date of the last daily bar a waiting stop order was checked against. A
+-- trailing stop's stop_price already includes the moves of that bar, so
+-- executing the same date again must not apply it a second time.
+ALTER TABLE orders ADD COLUMN trigger_bar_date DATE;
@@ -0,0 +1,200 @@
+package com.savora.service;
+
+import com.savora.model.Money;
+import com.savora.model.Order;
+import com.savora.model.Position;
+import com.savora.model.PriceSeries;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Checks that the fixed-point money path gives exactly the BigDecimal results.
+ *
+ * Compares Money rounding with BigDecimal for every rounding mode, the ExecutionRules cents
+ * methods with their BigDecimal definitions, OrderExecutor.applyFill with the BigDecimal
+ * average cost formula it replaced, and a backtest's cash with a BigDecimal replay of its
+ * trade log. Random cases are seeded, and boundary cases (half cents, the minimum commission)
+ * are always included. The number of random cases per test can be raised with
+ * -Dmoney.cases=N, and the seed changed with -Dmoney.seed=N.
+ */
+class MoneyRegressionTest {
+    private static final RoundingMode[] MODES = {
+        RoundingMode.UP, RoundingMode.DOWN, RoundingMode.CEILING, RoundingMode.FLOOR,
+        RoundingMode.HALF_UP, RoundingMode.HALF_DOWN, RoundingMode.HALF_EVEN
+    };
+
+    private final int cases = Integer.getInteger("money.cases", 200_000);
+    private Random random;
+
+    @BeforeEach
+    void seed() {
+        random = new Random(Long.getLong("money.seed", 20240101L));
+    }
+
+    @Test
+    void divideMatchesBigDecimal() {
+        long[] edges = { 0, 1, -1, 5, -5, 15, -15, 25, -25, 49, 50, 51, -49, -50, -51, Long.MAX_VALUE / 3 };
+        for (long numerator : edges) {
+            for (long denominator : new long[] { 1, -1, 2, -2, 10, 100, -100, 3, 7 }) {
+                checkDivide(numerator, denominator);
+            }
+        }
+        for (int i = 0; i < cases; i++) {
+            long numerator = random.nextLong() >> random.nextInt(63);
+            long denominator = random.nextBoolean() ? random.nextInt(2_000_000) + 1 : -(random.nextInt(1000) + 1);
+            checkDivide(numerator, denominator);
+        }
+    }
+
+    private void checkDivide(long numerator, long denominator) {
+        for (RoundingMode mode : MODES) {
+            long expected = BigDecimal.valueOf(numerator).divide(BigDecimal.valueOf(denominator), 0, mode)
+                                      .longValueExact();
+            expect(expected, Money.divide(numerator, denominator, mode),
+                   "divide " + numerator + " / " + denominator + " " + mode);
+        }
+    }
+
+    @Test
+    void conversionMatchesBigDecimal() {
+        for (int i = 0; i < cases; i++) {
+            long cents = random.nextLong() >> random.nextInt(63);
+            expect(cents, Money.toCents(Money.toBigDecimal(cents)), "round trip " + cents);
+
+            BigDecimal amount = BigDecimal.valueOf(random.nextLong() >> 20, 3 + random.nextInt(4));
+            for (RoundingMode mode : MODES) {
+                expect(amount.setScale(2, mode).unscaledValue().longValueExact(), Money.toCents(amount, mode),
+                       "toCents " + amount + " " + mode);
+            }
+        }
+    }
+
+    @Test
+    void commissionMatchesBigDecimal() {
+        List<Long> amounts = new ArrayList<>();
+        for (long cents = 0; cents <= 200_000; cents++) {
+            amounts.add(cents); // covers the minimum and every half-cent tie up to $2,000
+        }
+        for (int i = 0; i < cases; i++) {
+            amounts.add((long) (random.nextDouble() * 1e12));
+        }
+        for (long cents : amounts) {
+            BigDecimal expected = ExecutionRules.commission(Money.toBigDecimal(cents));
+            expect(Money.toCents(expected), ExecutionRules.commissionCents(cents), "commission on " + cents);
+        }
+    }
+
+    @Test
+    void fillPricesMatchBigDecimal() {
+        for (int i = 0; i < cases; i++) {
+            long open = i < 100_000 ? i + 1 : 1 + random.nextInt(100_000_000);
+            BigDecimal openPrice = Money.toBigDecimal(open);
+            for (Order.Side side : Order.Side.values()) {
+                expect(Money.toCents(ExecutionRules.marketPrice(side, openPrice)),
+                       ExecutionRules.marketPriceCents(side, open), "market " + side + " at " + open);
+            }
+
+            long low = 1 + random.nextInt(100_000);
+            long high = low + random.nextInt(10_000);
+            long limit = low - 5_000 + random.nextInt(20_000);
+            if (limit <= 0) {
+                continue;
+            }
+            for (Order.Side side : Order.Side.values()) {
+                BigDecimal expected = ExecutionRules.limitPrice(side, Money.toBigDecimal(limit),
+                                                                Money.toBigDecimal(low), Money.toBigDecimal(high));
+                expect(expected != null ? Money.toCents(expected) : ExecutionRules.NO_FILL,
+                       ExecutionRules.limitPriceCents(side, limit, low, high), "limit " + side + " " + limit);
+            }
+        }
+    }
+
+    @Test
+    void applyFillMatchesBigDecimal() {
+        for (int i = 0; i < cases; i++) {
+            int held = 1 + random.nextInt(100_000);
+            int traded = 1 + random.nextInt(held);
+            BigDecimal avgCost = Money.toBigDecimal(1 + random.nextInt(1_000_000));
+            BigDecimal price = Money.toBigDecimal(1 + random.nextInt(1_000_000));
+            Order.Side side = random.nextBoolean() ? Order.Side.BUY : Order.Side.SELL;
+
+            Position expected = referenceApplyFill(new Position(1, 1, held, avgCost), side, traded, price);
+            Position actual = OrderExecutor.applyFill(new Position(1, 1, held, avgCost), 1, 1, side, traded, price);
+            String label = side + " " + traded + " @ " + price + " onto " + held + " @ " + avgCost;
+            expect(expected.getQuantity(), actual.getQuantity(), "quantity after " + label);
+            expect(Money.toCents(expected.getAvgCost()), Money.toCents(actual.getAvgCost()), "avg cost after " + label);
+            expect(Money.toCents(expected.getCurrentValue()), Money.toCents(actual.getCurrentValue()),
+                   "value after " + label);
+            expect(Money.toCents(expected.getUnrealizedPnl()), Money.toCents(actual.getUnrealizedPnl()),
+                   "P&L after " + label);
+        }
+    }
+
+    /**
+     * The BigDecimal position update that OrderExecutor.applyFill used before fixed-point money
+     */
+    private static Position referenceApplyFill(Position position, Order.Side side, int quantity, BigDecimal price) {
+        int newQuantity;
+        BigDecimal newAvgCost;
+        if (side == Order.Side.BUY) {
+            BigDecimal oldCost = position.getAvgCost().multiply(new BigDecimal(position.getQuantity()));
+            BigDecimal newCost = price.multiply(new BigDecimal(quantity));
+            newQuantity = position.getQuantity() + quantity;
+            newAvgCost = oldCost.add(newCost).divide(new BigDecimal(newQuantity), 2, RoundingMode.HALF_UP);
+        } else {
+            newQuantity = position.getQuantity() - quantity;
+            newAvgCost = position.getAvgCost();
+        }
+        position.setQuantity(newQuantity);
+        position.setAvgCost(newAvgCost);
+        position.setCurrentValue(price.multiply(new BigDecimal(newQuantity)));
+        position.setUnrealizedPnl(price.multiply(new BigDecimal(newQuantity))
+                                       .subtract(newAvgCost.multiply(new BigDecimal(newQuantity))));
+        return position;
+    }
+
+    /**
+     * Backtest a random walk and replay its trade log with BigDecimal cash
+     */
+    @Test
+    void backtestCashMatchesBigDecimalReplay() {
+        int startDay = (int) LocalDate.of(2015, 1, 1).toEpochDay();
+        PriceSeries.Builder builder = new PriceSeries.Builder(1, 2000);
+        double price = 50.0;
+        for (int day = 0; day < 2000; day++) {
+            long open = Math.round(price * 100);
+            price *= 1 + random.nextGaussian() * 0.02;
+            long close = Math.max(1, Math.round(price * 100));
+            builder.add(day, startDay + day, open, Math.max(open, close) + 25, Math.max(1, Math.min(open, close) - 25),
+                        close, close, 1000);
+        }
+        BacktestResult result = new Backtester(Collections.singletonList(builder.build()))
+            .run(new MovingAverageCrossStrategy(5, 20), 1_000_000_00L);
+
+        BigDecimal cash = Money.toBigDecimal(result.getInitialCashCents());
+        for (BacktestResult.TradeRecord trade : result.getTrades()) {
+            BigDecimal subtotal = Money.toBigDecimal(trade.getPriceCents()).multiply(new BigDecimal(trade.getQuantity()));
+            BigDecimal commission = ExecutionRules.commission(subtotal);
+            expect(Money.toCents(commission), trade.getCommissionCents(), "backtest commission on " + trade);
+            cash = trade.getSide() == Order.Side.BUY ? cash.subtract(subtotal.add(commission))
+                                                     : cash.add(subtotal.subtract(commission));
+            expect(Money.toCents(cash), trade.getCashAfterCents(), "backtest cash after " + trade);
+        }
+        expect(Money.toCents(cash), result.getFinalCashCents(), "backtest final cash");
+    }
+
+    private static void expect(long expected, long actual, String label) {
+        assertEquals(expected, actual, label);
+    }
+}
@@ -0,0 +1,60 @@
+package com.savora.service;
+
+import com.savora.model.Order;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks that OrderBook never matches two orders of the same account.
+ */
+class OrderBookTest {
+    private static final int SYMBOL = 1;
+    private static final int ACCOUNT = 10;
+    private static final int OTHER_ACCOUNT = 20;
+
+    @Test
+    void cancelsOwnRestingOrdersAndMatchesPastThem() {
+        OrderBook book = new OrderBook(SYMBOL);
+        book.submit(1, ACCOUNT, Order.Side.SELL, 10_000, 5);
+        book.submit(2, OTHER_ACCOUNT, Order.Side.SELL, 10_000, 5);
+        book.submit(3, ACCOUNT, Order.Side.SELL, 10_100, 5);
+
+        List<OrderBook.Fill> fills = book.submit(4, ACCOUNT, Order.Side.BUY, 10_100, 8);
+
+        assertEquals(1, fills.size());
+        OrderBook.Fill fill = fills.get(0);
+        assertEquals(2, fill.getMakerOrderId());
+        assertEquals(OTHER_ACCOUNT, fill.getMakerAccountId());
+        assertEquals(5, fill.getQuantity());
+        assertEquals(Arrays.asList(1L, 3L), book.getSelfTradeCancels());
+        assertEquals(0, book.getRestingQuantity(1));
+        assertEquals(0, book.getRestingQuantity(3));
+
+        // The remainder rests, and the ask side it would have crossed is empty
+        assertEquals(3, book.getRestingQuantity(4));
+        assertEquals(-1, book.getBestAskCents());
+        assertEquals(10_100, book.getBestBidCents());
+        assertEquals(1, book.getOrderCount());
+    }
+
+    @Test
+    void reportsCancelsOfTheLastSubmitOnly() {
+        OrderBook book = new OrderBook(SYMBOL);
+        book.submit(1, ACCOUNT, Order.Side.BUY, 9_900, 5);
+        assertTrue(book.submit(2, ACCOUNT, Order.Side.SELL, OrderBook.MARKET_PRICE, 5).isEmpty());
+        assertEquals(Arrays.asList(1L), book.getSelfTradeCancels());
+
+        book.submit(3, OTHER_ACCOUNT, Order.Side.BUY, 9_900, 5);
+        List<OrderBook.Fill> fills = book.submit(4, ACCOUNT, Order.Side.SELL, 9_900, 5);
+        assertEquals(1, fills.size());
+        assertEquals(3, fills.get(0).getMakerOrderId());
+        assertTrue(book.getSelfTradeCancels().isEmpty());
+        assertEquals(0, book.getOrderCount());
+    }
+}
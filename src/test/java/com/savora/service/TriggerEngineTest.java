@@ -0,0 +1,125 @@
+package com.savora.service;
+
+import com.savora.model.Order;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks TriggerEngine against a brute-force scan of every stop on every bar.
+ *
+ * Random stops and trailing stops are added and removed over a random walk of daily bars; after
+ * each bar the fired orders, their fill prices and the remaining stop levels must match.
+ */
+class TriggerEngineTest {
+    private static final int SYMBOL = 1;
+
+    /**
+     * A stop as the scan sees it
+     */
+    private static final class ScannedStop {
+        private final long orderId;
+        private final Order.Side side;
+        private final long trailCents;
+        private long stopCents;
+
+        private ScannedStop(long orderId, Order.Side side, long stopCents, long trailCents) {
+            this.orderId = orderId;
+            this.side = side;
+            this.stopCents = stopCents;
+            this.trailCents = trailCents;
+        }
+    }
+
+    @Test
+    void firesAndTrailsLikeABruteForceScan() {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            TriggerEngine engine = new TriggerEngine();
+            List<ScannedStop> scanned = new ArrayList<>();
+            long price = 10_000;
+            long nextOrderId = 0;
+
+            for (int day = 0; day < 300; day++) {
+                int added = random.nextInt(5);
+                for (int k = 0; k < added; k++) {
+                    Order.Side side = random.nextBoolean() ? Order.Side.BUY : Order.Side.SELL;
+                    ScannedStop stop;
+                    if (random.nextInt(3) == 0) {
+                        long trail = 1 + random.nextInt(500);
+                        stop = new ScannedStop(nextOrderId++, side,
+                                               side == Order.Side.SELL ? price - trail : price + trail, trail);
+                        engine.addTrailingStop(stop.orderId, SYMBOL, side, stop.stopCents, trail);
+                    } else {
+                        long offset = random.nextInt(800);
+                        stop = new ScannedStop(nextOrderId++, side,
+                                               side == Order.Side.BUY ? price + offset : price - offset, 0);
+                        engine.addStop(stop.orderId, SYMBOL, side, stop.stopCents);
+                    }
+                    scanned.add(stop);
+                }
+                if (random.nextInt(10) == 0 && !scanned.isEmpty()) {
+                    ScannedStop removed = scanned.remove(random.nextInt(scanned.size()));
+                    assertTrue(engine.remove(removed.orderId), "remove " + removed.orderId);
+                }
+
+                long open = price + random.nextInt(201) - 100;
+                long close = open + random.nextInt(401) - 200;
+                long high = Math.max(open, close) + random.nextInt(100);
+                long low = Math.min(open, close) - random.nextInt(100);
+                price = close;
+
+                Map<Long, Long> expected = new HashMap<>();
+                for (Iterator<ScannedStop> it = scanned.iterator(); it.hasNext();) {
+                    ScannedStop stop = it.next();
+                    if (stop.side == Order.Side.BUY && stop.stopCents <= high) {
+                        expected.put(stop.orderId, Math.max(open, stop.stopCents));
+                        it.remove();
+                    } else if (stop.side == Order.Side.SELL && stop.stopCents >= low) {
+                        expected.put(stop.orderId, Math.min(open, stop.stopCents));
+                        it.remove();
+                    }
+                }
+                for (ScannedStop stop : scanned) {
+                    if (stop.trailCents > 0) {
+                        stop.stopCents = stop.side == Order.Side.SELL ? Math.max(stop.stopCents, high - stop.trailCents)
+                                                                      : Math.min(stop.stopCents, low + stop.trailCents);
+                    }
+                }
+
+                Map<Long, Long> actual = new HashMap<>();
+                for (TriggerEngine.Fired fired : engine.onBar(SYMBOL, open, high, low)) {
+                    actual.put(fired.getOrderId(), fired.getPriceCents());
+                }
+                String bar = "round " + round + ", day " + day;
+                assertEquals(expected, actual, "fired stops on " + bar);
+                for (ScannedStop stop : scanned) {
+                    assertEquals(stop.stopCents, engine.getStopCents(stop.orderId),
+                                 "stop level of order " + stop.orderId + " after " + bar);
+                }
+                assertEquals(scanned.size(), engine.size(), "stops left after " + bar);
+            }
+        }
+    }
+
+    @Test
+    void ignoresBarsOfOtherSymbols() {
+        TriggerEngine engine = new TriggerEngine();
+        engine.addStop(1, SYMBOL, Order.Side.SELL, 9_000);
+        engine.addTrailingStop(2, SYMBOL, Order.Side.SELL, 9_500, 500);
+
+        assertTrue(engine.onBar(SYMBOL + 1, 8_000, 11_000, 7_000).isEmpty());
+        assertEquals(9_000, engine.getStopCents(1));
+        assertEquals(9_500, engine.getStopCents(2));
+        assertEquals(0, engine.getTriggerCount(SYMBOL + 1));
+    }
+}